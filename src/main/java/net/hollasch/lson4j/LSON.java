@@ -23,13 +23,26 @@
 
 package net.hollasch.lson4j;
 
+import net.hollasch.lson4j.type.LSONTable;
 import net.hollasch.lson4j.type.LSONTypeAdapter;
+import net.hollasch.lson4j.type.LSONTypeAdapterTable;
 import net.hollasch.lson4j.type.LSONValue;
 import net.hollasch.lson4j.type.provided.LSONTypeAdapters;
+import net.hollasch.lson4j.util.LSONSymbolTable;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 
 /**
  * @author Connor Hollasch
@@ -37,6 +50,11 @@ import java.util.HashSet;
  */
 public class LSON
 {
+    // Tables of the provided adapters, compiled on first use and indexed by the set of adapters as a bit mask. Tables
+    // that do not reorder their adapters never change, so they are shared by every parse.
+    private static final LSONTypeAdapterTable[] PROVIDED_TABLES =
+            new LSONTypeAdapterTable[1 << LSONTypeAdapters.values().length];
+
     private LSON ()
     {
         // Cannot create an LSON object.
@@ -45,13 +63,49 @@ public class LSON
     public static LSONValue parse (final String string)
             throws IOException, LSONParseException
     {
-        return parseWithAdapters(new StringReader(string));
+        return parseWithAdapters(string, createTable());
+    }
+
+    public static LSONValue parse (final CharSequence sequence)
+            throws IOException, LSONParseException
+    {
+        return parseWithAdapters(sequence, createTable());
+    }
+
+    public static LSONValue parse (final char[] chars)
+            throws IOException, LSONParseException
+    {
+        return parseWithAdapters(chars, createTable());
     }
 
     public static LSONValue parse (final InputStream inputStream)
             throws IOException, LSONParseException
     {
-        return parseWithAdapters(new InputStreamReader(inputStream));
+        return parseWithAdapters(inputStream, createTable());
+    }
+
+    public static LSONValue parse (final byte[] bytes)
+            throws IOException, LSONParseException
+    {
+        return parseWithAdapters(bytes, createTable());
+    }
+
+    public static LSONValue parse (final ByteBuffer buffer)
+            throws IOException, LSONParseException
+    {
+        return parseWithAdapters(buffer, createTable());
+    }
+
+    public static LSONValue parse (final Path path)
+            throws IOException, LSONParseException
+    {
+        return parseWithAdapters(path, createTable());
+    }
+
+    public static LSONValue parse (final FileChannel channel)
+            throws IOException, LSONParseException
+    {
+        return parseWithAdapters(channel, createTable());
     }
 
     public static LSONValue parse (final Reader reader)
@@ -63,45 +117,1325 @@ public class LSON
     public static LSONValue parseWithAdapters (final String string, final LSONTypeAdapters... typeAdapters)
             throws IOException, LSONParseException
     {
-        return parseWithAdapters(new StringReader(string), typeAdapters);
+        return parseWithAdapters(string, createTable(typeAdapters));
+    }
+
+    public static LSONValue parseWithAdapters (final CharSequence sequence, final LSONTypeAdapters... typeAdapters)
+            throws IOException, LSONParseException
+    {
+        return parseWithAdapters(sequence, createTable(typeAdapters));
+    }
+
+    public static LSONValue parseWithAdapters (final char[] chars, final LSONTypeAdapters... typeAdapters)
+            throws IOException, LSONParseException
+    {
+        return parseWithAdapters(chars, createTable(typeAdapters));
     }
 
     public static LSONValue parseWithAdapters (final InputStream stream, final LSONTypeAdapters... typeAdapters)
             throws IOException, LSONParseException
     {
-        return parseWithAdapters(new InputStreamReader(stream), typeAdapters);
+        return parseWithAdapters(stream, createTable(typeAdapters));
     }
 
-    public static LSONValue parseWithAdapters (final Reader reader, final LSONTypeAdapters... typeAdapters)
+    public static LSONValue parseWithAdapters (final byte[] bytes, final LSONTypeAdapters... typeAdapters)
             throws IOException, LSONParseException
     {
-        final Collection<LSONTypeAdapter<?>> adapterList = new HashSet<>();
+        return parseWithAdapters(bytes, createTable(typeAdapters));
+    }
 
-        for (final LSONTypeAdapters adapter : typeAdapters) {
-            adapterList.add(adapter.createAdapter());
-        }
+    public static LSONValue parseWithAdapters (final ByteBuffer buffer, final LSONTypeAdapters... typeAdapters)
+            throws IOException, LSONParseException
+    {
+        return parseWithAdapters(buffer, createTable(typeAdapters));
+    }
+
+    public static LSONValue parseWithAdapters (final Path path, final LSONTypeAdapters... typeAdapters)
+            throws IOException, LSONParseException
+    {
+        return parseWithAdapters(path, createTable(typeAdapters));
+    }
+
+    public static LSONValue parseWithAdapters (final FileChannel channel, final LSONTypeAdapters... typeAdapters)
+            throws IOException, LSONParseException
+    {
+        return parseWithAdapters(channel, createTable(typeAdapters));
+    }
 
-        return parseWithAdapters(reader, adapterList);
+    public static LSONValue parseWithAdapters (final Reader reader, final LSONTypeAdapters... typeAdapters)
+            throws IOException, LSONParseException
+    {
+        return parseWithAdapters(reader, createTable(typeAdapters));
     }
 
     public static LSONValue parseWithAdapters (final String string, final Collection<LSONTypeAdapter<?>> adapters)
             throws IOException, LSONParseException
     {
-        return parseWithAdapters(new StringReader(string), adapters);
+        return parseWithAdapters(string, new LSONTypeAdapterTable(adapters));
+    }
+
+    public static LSONValue parseWithAdapters (final String string, final LSONTypeAdapterTable adapters)
+            throws IOException, LSONParseException
+    {
+        return parse(new LSONCharReader(string), adapters);
+    }
+
+    public static LSONValue parseWithAdapters (
+            final CharSequence sequence,
+            final Collection<LSONTypeAdapter<?>> adapters)
+            throws IOException, LSONParseException
+    {
+        return parseWithAdapters(sequence, new LSONTypeAdapterTable(adapters));
+    }
+
+    public static LSONValue parseWithAdapters (final CharSequence sequence, final LSONTypeAdapterTable adapters)
+            throws IOException, LSONParseException
+    {
+        return parse(new LSONCharReader(sequence), adapters);
+    }
+
+    public static LSONValue parseWithAdapters (final char[] chars, final Collection<LSONTypeAdapter<?>> adapters)
+            throws IOException, LSONParseException
+    {
+        return parseWithAdapters(chars, new LSONTypeAdapterTable(adapters));
+    }
+
+    public static LSONValue parseWithAdapters (final char[] chars, final LSONTypeAdapterTable adapters)
+            throws IOException, LSONParseException
+    {
+        return parse(new LSONCharReader(chars), adapters);
     }
 
     public static LSONValue parseWithAdapters (final InputStream stream, final Collection<LSONTypeAdapter<?>> adapters)
             throws IOException, LSONParseException
     {
-        return parseWithAdapters(new InputStreamReader(stream), adapters);
+        return parseWithAdapters(stream, new LSONTypeAdapterTable(adapters));
+    }
+
+    public static LSONValue parseWithAdapters (final InputStream stream, final LSONTypeAdapterTable adapters)
+            throws IOException, LSONParseException
+    {
+        // Streams are decoded as UTF-8 by the byte reader itself rather than through an InputStreamReader.
+        return parse(new LSONByteReader(stream), adapters);
+    }
+
+    public static LSONValue parseWithAdapters (final byte[] bytes, final Collection<LSONTypeAdapter<?>> adapters)
+            throws IOException, LSONParseException
+    {
+        return parseWithAdapters(bytes, new LSONTypeAdapterTable(adapters));
+    }
+
+    public static LSONValue parseWithAdapters (final byte[] bytes, final LSONTypeAdapterTable adapters)
+            throws IOException, LSONParseException
+    {
+        return parse(new LSONByteReader(bytes), adapters);
+    }
+
+    public static LSONValue parseWithAdapters (final ByteBuffer buffer, final Collection<LSONTypeAdapter<?>> adapters)
+            throws IOException, LSONParseException
+    {
+        return parseWithAdapters(buffer, new LSONTypeAdapterTable(adapters));
+    }
+
+    public static LSONValue parseWithAdapters (final ByteBuffer buffer, final LSONTypeAdapterTable adapters)
+            throws IOException, LSONParseException
+    {
+        return parse(new LSONByteReader(buffer), adapters);
+    }
+
+    public static LSONValue parseWithAdapters (final Path path, final Collection<LSONTypeAdapter<?>> adapters)
+            throws IOException, LSONParseException
+    {
+        return parseWithAdapters(path, new LSONTypeAdapterTable(adapters));
+    }
+
+    public static LSONValue parseWithAdapters (final Path path, final LSONTypeAdapterTable adapters)
+            throws IOException, LSONParseException
+    {
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return parseWithAdapters(channel, adapters);
+        }
+    }
+
+    public static LSONValue parseWithAdapters (final FileChannel channel, final Collection<LSONTypeAdapter<?>> adapters)
+            throws IOException, LSONParseException
+    {
+        return parseWithAdapters(channel, new LSONTypeAdapterTable(adapters));
+    }
+
+    public static LSONValue parseWithAdapters (final FileChannel channel, final LSONTypeAdapterTable adapters)
+            throws IOException, LSONParseException
+    {
+        // Files are memory mapped and parsed straight out of the mapping.
+        return parse(new LSONByteReader(channel), adapters);
     }
 
     public static LSONValue parseWithAdapters (final Reader reader, final Collection<LSONTypeAdapter<?>> adapters)
             throws IOException, LSONParseException
     {
-        final LSONReader lsonReader = new LSONReader(reader);
-        final LSONParser lsonParser = new LSONParser(lsonReader, adapters);
+        return parseWithAdapters(reader, new LSONTypeAdapterTable(adapters));
+    }
 
-        return lsonParser.parse();
+    public static LSONValue parseWithAdapters (final Reader reader, final LSONTypeAdapterTable adapters)
+            throws IOException, LSONParseException
+    {
+        return parse(new LSONCharReader(reader), adapters);
+    }
+
+    public static LSONValue parseWithSymbols (
+            final CharSequence sequence,
+            final LSONSymbolTable symbols,
+            final LSONTypeAdapters... typeAdapters)
+            throws IOException, LSONParseException
+    {
+        return parseWithSymbols(sequence, symbols, createTable(typeAdapters));
+    }
+
+    public static LSONValue parseWithSymbols (
+            final byte[] bytes,
+            final LSONSymbolTable symbols,
+            final LSONTypeAdapters... typeAdapters)
+            throws IOException, LSONParseException
+    {
+        return parseWithSymbols(bytes, symbols, createTable(typeAdapters));
+    }
+
+    public static LSONValue parseWithSymbols (
+            final InputStream stream,
+            final LSONSymbolTable symbols,
+            final LSONTypeAdapters... typeAdapters)
+            throws IOException, LSONParseException
+    {
+        return parseWithSymbols(stream, symbols, createTable(typeAdapters));
+    }
+
+    public static LSONValue parseWithSymbols (
+            final CharSequence sequence,
+            final LSONSymbolTable symbols,
+            final Collection<LSONTypeAdapter<?>> adapters)
+            throws IOException, LSONParseException
+    {
+        return parseWithSymbols(sequence, symbols, new LSONTypeAdapterTable(adapters));
+    }
+
+    public static LSONValue parseWithSymbols (
+            final CharSequence sequence,
+            final LSONSymbolTable symbols,
+            final LSONTypeAdapterTable adapters)
+            throws IOException, LSONParseException
+    {
+        return new LSONParser(new LSONCharReader(sequence), adapters, symbols).parse();
+    }
+
+    public static LSONValue parseWithSymbols (
+            final byte[] bytes,
+            final LSONSymbolTable symbols,
+            final Collection<LSONTypeAdapter<?>> adapters)
+            throws IOException, LSONParseException
+    {
+        return parseWithSymbols(bytes, symbols, new LSONTypeAdapterTable(adapters));
+    }
+
+    public static LSONValue parseWithSymbols (
+            final byte[] bytes,
+            final LSONSymbolTable symbols,
+            final LSONTypeAdapterTable adapters)
+            throws IOException, LSONParseException
+    {
+        return new LSONParser(new LSONByteReader(bytes), adapters, symbols).parse();
+    }
+
+    public static LSONValue parseWithSymbols (
+            final InputStream stream,
+            final LSONSymbolTable symbols,
+            final Collection<LSONTypeAdapter<?>> adapters)
+            throws IOException, LSONParseException
+    {
+        return parseWithSymbols(stream, symbols, new LSONTypeAdapterTable(adapters));
+    }
+
+    public static LSONValue parseWithSymbols (
+            final InputStream stream,
+            final LSONSymbolTable symbols,
+            final LSONTypeAdapterTable adapters)
+            throws IOException, LSONParseException
+    {
+        return new LSONParser(new LSONByteReader(stream), adapters, symbols).parse();
+    }
+
+    public static LSONValue parseIndexed (final byte[] bytes, final LSONTypeAdapters... typeAdapters)
+            throws IOException, LSONParseException
+    {
+        return parseIndexed(bytes, createTable(typeAdapters));
+    }
+
+    public static LSONValue parseIndexed (final ByteBuffer buffer, final LSONTypeAdapters... typeAdapters)
+            throws IOException, LSONParseException
+    {
+        return parseIndexed(buffer, createTable(typeAdapters));
+    }
+
+    public static LSONValue parseIndexed (final InputStream stream, final LSONTypeAdapters... typeAdapters)
+            throws IOException, LSONParseException
+    {
+        return parseIndexed(stream, createTable(typeAdapters));
+    }
+
+    public static LSONValue parseIndexed (final Path path, final LSONTypeAdapters... typeAdapters)
+            throws IOException, LSONParseException
+    {
+        return parseIndexed(path, createTable(typeAdapters));
+    }
+
+    public static LSONValue parseIndexed (final FileChannel channel, final LSONTypeAdapters... typeAdapters)
+            throws IOException, LSONParseException
+    {
+        return parseIndexed(channel, createTable(typeAdapters));
+    }
+
+    public static LSONValue parseIndexed (final byte[] bytes, final Collection<LSONTypeAdapter<?>> adapters)
+            throws IOException, LSONParseException
+    {
+        return parseIndexed(bytes, new LSONTypeAdapterTable(adapters));
+    }
+
+    public static LSONValue parseIndexed (final byte[] bytes, final LSONTypeAdapterTable adapters)
+            throws IOException, LSONParseException
+    {
+        return parse(new LSONIndexedReader(bytes), adapters);
+    }
+
+    public static LSONValue parseIndexed (final ByteBuffer buffer, final Collection<LSONTypeAdapter<?>> adapters)
+            throws IOException, LSONParseException
+    {
+        return parseIndexed(buffer, new LSONTypeAdapterTable(adapters));
+    }
+
+    public static LSONValue parseIndexed (final ByteBuffer buffer, final LSONTypeAdapterTable adapters)
+            throws IOException, LSONParseException
+    {
+        return parse(new LSONIndexedReader(buffer), adapters);
+    }
+
+    public static LSONValue parseIndexed (final InputStream stream, final Collection<LSONTypeAdapter<?>> adapters)
+            throws IOException, LSONParseException
+    {
+        return parseIndexed(stream, new LSONTypeAdapterTable(adapters));
+    }
+
+    public static LSONValue parseIndexed (final InputStream stream, final LSONTypeAdapterTable adapters)
+            throws IOException, LSONParseException
+    {
+        return parse(new LSONIndexedReader(stream), adapters);
+    }
+
+    public static LSONValue parseIndexed (final Path path, final Collection<LSONTypeAdapter<?>> adapters)
+            throws IOException, LSONParseException
+    {
+        return parseIndexed(path, new LSONTypeAdapterTable(adapters));
+    }
+
+    public static LSONValue parseIndexed (final Path path, final LSONTypeAdapterTable adapters)
+            throws IOException, LSONParseException
+    {
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return parseIndexed(channel, adapters);
+        }
+    }
+
+    public static LSONValue parseIndexed (final FileChannel channel, final Collection<LSONTypeAdapter<?>> adapters)
+            throws IOException, LSONParseException
+    {
+        return parseIndexed(channel, new LSONTypeAdapterTable(adapters));
+    }
+
+    public static LSONValue parseIndexed (final FileChannel channel, final LSONTypeAdapterTable adapters)
+            throws IOException, LSONParseException
+    {
+        return parse(new LSONIndexedReader(channel), adapters);
+    }
+
+    public static LSONValue parseParallel (final byte[] bytes, final LSONTypeAdapters... typeAdapters)
+            throws IOException, LSONParseException
+    {
+        return parseParallel(ByteBuffer.wrap(bytes), createTable(typeAdapters), ForkJoinPool.commonPool());
+    }
+
+    public static LSONValue parseParallel (final ByteBuffer buffer, final LSONTypeAdapters... typeAdapters)
+            throws IOException, LSONParseException
+    {
+        return parseParallel(buffer, createTable(typeAdapters), ForkJoinPool.commonPool());
+    }
+
+    public static LSONValue parseParallel (final Path path, final LSONTypeAdapters... typeAdapters)
+            throws IOException, LSONParseException
+    {
+        return parseParallel(path, createTable(typeAdapters), ForkJoinPool.commonPool());
+    }
+
+    public static LSONValue parseParallel (final FileChannel channel, final LSONTypeAdapters... typeAdapters)
+            throws IOException, LSONParseException
+    {
+        return parseParallel(channel, createTable(typeAdapters), ForkJoinPool.commonPool());
+    }
+
+    public static LSONValue parseParallel (final byte[] bytes, final Collection<LSONTypeAdapter<?>> adapters)
+            throws IOException, LSONParseException
+    {
+        return parseParallel(bytes, adapters, ForkJoinPool.commonPool());
+    }
+
+    public static LSONValue parseParallel (final ByteBuffer buffer, final Collection<LSONTypeAdapter<?>> adapters)
+            throws IOException, LSONParseException
+    {
+        return parseParallel(buffer, adapters, ForkJoinPool.commonPool());
+    }
+
+    public static LSONValue parseParallel (final Path path, final Collection<LSONTypeAdapter<?>> adapters)
+            throws IOException, LSONParseException
+    {
+        return parseParallel(path, adapters, ForkJoinPool.commonPool());
+    }
+
+    public static LSONValue parseParallel (final FileChannel channel, final Collection<LSONTypeAdapter<?>> adapters)
+            throws IOException, LSONParseException
+    {
+        return parseParallel(channel, adapters, ForkJoinPool.commonPool());
+    }
+
+    public static LSONValue parseParallel (
+            final byte[] bytes,
+            final Collection<LSONTypeAdapter<?>> adapters,
+            final ForkJoinPool pool)
+            throws IOException, LSONParseException
+    {
+        return parseParallel(ByteBuffer.wrap(bytes), adapters, pool);
+    }
+
+    public static LSONValue parseParallel (
+            final ByteBuffer buffer,
+            final Collection<LSONTypeAdapter<?>> adapters,
+            final ForkJoinPool pool)
+            throws IOException, LSONParseException
+    {
+        return parseParallel(buffer, new LSONTypeAdapterTable(adapters), pool);
+    }
+
+    public static LSONValue parseParallel (
+            final Path path,
+            final Collection<LSONTypeAdapter<?>> adapters,
+            final ForkJoinPool pool)
+            throws IOException, LSONParseException
+    {
+        return parseParallel(path, new LSONTypeAdapterTable(adapters), pool);
+    }
+
+    public static LSONValue parseParallel (
+            final FileChannel channel,
+            final Collection<LSONTypeAdapter<?>> adapters,
+            final ForkJoinPool pool)
+            throws IOException, LSONParseException
+    {
+        return parseParallel(channel, new LSONTypeAdapterTable(adapters), pool);
+    }
+
+    public static LSONValue parseLazy (final CharSequence sequence, final LSONTypeAdapters... typeAdapters)
+            throws IOException, LSONParseException
+    {
+        return parseLazy(sequence, createTable(typeAdapters));
+    }
+
+    public static LSONValue parseLazy (final byte[] bytes, final LSONTypeAdapters... typeAdapters)
+            throws IOException, LSONParseException
+    {
+        return parseLazy(bytes, createTable(typeAdapters));
+    }
+
+    public static LSONValue parseLazy (final ByteBuffer buffer, final LSONTypeAdapters... typeAdapters)
+            throws IOException, LSONParseException
+    {
+        return parseLazy(buffer, createTable(typeAdapters));
+    }
+
+    public static LSONValue parseLazy (final Path path, final LSONTypeAdapters... typeAdapters)
+            throws IOException, LSONParseException
+    {
+        return parseLazy(path, createTable(typeAdapters));
+    }
+
+    public static LSONValue parseLazy (final CharSequence sequence, final Collection<LSONTypeAdapter<?>> adapters)
+            throws IOException, LSONParseException
+    {
+        return parseLazy(sequence, new LSONTypeAdapterTable(adapters));
+    }
+
+    public static LSONValue parseLazy (final CharSequence sequence, final LSONTypeAdapterTable adapters)
+            throws IOException, LSONParseException
+    {
+        return parseLazy(sequence.toString().getBytes(StandardCharsets.UTF_8), adapters);
+    }
+
+    public static LSONValue parseLazy (final byte[] bytes, final Collection<LSONTypeAdapter<?>> adapters)
+            throws IOException, LSONParseException
+    {
+        return parseLazy(bytes, new LSONTypeAdapterTable(adapters));
+    }
+
+    public static LSONValue parseLazy (final byte[] bytes, final LSONTypeAdapterTable adapters)
+            throws IOException, LSONParseException
+    {
+        return parseLazy(ByteBuffer.wrap(bytes), adapters);
+    }
+
+    public static LSONValue parseLazy (final ByteBuffer buffer, final Collection<LSONTypeAdapter<?>> adapters)
+            throws IOException, LSONParseException
+    {
+        return parseLazy(buffer, new LSONTypeAdapterTable(adapters));
+    }
+
+    public static LSONValue parseLazy (final ByteBuffer buffer, final LSONTypeAdapterTable adapters)
+            throws IOException, LSONParseException
+    {
+        // Objects and arrays are only read as they are accessed, so the buffer must be left unmodified while the
+        // returned value is in use. They are read with the given table, so a table reordering its adapters limits the
+        // value to one thread at a time.
+        return new LSONLazyParser(buffer, adapters).parse();
+    }
+
+    public static LSONValue parseLazy (final Path path, final Collection<LSONTypeAdapter<?>> adapters)
+            throws IOException, LSONParseException
+    {
+        return parseLazy(path, new LSONTypeAdapterTable(adapters));
+    }
+
+    public static LSONValue parseLazy (final Path path, final LSONTypeAdapterTable adapters)
+            throws IOException, LSONParseException
+    {
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("File too large to parse lazily: " + path);
+            }
+
+            // The mapping outlives the channel, and is released once nothing refers to the parsed value anymore.
+            return parseLazy(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), adapters);
+        }
+    }
+
+    public static LSONTape parseTape (final CharSequence sequence, final LSONTypeAdapters... typeAdapters)
+            throws IOException, LSONParseException
+    {
+        return parseTape(sequence, createTable(typeAdapters));
+    }
+
+    public static LSONTape parseTape (final InputStream stream, final LSONTypeAdapters... typeAdapters)
+            throws IOException, LSONParseException
+    {
+        return parseTape(stream, createTable(typeAdapters));
+    }
+
+    public static LSONTape parseTape (final ByteBuffer buffer, final LSONTypeAdapters... typeAdapters)
+            throws IOException, LSONParseException
+    {
+        return parseTape(buffer, createTable(typeAdapters));
+    }
+
+    public static LSONTape parseTape (final Path path, final LSONTypeAdapters... typeAdapters)
+            throws IOException, LSONParseException
+    {
+        return parseTape(path, createTable(typeAdapters));
+    }
+
+    public static LSONTape parseTape (final Reader reader, final LSONTypeAdapters... typeAdapters)
+            throws IOException, LSONParseException
+    {
+        return parseTape(reader, createTable(typeAdapters));
+    }
+
+    public static LSONTape parseTape (final CharSequence sequence, final Collection<LSONTypeAdapter<?>> adapters)
+            throws IOException, LSONParseException
+    {
+        return parseTape(sequence, new LSONTypeAdapterTable(adapters));
+    }
+
+    public static LSONTape parseTape (final CharSequence sequence, final LSONTypeAdapterTable adapters)
+            throws IOException, LSONParseException
+    {
+        return LSONTape.read(createEventReader(sequence, adapters), adapters);
+    }
+
+    public static LSONTape parseTape (final InputStream stream, final Collection<LSONTypeAdapter<?>> adapters)
+            throws IOException, LSONParseException
+    {
+        return parseTape(stream, new LSONTypeAdapterTable(adapters));
+    }
+
+    public static LSONTape parseTape (final InputStream stream, final LSONTypeAdapterTable adapters)
+            throws IOException, LSONParseException
+    {
+        return LSONTape.read(createEventReader(stream, adapters), adapters);
+    }
+
+    public static LSONTape parseTape (final ByteBuffer buffer, final Collection<LSONTypeAdapter<?>> adapters)
+            throws IOException, LSONParseException
+    {
+        return parseTape(buffer, new LSONTypeAdapterTable(adapters));
+    }
+
+    public static LSONTape parseTape (final ByteBuffer buffer, final LSONTypeAdapterTable adapters)
+            throws IOException, LSONParseException
+    {
+        return LSONTape.read(createEventReader(buffer, adapters), adapters);
+    }
+
+    public static LSONTape parseTape (final Path path, final Collection<LSONTypeAdapter<?>> adapters)
+            throws IOException, LSONParseException
+    {
+        return parseTape(path, new LSONTypeAdapterTable(adapters));
+    }
+
+    public static LSONTape parseTape (final Path path, final LSONTypeAdapterTable adapters)
+            throws IOException, LSONParseException
+    {
+        // Nothing on the tape refers back to the file, so it can be closed as soon as it has been read.
+        try (final LSONEventReader eventReader = createEventReader(path, adapters)) {
+            return LSONTape.read(eventReader, adapters);
+        }
+    }
+
+    public static LSONTape parseTape (final Reader reader, final Collection<LSONTypeAdapter<?>> adapters)
+            throws IOException, LSONParseException
+    {
+        return parseTape(reader, new LSONTypeAdapterTable(adapters));
+    }
+
+    public static LSONTape parseTape (final Reader reader, final LSONTypeAdapterTable adapters)
+            throws IOException, LSONParseException
+    {
+        return LSONTape.read(createEventReader(reader, adapters), adapters);
+    }
+
+    public static Map<String, List<LSONValue>> select (
+            final CharSequence sequence,
+            final LSONSelector selector,
+            final LSONTypeAdapters... typeAdapters)
+            throws IOException, LSONParseException
+    {
+        return select(sequence, selector, createTable(typeAdapters));
+    }
+
+    public static Map<String, List<LSONValue>> select (
+            final InputStream stream,
+            final LSONSelector selector,
+            final LSONTypeAdapters... typeAdapters)
+            throws IOException, LSONParseException
+    {
+        return select(stream, selector, createTable(typeAdapters));
+    }
+
+    public static Map<String, List<LSONValue>> select (
+            final ByteBuffer buffer,
+            final LSONSelector selector,
+            final LSONTypeAdapters... typeAdapters)
+            throws IOException, LSONParseException
+    {
+        return select(buffer, selector, createTable(typeAdapters));
+    }
+
+    public static Map<String, List<LSONValue>> select (
+            final Path path,
+            final LSONSelector selector,
+            final LSONTypeAdapters... typeAdapters)
+            throws IOException, LSONParseException
+    {
+        return select(path, selector, createTable(typeAdapters));
+    }
+
+    public static Map<String, List<LSONValue>> select (
+            final Reader reader,
+            final LSONSelector selector,
+            final LSONTypeAdapters... typeAdapters)
+            throws IOException, LSONParseException
+    {
+        return select(reader, selector, createTable(typeAdapters));
+    }
+
+    public static Map<String, List<LSONValue>> select (
+            final CharSequence sequence,
+            final LSONSelector selector,
+            final Collection<LSONTypeAdapter<?>> adapters)
+            throws IOException, LSONParseException
+    {
+        return select(sequence, selector, new LSONTypeAdapterTable(adapters));
+    }
+
+    public static Map<String, List<LSONValue>> select (
+            final CharSequence sequence,
+            final LSONSelector selector,
+            final LSONTypeAdapterTable adapters)
+            throws IOException, LSONParseException
+    {
+        return new LSONSelectiveParser(new LSONCharReader(sequence), adapters, selector).parse();
+    }
+
+    public static Map<String, List<LSONValue>> select (
+            final InputStream stream,
+            final LSONSelector selector,
+            final Collection<LSONTypeAdapter<?>> adapters)
+            throws IOException, LSONParseException
+    {
+        return select(stream, selector, new LSONTypeAdapterTable(adapters));
+    }
+
+    public static Map<String, List<LSONValue>> select (
+            final InputStream stream,
+            final LSONSelector selector,
+            final LSONTypeAdapterTable adapters)
+            throws IOException, LSONParseException
+    {
+        return new LSONSelectiveParser(new LSONByteReader(stream), adapters, selector).parse();
+    }
+
+    public static Map<String, List<LSONValue>> select (
+            final ByteBuffer buffer,
+            final LSONSelector selector,
+            final Collection<LSONTypeAdapter<?>> adapters)
+            throws IOException, LSONParseException
+    {
+        return select(buffer, selector, new LSONTypeAdapterTable(adapters));
+    }
+
+    public static Map<String, List<LSONValue>> select (
+            final ByteBuffer buffer,
+            final LSONSelector selector,
+            final LSONTypeAdapterTable adapters)
+            throws IOException, LSONParseException
+    {
+        return new LSONSelectiveParser(new LSONByteReader(buffer), adapters, selector).parse();
+    }
+
+    public static Map<String, List<LSONValue>> select (
+            final Path path,
+            final LSONSelector selector,
+            final Collection<LSONTypeAdapter<?>> adapters)
+            throws IOException, LSONParseException
+    {
+        return select(path, selector, new LSONTypeAdapterTable(adapters));
+    }
+
+    public static Map<String, List<LSONValue>> select (
+            final Path path,
+            final LSONSelector selector,
+            final LSONTypeAdapterTable adapters)
+            throws IOException, LSONParseException
+    {
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new LSONSelectiveParser(new LSONByteReader(channel), adapters, selector).parse();
+        }
+    }
+
+    public static Map<String, List<LSONValue>> select (
+            final Reader reader,
+            final LSONSelector selector,
+            final Collection<LSONTypeAdapter<?>> adapters)
+            throws IOException, LSONParseException
+    {
+        return select(reader, selector, new LSONTypeAdapterTable(adapters));
+    }
+
+    public static Map<String, List<LSONValue>> select (
+            final Reader reader,
+            final LSONSelector selector,
+            final LSONTypeAdapterTable adapters)
+            throws IOException, LSONParseException
+    {
+        return new LSONSelectiveParser(new LSONCharReader(reader), adapters, selector).parse();
+    }
+
+    public static LSONEventReader createEventReader (
+            final CharSequence sequence,
+            final LSONTypeAdapters... typeAdapters)
+            throws IOException, LSONParseException
+    {
+        return createEventReader(sequence, createTable(typeAdapters));
+    }
+
+    public static LSONEventReader createEventReader (final InputStream stream, final LSONTypeAdapters... typeAdapters)
+            throws IOException, LSONParseException
+    {
+        return createEventReader(stream, createTable(typeAdapters));
+    }
+
+    public static LSONEventReader createEventReader (final ByteBuffer buffer, final LSONTypeAdapters... typeAdapters)
+            throws IOException, LSONParseException
+    {
+        return createEventReader(buffer, createTable(typeAdapters));
+    }
+
+    public static LSONEventReader createEventReader (final Path path, final LSONTypeAdapters... typeAdapters)
+            throws IOException, LSONParseException
+    {
+        return createEventReader(path, createTable(typeAdapters));
+    }
+
+    public static LSONEventReader createEventReader (final Reader reader, final LSONTypeAdapters... typeAdapters)
+            throws IOException, LSONParseException
+    {
+        return createEventReader(reader, createTable(typeAdapters));
+    }
+
+    public static LSONEventReader createEventReader (
+            final CharSequence sequence,
+            final Collection<LSONTypeAdapter<?>> adapters)
+            throws IOException, LSONParseException
+    {
+        return createEventReader(sequence, new LSONTypeAdapterTable(adapters));
+    }
+
+    public static LSONEventReader createEventReader (
+            final CharSequence sequence,
+            final LSONTypeAdapterTable adapters)
+            throws IOException, LSONParseException
+    {
+        return new LSONEventReader(new LSONCharReader(sequence), adapters);
+    }
+
+    public static LSONEventReader createEventReader (
+            final InputStream stream,
+            final Collection<LSONTypeAdapter<?>> adapters)
+            throws IOException, LSONParseException
+    {
+        return createEventReader(stream, new LSONTypeAdapterTable(adapters));
+    }
+
+    public static LSONEventReader createEventReader (
+            final InputStream stream,
+            final LSONTypeAdapterTable adapters)
+            throws IOException, LSONParseException
+    {
+        return new LSONEventReader(new LSONByteReader(stream), adapters);
+    }
+
+    public static LSONEventReader createEventReader (
+            final ByteBuffer buffer,
+            final Collection<LSONTypeAdapter<?>> adapters)
+            throws IOException, LSONParseException
+    {
+        return createEventReader(buffer, new LSONTypeAdapterTable(adapters));
+    }
+
+    public static LSONEventReader createEventReader (
+            final ByteBuffer buffer,
+            final LSONTypeAdapterTable adapters)
+            throws IOException, LSONParseException
+    {
+        return new LSONEventReader(new LSONByteReader(buffer), adapters);
+    }
+
+    public static LSONEventReader createEventReader (final Path path, final Collection<LSONTypeAdapter<?>> adapters)
+            throws IOException, LSONParseException
+    {
+        return createEventReader(path, new LSONTypeAdapterTable(adapters));
+    }
+
+    public static LSONEventReader createEventReader (final Path path, final LSONTypeAdapterTable adapters)
+            throws IOException, LSONParseException
+    {
+        // The channel stays open for as long as the event reader does, as windows are mapped while reading.
+        final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+
+        try {
+            return new LSONEventReader(new LSONByteReader(channel), adapters);
+        } catch (IOException | LSONParseException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public static LSONEventReader createEventReader (final Reader reader, final Collection<LSONTypeAdapter<?>> adapters)
+            throws IOException, LSONParseException
+    {
+        return createEventReader(reader, new LSONTypeAdapterTable(adapters));
+    }
+
+    public static LSONEventReader createEventReader (final Reader reader, final LSONTypeAdapterTable adapters)
+            throws IOException, LSONParseException
+    {
+        return new LSONEventReader(new LSONCharReader(reader), adapters);
+    }
+
+    public static LSONTableRowReader createTableReader (
+            final CharSequence sequence,
+            final LSONTypeAdapters... typeAdapters)
+            throws IOException, LSONParseException
+    {
+        return createTableReader(sequence, createTable(typeAdapters));
+    }
+
+    public static LSONTableRowReader createTableReader (
+            final InputStream stream,
+            final LSONTypeAdapters... typeAdapters)
+            throws IOException, LSONParseException
+    {
+        return createTableReader(stream, createTable(typeAdapters));
+    }
+
+    public static LSONTableRowReader createTableReader (final ByteBuffer buffer, final LSONTypeAdapters... typeAdapters)
+            throws IOException, LSONParseException
+    {
+        return createTableReader(buffer, createTable(typeAdapters));
+    }
+
+    public static LSONTableRowReader createTableReader (final Path path, final LSONTypeAdapters... typeAdapters)
+            throws IOException, LSONParseException
+    {
+        return createTableReader(path, createTable(typeAdapters));
+    }
+
+    public static LSONTableRowReader createTableReader (final Reader reader, final LSONTypeAdapters... typeAdapters)
+            throws IOException, LSONParseException
+    {
+        return createTableReader(reader, createTable(typeAdapters));
+    }
+
+    public static LSONTableRowReader createTableReader (
+            final CharSequence sequence,
+            final Collection<LSONTypeAdapter<?>> adapters)
+            throws IOException, LSONParseException
+    {
+        return createTableReader(sequence, new LSONTypeAdapterTable(adapters));
+    }
+
+    public static LSONTableRowReader createTableReader (
+            final CharSequence sequence,
+            final LSONTypeAdapterTable adapters)
+            throws IOException, LSONParseException
+    {
+        return createTableReader(createEventReader(sequence, adapters));
+    }
+
+    public static LSONTableRowReader createTableReader (
+            final InputStream stream,
+            final Collection<LSONTypeAdapter<?>> adapters)
+            throws IOException, LSONParseException
+    {
+        return createTableReader(stream, new LSONTypeAdapterTable(adapters));
+    }
+
+    public static LSONTableRowReader createTableReader (
+            final InputStream stream,
+            final LSONTypeAdapterTable adapters)
+            throws IOException, LSONParseException
+    {
+        return createTableReader(createEventReader(stream, adapters));
+    }
+
+    public static LSONTableRowReader createTableReader (
+            final ByteBuffer buffer,
+            final Collection<LSONTypeAdapter<?>> adapters)
+            throws IOException, LSONParseException
+    {
+        return createTableReader(buffer, new LSONTypeAdapterTable(adapters));
+    }
+
+    public static LSONTableRowReader createTableReader (
+            final ByteBuffer buffer,
+            final LSONTypeAdapterTable adapters)
+            throws IOException, LSONParseException
+    {
+        return createTableReader(createEventReader(buffer, adapters));
+    }
+
+    public static LSONTableRowReader createTableReader (final Path path, final Collection<LSONTypeAdapter<?>> adapters)
+            throws IOException, LSONParseException
+    {
+        return createTableReader(path, new LSONTypeAdapterTable(adapters));
+    }
+
+    public static LSONTableRowReader createTableReader (final Path path, final LSONTypeAdapterTable adapters)
+            throws IOException, LSONParseException
+    {
+        return createTableReader(createEventReader(path, adapters));
+    }
+
+    public static LSONTableRowReader createTableReader (
+            final Reader reader,
+            final Collection<LSONTypeAdapter<?>> adapters)
+            throws IOException, LSONParseException
+    {
+        return createTableReader(reader, new LSONTypeAdapterTable(adapters));
+    }
+
+    public static LSONTableRowReader createTableReader (
+            final Reader reader,
+            final LSONTypeAdapterTable adapters)
+            throws IOException, LSONParseException
+    {
+        return createTableReader(createEventReader(reader, adapters));
+    }
+
+    public static LSONPushParser createPushParser (
+            final Consumer<LSONValue> consumer,
+            final LSONTypeAdapters... typeAdapters)
+    {
+        return createPushParser(consumer, createTable(typeAdapters));
+    }
+
+    public static LSONPushParser createPushParser (
+            final Consumer<LSONValue> consumer,
+            final Collection<LSONTypeAdapter<?>> adapters)
+    {
+        return createPushParser(consumer, new LSONTypeAdapterTable(adapters));
+    }
+
+    public static LSONPushParser createPushParser (
+            final Consumer<LSONValue> consumer,
+            final LSONTypeAdapterTable adapters)
+    {
+        return new LSONPushParser(consumer, adapters);
+    }
+
+    public static String write (final LSONValue value)
+    {
+        return write(value, false);
+    }
+
+    public static String writePretty (final LSONValue value)
+    {
+        return write(value, true);
+    }
+
+    public static void write (final LSONValue value, final Writer writer) throws IOException
+    {
+        write(value, new LSONWriter(writer, false));
+    }
+
+    public static void write (final LSONValue value, final OutputStream stream) throws IOException
+    {
+        write(value, new LSONWriter(stream, false));
+    }
+
+    public static void write (final LSONValue value, final ByteBuffer buffer) throws IOException
+    {
+        write(value, new LSONWriter(buffer, false));
+    }
+
+    public static void write (final LSONValue value, final Path path) throws IOException
+    {
+        write(value, path, false);
+    }
+
+    public static void writePretty (final LSONValue value, final Writer writer) throws IOException
+    {
+        write(value, new LSONWriter(writer, true));
+    }
+
+    public static void writePretty (final LSONValue value, final OutputStream stream) throws IOException
+    {
+        write(value, new LSONWriter(stream, true));
+    }
+
+    public static void writePretty (final LSONValue value, final ByteBuffer buffer) throws IOException
+    {
+        write(value, new LSONWriter(buffer, true));
+    }
+
+    public static void writePretty (final LSONValue value, final Path path) throws IOException
+    {
+        write(value, path, true);
+    }
+
+    public static byte[] encode (final LSONValue value)
+    {
+        return new LSONBinaryEncoder().encode(value);
+    }
+
+    public static void encode (final LSONValue value, final OutputStream stream) throws IOException
+    {
+        new LSONBinaryEncoder().encode(value, stream);
+    }
+
+    public static void encode (final LSONValue value, final ByteBuffer buffer)
+    {
+        new LSONBinaryEncoder().encode(value, buffer);
+    }
+
+    public static void encode (final LSONValue value, final Path path) throws IOException
+    {
+        Files.write(path, encode(value));
+    }
+
+    public static LSONValue decode (final byte[] bytes, final LSONTypeAdapters... typeAdapters)
+            throws LSONParseException
+    {
+        return decode(bytes, createTable(typeAdapters));
+    }
+
+    public static LSONValue decode (final ByteBuffer buffer, final LSONTypeAdapters... typeAdapters)
+            throws LSONParseException
+    {
+        return decode(buffer, createTable(typeAdapters));
+    }
+
+    public static LSONValue decode (final InputStream stream, final LSONTypeAdapters... typeAdapters)
+            throws IOException, LSONParseException
+    {
+        return decode(stream, createTable(typeAdapters));
+    }
+
+    public static LSONValue decode (final Path path, final LSONTypeAdapters... typeAdapters)
+            throws IOException, LSONParseException
+    {
+        return decode(path, createTable(typeAdapters));
+    }
+
+    public static LSONValue decode (final byte[] bytes, final Collection<LSONTypeAdapter<?>> adapters)
+            throws LSONParseException
+    {
+        return decode(bytes, new LSONTypeAdapterTable(adapters));
+    }
+
+    public static LSONValue decode (final byte[] bytes, final LSONTypeAdapterTable adapters)
+            throws LSONParseException
+    {
+        return new LSONBinaryDecoder(adapters).decode(bytes);
+    }
+
+    public static LSONValue decode (final ByteBuffer buffer, final Collection<LSONTypeAdapter<?>> adapters)
+            throws LSONParseException
+    {
+        return decode(buffer, new LSONTypeAdapterTable(adapters));
+    }
+
+    public static LSONValue decode (final ByteBuffer buffer, final LSONTypeAdapterTable adapters)
+            throws LSONParseException
+    {
+        return new LSONBinaryDecoder(adapters).decode(buffer);
+    }
+
+    public static LSONValue decode (final InputStream stream, final Collection<LSONTypeAdapter<?>> adapters)
+            throws IOException, LSONParseException
+    {
+        return decode(stream, new LSONTypeAdapterTable(adapters));
+    }
+
+    public static LSONValue decode (final InputStream stream, final LSONTypeAdapterTable adapters)
+            throws IOException, LSONParseException
+    {
+        return new LSONBinaryDecoder(adapters).decode(stream);
+    }
+
+    public static LSONValue decode (final Path path, final Collection<LSONTypeAdapter<?>> adapters)
+            throws IOException, LSONParseException
+    {
+        return decode(path, new LSONTypeAdapterTable(adapters));
+    }
+
+    public static LSONValue decode (final Path path, final LSONTypeAdapterTable adapters)
+            throws IOException, LSONParseException
+    {
+        return decode(Files.readAllBytes(path), adapters);
+    }
+
+    public static byte[] encodeColumnar (final LSONTable table)
+    {
+        return new LSONColumnarEncoder().encode(table);
+    }
+
+    public static void encodeColumnar (final LSONTable table, final OutputStream stream) throws IOException
+    {
+        new LSONColumnarEncoder().encode(table, stream);
+    }
+
+    public static void encodeColumnar (final LSONTable table, final Path path) throws IOException
+    {
+        try (final OutputStream stream = new BufferedOutputStream(Files.newOutputStream(path))) {
+            encodeColumnar(table, stream);
+        }
+    }
+
+    public static LSONColumnarReader openColumnar (final byte[] bytes, final LSONTypeAdapters... typeAdapters)
+            throws LSONParseException
+    {
+        return openColumnar(bytes, createTable(typeAdapters));
+    }
+
+    public static LSONColumnarReader openColumnar (final ByteBuffer buffer, final LSONTypeAdapters... typeAdapters)
+            throws LSONParseException
+    {
+        return openColumnar(buffer, createTable(typeAdapters));
+    }
+
+    public static LSONColumnarReader openColumnar (final Path path, final LSONTypeAdapters... typeAdapters)
+            throws IOException, LSONParseException
+    {
+        return openColumnar(path, createTable(typeAdapters));
+    }
+
+    public static LSONColumnarReader openColumnar (final byte[] bytes, final Collection<LSONTypeAdapter<?>> adapters)
+            throws LSONParseException
+    {
+        return openColumnar(bytes, new LSONTypeAdapterTable(adapters));
+    }
+
+    public static LSONColumnarReader openColumnar (final byte[] bytes, final LSONTypeAdapterTable adapters)
+            throws LSONParseException
+    {
+        return openColumnar(ByteBuffer.wrap(bytes), adapters);
+    }
+
+    public static LSONColumnarReader openColumnar (
+            final ByteBuffer buffer,
+            final Collection<LSONTypeAdapter<?>> adapters)
+            throws LSONParseException
+    {
+        return openColumnar(buffer, new LSONTypeAdapterTable(adapters));
+    }
+
+    public static LSONColumnarReader openColumnar (
+            final ByteBuffer buffer,
+            final LSONTypeAdapterTable adapters)
+            throws LSONParseException
+    {
+        return new LSONColumnarReader(buffer, adapters);
+    }
+
+    public static LSONColumnarReader openColumnar (final Path path, final Collection<LSONTypeAdapter<?>> adapters)
+            throws IOException, LSONParseException
+    {
+        return openColumnar(path, new LSONTypeAdapterTable(adapters));
+    }
+
+    public static LSONColumnarReader openColumnar (final Path path, final LSONTypeAdapterTable adapters)
+            throws IOException, LSONParseException
+    {
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("File too large to read as a columnar table: " + path);
+            }
+
+            // Columns are only paged in from the mapping as they are read.
+            return openColumnar(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), adapters);
+        }
+    }
+
+    /**
+     * @param table table to query.
+     * @return a query selecting every row of the table.
+     * @see LSONTableQuery
+     */
+    public static LSONTableQuery query (final LSONTable table)
+    {
+        return LSONTableQuery.from(table);
+    }
+
+    private static LSONTableRowReader createTableReader (final LSONEventReader eventReader)
+            throws IOException, LSONParseException
+    {
+        // The document itself must be the table, anything else would have to be materialized to get to it.
+        try {
+            if (eventReader.next() != LSONEvent.START_TABLE) {
+                throw new LSONParseException("Expected a table document", eventReader.getLocation());
+            }
+
+            return eventReader.readTableRows();
+        } catch (IOException | LSONParseException | RuntimeException e) {
+            eventReader.close();
+            throw e;
+        }
+    }
+
+    private static LSONValue parse (final LSONReader lsonReader, final LSONTypeAdapterTable adapters)
+            throws IOException, LSONParseException
+    {
+        final LSONParser lsonParser = new LSONParser(lsonReader, adapters);
+
+        return lsonParser.parse();
+    }
+
+    // Parallel parsing only takes a table privately, as every chunk shares the one table, which must not be adaptive.
+    private static LSONValue parseParallel (
+            final ByteBuffer buffer,
+            final LSONTypeAdapterTable adapters,
+            final ForkJoinPool pool)
+            throws IOException, LSONParseException
+    {
+        // Documents that are not one large array or table are parsed sequentially on the calling thread.
+        return new LSONParallelParser(buffer, adapters, pool).parse();
+    }
+
+    private static LSONValue parseParallel (
+            final Path path,
+            final LSONTypeAdapterTable adapters,
+            final ForkJoinPool pool)
+            throws IOException, LSONParseException
+    {
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return parseParallel(channel, adapters, pool);
+        }
+    }
+
+    private static LSONValue parseParallel (
+            final FileChannel channel,
+            final LSONTypeAdapterTable adapters,
+            final ForkJoinPool pool)
+            throws IOException, LSONParseException
+    {
+        return new LSONParallelParser(channel, adapters, pool).parse();
+    }
+
+    private static String write (final LSONValue value, final boolean pretty)
+    {
+        final StringWriter writer = new StringWriter();
+
+        try {
+            write(value, new LSONWriter(writer, pretty));
+        } catch (IOException e) {
+            // String writers never fail.
+            throw new UncheckedIOException(e);
+        }
+
+        return writer.toString();
+    }
+
+    private static void write (final LSONValue value, final Path path, final boolean pretty) throws IOException
+    {
+        try (final LSONWriter writer = new LSONWriter(Files.newOutputStream(path), pretty)) {
+            writer.write(value);
+        }
+    }
+
+    private static void write (final LSONValue value, final LSONWriter writer) throws IOException
+    {
+        // The destination is left open for the caller, only flushing what was written to it.
+        writer.write(value);
+        writer.flush();
+    }
+
+    private static LSONTypeAdapterTable createTable (final LSONTypeAdapters... typeAdapters)
+    {
+        int mask = 0;
+        for (final LSONTypeAdapters adapter : typeAdapters) {
+            mask |= 1 << adapter.ordinal();
+        }
+
+        // Racing threads may both compile the table, either one is as good as the other.
+        LSONTypeAdapterTable table = PROVIDED_TABLES[mask];
+        if (table == null) {
+            table = new LSONTypeAdapterTable(createAdapters(typeAdapters));
+            PROVIDED_TABLES[mask] = table;
+        }
+
+        return table;
+    }
+
+    private static Collection<LSONTypeAdapter<?>> createAdapters (final LSONTypeAdapters... typeAdapters)
+    {
+        final Collection<LSONTypeAdapter<?>> adapterList = new LinkedHashSet<>();
+
+        for (final LSONTypeAdapters adapter : typeAdapters) {
+            adapterList.add(adapter.createAdapter());
+        }
+
+        return adapterList;
     }
 }
@@ -0,0 +1,502 @@
+/*
+ * Copyright (c) 2017 Connor Hollasch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.hollasch.lson4j;
+
+import net.hollasch.lson4j.type.*;
+import net.hollasch.lson4j.type.graph.LSONCompactGraph;
+import net.hollasch.lson4j.type.graph.LSONGraph;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static net.hollasch.lson4j.LSONBinaryEncoder.*;
+
+/**
+ * Decodes LSON values encoded by {@link LSONBinaryEncoder}. Booleans and numbers are decoded into the same objects
+ * they were encoded from, while words of other types are rebuilt from their text by the type adapters of the decoder.
+ * <p>
+ * Malformed input is reported as an {@link LSONParseException} located at the offending byte, counting from a column
+ * of zero on the first line.
+ *
+ * @author Connor Hollasch
+ * @since Oct 18, 2:20 AM
+ */
+public final class LSONBinaryDecoder
+{
+    // Scalar type adapters being used to rebuild words, dispatched by the first character of the word.
+    private final LSONTypeAdapterTable typeAdapters;
+
+    private byte[] bytes;
+    private int offset;
+    private int position;
+    private int limit;
+
+    private final ArrayList<LSONString> keys;
+
+    // Root of the key shapes shared by the decoded objects.
+    private final LSONShape shapes;
+
+    public LSONBinaryDecoder (final Collection<LSONTypeAdapter<?>> typeAdapters)
+    {
+        this(new LSONTypeAdapterTable(typeAdapters));
+    }
+
+    public LSONBinaryDecoder (final LSONTypeAdapterTable typeAdapters)
+    {
+        this.typeAdapters = typeAdapters;
+        this.keys = new ArrayList<>();
+        this.shapes = new LSONShape();
+    }
+
+    /**
+     * Decodes a value from the given bytes.
+     *
+     * @param bytes encoded value.
+     * @return the decoded value, which may be null.
+     * @throws LSONParseException if the bytes are not a valid encoding.
+     */
+    public LSONValue decode (final byte[] bytes) throws LSONParseException
+    {
+        return decode(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Decodes a value from the remaining bytes of the given buffer, leaving the position of the buffer untouched.
+     *
+     * @param buffer encoded value.
+     * @return the decoded value, which may be null.
+     * @throws LSONParseException if the bytes are not a valid encoding.
+     */
+    public LSONValue decode (final ByteBuffer buffer) throws LSONParseException
+    {
+        if (buffer.hasArray()) {
+            return decode(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        }
+
+        final byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+
+        return decode(bytes);
+    }
+
+    /**
+     * Decodes a value from the remainder of the given stream.
+     *
+     * @param stream encoded value.
+     * @return the decoded value, which may be null.
+     * @throws IOException        if the stream has a problem with IO.
+     * @throws LSONParseException if the bytes are not a valid encoding.
+     */
+    public LSONValue decode (final InputStream stream) throws IOException, LSONParseException
+    {
+        final ByteArrayOutputStream contents = new ByteArrayOutputStream();
+        final byte[] chunk = new byte[LSONReader.DEFAULT_BUFFER_LENGTH];
+
+        int read;
+        while ((read = stream.read(chunk)) >= 0) {
+            contents.write(chunk, 0, read);
+        }
+
+        return decode(contents.toByteArray());
+    }
+
+    private LSONValue decode (final byte[] bytes, final int offset, final int length) throws LSONParseException
+    {
+        begin(bytes, offset, offset, offset + length);
+
+        try {
+            for (final byte magic : MAGIC) {
+                if (readByte() != magic) {
+                    throw error("Not an encoded LSON value", offset);
+                }
+            }
+
+            final int version = readByte();
+            if (version != VERSION) {
+                throw error("Unsupported encoding version " + version, this.position - 1);
+            }
+
+            final LSONValue value = decodeValue();
+
+            if (this.position != this.limit) {
+                throw error("Expected end of encoded value", this.position);
+            }
+
+            return value;
+        } finally {
+            end();
+        }
+    }
+
+    /**
+     * Starts decoding from the given range of bytes, without expecting the header of a document.
+     *
+     * @param bytes    encoded bytes.
+     * @param offset   index of the first byte of the encoding, which locations of errors are relative to.
+     * @param position index to start decoding from.
+     * @param limit    index past the last byte that may be decoded.
+     */
+    void begin (final byte[] bytes, final int offset, final int position, final int limit)
+    {
+        this.bytes = bytes;
+        this.offset = offset;
+        this.position = position;
+        this.limit = limit;
+        this.keys.clear();
+    }
+
+    /**
+     * Lets go of the bytes and keys of the last decoding.
+     */
+    void end ()
+    {
+        this.bytes = null;
+        this.keys.clear();
+    }
+
+    int getPosition ()
+    {
+        return this.position;
+    }
+
+    int getLimit ()
+    {
+        return this.limit;
+    }
+
+    //==================================================================================================================
+    // Values
+    //==================================================================================================================
+
+    LSONValue decodeValue () throws LSONParseException
+    {
+        final int start = this.position;
+        final int tag = readByte() & 0xFF;
+
+        switch (tag & ~EXPLICIT_TEXT) {
+            case NULL:
+                return null;
+            case STRING:
+                return new LSONString(readString());
+            case WORD:
+                return buildWord(readString());
+            case TRUE:
+                return decodeBoolean(tag, LSONBoolean.TRUE);
+            case FALSE:
+                return decodeBoolean(tag, LSONBoolean.FALSE);
+            case INTEGER: {
+                final long integral = readSignedVarint();
+                return new LSONNumber((double) integral, decodeText(tag));
+            }
+            case DOUBLE: {
+                final double number = Double.longBitsToDouble(readLong());
+                return new LSONNumber(number, decodeText(tag));
+            }
+            case LONG: {
+                final long number = readSignedVarint();
+                return new LSONNumber(number, decodeText(tag));
+            }
+            case OBJECT:
+                return decodeObject(false);
+            case MULTI_KEY_OBJECT:
+                return decodeObject(true);
+            case ARRAY:
+                return decodeArray();
+            case TABLE:
+                return decodeTable();
+            case GRAPH:
+                return decodeGraph();
+            default:
+                throw error("Unknown value tag " + tag, start);
+        }
+    }
+
+    private LSONWord<Boolean> decodeBoolean (final int tag, final LSONBoolean value) throws LSONParseException
+    {
+        final String text = decodeText(tag);
+        return text != null ? new LSONWord<>(text, value.getObject()) : value;
+    }
+
+    /**
+     * @return the text following a value with explicit text, or null if its text is implied by the value.
+     */
+    private String decodeText (final int tag) throws LSONParseException
+    {
+        return (tag & EXPLICIT_TEXT) != 0 ? readString() : null;
+    }
+
+    private LSONWord buildWord (final String string)
+    {
+        final LSONWord<?> word = this.typeAdapters.buildWord(string);
+        return word != null ? word : new LSONString(string);
+    }
+
+    private LSONObject<LSONValue> decodeObject (final boolean multiKey) throws LSONParseException
+    {
+        final int entries = readCount(multiKey ? 3 : 2);
+        final LSONShapedMap<LSONValue> map = new LSONShapedMap<>(this.shapes);
+
+        for (int i = 0; i < entries; ++i) {
+            if (!multiKey) {
+                final LSONString key = readKey();
+                map.put(key, decodeValue());
+                continue;
+            }
+
+            // Every key of the entry maps to the same value instance.
+            final int keyCount = readCount(1);
+            final LSONString[] keys = new LSONString[keyCount];
+
+            for (int k = 0; k < keyCount; ++k) {
+                keys[k] = readKey();
+            }
+
+            final LSONValue value = decodeValue();
+
+            for (final LSONString key : keys) {
+                map.put(key, value);
+            }
+        }
+
+        map.trimToSize();
+        return new LSONObject<>(map);
+    }
+
+    private LSONArray<LSONValue> decodeArray () throws LSONParseException
+    {
+        final int size = readCount(1);
+        final ArrayList<LSONValue> array = new ArrayList<>(size);
+
+        for (int i = 0; i < size; ++i) {
+            array.add(decodeValue());
+        }
+
+        return new LSONArray<>(array);
+    }
+
+    @SuppressWarnings("unchecked")
+    private LSONTable decodeTable () throws LSONParseException
+    {
+        final int columns = readCount(1);
+        final ArrayList<LSONWord> header = new ArrayList<>(columns);
+
+        for (int i = 0; i < columns; ++i) {
+            header.add(readKey());
+        }
+
+        final int rowsStart = this.position;
+        final int rows = readCount(Math.max(1, columns));
+
+        if (columns == 0 && rows > 0) {
+            throw error("Table rows without columns", rowsStart);
+        }
+        final ArrayList<LSONValue>[] rowData = new ArrayList[rows];
+
+        for (int r = 0; r < rows; ++r) {
+            final ArrayList<LSONValue> row = new ArrayList<>(columns);
+
+            for (int c = 0; c < columns; ++c) {
+                row.add(decodeValue());
+            }
+
+            rowData[r] = row;
+        }
+
+        return new LSONTable(header, rowData);
+    }
+
+    private LSONGraph decodeGraph () throws LSONParseException
+    {
+        final int vertexCount = readCount(1);
+        final int flagsStart = this.position;
+        final int flags = readByte();
+
+        if ((flags & ~NAMED_VERTICES) != 0) {
+            throw error("Unknown graph flags " + flags, flagsStart);
+        }
+
+        final boolean named = (flags & NAMED_VERTICES) != 0;
+        final String[] names = named ? new String[vertexCount] : null;
+        final LSONValue[] vertexValues = new LSONValue[vertexCount];
+        boolean valued = false;
+
+        for (int i = 0; i < vertexCount; ++i) {
+            if (named) {
+                names[i] = readKey().getWord();
+            }
+
+            vertexValues[i] = decodeValue();
+            valued |= vertexValues[i] != null;
+        }
+
+        final int edgeCount = readCount(3);
+        final int[] sources = new int[edgeCount];
+        final int[] targets = new int[edgeCount];
+        final BitSet directed = new BitSet(edgeCount);
+        final LSONValue[] edgeData = new LSONValue[edgeCount];
+        boolean data = false;
+
+        for (int i = 0; i < edgeCount; ++i) {
+            sources[i] = readVertex(vertexCount, readVarint());
+
+            final long second = readVarint();
+            targets[i] = readVertex(vertexCount, second >>> 1);
+            directed.set(i, (second & 1) != 0);
+
+            edgeData[i] = decodeValue();
+            data |= edgeData[i] != null;
+        }
+
+        return new LSONCompactGraph(vertexCount, names, valued ? vertexValues : null, sources, targets, directed,
+                data ? edgeData : null);
+    }
+
+    private int readVertex (final int vertexCount, final long index) throws LSONParseException
+    {
+        if (index < 0 || index >= vertexCount) {
+            throw error("Edge refers to vertex " + index + " of " + vertexCount, this.position - 1);
+        }
+
+        return (int) index;
+    }
+
+    //==================================================================================================================
+    // Primitives
+    //==================================================================================================================
+
+    private LSONString readKey () throws LSONParseException
+    {
+        final int start = this.position;
+        final long reference = readVarint();
+
+        if (reference == 0) {
+            final LSONString key = new LSONString(readString());
+            this.keys.add(key);
+
+            return key;
+        }
+
+        if (reference < 0 || reference > this.keys.size()) {
+            throw error("Unknown key " + reference, start);
+        }
+
+        return this.keys.get((int) reference - 1);
+    }
+
+    String readString () throws LSONParseException
+    {
+        final int length = readCount(1);
+        final byte[] bytes = this.bytes;
+        final int start = this.position;
+        final int end = start + length;
+
+        this.position = end;
+
+        // ASCII strings are copied straight into characters, skipping the decoder.
+        for (int i = start; i < end; ++i) {
+            if (bytes[i] < 0) {
+                return new String(bytes, start, length, StandardCharsets.UTF_8);
+            }
+        }
+
+        final char[] characters = new char[length];
+        for (int i = 0; i < length; ++i) {
+            characters[i] = (char) bytes[start + i];
+        }
+
+        return new String(characters);
+    }
+
+    /**
+     * Reads a count of items that each take up at least the given number of bytes, which must fit in the remaining
+     * input. This keeps malformed counts from allocating more than the input could ever fill.
+     */
+    int readCount (final int minimumItemLength) throws LSONParseException
+    {
+        final int start = this.position;
+        final long count = readVarint();
+
+        if (count < 0 || count > (this.limit - this.position) / minimumItemLength) {
+            throw error("Count of " + count + " exceeds the remaining input", start);
+        }
+
+        return (int) count;
+    }
+
+    long readSignedVarint () throws LSONParseException
+    {
+        final long value = readVarint();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    long readVarint () throws LSONParseException
+    {
+        final int start = this.position;
+
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            final byte next = readByte();
+            value |= (long) (next & 0x7F) << shift;
+
+            if (next >= 0) {
+                return value;
+            }
+        }
+
+        throw error("Malformed varint", start);
+    }
+
+    long readLong () throws LSONParseException
+    {
+        if (this.limit - this.position < 8) {
+            throw error("Unexpected end of input", this.limit);
+        }
+
+        long value = 0;
+        for (int i = 0; i < 8; ++i) {
+            value = (value << 8) | (this.bytes[this.position++] & 0xFF);
+        }
+
+        return value;
+    }
+
+    byte readByte () throws LSONParseException
+    {
+        if (this.position >= this.limit) {
+            throw error("Unexpected end of input", this.limit);
+        }
+
+        return this.bytes[this.position++];
+    }
+
+    LSONParseException error (final String message, final int index)
+    {
+        return new LSONParseException(message, new LSONFileLocation(1, index - this.offset));
+    }
+}
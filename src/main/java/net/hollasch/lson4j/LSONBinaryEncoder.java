@@ -0,0 +1,549 @@
+/*
+ * Copyright (c) 2017 Connor Hollasch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.hollasch.lson4j;
+
+import net.hollasch.lson4j.type.*;
+import net.hollasch.lson4j.type.graph.LSONGraph;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * Encodes LSON values into a compact binary form, read back by {@link LSONBinaryDecoder}. Every value starts with a
+ * tag byte, followed by its contents:
+ * <ul>
+ * <li>Strings, and words that are not of a known type, are UTF-8 encoded with a varint length.</li>
+ * <li>Booleans are tagged by value. Numbers are either zig-zag encoded varints when they are integral, or eight byte
+ * doubles. The text of the word is only encoded as well when it differs from how the number would be written.</li>
+ * <li>Objects, arrays, tables and graphs are prefixed with varint counts of their entries. Objects whose keys share
+ * value instances have the number of keys encoded along with each entry.</li>
+ * </ul>
+ * Keys of objects, table headers and vertex names go through a dictionary built up while encoding, so each distinct key
+ * is only encoded in full the first time it is seen and by index from then on.
+ * <p>
+ * An encoder reuses its buffer from one value to the next, and must not be used by more than one thread at a time.
+ *
+ * @author Connor Hollasch
+ * @since Oct 18, 2:20 AM
+ */
+public final class LSONBinaryEncoder
+{
+    static final byte[] MAGIC = {'L', 'S', 'B'};
+    static final int VERSION = 1;
+
+    // Value tags.
+    static final int NULL = 0;
+    static final int STRING = 1;
+    static final int WORD = 2;
+    static final int TRUE = 3;
+    static final int FALSE = 4;
+    static final int INTEGER = 5;
+    static final int DOUBLE = 6;
+    static final int LONG = 7;
+    static final int OBJECT = 8;
+    static final int MULTI_KEY_OBJECT = 9;
+    static final int ARRAY = 10;
+    static final int TABLE = 11;
+    static final int GRAPH = 12;
+
+    // Flag set on the tag of a boolean or number whose word text follows the value.
+    static final int EXPLICIT_TEXT = 0x80;
+
+    // Flag set on graphs whose vertices are named.
+    static final int NAMED_VERTICES = 0x1;
+
+    private byte[] bytes;
+    private int length;
+
+    private final Map<String, Integer> keys;
+
+    public LSONBinaryEncoder ()
+    {
+        this.bytes = new byte[256];
+        this.keys = new HashMap<>();
+    }
+
+    /**
+     * Encodes the given value.
+     *
+     * @param value value to encode, which may be null.
+     * @return the encoded value.
+     */
+    public byte[] encode (final LSONValue value)
+    {
+        encodeDocument(value);
+        return toByteArray();
+    }
+
+    /**
+     * Encodes the given value to a stream.
+     *
+     * @param value  value to encode, which may be null.
+     * @param stream destination of the encoded value.
+     * @throws IOException if the stream has a problem with IO.
+     */
+    public void encode (final LSONValue value, final OutputStream stream) throws IOException
+    {
+        encodeDocument(value);
+        stream.write(this.bytes, 0, this.length);
+    }
+
+    /**
+     * Encodes the given value to a byte buffer, from the position of the buffer on.
+     *
+     * @param value  value to encode, which may be null.
+     * @param buffer destination of the encoded value.
+     * @see ByteBuffer#put(byte[], int, int)
+     */
+    public void encode (final LSONValue value, final ByteBuffer buffer)
+    {
+        encodeDocument(value);
+        buffer.put(this.bytes, 0, this.length);
+    }
+
+    private void encodeDocument (final LSONValue value)
+    {
+        reset();
+
+        ensure(MAGIC.length + 1);
+        for (final byte magic : MAGIC) {
+            this.bytes[this.length++] = magic;
+        }
+        this.bytes[this.length++] = VERSION;
+
+        encodeValue(value);
+    }
+
+    /**
+     * Empties the buffer and the key dictionary, so that values can be encoded without the header of a document.
+     */
+    void reset ()
+    {
+        this.length = 0;
+        this.keys.clear();
+    }
+
+    /**
+     * @return a copy of everything encoded since the encoder was last reset.
+     */
+    byte[] toByteArray ()
+    {
+        return Arrays.copyOf(this.bytes, this.length);
+    }
+
+    int getLength ()
+    {
+        return this.length;
+    }
+
+    /**
+     * @return true if the number is encoded as a varint, which it is if it converts to a long and back exactly. This
+     *         rules out negative zero.
+     */
+    static boolean isIntegral (final double number)
+    {
+        return Double.doubleToRawLongBits((long) number) == Double.doubleToRawLongBits(number);
+    }
+
+    /**
+     * @return the text of a number word that is implied by its value, which is left out of the encoding.
+     */
+    static String getCanonicalText (final double number)
+    {
+        return isIntegral(number) ? Long.toString((long) number) : Double.toString(number);
+    }
+
+    //==================================================================================================================
+    // Values
+    //==================================================================================================================
+
+    void encodeValue (final LSONValue value)
+    {
+        if (value == null) {
+            writeByte(NULL);
+        } else if (value.isLSONObject()) {
+            encodeObject(value.toObject());
+        } else if (value.isLSONArray()) {
+            final LSONArray<?> array = value.toArray();
+
+            writeByte(ARRAY);
+            writeVarint(array.size());
+
+            for (int i = 0; i < array.size(); ++i) {
+                encodeValue(array.get(i));
+            }
+        } else if (value.isTable()) {
+            encodeTable(value.toTable());
+        } else if (value.isGraph()) {
+            encodeGraph(value.toGraph());
+        } else if (value.isLSONString()) {
+            writeByte(STRING);
+            writeString(value.toLsonString().getWord());
+        } else if (value.isLSONWord()) {
+            encodeWord(value.toWord());
+        } else {
+            throw new IllegalArgumentException("Cannot encode " + value.getClass().getName());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void encodeObject (final LSONObject<?> object)
+    {
+        if (!LSONWriter.hasSharedValues(object)) {
+            writeByte(OBJECT);
+            writeVarint(object.size());
+
+            for (final Map.Entry<LSONString, ? extends LSONValue> entry : object.entrySet()) {
+                writeKey(entry.getKey().getWord());
+                encodeValue(entry.getValue());
+            }
+
+            return;
+        }
+
+        final ArrayList<LSONValue> values = new ArrayList<>();
+        final ArrayList<List<LSONString>> keys = new ArrayList<>();
+        LSONWriter.groupSharedValues(object, values, keys);
+
+        writeByte(MULTI_KEY_OBJECT);
+        writeVarint(values.size());
+
+        for (int i = 0; i < values.size(); ++i) {
+            writeVarint(keys.get(i).size());
+
+            for (final LSONString key : keys.get(i)) {
+                writeKey(key.getWord());
+            }
+
+            encodeValue(values.get(i));
+        }
+    }
+
+    private void encodeTable (final LSONTable table)
+    {
+        final ArrayList<LSONWord> header = table.getHeader();
+        final ArrayList<LSONValue>[] rows = table.getRowData();
+
+        if (header.isEmpty() && rows.length > 0) {
+            throw new IllegalArgumentException("Cannot encode table rows without columns");
+        }
+
+        writeByte(TABLE);
+        writeVarint(header.size());
+
+        for (final LSONWord column : header) {
+            writeKey(column.getWord());
+        }
+
+        writeVarint(rows.length);
+
+        for (final ArrayList<LSONValue> row : rows) {
+            if (row.size() != header.size()) {
+                throw new IllegalArgumentException("Cannot encode a table row of " + row.size()
+                        + " values under a header of " + header.size() + " columns");
+            }
+
+            for (final LSONValue cell : row) {
+                encodeValue(cell);
+            }
+        }
+    }
+
+    private void encodeGraph (final LSONGraph graph)
+    {
+        final int vertexCount = graph.getVertexCount();
+        final int edgeCount = graph.getEdgeCount();
+
+        boolean named = false;
+        for (int v = 0; v < vertexCount; ++v) {
+            named |= graph.getVertexName(v) != null;
+        }
+
+        writeByte(GRAPH);
+        writeVarint(vertexCount);
+        writeByte(named ? NAMED_VERTICES : 0);
+
+        for (int v = 0; v < vertexCount; ++v) {
+            if (named) {
+                writeKey(graph.getVertexName(v));
+            }
+
+            encodeValue(graph.getVertexValue(v));
+        }
+
+        writeVarint(edgeCount);
+
+        for (int e = 0; e < edgeCount; ++e) {
+            writeVarint(graph.getEdgeSource(e));
+            writeVarint(((long) graph.getEdgeTarget(e) << 1) | (graph.isEdgeDirected(e) ? 1 : 0));
+            encodeValue(graph.getEdgeData(e));
+        }
+    }
+
+    private void encodeWord (final LSONWord<?> word)
+    {
+        if (word.isLSONNumber() && (word.toLsonNumber().isLong() || word.toLsonNumber().isDouble())) {
+            encodeNumber(word.toLsonNumber());
+            return;
+        }
+
+        final Object object = word.getObject();
+
+        final int tag;
+        final String canonical;
+
+        if (object instanceof Boolean) {
+            tag = (Boolean) object ? TRUE : FALSE;
+            canonical = object.toString();
+        } else if (object instanceof Double) {
+            final double number = (Double) object;
+
+            tag = isIntegral(number) ? INTEGER : DOUBLE;
+            canonical = getCanonicalText(number);
+        } else if (object instanceof Long) {
+            tag = LONG;
+            canonical = object.toString();
+        } else {
+            writeByte(WORD);
+            writeString(word.getWord());
+            return;
+        }
+
+        final String text = word.getWord();
+        final boolean explicit = text != null && !text.equals(canonical);
+
+        writeByte(explicit ? tag | EXPLICIT_TEXT : tag);
+
+        switch (tag) {
+            case INTEGER:
+                writeSignedVarint((long) (double) (Double) object);
+                break;
+            case DOUBLE:
+                writeLong(Double.doubleToRawLongBits((Double) object));
+                break;
+            case LONG:
+                writeSignedVarint((Long) object);
+                break;
+            default:
+                break;
+        }
+
+        if (explicit) {
+            writeString(text);
+        }
+    }
+
+    /**
+     * Encodes a long or double number word as {@link #encodeWord} does, without boxing the number or writing out its
+     * implied text.
+     */
+    private void encodeNumber (final LSONNumber number)
+    {
+        final int tag;
+
+        if (number.isLong()) {
+            tag = LONG;
+        } else {
+            tag = isIntegral(number.getAsDouble()) ? INTEGER : DOUBLE;
+        }
+
+        final boolean explicit = number.hasExplicitWord() && !number.getWord().equals(tag == LONG
+                ? Long.toString(number.getAsLong())
+                : getCanonicalText(number.getAsDouble()));
+
+        writeByte(explicit ? tag | EXPLICIT_TEXT : tag);
+
+        switch (tag) {
+            case INTEGER:
+            case LONG:
+                writeSignedVarint(number.getAsLong());
+                break;
+            default:
+                writeLong(Double.doubleToRawLongBits(number.getAsDouble()));
+                break;
+        }
+
+        if (explicit) {
+            writeString(number.getWord());
+        }
+    }
+
+    //==================================================================================================================
+    // Primitives
+    //==================================================================================================================
+
+    /**
+     * Writes a key as its index in the dictionary plus one, or as zero followed by the key if it is not in the
+     * dictionary yet.
+     */
+    private void writeKey (final String key)
+    {
+        if (key == null) {
+            throw new IllegalArgumentException("Cannot encode a null key");
+        }
+
+        final Integer index = this.keys.get(key);
+
+        if (index != null) {
+            writeVarint(index + 1L);
+            return;
+        }
+
+        this.keys.put(key, this.keys.size());
+        writeByte(0);
+        writeString(key);
+    }
+
+    void writeString (final String string)
+    {
+        final int characters = string.length();
+
+        // Strings are most often ASCII, in which case the length is known up front and characters are bytes.
+        int ascii = 0;
+        while (ascii < characters && string.charAt(ascii) < 0x80) {
+            ++ascii;
+        }
+
+        if (ascii == characters) {
+            writeVarint(characters);
+            ensure(characters);
+
+            for (int i = 0; i < characters; ++i) {
+                this.bytes[this.length++] = (byte) string.charAt(i);
+            }
+
+            return;
+        }
+
+        writeVarint(getEncodedLength(string, ascii));
+        ensure(3 * characters);
+
+        final byte[] bytes = this.bytes;
+        int length = this.length;
+
+        for (int i = 0; i < characters; ++i) {
+            final char character = string.charAt(i);
+
+            if (character < 0x80) {
+                bytes[length++] = (byte) character;
+            } else if (character < 0x800) {
+                bytes[length++] = (byte) (0xC0 | (character >> 6));
+                bytes[length++] = (byte) (0x80 | (character & 0x3F));
+            } else if (Character.isSurrogate(character)) {
+                final int codePoint = isSurrogatePair(string, i) ? string.codePointAt(i++) : 0xFFFD;
+
+                if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                    bytes[length++] = (byte) 0xEF;
+                    bytes[length++] = (byte) 0xBF;
+                    bytes[length++] = (byte) 0xBD;
+                } else {
+                    bytes[length++] = (byte) (0xF0 | (codePoint >> 18));
+                    bytes[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    bytes[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    bytes[length++] = (byte) (0x80 | (codePoint & 0x3F));
+                }
+            } else {
+                bytes[length++] = (byte) (0xE0 | (character >> 12));
+                bytes[length++] = (byte) (0x80 | ((character >> 6) & 0x3F));
+                bytes[length++] = (byte) (0x80 | (character & 0x3F));
+            }
+        }
+
+        this.length = length;
+    }
+
+    /**
+     * @return the number of bytes the string takes up in UTF-8, with lone surrogates replaced.
+     */
+    private static int getEncodedLength (final String string, final int ascii)
+    {
+        int length = ascii;
+
+        for (int i = ascii; i < string.length(); ++i) {
+            final char character = string.charAt(i);
+
+            if (character < 0x80) {
+                length += 1;
+            } else if (character < 0x800) {
+                length += 2;
+            } else if (isSurrogatePair(string, i)) {
+                length += 4;
+                ++i;
+            } else {
+                length += 3;
+            }
+        }
+
+        return length;
+    }
+
+    private static boolean isSurrogatePair (final String string, final int index)
+    {
+        return Character.isHighSurrogate(string.charAt(index)) && index + 1 < string.length()
+                && Character.isLowSurrogate(string.charAt(index + 1));
+    }
+
+    void writeSignedVarint (final long value)
+    {
+        // Zig-zag encode so that small negative values stay small.
+        writeVarint((value << 1) ^ (value >> 63));
+    }
+
+    void writeVarint (long value)
+    {
+        ensure(10);
+
+        while ((value & ~0x7FL) != 0) {
+            this.bytes[this.length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+
+        this.bytes[this.length++] = (byte) value;
+    }
+
+    void writeLong (final long value)
+    {
+        ensure(8);
+
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            this.bytes[this.length++] = (byte) (value >>> shift);
+        }
+    }
+
+    void writeByte (final int value)
+    {
+        ensure(1);
+        this.bytes[this.length++] = (byte) value;
+    }
+
+    private void ensure (final int count)
+    {
+        if (this.length + count > this.bytes.length) {
+            this.bytes = Arrays.copyOf(this.bytes, Math.max(this.bytes.length * 2, this.length + count));
+        }
+    }
+}
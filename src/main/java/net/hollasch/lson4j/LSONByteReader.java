@@ -0,0 +1,379 @@
+/*
+ * Copyright (c) 2017 Connor Hollasch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.hollasch.lson4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static net.hollasch.lson4j.util.LSONTokenUtils.NEWLINE;
+
+/**
+ * @author Connor Hollasch
+ * @since Oct 17, 3:05 PM
+ */
+public class LSONByteReader extends LSONReader
+{
+    private static final char REPLACEMENT_CHARACTER = 0xFFFD;
+
+    // Files are mapped in windows of this many bytes by default, as a single mapping cannot exceed 2 GB.
+    private static final long DEFAULT_MAPPED_WINDOW_LENGTH = 1L << 28;
+
+    // Streaming source, bulk read into the backing array of the byte buffer. Null when reading from memory.
+    private InputStream stream;
+
+    // Memory mapped source, mapped one window at a time starting from channelOffset. Null when not reading a file.
+    private FileChannel channel;
+    private long channelOffset;
+    private long channelLength;
+    private long mappedWindowLength;
+
+    // Either a window over the streamed source, or a view of the in memory source (heap or direct).
+    private ByteBuffer buffer;
+
+    // Number of times the buffer has been refilled or replaced, so views over its contents can tell they are stale.
+    private int fills;
+
+    // Second half of a surrogate pair, handed out on the read following a four byte sequence.
+    private char pendingLowSurrogate;
+
+    LSONByteReader (final InputStream stream)
+    {
+        this(stream, DEFAULT_BUFFER_LENGTH);
+    }
+
+    LSONByteReader (final InputStream stream, final int bufferLength)
+    {
+        this.stream = stream;
+        this.buffer = ByteBuffer.allocate(bufferLength);
+
+        // Start out empty so the first read fills from the stream.
+        ((Buffer) this.buffer).limit(0);
+    }
+
+    LSONByteReader (final FileChannel channel) throws IOException
+    {
+        this(channel, DEFAULT_MAPPED_WINDOW_LENGTH);
+    }
+
+    LSONByteReader (final FileChannel channel, final long mappedWindowLength) throws IOException
+    {
+        this.channel = channel;
+        this.mappedWindowLength = mappedWindowLength;
+        this.channelOffset = channel.position();
+        this.channelLength = channel.size();
+
+        // Start out empty so the first read maps the first window.
+        this.buffer = ByteBuffer.allocate(0);
+    }
+
+    LSONByteReader (final byte[] bytes)
+    {
+        this(bytes, 0, bytes.length);
+    }
+
+    LSONByteReader (final byte[] bytes, final int offset, final int length)
+    {
+        this(ByteBuffer.wrap(bytes, offset, length));
+    }
+
+    LSONByteReader (final ByteBuffer buffer)
+    {
+        // Read through a duplicate so the position of the caller's buffer is left untouched.
+        this.buffer = buffer.duplicate();
+    }
+
+    @Override
+    int read () throws IOException
+    {
+        if (this.pendingLowSurrogate != 0) {
+            final char low = this.pendingLowSurrogate;
+            this.pendingLowSurrogate = 0;
+            return low;
+        }
+
+        final int lead = nextByte();
+
+        // ASCII bytes are characters of their own. Overlong sequences are rejected by decode, so structural
+        // characters can only ever come from here.
+        if (lead < 0x80) {
+            return lead;
+        }
+
+        return decode(lead);
+    }
+
+    private int decode (final int lead) throws IOException
+    {
+        final int continuations = getContinuationCount(lead);
+        if (continuations == 0) {
+            return REPLACEMENT_CHARACTER;
+        }
+
+        int codePoint = getLeadBits(lead, continuations);
+
+        for (int i = 0; i < continuations; ++i) {
+            final int continuation = nextByte();
+
+            if (!isContinuation(lead, i, continuation)) {
+                // Malformed sequence. Leave the offending byte to be read again as the start of the next character.
+                if (continuation != END_OF_SOURCE) {
+                    ((Buffer) this.buffer).position(this.buffer.position() - 1);
+                }
+
+                return REPLACEMENT_CHARACTER;
+            }
+
+            codePoint = (codePoint << 6) | (continuation & 0x3F);
+        }
+
+        if (isSurrogate(codePoint)) {
+            return REPLACEMENT_CHARACTER;
+        }
+
+        if (codePoint >= Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+            this.pendingLowSurrogate = Character.lowSurrogate(codePoint);
+            return Character.highSurrogate(codePoint);
+        }
+
+        return codePoint;
+    }
+
+    /**
+     * @return the number of continuation bytes that follow the given lead byte, or zero for a stray continuation byte
+     * or a lead byte that can only start an overlong or out of range sequence.
+     */
+    static int getContinuationCount (final int lead)
+    {
+        if (lead >= 0xC2 && lead <= 0xDF) {
+            return 1;
+        } else if (lead >= 0xE0 && lead <= 0xEF) {
+            return 2;
+        } else if (lead >= 0xF0 && lead <= 0xF4) {
+            return 3;
+        }
+
+        return 0;
+    }
+
+    /**
+     * @return the code point bits held by a lead byte followed by the given number of continuation bytes.
+     */
+    static int getLeadBits (final int lead, final int continuations)
+    {
+        return lead & (0x3F >> continuations);
+    }
+
+    /**
+     * Checks a continuation byte, bounding the first one after the lead byte so overlong encodings and code points
+     * past the end of Unicode are rejected before any of them are decoded.
+     *
+     * @param lead  lead byte of the sequence.
+     * @param index index of the continuation byte within the sequence, from zero.
+     * @param b     the byte, or {@link #END_OF_SOURCE}.
+     * @return true if the byte continues the sequence.
+     */
+    static boolean isContinuation (final int lead, final int index, final int b)
+    {
+        if (index == 0) {
+            switch (lead) {
+                case 0xE0:
+                    return b >= 0xA0 && b <= 0xBF;
+                case 0xF0:
+                    return b >= 0x90 && b <= 0xBF;
+                case 0xF4:
+                    return b >= 0x80 && b <= 0x8F;
+                default:
+                    break;
+            }
+        }
+
+        return b >= 0x80 && b <= 0xBF;
+    }
+
+    /**
+     * @return true if the decoded code point is a surrogate, which is replaced as a whole as the standard decoder does.
+     */
+    static boolean isSurrogate (final int codePoint)
+    {
+        return codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE;
+    }
+
+    @Override
+    char skipValue () throws LSONParseException, IOException
+    {
+        final LSONStructureScanner scanner = new LSONStructureScanner();
+
+        char next = getCurrent();
+        if (isFinished() || scanner.accept(next) == LSONStructureScanner.UNDERFLOW) {
+            return next;
+        }
+
+        while (true) {
+            // ASCII characters are scanned straight from the buffer, keeping track of the location as they would be
+            // if read one by one.
+            if (!hasPeeked() && this.pendingLowSurrogate == 0) {
+                final ByteBuffer buffer = this.buffer;
+                final int limit = buffer.limit();
+
+                int index = buffer.position();
+                int line = getLine();
+                int column = getColumn();
+                int result = LSONStructureScanner.NONE;
+
+                while (index < limit) {
+                    final int run = scanner.skip(buffer, index, limit);
+
+                    for (; index < run; ++index) {
+                        if (buffer.get(index) == NEWLINE) {
+                            ++line;
+                            column = 0;
+                        } else {
+                            ++column;
+                        }
+                    }
+
+                    if (index == limit || buffer.get(index) < 0) {
+                        break;
+                    }
+
+                    next = (char) buffer.get(index++);
+
+                    if (next == NEWLINE) {
+                        ++line;
+                        column = 0;
+                    } else {
+                        ++column;
+                    }
+
+                    result = scanner.accept(next);
+                    if (result == LSONStructureScanner.VALUE_START || result == LSONStructureScanner.UNDERFLOW) {
+                        break;
+                    }
+                }
+
+                skipped(next, line, column);
+                ((Buffer) buffer).position(index);
+
+                if (result == LSONStructureScanner.VALUE_START || result == LSONStructureScanner.UNDERFLOW) {
+                    return next;
+                }
+            }
+
+            // Anything else is read normally, such as multi byte characters or the first character after a refill.
+            next = readNext();
+
+            if (isFinished()) {
+                return skippedToEnd(scanner, next);
+            }
+
+            final int result = scanner.accept(next);
+            if (result == LSONStructureScanner.VALUE_START || result == LSONStructureScanner.UNDERFLOW) {
+                return next;
+            }
+        }
+    }
+
+    @Override
+    void close () throws IOException
+    {
+        if (this.stream != null) {
+            this.stream.close();
+        }
+
+        if (this.channel != null) {
+            this.channel.close();
+        }
+    }
+
+    ByteBuffer getBuffer ()
+    {
+        return this.buffer;
+    }
+
+    int getFills ()
+    {
+        return this.fills;
+    }
+
+    boolean isDecodingSurrogatePair ()
+    {
+        return this.pendingLowSurrogate != 0;
+    }
+
+    private int nextByte () throws IOException
+    {
+        if (!this.buffer.hasRemaining() && !fill()) {
+            return END_OF_SOURCE;
+        }
+
+        return this.buffer.get() & 0xFF;
+    }
+
+    private boolean fill () throws IOException
+    {
+        if (this.channel != null) {
+            return mapNextWindow();
+        }
+
+        if (this.stream == null) {
+            return false;
+        }
+
+        // Bulk read as much as the stream will hand over, skipping over (non-compliant) empty reads.
+        final byte[] array = this.buffer.array();
+
+        int read;
+        do {
+            read = this.stream.read(array, 0, array.length);
+        } while (read == 0);
+
+        if (read < 0) {
+            return false;
+        }
+
+        ((Buffer) this.buffer).position(0);
+        ((Buffer) this.buffer).limit(read);
+        ++this.fills;
+        return true;
+    }
+
+    private boolean mapNextWindow () throws IOException
+    {
+        if (this.channelOffset >= this.channelLength) {
+            return false;
+        }
+
+        // The previous window is dropped here and unmapped once it is garbage collected, so the page cache acts as
+        // the buffer and no file contents are ever copied onto the heap.
+        final long length = Math.min(this.mappedWindowLength, this.channelLength - this.channelOffset);
+        this.buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, this.channelOffset, length);
+        this.channelOffset += length;
+        ++this.fills;
+
+        return true;
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2017 Connor Hollasch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.hollasch.lson4j;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+
+/**
+ * @author Connor Hollasch
+ * @since Oct 17, 2:40 PM
+ */
+public class LSONCharReader extends LSONReader
+{
+    // Streaming source, bulk read into the character buffer. Null when reading from memory.
+    private Reader reader;
+
+    // In memory source that could not be read in place, copied into the character buffer in windows.
+    private CharSequence sequence;
+    private int sequenceOffset;
+
+    // Either a window over the streamed source, or the in memory source itself when it is a character array.
+    private char[] buffer;
+    private int bufferOffset;
+    private int bufferLimit;
+
+    LSONCharReader (final Reader reader)
+    {
+        this(reader, DEFAULT_BUFFER_LENGTH);
+    }
+
+    LSONCharReader (final Reader reader, final int bufferLength)
+    {
+        this.reader = reader;
+        this.buffer = new char[bufferLength];
+    }
+
+    LSONCharReader (final char[] chars)
+    {
+        this(chars, 0, chars.length);
+    }
+
+    LSONCharReader (final char[] chars, final int offset, final int length)
+    {
+        // Character arrays are read in place, the buffer is never refilled.
+        this.buffer = chars;
+        this.bufferOffset = offset;
+        this.bufferLimit = offset + length;
+    }
+
+    LSONCharReader (final CharSequence sequence)
+    {
+        if (sequence instanceof CharBuffer && ((CharBuffer) sequence).hasArray()) {
+            // Heap character buffers can be read in place from their backing array.
+            final CharBuffer charBuffer = (CharBuffer) sequence;
+
+            this.buffer = charBuffer.array();
+            this.bufferOffset = charBuffer.arrayOffset() + charBuffer.position();
+            this.bufferLimit = charBuffer.arrayOffset() + charBuffer.limit();
+        } else {
+            // Anything else is copied over in bulk, one buffer sized window at a time.
+            this.sequence = sequence;
+            this.buffer = new char[Math.max(1, Math.min(sequence.length(), DEFAULT_BUFFER_LENGTH))];
+        }
+    }
+
+    @Override
+    synchronized void prepare () throws IOException
+    {
+        // Begin buffering.
+        if (this.bufferOffset >= this.bufferLimit) {
+            fill();
+        }
+
+        super.prepare();
+    }
+
+    @Override
+    int read () throws IOException
+    {
+        if (this.bufferOffset >= this.bufferLimit && !fill()) {
+            return END_OF_SOURCE;
+        }
+
+        return this.buffer[this.bufferOffset++];
+    }
+
+    @Override
+    void close () throws IOException
+    {
+        if (this.reader != null) {
+            this.reader.close();
+        }
+    }
+
+    private boolean fill () throws IOException
+    {
+        if (this.reader != null) {
+            // Bulk read as much as the reader will hand over. Readers only return 0 for empty requests, but guard
+            // against misbehaving implementations so a 0 is never mistaken for the end of the stream.
+            int read;
+            do {
+                read = this.reader.read(this.buffer, 0, this.buffer.length);
+            } while (read == 0);
+
+            if (read < 0) {
+                return false;
+            }
+
+            this.bufferOffset = 0;
+            this.bufferLimit = read;
+            return true;
+        }
+
+        if (this.sequence != null) {
+            final int remaining = this.sequence.length() - this.sequenceOffset;
+
+            if (remaining <= 0) {
+                return false;
+            }
+
+            final int length = Math.min(remaining, this.buffer.length);
+
+            if (this.sequence instanceof String) {
+                ((String) this.sequence).getChars(this.sequenceOffset, this.sequenceOffset + length, this.buffer, 0);
+            } else {
+                for (int i = 0; i < length; ++i) {
+                    this.buffer[i] = this.sequence.charAt(this.sequenceOffset + i);
+                }
+            }
+
+            this.sequenceOffset += length;
+            this.bufferOffset = 0;
+            this.bufferLimit = length;
+            return true;
+        }
+
+        // In place character arrays have nothing left to fill with.
+        return false;
+    }
+}
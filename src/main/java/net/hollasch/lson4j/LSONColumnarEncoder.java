@@ -0,0 +1,347 @@
+/*
+ * Copyright (c) 2017 Connor Hollasch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.hollasch.lson4j;
+
+import net.hollasch.lson4j.type.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+
+/**
+ * Encodes tables column by column, so that single columns can be read back by {@link LSONColumnarReader} without
+ * decoding the rest of the table. The encoding starts with a directory holding the number of columns and rows, and the
+ * name, encoding and length of each column, followed by the contents of each column one after the other.
+ * <p>
+ * Each column is encoded by the type it is stored as in an {@link LSONColumn}, which keeps every cell as it is:
+ * <ul>
+ * <li>Booleans are packed into a bit set.</li>
+ * <li>Integral numbers are stored as the differences from one row to the next, bit packed in blocks of rows.</li>
+ * <li>Other numbers are stored as eight byte doubles.</li>
+ * <li>Strings that repeat often enough are stored once in a dictionary, and bit packed as indices into it.</li>
+ * <li>Anything else falls back on the encoding of {@link LSONBinaryEncoder}, one cell after the other.</li>
+ * </ul>
+ * Tables that are already stored by column are encoded straight from their columns.
+ *
+ * @author Connor Hollasch
+ * @since Oct 18, 2:45 AM
+ */
+public final class LSONColumnarEncoder
+{
+    static final byte[] MAGIC = {'L', 'S', 'C'};
+    static final int VERSION = 1;
+
+    //==================================================================================================================
+    // Column encodings
+    //==================================================================================================================
+
+    static final int PLAIN = 0;
+    static final int BOOLEAN = 1;
+    static final int INTEGER = 2;
+    static final int DOUBLE = 3;
+    static final int DICTIONARY = 4;
+
+    //==================================================================================================================
+    // Forms of number columns
+    //==================================================================================================================
+
+    // Text as implied by the binary encoding, without a fraction for integral numbers.
+    static final int CANONICAL_TEXT = 0;
+
+    // Text as written by Double.toString, with a fraction even for integral numbers.
+    static final int DECIMAL_TEXT = 1;
+
+    // Long numbers rather than doubles, written in decimal. Only valid for integral columns.
+    static final int LONG_NUMBERS = 2;
+
+    // Integral numbers as longs written in decimal, all others as doubles in canonical text.
+    static final int INTEGRAL_LONGS = 3;
+
+    // Number of rows packed together with a single bit width.
+    static final int BLOCK_LENGTH = 128;
+
+    private final LSONBinaryEncoder encoder;
+    private final long[] block;
+
+    public LSONColumnarEncoder ()
+    {
+        this.encoder = new LSONBinaryEncoder();
+        this.block = new long[BLOCK_LENGTH];
+    }
+
+    /**
+     * Encodes the given table.
+     *
+     * @param table table to encode.
+     * @return the encoded table.
+     * @throws IllegalArgumentException if a row of the table does not have a value for every column, or the table has
+     *                                  rows but no columns.
+     */
+    public byte[] encode (final LSONTable table)
+    {
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+
+        try {
+            encode(table, stream);
+        } catch (IOException e) {
+            // Byte array streams never fail.
+            throw new IllegalStateException(e);
+        }
+
+        return stream.toByteArray();
+    }
+
+    /**
+     * Encodes the given table to a stream.
+     *
+     * @param table  table to encode.
+     * @param stream destination of the encoded table.
+     * @throws IOException              if the stream has a problem with IO.
+     * @throws IllegalArgumentException if a row of the table does not have a value for every column, or the table has
+     *                                  rows but no columns.
+     */
+    public void encode (final LSONTable table, final OutputStream stream) throws IOException
+    {
+        final ArrayList<LSONWord> header = table.getHeader();
+        final LSONColumnTable columnTable = table instanceof LSONColumnTable ? (LSONColumnTable) table : null;
+
+        // Tables that are not stored by column yet are taken apart one column at a time.
+        final ArrayList<LSONValue>[] rows = columnTable == null ? table.getRowData() : null;
+        final int rowCount = columnTable == null ? rows.length : columnTable.getRowCount();
+
+        if (columnTable == null) {
+            if (header.isEmpty() && rows.length > 0) {
+                throw new IllegalArgumentException("Cannot encode table rows without columns");
+            }
+
+            for (final ArrayList<LSONValue> row : rows) {
+                if (row.size() != header.size()) {
+                    throw new IllegalArgumentException("Cannot encode a table row of " + row.size()
+                            + " values under a header of " + header.size() + " columns");
+                }
+            }
+        }
+
+        final int[] encodings = new int[header.size()];
+        final byte[][] columns = new byte[header.size()][];
+
+        for (int c = 0; c < header.size(); ++c) {
+            final LSONColumn column;
+
+            if (columnTable != null) {
+                column = columnTable.getLSONColumn(c);
+            } else {
+                final ArrayList<LSONValue> cells = new ArrayList<>(rows.length);
+                for (final ArrayList<LSONValue> row : rows) {
+                    cells.add(row.get(c));
+                }
+
+                column = LSONColumn.of(cells);
+            }
+
+            this.encoder.reset();
+            encodings[c] = encodeColumn(column);
+            columns[c] = this.encoder.toByteArray();
+        }
+
+        this.encoder.reset();
+        this.encoder.writeVarint(header.size());
+        this.encoder.writeVarint(rowCount);
+
+        for (int c = 0; c < header.size(); ++c) {
+            this.encoder.writeString(header.get(c).getWord());
+            this.encoder.writeByte(encodings[c]);
+            this.encoder.writeVarint(columns[c].length);
+        }
+
+        final byte[] directory = this.encoder.toByteArray();
+
+        // The length of the directory comes first, so that readers know how much to read before any of the columns.
+        stream.write(MAGIC);
+        stream.write(VERSION);
+        stream.write(ByteBuffer.allocate(Integer.BYTES).putInt(directory.length).array());
+        stream.write(directory);
+
+        for (final byte[] column : columns) {
+            stream.write(column);
+        }
+    }
+
+    //==================================================================================================================
+    // Columns
+    //==================================================================================================================
+
+    private int encodeColumn (final LSONColumn column)
+    {
+        switch (column.getType()) {
+            case BOOLEAN:
+                encodeBooleans(column.getBooleans(), column.size());
+                return BOOLEAN;
+            case LONG:
+                this.encoder.writeByte(LONG_NUMBERS);
+                encodeIntegers(column.getLongs(), null);
+                return INTEGER;
+            case DOUBLE:
+                return encodeDoubles(column.getDoubles(), column.isIntegralLongs() ? INTEGRAL_LONGS
+                        : column.isDecimalText() ? DECIMAL_TEXT : CANONICAL_TEXT);
+            case STRING:
+                // Dictionaries only pay off if each string repeats at least once on average.
+                if (column.getDictionary().length <= column.size() / 2) {
+                    encodeDictionary(column.getDictionary(), column.getCodes());
+                    return DICTIONARY;
+                }
+                break;
+            default:
+                break;
+        }
+
+        for (int i = 0; i < column.size(); ++i) {
+            this.encoder.encodeValue(column.get(i));
+        }
+
+        return PLAIN;
+    }
+
+    private void encodeBooleans (final BitSet booleans, final int size)
+    {
+        for (int start = 0; start < size; start += BLOCK_LENGTH) {
+            final int count = Math.min(BLOCK_LENGTH, size - start);
+
+            for (int i = 0; i < count; ++i) {
+                this.block[i] = booleans.get(start + i) ? 1 : 0;
+            }
+
+            writePacked(count, 1);
+        }
+    }
+
+    private int encodeDoubles (final double[] doubles, final int form)
+    {
+        this.encoder.writeByte(form);
+
+        boolean integers = true;
+        for (int i = 0; i < doubles.length && integers; ++i) {
+            integers = LSONBinaryEncoder.isIntegral(doubles[i]);
+        }
+
+        if (integers) {
+            encodeIntegers(null, doubles);
+            return INTEGER;
+        }
+
+        for (final double number : doubles) {
+            this.encoder.writeLong(Double.doubleToRawLongBits(number));
+        }
+
+        return DOUBLE;
+    }
+
+    /**
+     * Encodes the differences between integral numbers, given either as longs or as doubles.
+     */
+    private void encodeIntegers (final long[] longs, final double[] doubles)
+    {
+        final int size = longs != null ? longs.length : doubles.length;
+        long previous = 0;
+
+        for (int start = 0; start < size; start += BLOCK_LENGTH) {
+            final int count = Math.min(BLOCK_LENGTH, size - start);
+            long bits = 0;
+
+            for (int i = 0; i < count; ++i) {
+                final long value = longs != null ? longs[start + i] : (long) doubles[start + i];
+                final long delta = value - previous;
+
+                // Zig-zag encode so that small negative differences stay small.
+                this.block[i] = (delta << 1) ^ (delta >> 63);
+                bits |= this.block[i];
+                previous = value;
+            }
+
+            final int width = Long.SIZE - Long.numberOfLeadingZeros(bits);
+            this.encoder.writeByte(width);
+            writePacked(count, width);
+        }
+    }
+
+    private void encodeDictionary (final LSONString[] dictionary, final int[] codes)
+    {
+        this.encoder.writeVarint(dictionary.length);
+        for (final LSONString string : dictionary) {
+            this.encoder.writeString(string.getWord());
+        }
+
+        final int width = Integer.SIZE - Integer.numberOfLeadingZeros(Math.max(0, dictionary.length - 1));
+
+        for (int start = 0; start < codes.length; start += BLOCK_LENGTH) {
+            final int count = Math.min(BLOCK_LENGTH, codes.length - start);
+
+            for (int i = 0; i < count; ++i) {
+                this.block[i] = codes[start + i];
+            }
+
+            writePacked(count, width);
+        }
+    }
+
+    /**
+     * Writes the low bits of the first values of the block, lowest bits first, padding the last byte with zeros.
+     *
+     * @param count number of values in the block.
+     * @param width number of bits to write of each value, up to 64.
+     */
+    private void writePacked (final int count, final int width)
+    {
+        long buffer = 0;
+        int bits = 0;
+
+        for (int i = 0; i < count; ++i) {
+            final long value = this.block[i];
+            buffer |= value << bits;
+
+            if (bits + width >= Long.SIZE) {
+                // The buffer is full, so flush it whole and carry over the bits of the value that did not fit.
+                this.encoder.writeLong(Long.reverseBytes(buffer));
+                buffer = bits == 0 ? 0 : value >>> (Long.SIZE - bits);
+                bits += width - Long.SIZE;
+            } else {
+                bits += width;
+            }
+
+            while (bits >= Byte.SIZE) {
+                this.encoder.writeByte((int) buffer);
+                buffer >>>= Byte.SIZE;
+                bits -= Byte.SIZE;
+            }
+        }
+
+        if (bits > 0) {
+            this.encoder.writeByte((int) buffer);
+        }
+    }
+}
@@ -0,0 +1,606 @@
+/*
+ * Copyright (c) 2017 Connor Hollasch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.hollasch.lson4j;
+
+import net.hollasch.lson4j.type.*;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+import static net.hollasch.lson4j.LSONColumnarEncoder.*;
+
+/**
+ * Reads tables encoded by {@link LSONColumnarEncoder} one column at a time. Only the directory of the table is read up
+ * front, and reading a column only touches the bytes of that column, so scanning a few columns of a wide table stays
+ * a sequential read of those columns alone. Columns can either be read as lists of values, or straight into the
+ * primitive storage of an {@link LSONColumn}.
+ * <p>
+ * The buffer being read from must be left unmodified while the reader is in use. Readers must not be used by more
+ * than one thread at a time.
+ *
+ * @author Connor Hollasch
+ * @since Oct 18, 2:45 AM
+ */
+public final class LSONColumnarReader
+{
+    // Length of the magic, the version and the length of the directory.
+    private static final int PREAMBLE_LENGTH = MAGIC.length + 1 + Integer.BYTES;
+
+    private final ByteBuffer buffer;
+    private final LSONBinaryDecoder decoder;
+    private final long[] block;
+
+    private final int rowCount;
+
+    private final String[] names;
+    private final int[] encodings;
+    private final int[] starts;
+    private final int[] lengths;
+
+    // Index of the first column of each name.
+    private final Map<String, Integer> indices;
+
+    LSONColumnarReader (final ByteBuffer buffer, final LSONTypeAdapterTable typeAdapters)
+            throws LSONParseException
+    {
+        this.buffer = buffer.slice();
+        this.decoder = new LSONBinaryDecoder(typeAdapters);
+        this.block = new long[BLOCK_LENGTH];
+
+        final int length = this.buffer.remaining();
+
+        if (length < PREAMBLE_LENGTH) {
+            throw this.decoder.error("Unexpected end of input", length);
+        }
+
+        for (int i = 0; i < MAGIC.length; ++i) {
+            if (this.buffer.get(i) != MAGIC[i]) {
+                throw this.decoder.error("Not a columnar LSON table", 0);
+            }
+        }
+
+        final int version = this.buffer.get(MAGIC.length);
+        if (version != VERSION) {
+            throw this.decoder.error("Unsupported encoding version " + version, MAGIC.length);
+        }
+
+        final int directoryLength = this.buffer.getInt(MAGIC.length + 1);
+        if (directoryLength < 0 || directoryLength > length - PREAMBLE_LENGTH) {
+            throw this.decoder.error("Directory length of " + directoryLength + " exceeds the input", MAGIC.length + 1);
+        }
+
+        beginRange(PREAMBLE_LENGTH, PREAMBLE_LENGTH + directoryLength);
+
+        try {
+            final int columnCount = this.decoder.readCount(3);
+            final int rowsStart = this.decoder.getPosition();
+            final long rowCount = this.decoder.readVarint();
+
+            if (rowCount > Integer.MAX_VALUE || (columnCount == 0 && rowCount > 0)) {
+                throw this.decoder.error("Invalid row count " + rowCount, rowsStart);
+            }
+
+            this.rowCount = (int) rowCount;
+
+            this.names = new String[columnCount];
+            this.encodings = new int[columnCount];
+            this.starts = new int[columnCount];
+            this.lengths = new int[columnCount];
+            this.indices = new HashMap<>();
+
+            long start = PREAMBLE_LENGTH + directoryLength;
+
+            for (int c = 0; c < columnCount; ++c) {
+                this.names[c] = this.decoder.readString();
+                this.indices.putIfAbsent(this.names[c], c);
+
+                final int encodingStart = this.decoder.getPosition();
+                this.encodings[c] = this.decoder.readByte();
+
+                if (this.encodings[c] < PLAIN || this.encodings[c] > DICTIONARY) {
+                    throw this.decoder.error("Unknown column encoding " + this.encodings[c], encodingStart);
+                }
+
+                final int lengthStart = this.decoder.getPosition();
+                final long columnLength = this.decoder.readVarint();
+
+                if (columnLength < getMinimumLength(this.encodings[c]) || start + columnLength > length) {
+                    throw this.decoder.error("Column length of " + columnLength + " does not fit", lengthStart);
+                }
+
+                this.starts[c] = (int) start;
+                this.lengths[c] = (int) columnLength;
+                start += columnLength;
+            }
+
+            if (this.decoder.getPosition() != this.decoder.getLimit()) {
+                throw this.decoder.error("Expected end of directory", this.decoder.getPosition());
+            }
+
+            if (start != length) {
+                throw this.decoder.error("Expected end of encoded table", (int) start);
+            }
+        } finally {
+            this.decoder.end();
+        }
+    }
+
+    public int getRowCount ()
+    {
+        return this.rowCount;
+    }
+
+    public int getColumnCount ()
+    {
+        return this.names.length;
+    }
+
+    public List<String> getColumnNames ()
+    {
+        return Collections.unmodifiableList(Arrays.asList(this.names));
+    }
+
+    /**
+     * @param name name of the column.
+     * @return the index of the first column of the given name, or -1 if there is no such column.
+     */
+    public int getColumnIndex (final String name)
+    {
+        final Integer index = this.indices.get(name);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Reads the column of the given name, decoding none of the other columns.
+     *
+     * @param name name of the column.
+     * @return the value of each row in the column.
+     * @throws LSONParseException       if the column is not a valid encoding.
+     * @throws IllegalArgumentException if there is no column of the given name.
+     */
+    public ArrayList<LSONValue> readColumn (final String name) throws LSONParseException
+    {
+        return readColumn(getExistingColumnIndex(name));
+    }
+
+    /**
+     * Reads the column at the given index, decoding none of the other columns.
+     *
+     * @param column index of the column.
+     * @return the value of each row in the column.
+     * @throws LSONParseException        if the column is not a valid encoding.
+     * @throws IndexOutOfBoundsException if there is no column at the given index.
+     */
+    public ArrayList<LSONValue> readColumn (final int column) throws LSONParseException
+    {
+        // Plain columns are already made of values, anything else is read by type first.
+        if (getEncoding(column) == PLAIN) {
+            return readValues(column);
+        }
+
+        return new ArrayList<>(readLSONColumn(column).asList());
+    }
+
+    /**
+     * Reads the column of the given name into its stored form, decoding none of the other columns. Booleans, numbers
+     * and dictionary strings are read straight into primitive arrays.
+     *
+     * @param name name of the column.
+     * @return the column.
+     * @throws LSONParseException       if the column is not a valid encoding.
+     * @throws IllegalArgumentException if there is no column of the given name.
+     */
+    public LSONColumn readLSONColumn (final String name) throws LSONParseException
+    {
+        return readLSONColumn(getExistingColumnIndex(name));
+    }
+
+    /**
+     * Reads the column at the given index into its stored form, decoding none of the other columns. Booleans, numbers
+     * and dictionary strings are read straight into primitive arrays.
+     *
+     * @param column index of the column.
+     * @return the column.
+     * @throws LSONParseException        if the column is not a valid encoding.
+     * @throws IndexOutOfBoundsException if there is no column at the given index.
+     */
+    public LSONColumn readLSONColumn (final int column) throws LSONParseException
+    {
+        if (getEncoding(column) == PLAIN) {
+            return LSONColumn.of(readValues(column));
+        }
+
+        beginRange(this.starts[column], this.starts[column] + this.lengths[column]);
+
+        try {
+            final LSONColumn result;
+
+            switch (this.encodings[column]) {
+                case BOOLEAN:
+                    result = readBooleans();
+                    break;
+                case INTEGER:
+                    result = readIntegers(readNumberForm(true));
+                    break;
+                case DOUBLE:
+                    result = readDoubles(readNumberForm(false));
+                    break;
+                default:
+                    result = readDictionary();
+                    break;
+            }
+
+            checkEnd();
+            return result;
+        } finally {
+            this.decoder.end();
+        }
+    }
+
+    /**
+     * Reads the whole table.
+     *
+     * @return the decoded table.
+     * @throws LSONParseException if the table is not a valid encoding.
+     */
+    public LSONTable readTable () throws LSONParseException
+    {
+        return readTable(getAllColumns());
+    }
+
+    /**
+     * Reads a table made of only the columns of the given names, in the given order.
+     *
+     * @param names names of the columns to read.
+     * @return the decoded table.
+     * @throws LSONParseException       if any of the columns is not a valid encoding.
+     * @throws IllegalArgumentException if there is no column of one of the given names.
+     */
+    public LSONTable readTable (final String... names) throws LSONParseException
+    {
+        return readTable(getExistingColumnIndices(names));
+    }
+
+    /**
+     * Reads the whole table, stored by column.
+     *
+     * @return the decoded table.
+     * @throws LSONParseException if the table is not a valid encoding.
+     */
+    public LSONColumnTable readColumnTable () throws LSONParseException
+    {
+        return readColumnTable(getAllColumns());
+    }
+
+    /**
+     * Reads a table made of only the columns of the given names in the given order, stored by column.
+     *
+     * @param names names of the columns to read.
+     * @return the decoded table.
+     * @throws LSONParseException       if any of the columns is not a valid encoding.
+     * @throws IllegalArgumentException if there is no column of one of the given names.
+     */
+    public LSONColumnTable readColumnTable (final String... names) throws LSONParseException
+    {
+        return readColumnTable(getExistingColumnIndices(names));
+    }
+
+    @SuppressWarnings("unchecked")
+    private LSONTable readTable (final int[] columns) throws LSONParseException
+    {
+        final ArrayList<LSONWord> header = new ArrayList<>(columns.length);
+        final ArrayList<LSONValue>[] rows = new ArrayList[columns.length == 0 ? 0 : this.rowCount];
+
+        for (int r = 0; r < rows.length; ++r) {
+            rows[r] = new ArrayList<>(columns.length);
+        }
+
+        for (final int column : columns) {
+            final ArrayList<LSONValue> cells = readColumn(column);
+            header.add(new LSONString(this.names[column]));
+
+            for (int r = 0; r < rows.length; ++r) {
+                rows[r].add(cells.get(r));
+            }
+        }
+
+        return new LSONTable(header, rows);
+    }
+
+    private LSONColumnTable readColumnTable (final int[] columns) throws LSONParseException
+    {
+        final ArrayList<String> header = new ArrayList<>(columns.length);
+        final ArrayList<LSONColumn> contents = new ArrayList<>(columns.length);
+
+        for (final int column : columns) {
+            header.add(this.names[column]);
+            contents.add(readLSONColumn(column));
+        }
+
+        return new LSONColumnTable(header, contents);
+    }
+
+    //==================================================================================================================
+    // Columns
+    //==================================================================================================================
+
+    private ArrayList<LSONValue> readValues (final int column) throws LSONParseException
+    {
+        final ArrayList<LSONValue> cells = new ArrayList<>(this.rowCount);
+
+        beginRange(this.starts[column], this.starts[column] + this.lengths[column]);
+
+        try {
+            for (int i = 0; i < this.rowCount; ++i) {
+                cells.add(this.decoder.decodeValue());
+            }
+
+            checkEnd();
+        } finally {
+            this.decoder.end();
+        }
+
+        return cells;
+    }
+
+    private LSONColumn readBooleans () throws LSONParseException
+    {
+        final BitSet booleans = new BitSet(this.rowCount);
+
+        for (int start = 0; start < this.rowCount; start += BLOCK_LENGTH) {
+            final int count = Math.min(BLOCK_LENGTH, this.rowCount - start);
+            readPacked(count, 1);
+
+            for (int i = 0; i < count; ++i) {
+                if (this.block[i] != 0) {
+                    booleans.set(start + i);
+                }
+            }
+        }
+
+        return LSONColumn.ofBooleans(booleans, this.rowCount);
+    }
+
+    private int readNumberForm (final boolean integral) throws LSONParseException
+    {
+        final int start = this.decoder.getPosition();
+        final int form = this.decoder.readByte();
+
+        if (form != CANONICAL_TEXT && form != DECIMAL_TEXT && form != INTEGRAL_LONGS
+                && (!integral || form != LONG_NUMBERS)) {
+            throw this.decoder.error("Unknown number form " + form, start);
+        }
+
+        return form;
+    }
+
+    private LSONColumn readIntegers (final int form) throws LSONParseException
+    {
+        final long[] longs = form == LONG_NUMBERS ? new long[this.rowCount] : null;
+        final double[] doubles = form == LONG_NUMBERS ? null : new double[this.rowCount];
+
+        long previous = 0;
+
+        for (int start = 0; start < this.rowCount; start += BLOCK_LENGTH) {
+            final int count = Math.min(BLOCK_LENGTH, this.rowCount - start);
+
+            final int widthStart = this.decoder.getPosition();
+            final int width = this.decoder.readByte();
+
+            if (width < 0 || width > Long.SIZE) {
+                throw this.decoder.error("Invalid bit width " + width, widthStart);
+            }
+
+            readPacked(count, width);
+
+            for (int i = 0; i < count; ++i) {
+                previous += (this.block[i] >>> 1) ^ -(this.block[i] & 1);
+
+                if (longs != null) {
+                    longs[start + i] = previous;
+                } else {
+                    doubles[start + i] = previous;
+                }
+            }
+        }
+
+        return longs != null ? LSONColumn.ofLongs(longs) : createDoubles(doubles, form);
+    }
+
+    private LSONColumn readDoubles (final int form) throws LSONParseException
+    {
+        final double[] doubles = new double[this.rowCount];
+
+        for (int i = 0; i < this.rowCount; ++i) {
+            doubles[i] = Double.longBitsToDouble(this.decoder.readLong());
+        }
+
+        return createDoubles(doubles, form);
+    }
+
+    private static LSONColumn createDoubles (final double[] doubles, final int form)
+    {
+        return form == INTEGRAL_LONGS
+                ? LSONColumn.ofNumbers(doubles)
+                : LSONColumn.ofDoubles(doubles, form == DECIMAL_TEXT);
+    }
+
+    private LSONColumn readDictionary () throws LSONParseException
+    {
+        final int size = this.decoder.readCount(1);
+        final LSONString[] dictionary = new LSONString[size];
+
+        for (int i = 0; i < size; ++i) {
+            dictionary[i] = new LSONString(this.decoder.readString());
+        }
+
+        final int width = Integer.SIZE - Integer.numberOfLeadingZeros(Math.max(0, size - 1));
+        final int[] codes = new int[this.rowCount];
+
+        for (int start = 0; start < this.rowCount; start += BLOCK_LENGTH) {
+            final int count = Math.min(BLOCK_LENGTH, this.rowCount - start);
+            final int blockStart = this.decoder.getPosition();
+            readPacked(count, width);
+
+            for (int i = 0; i < count; ++i) {
+                if (this.block[i] >= size) {
+                    throw this.decoder.error("Unknown dictionary index " + this.block[i], blockStart);
+                }
+
+                codes[start + i] = (int) this.block[i];
+            }
+        }
+
+        return LSONColumn.ofStrings(dictionary, codes);
+    }
+
+    /**
+     * Reads values of the given bit width into the first values of the block, the reverse of the packing done by
+     * the encoder.
+     *
+     * @param count number of values in the block.
+     * @param width number of bits of each value, up to 64.
+     */
+    private void readPacked (final int count, final int width) throws LSONParseException
+    {
+        final long mask = width == Long.SIZE ? -1L : (1L << width) - 1;
+
+        long buffer = 0;
+        int bits = 0;
+
+        for (int i = 0; i < count; ++i) {
+            while (bits < width && bits <= Long.SIZE - Byte.SIZE) {
+                buffer |= (this.decoder.readByte() & 0xFFL) << bits;
+                bits += Byte.SIZE;
+            }
+
+            if (bits >= width) {
+                this.block[i] = buffer & mask;
+                buffer = width == Long.SIZE ? 0 : buffer >>> width;
+                bits -= width;
+            } else {
+                // The value straddles more bits than the buffer can hold, so its top bits come from the next byte.
+                final long next = this.decoder.readByte() & 0xFFL;
+                final int used = width - bits;
+
+                this.block[i] = (buffer | (next << bits)) & mask;
+                buffer = next >>> used;
+                bits = Byte.SIZE - used;
+            }
+        }
+    }
+
+    //==================================================================================================================
+    // Buffer
+    //==================================================================================================================
+
+    /**
+     * Starts decoding the given range of the buffer, copying it out first if the buffer is not backed by an array.
+     */
+    private void beginRange (final int start, final int end)
+    {
+        if (this.buffer.hasArray()) {
+            final int offset = this.buffer.arrayOffset();
+            this.decoder.begin(this.buffer.array(), offset, offset + start, offset + end);
+            return;
+        }
+
+        final byte[] bytes = new byte[end - start];
+        final ByteBuffer range = this.buffer.duplicate();
+        ((Buffer) range).position(start);
+        range.get(bytes);
+
+        this.decoder.begin(bytes, -start, 0, bytes.length);
+    }
+
+    private void checkEnd () throws LSONParseException
+    {
+        if (this.decoder.getPosition() != this.decoder.getLimit()) {
+            throw this.decoder.error("Expected end of column", this.decoder.getPosition());
+        }
+    }
+
+    private int getEncoding (final int column)
+    {
+        if (column < 0 || column >= this.names.length) {
+            throw new IndexOutOfBoundsException("Column " + column + " of " + this.names.length);
+        }
+
+        return this.encodings[column];
+    }
+
+    private int[] getAllColumns ()
+    {
+        final int[] columns = new int[this.names.length];
+        for (int c = 0; c < columns.length; ++c) {
+            columns[c] = c;
+        }
+
+        return columns;
+    }
+
+    private int[] getExistingColumnIndices (final String... names)
+    {
+        final int[] columns = new int[names.length];
+        for (int c = 0; c < columns.length; ++c) {
+            columns[c] = getExistingColumnIndex(names[c]);
+        }
+
+        return columns;
+    }
+
+    private int getExistingColumnIndex (final String name)
+    {
+        final int index = getColumnIndex(name);
+
+        if (index < 0) {
+            throw new IllegalArgumentException("No column named " + name);
+        }
+
+        return index;
+    }
+
+    /**
+     * @return the fewest bytes a column of the given encoding can take up for the rows of the table.
+     */
+    private long getMinimumLength (final int encoding)
+    {
+        final long blocks = (this.rowCount + BLOCK_LENGTH - 1L) / BLOCK_LENGTH;
+
+        switch (encoding) {
+            case BOOLEAN:
+                return (this.rowCount + Byte.SIZE - 1L) / Byte.SIZE;
+            case INTEGER:
+                return 1 + blocks;
+            case DOUBLE:
+                return 1 + (long) this.rowCount * Double.BYTES;
+            case DICTIONARY:
+                return this.rowCount == 0 ? 1 : 2;
+            default:
+                return this.rowCount;
+        }
+    }
+}
@@ -0,0 +1,446 @@
+/*
+ * Copyright (c) 2017 Connor Hollasch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.hollasch.lson4j;
+
+import net.hollasch.lson4j.type.LSONValue;
+import net.hollasch.lson4j.type.graph.LSONGraph;
+
+import java.util.Arrays;
+
+import static net.hollasch.lson4j.LSONTape.*;
+
+/**
+ * Flyweight view of a single value of an {@link LSONTape}, exposing the same logical API as {@link LSONValue}. The
+ * move methods reposition the cursor in place, so that a single cursor can walk any number of values without
+ * allocating, while {@link #get(String)} and friends hand out new cursors for convenience.
+ *
+ * @author Connor Hollasch
+ * @since Oct 17, 11:40 PM
+ */
+public final class LSONCursor
+{
+    private final LSONTape tape;
+
+    // Slot of the current value.
+    private int index;
+
+    // Slots of the containers entered to reach the current value, innermost last.
+    private int[] parents;
+    private int depth;
+
+    LSONCursor (final LSONTape tape, final int index)
+    {
+        this.tape = tape;
+        this.index = index;
+        this.parents = new int[8];
+    }
+
+    /**
+     * @return a new cursor on the same value, which can be moved independently of this one.
+     */
+    public LSONCursor copy ()
+    {
+        final LSONCursor copy = new LSONCursor(this.tape, this.index);
+        copy.parents = Arrays.copyOf(this.parents, this.parents.length);
+        copy.depth = this.depth;
+
+        return copy;
+    }
+
+    public LSONTape getTape ()
+    {
+        return this.tape;
+    }
+
+    //==================================================================================================================
+    // Value types
+    //==================================================================================================================
+
+    public boolean isLSONObject ()
+    {
+        return this.tape.tag(this.index) == OBJECT;
+    }
+
+    public boolean isLSONArray ()
+    {
+        return this.tape.tag(this.index) == ARRAY;
+    }
+
+    public boolean isTable ()
+    {
+        return this.tape.tag(this.index) == TABLE;
+    }
+
+    public boolean isGraph ()
+    {
+        return this.tape.tag(this.index) == GRAPH;
+    }
+
+    public boolean isLSONWord ()
+    {
+        final int tag = this.tape.tag(this.index);
+        return tag == WORD || tag == STRING;
+    }
+
+    public boolean isLSONString ()
+    {
+        return this.tape.tag(this.index) == STRING;
+    }
+
+    //==================================================================================================================
+    // Value contents
+    //==================================================================================================================
+
+    /**
+     * @return number of distinct keys of an object, elements of an array or rows of a table.
+     */
+    public int size ()
+    {
+        if (!isLSONObject() && !isLSONArray() && !isTable()) {
+            throw new IllegalStateException("Not a container");
+        }
+
+        return (int) this.tape.payload(this.index + SIZE_SLOT);
+    }
+
+    public boolean isEmpty ()
+    {
+        return size() == 0;
+    }
+
+    /**
+     * @return the text of a word or string.
+     */
+    public String getWord ()
+    {
+        checkWord();
+        return this.tape.text(this.index);
+    }
+
+    /**
+     * @return the object a word was adapted into, or the text of a string.
+     */
+    public Object getObject ()
+    {
+        checkWord();
+
+        final String word = this.tape.text(this.index);
+        return isLSONString() ? word : this.tape.adapt(word);
+    }
+
+    /**
+     * @return true if the current value is a word or string with the given text.
+     */
+    public boolean wordEquals (final String word)
+    {
+        return isLSONWord() && this.tape.textEquals(this.index, word);
+    }
+
+    /**
+     * @return the key of the current value within its object, or null if it is not the value of an object entry.
+     *         Values of multi-key entries report their last key.
+     */
+    public String getKey ()
+    {
+        if (this.depth == 0 || this.tape.tag(this.parents[this.depth - 1]) != OBJECT) {
+            return null;
+        }
+
+        return this.tape.key((int) this.tape.payload(this.index - 1));
+    }
+
+    public int getColumnCount ()
+    {
+        checkContainer(TABLE);
+        return (int) this.tape.payload(this.index + COLUMNS_SLOT);
+    }
+
+    public String getHeader (final int column)
+    {
+        if (column < 0 || column >= getColumnCount()) {
+            throw new IndexOutOfBoundsException("Column " + column + " out of " + getColumnCount());
+        }
+
+        return this.tape.key((int) this.tape.payload(this.index + TABLE_HEADER_LENGTH + column));
+    }
+
+    /**
+     * @return index of the column with the given header, or -1 if the table has no such column.
+     */
+    public int getColumnIndex (final String header)
+    {
+        final int id = this.tape.keyId(header);
+        final int columns = getColumnCount();
+
+        for (int column = 0; id >= 0 && column < columns; ++column) {
+            if (this.tape.payload(this.index + TABLE_HEADER_LENGTH + column) == id) {
+                return column;
+            }
+        }
+
+        return -1;
+    }
+
+    public LSONGraph toGraph ()
+    {
+        if (!isGraph()) {
+            throw new IllegalStateException("Not a graph");
+        }
+
+        return this.tape.graph(this.index);
+    }
+
+    /**
+     * @return the regular, object based form of the current value, equal to what {@link LSON} parses it into.
+     */
+    public LSONValue toValue ()
+    {
+        return this.tape.materialize(this.index);
+    }
+
+    //==================================================================================================================
+    // Navigation in place
+    //==================================================================================================================
+
+    /**
+     * Moves to the value of the given key of the current object. Like object lookups, the last entry with the key
+     * wins.
+     *
+     * @return true if the key was found, otherwise the cursor is left where it was.
+     */
+    public boolean moveToKey (final String key)
+    {
+        checkContainer(OBJECT);
+
+        final int id = this.tape.keyId(key);
+        if (id < 0) {
+            return false;
+        }
+
+        final int end = this.tape.skip(this.index);
+        int found = -1;
+
+        int entry = this.index + CONTAINER_HEADER_LENGTH;
+        while (entry < end) {
+            final int value = this.tape.skipKeys(entry);
+
+            for (int slot = entry; slot < value; ++slot) {
+                if (this.tape.payload(slot) == id) {
+                    found = value;
+                }
+            }
+
+            entry = this.tape.skip(value);
+        }
+
+        return found >= 0 && enter(found);
+    }
+
+    /**
+     * Moves to the element at the given index of the current array.
+     *
+     * @return true if the array has such an element, otherwise the cursor is left where it was.
+     */
+    public boolean moveToIndex (final int index)
+    {
+        checkContainer(ARRAY);
+
+        if (index < 0 || index >= size()) {
+            return false;
+        }
+
+        int element = this.index + CONTAINER_HEADER_LENGTH;
+        for (int i = 0; i < index; ++i) {
+            element = this.tape.skip(element);
+        }
+
+        return enter(element);
+    }
+
+    /**
+     * Moves to the given cell of the current table.
+     *
+     * @return true if the table has such a cell, otherwise the cursor is left where it was.
+     */
+    public boolean moveToCell (final int row, final int column)
+    {
+        checkContainer(TABLE);
+
+        if (row < 0 || row >= size() || column < 0 || column >= getColumnCount()) {
+            return false;
+        }
+
+        // Rows are indexed, cells within a row are walked.
+        int cell = (int) this.tape.payload((int) this.tape.payload(this.index + ROW_INDEX_SLOT) + row);
+        for (int i = 0; i < column; ++i) {
+            cell = this.tape.skip(cell);
+        }
+
+        return enter(cell);
+    }
+
+    /**
+     * Moves to the first value of the current object, the first element of the current array or the first cell of
+     * the current table. Objects are walked entry by entry as written, so multi-key entries are visited once and
+     * entries overridden by a later duplicate key are visited as well.
+     *
+     * @return true if the container is not empty, otherwise the cursor is left where it was.
+     */
+    public boolean moveToFirstChild ()
+    {
+        final int tag = this.tape.tag(this.index);
+
+        if (tag != OBJECT && tag != ARRAY && tag != TABLE) {
+            throw new IllegalStateException("Not a container");
+        }
+
+        if (size() == 0) {
+            return false;
+        }
+
+        if (tag == OBJECT) {
+            return enter(this.tape.skipKeys(this.index + CONTAINER_HEADER_LENGTH));
+        }
+
+        return enter(tag == ARRAY
+                ? this.index + CONTAINER_HEADER_LENGTH
+                : this.index + TABLE_HEADER_LENGTH + getColumnCount());
+    }
+
+    /**
+     * Moves to the value following the current one within its container. Table cells follow each other in row
+     * major order.
+     *
+     * @return true if there is such a value, otherwise the cursor is left where it was.
+     */
+    public boolean moveToNextSibling ()
+    {
+        if (this.depth == 0) {
+            return false;
+        }
+
+        final int parent = this.parents[this.depth - 1];
+        final int tag = this.tape.tag(parent);
+
+        int next = this.tape.skip(this.index);
+        final int end;
+
+        if (tag == TABLE) {
+            end = (int) this.tape.payload(parent + ROW_INDEX_SLOT);
+        } else {
+            end = this.tape.skip(parent);
+
+            if (tag == OBJECT && next < end) {
+                next = this.tape.skipKeys(next);
+            }
+        }
+
+        if (next >= end) {
+            return false;
+        }
+
+        this.index = next;
+        return true;
+    }
+
+    /**
+     * Moves back to the container of the current value.
+     *
+     * @return true if the current value has a container, otherwise the cursor is left where it was.
+     */
+    public boolean moveToParent ()
+    {
+        if (this.depth == 0) {
+            return false;
+        }
+
+        this.index = this.parents[--this.depth];
+        return true;
+    }
+
+    //==================================================================================================================
+    // Navigation to new cursors
+    //==================================================================================================================
+
+    /**
+     * @return a new cursor on the value of the given key of the current object, or null if there is no such key.
+     */
+    public LSONCursor get (final String key)
+    {
+        final LSONCursor cursor = copy();
+        return cursor.moveToKey(key) ? cursor : null;
+    }
+
+    /**
+     * @return a new cursor on the element at the given index of the current array, or null if there is none.
+     */
+    public LSONCursor get (final int index)
+    {
+        final LSONCursor cursor = copy();
+        return cursor.moveToIndex(index) ? cursor : null;
+    }
+
+    /**
+     * @return a new cursor on the given cell of the current table, or null if there is none.
+     */
+    public LSONCursor getCell (final int row, final int column)
+    {
+        final LSONCursor cursor = copy();
+        return cursor.moveToCell(row, column) ? cursor : null;
+    }
+
+    @Override
+    public String toString ()
+    {
+        return String.valueOf(toValue());
+    }
+
+    private boolean enter (final int child)
+    {
+        if (this.depth == this.parents.length) {
+            this.parents = Arrays.copyOf(this.parents, this.depth * 2);
+        }
+
+        this.parents[this.depth++] = this.index;
+        this.index = child;
+
+        return true;
+    }
+
+    private void checkWord ()
+    {
+        if (!isLSONWord()) {
+            throw new IllegalStateException("Not a word");
+        }
+    }
+
+    private void checkContainer (final int tag)
+    {
+        if (this.tape.tag(this.index) != tag) {
+            throw new IllegalStateException("Cursor is not on " + (tag == OBJECT ? "an object"
+                    : tag == ARRAY ? "an array" : "a table"));
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2017 Connor Hollasch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.hollasch.lson4j;
+
+/**
+ * @author Connor Hollasch
+ * @since Oct 17, 4:12 PM
+ */
+public enum LSONEvent
+{
+    START_OBJECT,
+    KEY,
+    END_OBJECT,
+
+    START_ARRAY,
+    END_ARRAY,
+
+    START_TABLE,
+    TABLE_HEADER,
+    START_ROW,
+    END_ROW,
+    END_TABLE,
+
+    START_GRAPH,
+    VERTEX,
+    EDGE,
+    END_GRAPH,
+
+    WORD,
+    STRING,
+
+    END_DOCUMENT
+}
@@ -0,0 +1,786 @@
+/*
+ * Copyright (c) 2017 Connor Hollasch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.hollasch.lson4j;
+
+import net.hollasch.lson4j.type.LSONString;
+import net.hollasch.lson4j.type.LSONTypeAdapter;
+import net.hollasch.lson4j.type.LSONTypeAdapterTable;
+import net.hollasch.lson4j.type.LSONValue;
+import net.hollasch.lson4j.type.LSONWord;
+import net.hollasch.lson4j.util.LSONTokenUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.*;
+
+import static net.hollasch.lson4j.util.LSONTokenUtils.*;
+
+/**
+ * Pull based reader that walks an LSON document one {@link LSONEvent} at a time, following the same grammar as
+ * {@link LSONParser} without materializing the document. Only the containers currently open are kept in memory.
+ *
+ * @author Connor Hollasch
+ * @since Oct 17, 4:20 PM
+ */
+public class LSONEventReader implements Closeable
+{
+    //==================================================================================================================
+    // Frame kinds
+    //==================================================================================================================
+
+    private static final int DOCUMENT = 0;
+    private static final int OBJECT = 1;
+    private static final int ARRAY = 2;
+    private static final int TABLE = 3;
+    private static final int GRAPH = 4;
+
+    //==================================================================================================================
+    // Frame states
+    //==================================================================================================================
+
+    // Shared by all frames.
+    private static final int OPEN = 0;
+    private static final int VALUE = 1;
+    private static final int AFTER_VALUE = 2;
+    private static final int DONE = 3;
+
+    // Objects.
+    private static final int KEY = 4;
+
+    // Tables.
+    private static final int FIRST_ROW = 5;
+    private static final int ROW = 6;
+    private static final int AFTER_ROW = 7;
+
+    // Graphs.
+    private static final int INDEXED_VERTEX = 8;
+    private static final int NAMED_VERTEX = 9;
+    private static final int COUNTED_VERTEX = 10;
+    private static final int EDGES = 11;
+    private static final int EDGE = 12;
+    private static final int CLOSE = 13;
+
+    //==================================================================================================================
+
+    // Parser whose grammar is being driven, and the reader it reads from.
+    private final LSONParser parser;
+    private final LSONReader reader;
+
+    // Containers currently open, the innermost last.
+    private final ArrayList<Frame> frames;
+
+    private LSONEvent event;
+    private boolean finished;
+
+    // Data belonging to the current event.
+    private Collection<LSONString> keys;
+    private LSONWord word;
+    private ArrayList<LSONWord> tableHeader;
+    private int vertexIndex;
+    private String vertexName;
+    private LSONValue vertexValue;
+    private int edgeSource;
+    private int edgeTarget;
+    private boolean edgeDirected;
+    private LSONValue edgeData;
+
+    /**
+     * Creates an LSON event reader given the following parameters.
+     *
+     * @param reader       {@link LSONReader} that will be used to read the input LSON string.
+     * @param typeAdapters {@link Collection} of scalar type adapters being used to parse words.
+     * @throws IOException        if the reader has a problem with IO.
+     * @throws LSONParseException if there is a syntax error while parsing the input LSON string.
+     */
+    public LSONEventReader (
+            final LSONReader reader,
+            final Collection<LSONTypeAdapter<?>> typeAdapters)
+            throws IOException, LSONParseException
+    {
+        this(reader, new LSONTypeAdapterTable(typeAdapters));
+    }
+
+    /**
+     * Creates an LSON event reader dispatching words to the adapters of an already compiled table.
+     *
+     * @param reader       {@link LSONReader} that will be used to read the input LSON string.
+     * @param typeAdapters {@link LSONTypeAdapterTable} of scalar type adapters being used to parse words.
+     * @throws IOException        if the reader has a problem with IO.
+     * @throws LSONParseException if there is a syntax error while parsing the input LSON string.
+     */
+    public LSONEventReader (
+            final LSONReader reader,
+            final LSONTypeAdapterTable typeAdapters)
+            throws IOException, LSONParseException
+    {
+        this.parser = new LSONParser(reader, typeAdapters);
+        this.reader = reader;
+
+        this.frames = new ArrayList<>();
+        this.frames.add(new Frame(DOCUMENT));
+    }
+
+    public boolean hasNext ()
+    {
+        return !this.finished;
+    }
+
+    /**
+     * Advances to the next event in the document.
+     *
+     * @return the event that was read.
+     * @throws IOException            if the reader has a problem with IO.
+     * @throws LSONParseException     if there is a syntax error while parsing the input LSON string.
+     * @throws NoSuchElementException if {@link LSONEvent#END_DOCUMENT} has already been read.
+     */
+    public LSONEvent next () throws IOException, LSONParseException
+    {
+        if (this.finished) {
+            throw new NoSuchElementException();
+        }
+
+        LSONEvent next;
+        do {
+            // Frames step through their grammar until something worth reporting is found. Transitions that are not
+            // visible to the caller (such as closing a flattened array) report null and are stepped past.
+            final Frame frame = this.frames.get(this.frames.size() - 1);
+
+            switch (frame.kind) {
+                case DOCUMENT:
+                    next = nextInDocument(frame);
+                    break;
+                case OBJECT:
+                    next = nextInObject(frame);
+                    break;
+                case ARRAY:
+                    next = nextInArray(frame);
+                    break;
+                case TABLE:
+                    next = nextInTable(frame);
+                    break;
+                default:
+                    next = nextInGraph(frame);
+                    break;
+            }
+        } while (next == null);
+
+        this.finished = next == LSONEvent.END_DOCUMENT;
+        return this.event = next;
+    }
+
+    /**
+     * Materializes the value starting at the current event, leaving the reader on the matching end event. If the
+     * current event is a {@link LSONEvent#KEY}, the value belonging to that key is read.
+     *
+     * @return the value starting at the current event.
+     * @throws IOException        if the reader has a problem with IO.
+     * @throws LSONParseException if there is a syntax error while parsing the input LSON string.
+     */
+    public LSONValue readValue () throws IOException, LSONParseException
+    {
+        if (this.event == LSONEvent.KEY) {
+            next();
+        }
+
+        if (this.event == LSONEvent.WORD || this.event == LSONEvent.STRING) {
+            return this.word;
+        }
+
+        if (this.event == null || !isContainerStart(this.event)) {
+            throw new IllegalStateException("No value starts at " + this.event);
+        }
+
+        // Container start events are reported before their opener is consumed, so the matching parser method can
+        // take over from here.
+        final Frame frame = this.frames.remove(this.frames.size() - 1);
+        final LSONValue value;
+
+        switch (frame.kind) {
+            case OBJECT:
+                value = this.parser.readObject();
+                this.event = LSONEvent.END_OBJECT;
+                break;
+            case ARRAY:
+                value = this.parser.readArray(frame.flatten);
+                this.event = LSONEvent.END_ARRAY;
+                break;
+            case TABLE:
+                value = this.parser.readTable();
+                this.event = LSONEvent.END_TABLE;
+                break;
+            default:
+                value = this.parser.readGraph();
+                this.event = LSONEvent.END_GRAPH;
+                break;
+        }
+
+        return value;
+    }
+
+    /**
+     * Skips past the value starting at the current event, leaving the reader on the matching end event. If the
+     * current event is a {@link LSONEvent#KEY}, the value belonging to that key is skipped.
+     *
+     * @throws IOException        if the reader has a problem with IO.
+     * @throws LSONParseException if there is a syntax error while parsing the input LSON string.
+     */
+    public void skipValue () throws IOException, LSONParseException
+    {
+        if (this.event == LSONEvent.KEY) {
+            next();
+        }
+
+        if (this.event == null || !isContainerStart(this.event)) {
+            return;
+        }
+
+        final int depth = this.frames.size();
+
+        while (this.frames.size() >= depth) {
+            next();
+        }
+    }
+
+    /**
+     * Reads the table starting at the current event row by row instead of materializing it. The returned reader
+     * shares this event reader, which is left on the matching {@link LSONEvent#END_TABLE} event once every row has
+     * been read.
+     *
+     * @return a row reader positioned after the table header.
+     * @throws IOException        if the reader has a problem with IO.
+     * @throws LSONParseException if there is a syntax error while parsing the table header.
+     */
+    public LSONTableRowReader readTableRows () throws IOException, LSONParseException
+    {
+        if (this.event != LSONEvent.START_TABLE) {
+            throw new IllegalStateException("No table starts at " + this.event);
+        }
+
+        return new LSONTableRowReader(this);
+    }
+
+    public LSONEvent getEvent ()
+    {
+        return this.event;
+    }
+
+    /**
+     * @return number of containers currently open.
+     */
+    public int getDepth ()
+    {
+        return this.frames.size() - 1;
+    }
+
+    /**
+     * @return the key of the current {@link LSONEvent#KEY} event, or the first of its keys for multi-key entries.
+     */
+    public LSONString getKey ()
+    {
+        return this.keys.iterator().next();
+    }
+
+    /**
+     * @return all keys of the current {@link LSONEvent#KEY} event.
+     */
+    public Collection<LSONString> getKeys ()
+    {
+        return this.keys;
+    }
+
+    /**
+     * @return the scalar of the current {@link LSONEvent#WORD} or {@link LSONEvent#STRING} event.
+     */
+    public LSONWord getWord ()
+    {
+        return this.word;
+    }
+
+    /**
+     * @return the header of the current table, set from {@link LSONEvent#TABLE_HEADER} onwards.
+     */
+    public ArrayList<LSONWord> getTableHeader ()
+    {
+        return this.tableHeader;
+    }
+
+    public int getVertexIndex ()
+    {
+        return this.vertexIndex;
+    }
+
+    public String getVertexName ()
+    {
+        return this.vertexName;
+    }
+
+    public LSONValue getVertexValue ()
+    {
+        return this.vertexValue;
+    }
+
+    public int getEdgeSource ()
+    {
+        return this.edgeSource;
+    }
+
+    public int getEdgeTarget ()
+    {
+        return this.edgeTarget;
+    }
+
+    public boolean isEdgeDirected ()
+    {
+        return this.edgeDirected;
+    }
+
+    public LSONValue getEdgeData ()
+    {
+        return this.edgeData;
+    }
+
+    public LSONFileLocation getLocation ()
+    {
+        return this.parser.getLocation();
+    }
+
+    @Override
+    public void close () throws IOException
+    {
+        this.reader.close();
+    }
+
+    //==================================================================================================================
+    // Grammar
+    //==================================================================================================================
+
+    private LSONEvent nextInDocument (final Frame frame) throws IOException, LSONParseException
+    {
+        if (frame.state == OPEN) {
+            // Comments and whitespace are allowed previous to the LSON value read in.
+            this.parser.removeWhitespace();
+
+            // An empty document has no value and no trailing checks.
+            if (LSONTokenUtils.isEndOfRead(this.reader.getCurrent())) {
+                frame.state = DONE;
+                return LSONEvent.END_DOCUMENT;
+            }
+
+            frame.state = AFTER_VALUE;
+            return beginValue(false);
+        }
+
+        // Remove trailing whitespace, and throw an exception when there is still data to be read.
+        this.parser.removeWhitespace(true);
+
+        if (!this.reader.isFinished()) {
+            throw new LSONParseException("Expected end of file", getLocation());
+        }
+
+        frame.state = DONE;
+        return LSONEvent.END_DOCUMENT;
+    }
+
+    private LSONEvent nextInObject (final Frame frame) throws IOException, LSONParseException
+    {
+        switch (frame.state) {
+            case OPEN:
+                // Pop object opening character, handling an empty object.
+                this.reader.readNext();
+                this.parser.removeWhitespace();
+
+                if (this.reader.getCurrent() == LSON_OBJECT_CLOSER) {
+                    this.reader.readNext();
+                    return endFrame();
+                }
+
+                frame.state = KEY;
+                return null;
+            case KEY:
+                this.keys = this.parser.readObjectKeys();
+                frame.state = VALUE;
+                return LSONEvent.KEY;
+            case VALUE:
+                frame.state = AFTER_VALUE;
+                return beginValue(false);
+            default:
+                this.parser.removeWhitespace();
+
+                if (this.reader.getCurrent() == LSON_OBJECT_CLOSER) {
+                    this.reader.readNext();
+                    return endFrame();
+                }
+
+                frame.state = KEY;
+                return null;
+        }
+    }
+
+    private LSONEvent nextInArray (final Frame frame) throws IOException, LSONParseException
+    {
+        switch (frame.state) {
+            case VALUE:
+                frame.state = AFTER_VALUE;
+                return beginValue(true);
+            default:
+                // Both the opening and each following value are checked for the array closing tag.
+                this.parser.removeWhitespace();
+
+                if (this.parser.isArrayEnd()) {
+                    this.parser.expect(LSON_ARRAY_CLOSER, "Expected " + (char) LSON_ARRAY_CLOSER
+                            + " for array terminator.");
+                    this.reader.readNext();
+                    return endFrame();
+                }
+
+                frame.state = VALUE;
+                return null;
+        }
+    }
+
+    private LSONEvent nextInTable (final Frame frame) throws IOException, LSONParseException
+    {
+        switch (frame.state) {
+            case OPEN:
+                this.tableHeader = new ArrayList<>();
+                frame.bracketed = this.parser.readTableHeader(this.tableHeader);
+                frame.columns = this.tableHeader.size();
+                frame.state = FIRST_ROW;
+                return LSONEvent.TABLE_HEADER;
+            case FIRST_ROW:
+                // Handle a table without any rows.
+                if (this.reader.getCurrent() == LSON_TABLE_STARTER && this.reader.peekNext() == LSON_ARRAY_CLOSER) {
+                    this.reader.readNext();
+                    this.reader.readNext();
+                    return endFrame();
+                }
+
+                frame.state = ROW;
+                return null;
+            case ROW:
+                if (frame.bracketed) {
+                    this.parser.expect(LSON_ARRAY_OPENER, "Expected " + LSON_ARRAY_OPENER + ", got "
+                            + this.reader.getCurrent());
+                    this.reader.readNext();
+                    this.parser.removeWhitespace();
+                }
+
+                frame.index = 0;
+                frame.state = VALUE;
+                return LSONEvent.START_ROW;
+            case VALUE:
+                if (frame.index < frame.columns) {
+                    ++frame.index;
+                    frame.state = AFTER_VALUE;
+                    return beginValue(false);
+                }
+
+                if (frame.bracketed) {
+                    this.parser.expect(LSON_ARRAY_CLOSER, "Expected " + LSON_ARRAY_CLOSER + ", got "
+                            + this.reader.getCurrent());
+                    this.reader.readNext();
+                    this.parser.removeWhitespace();
+                }
+
+                frame.state = AFTER_ROW;
+                return LSONEvent.END_ROW;
+            case AFTER_VALUE:
+                this.parser.removeWhitespace();
+                frame.state = VALUE;
+                return null;
+            default:
+                if (!this.parser.isTableEnd()) {
+                    frame.state = ROW;
+                    return null;
+                }
+
+                this.parser.readTableCloser();
+                return endFrame();
+        }
+    }
+
+    private LSONEvent nextInGraph (final Frame frame) throws IOException, LSONParseException
+    {
+        switch (frame.state) {
+            case OPEN:
+                // Remove percentage from graph opening statement.
+                this.reader.readNext();
+                this.parser.removeWhitespace();
+
+                if (this.reader.getCurrent() == LSON_ARRAY_OPENER) {
+                    this.reader.readNext();
+                    this.parser.removeWhitespace();
+                    frame.state = INDEXED_VERTEX;
+
+                    if (this.reader.getCurrent() == LSON_ARRAY_CLOSER) {
+                        this.reader.readNext();
+                        frame.state = EDGES;
+                    }
+                } else if (this.reader.getCurrent() == LSON_OBJECT_OPENER) {
+                    this.reader.readNext();
+                    this.parser.removeWhitespace();
+                    frame.vertexNames = new HashMap<>();
+                    frame.state = NAMED_VERTEX;
+
+                    if (this.reader.getCurrent() == LSON_OBJECT_CLOSER) {
+                        this.reader.readNext();
+                        frame.state = EDGES;
+                    }
+                } else {
+                    frame.vertices = this.parser.readInteger();
+                    frame.state = COUNTED_VERTEX;
+                }
+
+                return null;
+            case INDEXED_VERTEX:
+                setVertex(frame.vertices++, null, this.parser.readValue(true));
+                this.parser.removeWhitespace();
+
+                if (this.reader.getCurrent() == LSON_ARRAY_CLOSER) {
+                    this.reader.readNext();
+                    frame.state = EDGES;
+                }
+
+                return LSONEvent.VERTEX;
+            case NAMED_VERTEX:
+                // Multi-key entries declare several vertices sharing a single value.
+                if (frame.pendingNames == null || !frame.pendingNames.hasNext()) {
+                    frame.pendingNames = this.parser.readObjectKeys().iterator();
+                    frame.pendingValue = this.parser.readValue();
+                    this.parser.removeWhitespace();
+
+                    if (frame.pendingValue == null) {
+                        throw new LSONParseException("Cannot create LSON object where a value is null", getLocation());
+                    }
+                }
+
+                final String name = frame.pendingNames.next().getWord();
+                frame.vertexNames.put(name, frame.vertices);
+                setVertex(frame.vertices++, name, frame.pendingValue);
+
+                if (!frame.pendingNames.hasNext() && this.reader.getCurrent() == LSON_OBJECT_CLOSER) {
+                    this.reader.readNext();
+                    frame.state = EDGES;
+                }
+
+                return LSONEvent.VERTEX;
+            case COUNTED_VERTEX:
+                if (frame.index < frame.vertices) {
+                    setVertex(frame.index++, null, null);
+                    return LSONEvent.VERTEX;
+                }
+
+                frame.state = EDGES;
+                return null;
+            case EDGES:
+                this.parser.removeWhitespace();
+                this.parser.expectAny("Expected either { or [ to open edge data, got " + this.reader.getCurrent(),
+                        LSON_ARRAY_OPENER, LSON_OBJECT_OPENER);
+
+                frame.edgesWithData = this.reader.getCurrent() == LSON_OBJECT_OPENER;
+                this.reader.readNext();
+                this.parser.removeWhitespace();
+
+                frame.state = EDGE;
+                return null;
+            case EDGE:
+                readEdge(frame);
+                this.parser.removeWhitespace();
+
+                if (frame.edgesWithData
+                        ? this.reader.getCurrent() == LSON_OBJECT_CLOSER
+                        : this.reader.getCurrent() == LSON_ARRAY_CLOSER) {
+                    frame.state = CLOSE;
+                }
+
+                return LSONEvent.EDGE;
+            default:
+                this.reader.readNext();
+                this.parser.removeWhitespace();
+                this.parser.expect(LSON_GRAPH_STARTER, "Expected a " + (char) LSON_GRAPH_STARTER
+                        + " to close a graph, got " + this.reader.getCurrent());
+
+                this.reader.readNext();
+                this.reader.readNext();
+                return endFrame();
+        }
+    }
+
+    private void readEdge (final Frame frame) throws IOException, LSONParseException
+    {
+        final int v1 = this.parser.readEdgeVertex(frame.vertexNames, frame.vertices);
+        this.parser.removeWhitespace();
+
+        final int direction = LSONTokenUtils.getEdgeDirectionality(this.reader.getCurrent());
+        this.reader.readNext();
+        this.parser.removeWhitespace();
+
+        final int v2 = this.parser.readEdgeVertex(frame.vertexNames, frame.vertices);
+        this.parser.removeWhitespace();
+
+        if (frame.edgesWithData) {
+            this.parser.expect(KEY_VALUE_SEPARATOR, "Expected a key value separator :, got "
+                    + this.reader.getCurrent());
+
+            this.reader.readNext();
+            this.parser.removeWhitespace();
+
+            this.edgeData = this.parser.readValue();
+            this.parser.removeWhitespace();
+        } else {
+            this.edgeData = null;
+        }
+
+        // Left directed edges are flipped so that the source is always the first vertex.
+        switch (direction) {
+            case GRAPH_UNDIRECTED:
+                setEdge(v1, v2, false);
+                break;
+            case GRAPH_RIGHT_DIRECTED:
+                setEdge(v1, v2, true);
+                break;
+            default:
+                setEdge(v2, v1, true);
+                break;
+        }
+    }
+
+    private LSONEvent beginValue (final boolean inArray) throws IOException, LSONParseException
+    {
+        final char current = this.reader.getCurrent();
+
+        switch (current) {
+            case LSON_OBJECT_OPENER:
+                this.frames.add(new Frame(OBJECT));
+                return LSONEvent.START_OBJECT;
+
+            case LSON_ARRAY_OPENER:
+                final char determinant = this.reader.readNext();
+
+                if (determinant == LSON_TABLE_STARTER) {
+                    this.frames.add(new Frame(TABLE));
+                    return LSONEvent.START_TABLE;
+                } else if (determinant == LSON_GRAPH_STARTER) {
+                    this.frames.add(new Frame(GRAPH));
+                    return LSONEvent.START_GRAPH;
+                }
+
+                // Arrays nested within arrays flatten their own nested arrays, and arrays nested within a flattening
+                // array are inlined into it without start or end events of their own.
+                final Frame parent = this.frames.get(this.frames.size() - 1);
+                final Frame array = new Frame(ARRAY);
+                array.flatten = inArray;
+                array.inline = inArray && parent.flatten;
+                array.state = AFTER_VALUE;
+
+                this.frames.add(array);
+                return array.inline ? null : LSONEvent.START_ARRAY;
+
+            case NULL_BYTE:
+            case END_OF_FILE:
+            case END_OF_STRING:
+                throw new LSONParseException("Unexpected end of input", getLocation());
+
+            default:
+                this.word = this.parser.readWord(false, false);
+
+                if (this.word == null) {
+                    throw new LSONParseException("Expected a value, got " + current, getLocation());
+                }
+
+                return this.word.isLSONString() ? LSONEvent.STRING : LSONEvent.WORD;
+        }
+    }
+
+    private LSONEvent endFrame ()
+    {
+        final Frame frame = this.frames.remove(this.frames.size() - 1);
+
+        switch (frame.kind) {
+            case OBJECT:
+                return LSONEvent.END_OBJECT;
+            case ARRAY:
+                return frame.inline ? null : LSONEvent.END_ARRAY;
+            case TABLE:
+                return LSONEvent.END_TABLE;
+            default:
+                return LSONEvent.END_GRAPH;
+        }
+    }
+
+    private void setVertex (final int index, final String name, final LSONValue value)
+    {
+        this.vertexIndex = index;
+        this.vertexName = name;
+        this.vertexValue = value;
+    }
+
+    private void setEdge (final int source, final int target, final boolean directed)
+    {
+        this.edgeSource = source;
+        this.edgeTarget = target;
+        this.edgeDirected = directed;
+    }
+
+    private static boolean isContainerStart (final LSONEvent event)
+    {
+        switch (event) {
+            case START_OBJECT:
+            case START_ARRAY:
+            case START_TABLE:
+            case START_GRAPH:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static final class Frame
+    {
+        private final int kind;
+        private int state;
+
+        // Arrays.
+        private boolean flatten;
+        private boolean inline;
+
+        // Tables (index is the column being read) and counted graphs (index is the vertex being reported).
+        private int index;
+        private int columns;
+        private boolean bracketed;
+
+        // Graphs.
+        private int vertices;
+        private Map<String, Integer> vertexNames;
+        private Iterator<LSONString> pendingNames;
+        private LSONValue pendingValue;
+        private boolean edgesWithData;
+
+        private Frame (final int kind)
+        {
+            this.kind = kind;
+            this.state = OPEN;
+        }
+    }
+}
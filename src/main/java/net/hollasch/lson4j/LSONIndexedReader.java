@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2017 Connor Hollasch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.hollasch.lson4j;
+
+import net.hollasch.lson4j.util.LSONTokenUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Second stage of indexed parsing. Reads UTF-8 input like {@link LSONByteReader}, but skips whitespace and captures
+ * word and string contents a run at a time using the bitmaps of an {@link LSONStructuralIndex}. Since the grammar is
+ * still driven by {@link LSONParser}, the values produced are identical to those of the regular reader.
+ *
+ * @author Connor Hollasch
+ * @since Oct 17, 7:45 PM
+ */
+public class LSONIndexedReader extends LSONByteReader
+{
+    private final LSONStructuralIndex index;
+
+    LSONIndexedReader (final InputStream stream)
+    {
+        this(stream, DEFAULT_BUFFER_LENGTH);
+    }
+
+    LSONIndexedReader (final InputStream stream, final int bufferLength)
+    {
+        super(stream, bufferLength);
+        this.index = new LSONStructuralIndex();
+    }
+
+    LSONIndexedReader (final FileChannel channel) throws IOException
+    {
+        super(channel);
+        this.index = new LSONStructuralIndex();
+    }
+
+    LSONIndexedReader (final FileChannel channel, final long mappedWindowLength) throws IOException
+    {
+        super(channel, mappedWindowLength);
+        this.index = new LSONStructuralIndex();
+    }
+
+    LSONIndexedReader (final byte[] bytes)
+    {
+        super(bytes);
+        this.index = new LSONStructuralIndex();
+    }
+
+    LSONIndexedReader (final ByteBuffer buffer)
+    {
+        super(buffer);
+        this.index = new LSONStructuralIndex();
+    }
+
+    @Override
+    char skipWhitespace () throws LSONParseException, IOException
+    {
+        char next;
+
+        do {
+            if (canSkip()) {
+                final ByteBuffer buffer = getBuffer();
+                final int from = buffer.position();
+
+                skipTo(buffer, from, this.index.skipWhitespace(buffer, getFills(), from));
+            }
+
+            // The character ending the run is read normally, it may be unicode whitespace or lie past a refill.
+            next = readNext();
+        } while (LSONTokenUtils.isWhitespace(next));
+
+        return next;
+    }
+
+    @Override
+    char readRun (final StringBuilder capture, final char current, final boolean quoted)
+            throws LSONParseException, IOException
+    {
+        capture.append(current);
+
+        while (true) {
+            if (canSkip()) {
+                final ByteBuffer buffer = getBuffer();
+                final int from = buffer.position();
+                final int to = this.index.skipOrdinary(buffer, getFills(), from, quoted);
+
+                // Ordinary characters are single byte, so they can be appended without decoding.
+                if (buffer.hasArray()) {
+                    final byte[] array = buffer.array();
+                    final int offset = buffer.arrayOffset();
+
+                    for (int i = from + offset; i < to + offset; ++i) {
+                        capture.append((char) array[i]);
+                    }
+                } else {
+                    for (int i = from; i < to; ++i) {
+                        capture.append((char) buffer.get(i));
+                    }
+                }
+
+                skipTo(buffer, from, to);
+            }
+
+            // The character ending the run is read normally, it may only be ordinary if it lies past a refill.
+            final char next = readNext();
+
+            if (!isOrdinary(next, quoted)) {
+                return next;
+            }
+
+            capture.append(next);
+        }
+    }
+
+    private boolean canSkip ()
+    {
+        // Bulk skipping starts at the buffer position, which only lines up with the next character if nothing has
+        // been read ahead of it.
+        return !isFinished() && !hasPeeked() && !isDecodingSurrogatePair();
+    }
+
+    private void skipTo (final ByteBuffer buffer, final int from, final int to)
+    {
+        if (to == from) {
+            return;
+        }
+
+        // Columns restart after every newline, so only the characters after the last one count.
+        final int newlines = this.index.getSkippedNewlines();
+        final int line = getLine() + newlines;
+        final int column = newlines > 0 ? to - 1 - this.index.getLastNewline() : getColumn() + (to - from);
+
+        skipped((char) buffer.get(to - 1), line, column);
+        ((Buffer) buffer).position(to);
+    }
+}
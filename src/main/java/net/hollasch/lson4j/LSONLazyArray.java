@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2017 Connor Hollasch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.hollasch.lson4j;
+
+import net.hollasch.lson4j.type.LSONArray;
+import net.hollasch.lson4j.type.LSONValue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+
+/**
+ * Array whose elements are read from the input as they are accessed. The backing list is only filled in once the
+ * array is used as a whole or modified.
+ *
+ * @author Connor Hollasch
+ * @since Oct 18, 1:05 AM
+ * @see LSONLazyParser
+ */
+final class LSONLazyArray extends LSONArray<LSONValue>
+{
+    // Null once the backing list has been filled in.
+    private ArrayList<LSONLazyValue> elements;
+
+    LSONLazyArray (final ArrayList<LSONLazyValue> elements)
+    {
+        super(new ArrayList<>(elements.size()));
+        this.elements = elements;
+    }
+
+    @Override
+    public LSONValue get (final int index)
+    {
+        return this.elements == null ? super.get(index) : this.elements.get(index).get();
+    }
+
+    @Override
+    public LSONValue set (final int index, final LSONValue value)
+    {
+        fill();
+        return super.set(index, value);
+    }
+
+    @Override
+    public int size ()
+    {
+        return this.elements == null ? super.size() : this.elements.size();
+    }
+
+    @Override
+    public boolean isEmpty ()
+    {
+        return size() == 0;
+    }
+
+    @Override
+    public ArrayList<LSONValue> toArrayList ()
+    {
+        fill();
+        return super.toArrayList();
+    }
+
+    @Override
+    public Iterator<LSONValue> iterator ()
+    {
+        fill();
+        return super.iterator();
+    }
+
+    private Object writeReplace ()
+    {
+        // Serialized as a regular array, the input is not retained.
+        return new LSONArray<>(toArrayList());
+    }
+
+    private void fill ()
+    {
+        if (this.elements == null) {
+            return;
+        }
+
+        final ArrayList<LSONValue> array = super.toArrayList();
+
+        for (final LSONLazyValue element : this.elements) {
+            array.add(element.get());
+        }
+
+        this.elements = null;
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2017 Connor Hollasch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.hollasch.lson4j;
+
+import net.hollasch.lson4j.type.LSONObject;
+import net.hollasch.lson4j.type.LSONShape;
+import net.hollasch.lson4j.type.LSONShapedMap;
+import net.hollasch.lson4j.type.LSONString;
+import net.hollasch.lson4j.type.LSONValue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Object whose values are read from the input as they are looked up. The backing map is only filled in, with every
+ * key in order, once the object is used as a whole or modified.
+ *
+ * @author Connor Hollasch
+ * @since Oct 18, 12:50 AM
+ * @see LSONLazyParser
+ */
+final class LSONLazyObject extends LSONObject<LSONValue>
+{
+    // Keys of each entry in the order they were written. Null once the backing map has been filled in.
+    private ArrayList<Collection<LSONString>> keys;
+
+    // Value of each key, later entries replacing earlier ones as they would in the backing map.
+    private LSONShapedMap<LSONLazyValue> index;
+
+    /**
+     * @param keys   keys of each entry in the order they were written.
+     * @param values value of each entry.
+     * @param shapes root shape shared by the objects of the document, which both the index and the backing map
+     *               grow from, so that keys are looked up by their characters without allocating.
+     */
+    LSONLazyObject (
+            final ArrayList<Collection<LSONString>> keys,
+            final ArrayList<LSONLazyValue> values,
+            final LSONShape shapes)
+    {
+        super(new LSONShapedMap<>(shapes));
+
+        this.keys = keys;
+        this.index = new LSONShapedMap<>(shapes);
+
+        for (int i = 0; i < keys.size(); ++i) {
+            for (final LSONString key : keys.get(i)) {
+                this.index.put(key, values.get(i));
+            }
+        }
+
+        this.index.trimToSize();
+    }
+
+    @Override
+    public LSONValue get (final CharSequence key)
+    {
+        if (this.index == null) {
+            return super.get(key);
+        }
+
+        final LSONLazyValue value = this.index.getByWord(key);
+        return value == null ? null : value.get();
+    }
+
+    @Override
+    public LSONValue get (final LSONString key)
+    {
+        if (this.index == null) {
+            return super.get(key);
+        }
+
+        final LSONLazyValue value = this.index.get(key);
+        return value == null ? null : value.get();
+    }
+
+    @Override
+    public int size ()
+    {
+        return this.index == null ? super.size() : this.index.size();
+    }
+
+    @Override
+    public boolean isEmpty ()
+    {
+        return size() == 0;
+    }
+
+    @Override
+    public Map<LSONString, LSONValue> toHashMap ()
+    {
+        fill();
+        return super.toHashMap();
+    }
+
+    @Override
+    public Set<LSONString> keySet ()
+    {
+        fill();
+        return super.keySet();
+    }
+
+    @Override
+    public Collection<LSONValue> values ()
+    {
+        fill();
+        return super.values();
+    }
+
+    @Override
+    public Set<Map.Entry<LSONString, LSONValue>> entrySet ()
+    {
+        fill();
+        return super.entrySet();
+    }
+
+    @Override
+    public LSONValue put (final String key, final LSONValue value)
+    {
+        fill();
+        return super.put(key, value);
+    }
+
+    @Override
+    public LSONValue put (final LSONString key, final LSONValue value)
+    {
+        fill();
+        return super.put(key, value);
+    }
+
+    private Object writeReplace ()
+    {
+        // Serialized as a regular object, the input is not retained.
+        return new LSONObject<>(toHashMap());
+    }
+
+    private void fill ()
+    {
+        if (this.index == null) {
+            return;
+        }
+
+        final Map<LSONString, LSONValue> map = super.toHashMap();
+
+        // Keys are put in the order they first appear, as the parser would, but values replaced by a later entry are
+        // never read.
+        for (final Collection<LSONString> entry : this.keys) {
+            for (final LSONString key : entry) {
+                map.put(key, this.index.get(key).get());
+            }
+        }
+
+        ((LSONShapedMap<LSONValue>) map).trimToSize();
+
+        this.keys = null;
+        this.index = null;
+    }
+}
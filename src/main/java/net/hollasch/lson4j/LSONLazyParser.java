@@ -0,0 +1,252 @@
+/*
+ * Copyright (c) 2017 Connor Hollasch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.hollasch.lson4j;
+
+import net.hollasch.lson4j.type.LSONShape;
+import net.hollasch.lson4j.type.LSONString;
+import net.hollasch.lson4j.type.LSONTypeAdapter;
+import net.hollasch.lson4j.type.LSONTypeAdapterTable;
+import net.hollasch.lson4j.type.LSONValue;
+import net.hollasch.lson4j.util.LSONSymbolTable;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+
+import static net.hollasch.lson4j.util.LSONTokenUtils.*;
+
+/**
+ * Parses documents held in memory one container at a time. Reading an object or array only reads its own entries,
+ * while the objects and arrays nested in it are skipped over by following their brackets and retained as offsets into
+ * the input, to be read once they are accessed. Words, tables and graphs are read in full when they are reached.
+ * <p>
+ * The input is retained for as long as any lazily read container is reachable, and must not be modified meanwhile.
+ * Syntax errors within skipped containers only surface once they are accessed, as an {@link
+ * UncheckedLSONParseException} at the first error of the whole document, wherever the parser would have reported it.
+ *
+ * @author Connor Hollasch
+ * @since Oct 18, 12:30 AM
+ */
+final class LSONLazyParser
+{
+    // UTF-8 input, read through duplicates so that parsing never moves its position.
+    private final ByteBuffer source;
+
+    // Compiled once, as every container is read with a parser of its own when it is accessed.
+    private final LSONTypeAdapterTable typeAdapters;
+
+    // Shared by the parsers of every container, so that containers read separately share their keys and shapes.
+    private final LSONSymbolTable symbols;
+    private final LSONShape shapes;
+
+    LSONLazyParser (final ByteBuffer source, final Collection<LSONTypeAdapter<?>> typeAdapters)
+    {
+        this(source, new LSONTypeAdapterTable(typeAdapters));
+    }
+
+    LSONLazyParser (final ByteBuffer source, final LSONTypeAdapterTable typeAdapters)
+    {
+        this.source = source.duplicate();
+        this.typeAdapters = typeAdapters;
+        this.symbols = new LSONSymbolTable();
+        this.shapes = new LSONShape();
+    }
+
+    LSONValue parse () throws IOException, LSONParseException
+    {
+        try {
+            return parse(true);
+        } catch (final LSONParseException | RuntimeException e) {
+            // Skipped containers may be malformed well before the failure, so the document is read again in full to
+            // fail where the parser first does. Adapters rejecting words fail the same way.
+            parse(false);
+            throw e;
+        }
+    }
+
+    private LSONValue parse (final boolean lazy) throws IOException, LSONParseException
+    {
+        final LSONByteReader reader = new LSONByteReader(this.source.duplicate());
+        final LSONParser parser = new LSONParser(reader, this.typeAdapters, this.symbols, this.shapes);
+
+        // Same as LSONParser#parse, only reading the top level container lazily.
+        parser.removeWhitespace();
+        final LSONValue value = lazy ? readValue(parser, false) : parser.readValue();
+        parser.removeWhitespace(true);
+
+        if (!parser.getReader().isFinished()) {
+            throw new LSONParseException("Expected end of file", parser.getLocation());
+        }
+
+        return value;
+    }
+
+    /**
+     * Reads a value that was retained when its container was read.
+     *
+     * @param start   offset of the first character of the value.
+     * @param line    line of the first character of the value.
+     * @param column  column of the first character of the value.
+     * @param flatten true if the value is an element of an array.
+     * @return the value read.
+     */
+    LSONValue read (final int start, final int line, final int column, final boolean flatten)
+            throws IOException, LSONParseException
+    {
+        final ByteBuffer buffer = this.source.duplicate();
+        ((Buffer) buffer).position(start);
+
+        final LSONByteReader reader = new LSONByteReader(buffer);
+        final LSONParser parser = new LSONParser(reader, this.typeAdapters, this.symbols, this.shapes);
+        reader.skipped(reader.getCurrent(), line, column);
+
+        try {
+            return readValue(parser, flatten);
+        } catch (final LSONParseException | RuntimeException e) {
+            // Values read before this one may hold malformed containers not yet accessed, so the whole document is
+            // read again in full to fail where the parser first does.
+            parse(false);
+            throw e;
+        }
+    }
+
+    private LSONValue readValue (final LSONParser parser, final boolean flatten)
+            throws IOException, LSONParseException
+    {
+        final LSONReader reader = parser.getReader();
+        final char current = reader.getCurrent();
+
+        if (current == LSON_OBJECT_OPENER) {
+            return readObject(parser);
+        }
+
+        // Arrays within arrays are flattened into their parent, so they are read in full along with it.
+        if (current == LSON_ARRAY_OPENER && !flatten) {
+            final char determinant = reader.peekNext();
+
+            if (determinant != LSON_TABLE_STARTER && determinant != LSON_GRAPH_STARTER) {
+                reader.readNext();
+                return readArray(parser);
+            }
+        }
+
+        return parser.readValue(flatten);
+    }
+
+    /**
+     * Reads the entries of an object, starting on its opener and ending on the first character after its closer.
+     *
+     * @see LSONParser#readObject()
+     */
+    private LSONLazyObject readObject (final LSONParser parser) throws IOException, LSONParseException
+    {
+        final LSONReader reader = parser.getReader();
+
+        final ArrayList<Collection<LSONString>> keys = new ArrayList<>();
+        final ArrayList<LSONLazyValue> values = new ArrayList<>();
+
+        reader.readNext();
+        parser.removeWhitespace();
+
+        if (reader.getCurrent() == LSON_OBJECT_CLOSER) {
+            reader.readNext();
+            return new LSONLazyObject(keys, values, this.shapes);
+        }
+
+        char floating;
+        do {
+            keys.add(parser.readObjectKeys());
+
+            final LSONLazyValue value = readEntry(parser, false);
+            values.add(value);
+            parser.removeWhitespace();
+
+            floating = reader.getCurrent();
+
+            if (value.isNull()) {
+                throw new LSONParseException("Cannot create LSON object where a value is null", parser.getLocation());
+            }
+        } while (floating != LSON_OBJECT_CLOSER);
+
+        parser.expect(LSON_OBJECT_CLOSER, "Expected " + LSON_OBJECT_CLOSER + " for object terminator");
+        reader.readNext();
+
+        return new LSONLazyObject(keys, values, this.shapes);
+    }
+
+    /**
+     * Reads the elements of an array, starting on the first character after its opener and ending on the first
+     * character after its closer.
+     *
+     * @see LSONParser#readArray(boolean)
+     */
+    private LSONLazyArray readArray (final LSONParser parser) throws IOException, LSONParseException
+    {
+        final LSONReader reader = parser.getReader();
+        final ArrayList<LSONLazyValue> elements = new ArrayList<>();
+
+        parser.removeWhitespace();
+
+        if (reader.getCurrent() == LSON_ARRAY_CLOSER) {
+            reader.readNext();
+            return new LSONLazyArray(elements);
+        }
+
+        do {
+            elements.add(readEntry(parser, true));
+            parser.removeWhitespace();
+        } while (!parser.isArrayEnd());
+
+        parser.expect(LSON_ARRAY_CLOSER, "Expected " + (char) LSON_ARRAY_CLOSER + " for array terminator.");
+        reader.readNext();
+
+        return new LSONLazyArray(elements);
+    }
+
+    /**
+     * Reads the value of an object entry or an array element. Objects and arrays are skipped and retained, anything
+     * else is read right away.
+     */
+    private LSONLazyValue readEntry (final LSONParser parser, final boolean flatten)
+            throws IOException, LSONParseException
+    {
+        final LSONByteReader reader = (LSONByteReader) parser.getReader();
+        final char current = reader.getCurrent();
+
+        // The offset of the value is only known if its first character was the last one read from the buffer.
+        if ((current != LSON_OBJECT_OPENER && current != LSON_ARRAY_OPENER) || reader.hasPeeked()
+                || reader.isFinished()) {
+            return new LSONLazyValue(parser.readValue(flatten));
+        }
+
+        final int start = reader.getBuffer().position() - 1;
+        final LSONLazyValue value = new LSONLazyValue(this, start, reader.getLine(), reader.getColumn(), flatten);
+
+        reader.skipValue();
+        return value;
+    }
+}
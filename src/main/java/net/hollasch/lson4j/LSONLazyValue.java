@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2017 Connor Hollasch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.hollasch.lson4j;
+
+import net.hollasch.lson4j.type.LSONValue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Value within a lazily parsed container. Values are either read already, or retained as the offset of their first
+ * character in the input and read once they are first accessed.
+ *
+ * @author Connor Hollasch
+ * @since Oct 18, 12:35 AM
+ */
+final class LSONLazyValue
+{
+    private final LSONLazyParser parser;
+
+    // Offset, line and column of the first character of a retained value, or a negative offset once it has been read.
+    private int start;
+    private final int line;
+    private final int column;
+
+    // Whether the value is an element of an array, where nested arrays are flattened.
+    private final boolean flatten;
+
+    private LSONValue value;
+
+    LSONLazyValue (final LSONValue value)
+    {
+        this.parser = null;
+        this.start = -1;
+        this.line = 0;
+        this.column = 0;
+        this.flatten = false;
+        this.value = value;
+    }
+
+    LSONLazyValue (
+            final LSONLazyParser parser,
+            final int start,
+            final int line,
+            final int column,
+            final boolean flatten)
+    {
+        this.parser = parser;
+        this.start = start;
+        this.line = line;
+        this.column = column;
+        this.flatten = flatten;
+    }
+
+    /**
+     * @return the value, read from the retained input on the first call.
+     * @throws UncheckedLSONParseException if the value is malformed.
+     */
+    LSONValue get ()
+    {
+        if (this.start >= 0) {
+            try {
+                this.value = this.parser.read(this.start, this.line, this.column, this.flatten);
+            } catch (final LSONParseException e) {
+                throw new UncheckedLSONParseException(e);
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            this.start = -1;
+        }
+
+        return this.value;
+    }
+
+    boolean isNull ()
+    {
+        return this.start < 0 && this.value == null;
+    }
+}
@@ -0,0 +1,581 @@
+/*
+ * Copyright (c) 2017 Connor Hollasch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.hollasch.lson4j;
+
+import net.hollasch.lson4j.type.LSONArray;
+import net.hollasch.lson4j.type.LSONTable;
+import net.hollasch.lson4j.type.LSONTypeAdapterTable;
+import net.hollasch.lson4j.type.LSONValue;
+import net.hollasch.lson4j.type.LSONWord;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import static net.hollasch.lson4j.util.LSONTokenUtils.*;
+
+/**
+ * Parses documents made of one large top-level array or table on a {@link ForkJoinPool}. The elements of the array, or
+ * the rows of the table, are split into chunks at value boundaries found by a {@link LSONStructureScanner}, and every
+ * chunk is parsed by its own {@link LSONParser} while the scan carries on. Chunks are merged back in input order.
+ * <p>
+ * Documents of any other shape, and bodies the scan cannot split with certainty, are parsed sequentially instead. So
+ * are documents where any chunk fails to parse, so values and errors are always exactly those of a sequential parse.
+ *
+ * @author Connor Hollasch
+ * @since Oct 17, 10:20 PM
+ */
+final class LSONParallelParser
+{
+    // Chunks are never smaller than this, so that parsing a chunk outweighs the cost of scheduling it.
+    private static final long MIN_CHUNK_LENGTH = 1L << 18;
+
+    // Aim for several chunks per worker so that uneven chunks even out.
+    private static final int CHUNKS_PER_WORKER = 4;
+
+    // Files are mapped in segments of this many bytes, as a single mapping cannot exceed 2 GB.
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_LENGTH = 1L << SEGMENT_SHIFT;
+
+    private static final char REPLACEMENT_CHARACTER = 0xFFFD;
+
+    // Compiled once and shared by the parsers of every chunk, which a table that never reorders allows.
+    private final LSONTypeAdapterTable typeAdapters;
+    private final ForkJoinPool pool;
+
+    // Source file, or null when parsing from memory.
+    private final FileChannel channel;
+
+    // Input split into segments of SEGMENT_LENGTH bytes, only the last one may be shorter.
+    private final ByteBuffer[] segments;
+    private final long length;
+
+    private final long chunkLength;
+
+    // Chunks handed to the pool so far, in input order.
+    private final ArrayList<ChunkTask<?>> tasks;
+
+    // Number of continuation bytes of the last character decoded by the scan.
+    private int continuations;
+
+    /**
+     * Creates a parallel parser given the following parameters.
+     *
+     * @param buffer       {@link ByteBuffer} holding the UTF-8 input between its position and limit.
+     * @param typeAdapters {@link LSONTypeAdapterTable} of scalar type adapters shared by every chunk, which must not
+     *                     be adaptive.
+     * @param pool         {@link ForkJoinPool} that chunks are parsed on.
+     */
+    LSONParallelParser (
+            final ByteBuffer buffer,
+            final LSONTypeAdapterTable typeAdapters,
+            final ForkJoinPool pool)
+    {
+        this(null, new ByteBuffer[]{buffer.slice()}, buffer.remaining(), typeAdapters, pool);
+    }
+
+    /**
+     * Creates a parallel parser given the following parameters.
+     *
+     * @param channel      {@link FileChannel} holding the UTF-8 input from its current position to its end.
+     * @param typeAdapters {@link LSONTypeAdapterTable} of scalar type adapters shared by every chunk, which must not
+     *                     be adaptive.
+     * @param pool         {@link ForkJoinPool} that chunks are parsed on.
+     * @throws IOException if the file cannot be mapped.
+     */
+    LSONParallelParser (
+            final FileChannel channel,
+            final LSONTypeAdapterTable typeAdapters,
+            final ForkJoinPool pool)
+            throws IOException
+    {
+        this(channel, map(channel), channel.size() - channel.position(), typeAdapters, pool);
+    }
+
+    private LSONParallelParser (
+            final FileChannel channel,
+            final ByteBuffer[] segments,
+            final long length,
+            final LSONTypeAdapterTable typeAdapters,
+            final ForkJoinPool pool)
+    {
+        this.channel = channel;
+        this.segments = segments;
+        this.length = length;
+
+        this.typeAdapters = typeAdapters;
+        this.pool = pool;
+
+        this.chunkLength = Math.max(MIN_CHUNK_LENGTH, length / ((long) pool.getParallelism() * CHUNKS_PER_WORKER));
+        this.tasks = new ArrayList<>();
+    }
+
+    LSONValue parse () throws IOException, LSONParseException
+    {
+        // Splitting only pays off with more than one chunk, and more than one worker to parse them.
+        if (this.pool.getParallelism() > 1 && this.length >= 2 * MIN_CHUNK_LENGTH) {
+            try {
+                final LSONValue value = parseSplit();
+
+                if (value != null) {
+                    return value;
+                }
+            } finally {
+                for (final ChunkTask<?> task : this.tasks) {
+                    task.cancel(false);
+                }
+            }
+        }
+
+        final LSONReader reader = this.channel != null
+                ? new LSONByteReader(this.channel)
+                : new LSONByteReader(this.segments[0]);
+
+        return new LSONParser(reader, this.typeAdapters).parse();
+    }
+
+    /**
+     * @return the parsed array or table, or null if the document has to be parsed sequentially.
+     */
+    @SuppressWarnings("unchecked")
+    private LSONValue parseSplit () throws IOException, LSONParseException
+    {
+        // Read up to the first element or row with a regular parser, exactly like a sequential parse would.
+        final LSONByteReader reader = new LSONByteReader(this.segments[0]);
+        final ArrayList<LSONWord> header = new ArrayList<>();
+        final boolean table;
+        final boolean bracketed;
+
+        try {
+            final LSONParser parser = new LSONParser(reader, this.typeAdapters);
+            parser.removeWhitespace();
+
+            if (reader.getCurrent() != LSON_ARRAY_OPENER) {
+                return null;
+            }
+
+            final char determinant = reader.readNext();
+            if (determinant == LSON_GRAPH_STARTER) {
+                return null;
+            }
+
+            table = determinant == LSON_TABLE_STARTER;
+            if (table) {
+                bracketed = parser.readTableHeader(header);
+            } else {
+                bracketed = false;
+                parser.removeWhitespace();
+            }
+        } catch (final LSONParseException e) {
+            return null;
+        }
+
+        // The body has to start on the character last read from the buffer, so that its offset is known. Malformed
+        // characters decode to a replacement character without telling how many bytes they took.
+        final char current = reader.getCurrent();
+        if (reader.isFinished() || reader.hasPeeked() || current == REPLACEMENT_CHARACTER
+                || Character.isLowSurrogate(current)) {
+            return null;
+        }
+
+        final int currentLength = current < 0x80 ? 1
+                : current < 0x800 ? 2
+                : Character.isHighSurrogate(current) ? 4
+                : 3;
+
+        final long bodyStart = reader.getBuffer().position() - currentLength;
+
+        if (!table) {
+            final ArrayList<LSONValue> array = new ArrayList<>();
+
+            // Elements of an array are read the same way readArray reads them.
+            final boolean split = scanBody(bodyStart, 1, false, parser -> {
+                final LSONValue value = parser.readValue(true);
+                parser.removeWhitespace();
+                return value;
+            }) && join(array);
+
+            return split ? new LSONArray<>(array) : null;
+        }
+
+        // Rows without brackets are made of one value per column, rows with brackets are a single array value.
+        final int columns = header.size();
+        final int rowLength = bracketed ? 1 : columns;
+
+        if (rowLength == 0) {
+            return null;
+        }
+
+        final ArrayList<ArrayList<LSONValue>> rows = new ArrayList<>();
+        final boolean split = scanBody(bodyStart, rowLength, true, parser -> parser.readTableRow(columns, bracketed))
+                && join(rows);
+
+        return split ? new LSONTable(header, rows.toArray(new ArrayList[rows.size()])) : null;
+    }
+
+    /**
+     * Scans the body of the top-level container, handing a chunk to the pool whenever enough input has been scanned.
+     * Chunks always start on the first value of a row, and end where the next row begins.
+     *
+     * @param bodyStart   offset of the first character of the body.
+     * @param rowLength   number of values at the base depth making up a row.
+     * @param table       true if the container is a table, which ends on a table closer rather than an array closer.
+     * @param chunkReader reads a single row of a chunk.
+     * @return true if the whole body was split into chunks, false if the document has to be parsed sequentially.
+     */
+    private <T> boolean scanBody (
+            final long bodyStart,
+            final int rowLength,
+            final boolean table,
+            final ChunkReader<T> chunkReader)
+    {
+        final LSONStructureScanner scanner = new LSONStructureScanner();
+
+        long chunkStart = bodyStart;
+        long chunkValues = 0;
+
+        // Offset of the hash tag of the table closer once it has been scanned.
+        long terminator = -1;
+
+        // Set on the first character of a table row. The parser ends tables on rows whose second character is an
+        // array closer, wherever that character is, so those are left to the sequential parse.
+        boolean checkSecond = false;
+
+        long offset = bodyStart;
+        while (offset < this.length) {
+            // Work through one segment at a time, continuation bytes may run over into the next one.
+            final ByteBuffer segment = this.segments[(int) (offset >>> SEGMENT_SHIFT)];
+            final long base = offset & -SEGMENT_LENGTH;
+            final int limit = segment.limit();
+
+            int index = (int) (offset - base);
+            while (index < limit) {
+                // Bulk skip what cannot matter, except the second character of a row which is checked on its own.
+                if (!checkSecond) {
+                    index = scanner.skip(segment, index, limit);
+
+                    if (index == limit) {
+                        break;
+                    }
+                }
+
+                final int start = index;
+                final int b = segment.get(index++) & 0xFF;
+
+                // Second half of a surrogate pair, scanned after the first half.
+                char lowSurrogate = 0;
+
+                final char character;
+                if (b < 0x80) {
+                    character = (char) b;
+                } else {
+                    final int decoded = decode(b, base + index);
+                    index += this.continuations;
+
+                    if (decoded >= Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                        character = Character.highSurrogate(decoded);
+                        lowSurrogate = Character.lowSurrogate(decoded);
+                    } else {
+                        character = (char) decoded;
+                    }
+                }
+
+                if (checkSecond) {
+                    checkSecond = false;
+
+                    if (character == LSON_ARRAY_CLOSER && terminator < 0) {
+                        return false;
+                    }
+                }
+
+                switch (scanner.accept(character)) {
+                    case LSONStructureScanner.VALUE_START:
+                        if (terminator >= 0) {
+                            return false;
+                        }
+
+                        if (chunkValues % rowLength == 0) {
+                            checkSecond = table;
+
+                            if (table && character == LSON_TABLE_STARTER) {
+                                terminator = base + start;
+                                break;
+                            }
+
+                            if (base + start - chunkStart >= this.chunkLength) {
+                                if (!submit(chunkStart, base + start, chunkValues / rowLength, chunkReader)) {
+                                    return false;
+                                }
+
+                                chunkStart = base + start;
+                                chunkValues = 0;
+                            }
+                        }
+
+                        ++chunkValues;
+                        break;
+
+                    case LSONStructureScanner.UNDERFLOW:
+                        if (character != LSON_ARRAY_CLOSER || chunkValues % rowLength != 0
+                                || (table && terminator != base + start - 1)) {
+                            return false;
+                        }
+
+                        final long bodyEnd = table ? terminator : base + start;
+                        if (chunkValues > 0 && !submit(chunkStart, bodyEnd, chunkValues / rowLength, chunkReader)) {
+                            return false;
+                        }
+
+                        return isTrailing(base + index);
+
+                    default:
+                        break;
+                }
+
+                // Neither half of a surrogate pair is structural, the second one always continues the same token.
+                if (lowSurrogate != 0) {
+                    scanner.accept(lowSurrogate);
+                    checkSecond = false;
+                }
+            }
+
+            offset = base + index;
+        }
+
+        // The container is never closed.
+        return false;
+    }
+
+    /**
+     * @return true if nothing but whitespace and comments follows the given offset.
+     */
+    private boolean isTrailing (long offset)
+    {
+        final LSONStructureScanner scanner = new LSONStructureScanner();
+
+        while (offset < this.length) {
+            final int b = byteAt(offset++);
+            final char character;
+
+            if (b < 0x80) {
+                character = (char) b;
+            } else {
+                // Trailing characters only matter for being whitespace or not, which no supplementary character is.
+                final int decoded = decode(b, offset);
+                offset += this.continuations;
+                character = decoded >= Character.MIN_SUPPLEMENTARY_CODE_POINT ? REPLACEMENT_CHARACTER : (char) decoded;
+            }
+
+            if (scanner.accept(character) != LSONStructureScanner.NONE) {
+                return false;
+            }
+        }
+
+        return scanner.isAtBoundary();
+    }
+
+    /**
+     * Decodes the multi-byte character starting with the given lead byte, leaving the number of continuation bytes it
+     * is made of in {@link #continuations}. Malformed sequences decode to a replacement character and only consume
+     * the bytes that were valid, the same way {@link LSONByteReader} decodes them.
+     *
+     * @param lead   lead byte of the character.
+     * @param offset offset of the byte following the lead byte.
+     * @return the decoded code point.
+     */
+    private int decode (final int lead, final long offset)
+    {
+        final int expected = LSONByteReader.getContinuationCount(lead);
+        int codePoint = LSONByteReader.getLeadBits(lead, expected);
+
+        for (this.continuations = 0; this.continuations < expected; ++this.continuations) {
+            final long at = offset + this.continuations;
+            final int continuation = at < this.length ? byteAt(at) : LSONReader.END_OF_SOURCE;
+
+            if (!LSONByteReader.isContinuation(lead, this.continuations, continuation)) {
+                return REPLACEMENT_CHARACTER;
+            }
+
+            codePoint = (codePoint << 6) | (continuation & 0x3F);
+        }
+
+        return expected == 0 || LSONByteReader.isSurrogate(codePoint) ? REPLACEMENT_CHARACTER : codePoint;
+    }
+
+    private int byteAt (final long offset)
+    {
+        return this.segments[(int) (offset >>> SEGMENT_SHIFT)].get((int) (offset & (SEGMENT_LENGTH - 1))) & 0xFF;
+    }
+
+    private <T> boolean submit (final long start, final long end, final long rows, final ChunkReader<T> chunkReader)
+    {
+        final ByteBuffer chunk = slice(start, end);
+        if (chunk == null) {
+            return false;
+        }
+
+        final ChunkTask<T> task = new ChunkTask<>(chunk, rows, chunkReader, this.typeAdapters);
+        this.tasks.add(task);
+        this.pool.execute(task);
+
+        return true;
+    }
+
+    /**
+     * @return the rows of every chunk added to the given list in input order, or false if any chunk failed to parse.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> boolean join (final ArrayList<T> rows) throws IOException
+    {
+        for (final ChunkTask<?> task : this.tasks) {
+            final ArrayList<T> chunkRows;
+
+            try {
+                chunkRows = (ArrayList<T>) task.join();
+            } catch (final UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            if (chunkRows == null) {
+                return false;
+            }
+
+            rows.addAll(chunkRows);
+        }
+
+        return true;
+    }
+
+    /**
+     * @return a view of the input between the given offsets, or a copy if they lie in different segments.
+     */
+    private ByteBuffer slice (final long start, final long end)
+    {
+        final int segment = (int) (start >>> SEGMENT_SHIFT);
+
+        if (segment == (int) ((end - 1) >>> SEGMENT_SHIFT)) {
+            final ByteBuffer view = this.segments[segment].duplicate();
+            ((Buffer) view).limit((int) (end - ((long) segment << SEGMENT_SHIFT)));
+            ((Buffer) view).position((int) (start - ((long) segment << SEGMENT_SHIFT)));
+            return view.slice();
+        }
+
+        if (end - start > Integer.MAX_VALUE) {
+            return null;
+        }
+
+        final byte[] bytes = new byte[(int) (end - start)];
+        int copied = 0;
+
+        for (int i = segment; copied < bytes.length; ++i) {
+            final ByteBuffer view = this.segments[i].duplicate();
+
+            if (copied == 0) {
+                ((Buffer) view).position((int) (start - ((long) i << SEGMENT_SHIFT)));
+            }
+
+            final int count = Math.min(view.remaining(), bytes.length - copied);
+            view.get(bytes, copied, count);
+            copied += count;
+        }
+
+        return ByteBuffer.wrap(bytes);
+    }
+
+    private static ByteBuffer[] map (final FileChannel channel) throws IOException
+    {
+        final long position = channel.position();
+        final long length = channel.size() - position;
+        final int count = (int) Math.max(1, (length + SEGMENT_LENGTH - 1) >>> SEGMENT_SHIFT);
+        final ByteBuffer[] segments = new ByteBuffer[count];
+
+        for (int i = 0; i < segments.length; ++i) {
+            final long offset = (long) i << SEGMENT_SHIFT;
+            final long segmentLength = Math.max(0, Math.min(SEGMENT_LENGTH, length - offset));
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position + offset, segmentLength);
+        }
+
+        return segments;
+    }
+
+    /**
+     * Reads one row of a chunk, leaving the parser on the first character of the next row.
+     */
+    private interface ChunkReader<T>
+    {
+        T read (LSONParser parser) throws IOException, LSONParseException;
+    }
+
+    private static final class ChunkTask<T> extends RecursiveTask<ArrayList<T>>
+    {
+        private final ByteBuffer chunk;
+        private final long rows;
+        private final ChunkReader<T> chunkReader;
+        private final LSONTypeAdapterTable typeAdapters;
+
+        ChunkTask (
+                final ByteBuffer chunk,
+                final long rows,
+                final ChunkReader<T> chunkReader,
+                final LSONTypeAdapterTable typeAdapters)
+        {
+            this.chunk = chunk;
+            this.rows = rows;
+            this.chunkReader = chunkReader;
+            this.typeAdapters = typeAdapters;
+        }
+
+        /**
+         * @return the rows of the chunk, or null if the chunk does not parse into exactly the rows the scan found.
+         */
+        @Override
+        protected ArrayList<T> compute ()
+        {
+            final LSONByteReader reader = new LSONByteReader(this.chunk);
+            final ArrayList<T> values = new ArrayList<>((int) Math.min(this.rows, Integer.MAX_VALUE));
+
+            try {
+                final LSONParser parser = new LSONParser(reader, this.typeAdapters);
+
+                // Never read past the rows the scan found, so a chunk the parser disagrees with cannot run away.
+                while (!reader.isFinished() && values.size() < this.rows) {
+                    values.add(this.chunkReader.read(parser));
+                }
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (final LSONParseException | RuntimeException e) {
+                // Left to the sequential parse, which reports the failure exactly as it would have otherwise.
+                return null;
+            }
+
+            return reader.isFinished() && values.size() == this.rows ? values : null;
+        }
+    }
+}
@@ -24,9 +24,9 @@
 package net.hollasch.lson4j;
 
 import net.hollasch.lson4j.type.*;
-import net.hollasch.lson4j.type.graph.LSONEdge;
+import net.hollasch.lson4j.type.graph.LSONCompactGraph;
 import net.hollasch.lson4j.type.graph.LSONGraph;
-import net.hollasch.lson4j.type.graph.LSONVertex;
+import net.hollasch.lson4j.util.LSONSymbolTable;
 import net.hollasch.lson4j.util.LSONTokenUtils;
 
 import java.io.IOException;
@@ -43,8 +43,18 @@ public class LSONParser
     // Similar to java reader, optimized to buffer reads. Reading from input reader.
     private LSONReader reader;
 
-    // Collection of scalar type adapters being used to parse words.
-    private Collection<LSONTypeAdapter<?>> typeAdapters;
+    // Scalar type adapters being used to parse words, dispatched by the first character of the word.
+    private final LSONTypeAdapterTable typeAdapters;
+
+    // Canonical instances of the object keys, possibly shared with other parsers.
+    private final LSONSymbolTable symbols;
+
+    // Root of the key shapes shared by the objects read by this parser, and possibly by other parsers of the same
+    // document.
+    private final LSONShape shapes;
+
+    // Characters of the word being read, reused from word to word.
+    private final StringBuilder capture = new StringBuilder();
 
     /**
      * Creates an LSON parser given the following parameters.
@@ -58,9 +68,87 @@ public class LSONParser
             final LSONReader reader,
             final Collection<LSONTypeAdapter<?>> typeAdapters)
             throws IOException, LSONParseException
+    {
+        this(reader, typeAdapters, new LSONSymbolTable());
+    }
+
+    /**
+     * Creates an LSON parser interning object keys into the given symbol table, which may be shared with other
+     * parsers so that keys recurring across documents are only allocated once.
+     *
+     * @param reader       {@link LSONReader} that will be used to read the input LSON string.
+     * @param typeAdapters {@link Collection} of scalar type adapters being used to parse words.
+     * @param symbols      {@link LSONSymbolTable} holding the canonical instances of object keys.
+     * @throws IOException        if the reader has a problem with IO.
+     * @throws LSONParseException if there is a syntax error while parsing the input LSON string.
+     */
+    public LSONParser (
+            final LSONReader reader,
+            final Collection<LSONTypeAdapter<?>> typeAdapters,
+            final LSONSymbolTable symbols)
+            throws IOException, LSONParseException
+    {
+        this(reader, new LSONTypeAdapterTable(typeAdapters), symbols);
+    }
+
+    /**
+     * Creates an LSON parser dispatching words to the adapters of an already compiled table, which saves compiling
+     * the same adapters again for every parser.
+     *
+     * @param reader       {@link LSONReader} that will be used to read the input LSON string.
+     * @param typeAdapters {@link LSONTypeAdapterTable} of scalar type adapters being used to parse words.
+     * @throws IOException        if the reader has a problem with IO.
+     * @throws LSONParseException if there is a syntax error while parsing the input LSON string.
+     */
+    public LSONParser (
+            final LSONReader reader,
+            final LSONTypeAdapterTable typeAdapters)
+            throws IOException, LSONParseException
+    {
+        this(reader, typeAdapters, new LSONSymbolTable());
+    }
+
+    /**
+     * Creates an LSON parser dispatching words to the adapters of an already compiled table, such as one reordering
+     * its adapters by how often they adapt words.
+     *
+     * @param reader       {@link LSONReader} that will be used to read the input LSON string.
+     * @param typeAdapters {@link LSONTypeAdapterTable} of scalar type adapters being used to parse words.
+     * @param symbols      {@link LSONSymbolTable} holding the canonical instances of object keys.
+     * @throws IOException        if the reader has a problem with IO.
+     * @throws LSONParseException if there is a syntax error while parsing the input LSON string.
+     */
+    public LSONParser (
+            final LSONReader reader,
+            final LSONTypeAdapterTable typeAdapters,
+            final LSONSymbolTable symbols)
+            throws IOException, LSONParseException
+    {
+        this(reader, typeAdapters, symbols, new LSONShape());
+    }
+
+    /**
+     * Creates an LSON parser adding the shapes of the objects it reads to the given root, for parsers that each read
+     * part of the same document.
+     *
+     * @param reader       {@link LSONReader} that will be used to read the input LSON string.
+     * @param typeAdapters {@link LSONTypeAdapterTable} of scalar type adapters being used to parse words.
+     * @param symbols      {@link LSONSymbolTable} holding the canonical instances of object keys.
+     * @param shapes       {@link LSONShape} root of the key shapes of the objects read.
+     * @throws IOException        if the reader has a problem with IO.
+     * @throws LSONParseException if there is a syntax error while parsing the input LSON string.
+     */
+    LSONParser (
+            final LSONReader reader,
+            final LSONTypeAdapterTable typeAdapters,
+            final LSONSymbolTable symbols,
+            final LSONShape shapes)
+            throws IOException, LSONParseException
     {
         this.reader = reader;
         this.typeAdapters = typeAdapters;
+        this.symbols = symbols;
+        this.shapes = shapes;
 
         // Begin buffering.
         this.reader.prepare();
@@ -82,19 +170,19 @@ public class LSONParser
         removeWhitespace(true);
 
         // Throw an exception when there is still data to be read.
-        if (value != null && !this.reader.isFinished()) {
+        if (!this.reader.isFinished()) {
             throw new LSONParseException("Expected end of file", getLocation());
         }
 
         return value;
     }
 
-    private LSONValue readValue () throws IOException, LSONParseException
+    LSONValue readValue () throws IOException, LSONParseException
     {
         return readValue(false);
     }
 
-    private LSONValue readValue (final boolean flattenArrays) throws IOException, LSONParseException
+    LSONValue readValue (final boolean flattenArrays) throws IOException, LSONParseException
     {
         // Capture the initial character to determine what kind of value we are reading in. Either an object, array, or
         // just a regular word.
@@ -130,13 +218,21 @@ public class LSONParser
         }
     }
 
-    private LSONObject<LSONValue> readObject () throws IOException, LSONParseException
+    LSONObject<LSONValue> readObject () throws IOException, LSONParseException
+    {
+        final LSONShapedMap<LSONValue> map = new LSONShapedMap<>(this.shapes);
+        final LSONObject<LSONValue> object = readObject(map);
+
+        map.trimToSize();
+        return object;
+    }
+
+    LSONObject<LSONValue> readObject (final Map<LSONString, LSONValue> lsonObj)
+            throws IOException, LSONParseException
     {
         // Pop object opening character.
         this.reader.readNext();
 
-        final Map<LSONString, LSONValue> lsonObj = new HashMap<>();
-
         // After the initial object opening character, print a
         removeWhitespace();
 
@@ -151,37 +247,10 @@ public class LSONParser
         // reading values into the object.
         char floating;
         do {
-            Collection<LSONString> keys;
-            if (this.reader.getCurrent() == LSON_ARRAY_OPENER) {
-                this.reader.readNext();
-                keys = new ArrayList<>();
+            final Collection<LSONString> keys = readObjectKeys();
 
-                for (final LSONValue key : readArray(true)) {
-                    if (key.isLSONString()) {
-                        keys.add(key.toLsonString());
-                    }
-                }
-            } else {
-                // Create the key word.
-                final LSONString key = (LSONString) readWord(true, true);
-                keys = Collections.singleton(key);
-            }
-            removeWhitespace();
-
-            final LSONValue value;
-
-            // Pop key value separator token.
-            expect(KEY_VALUE_SEPARATOR, "Expected a " + (char) KEY_VALUE_SEPARATOR
-                    + " to separate key, value pairs, got " + this.reader.getCurrent());
-            this.reader.readNext();
-
-            if (keys.isEmpty()) {
-                throw new LSONParseException("Cannot create LSON object where a key is null", getLocation());
-            }
-
-            // Remove all whitespace and parse value.
-            removeWhitespace();
-            value = readValue();
+            // Parse value and remove trailing whitespace.
+            final LSONValue value = readValue();
             removeWhitespace();
 
             // Store key(s) value pair in lson object.
@@ -204,7 +273,41 @@ public class LSONParser
         return new LSONObject<>(lsonObj);
     }
 
-    private LSONArray<LSONValue> readArray (final boolean flatten) throws IOException, LSONParseException
+    Collection<LSONString> readObjectKeys () throws IOException, LSONParseException
+    {
+        Collection<LSONString> keys;
+        if (this.reader.getCurrent() == LSON_ARRAY_OPENER) {
+            this.reader.readNext();
+            keys = new ArrayList<>();
+
+            for (final LSONValue key : readArray(true)) {
+                if (key.isLSONString()) {
+                    keys.add(key.toLsonString());
+                }
+            }
+        } else {
+            // Create the key word.
+            final LSONString key = (LSONString) readWord(true, true);
+            keys = Collections.singleton(key);
+        }
+        removeWhitespace();
+
+        // Pop key value separator token.
+        expect(KEY_VALUE_SEPARATOR, "Expected a " + (char) KEY_VALUE_SEPARATOR
+                + " to separate key, value pairs, got " + this.reader.getCurrent());
+        this.reader.readNext();
+
+        if (keys.isEmpty()) {
+            throw new LSONParseException("Cannot create LSON object where a key is null", getLocation());
+        }
+
+        // Remove whitespace leading up to the value.
+        removeWhitespace();
+
+        return keys;
+    }
+
+    LSONArray<LSONValue> readArray (final boolean flatten) throws IOException, LSONParseException
     {
         final ArrayList<LSONValue> array = new ArrayList<>();
         removeWhitespace();
@@ -215,7 +318,6 @@ public class LSONParser
             return new LSONArray<>(array);
         }
 
-        char floating;
         do {
             // Keep reading values into the array.
             final LSONValue value = readValue(true);
@@ -230,25 +332,115 @@ public class LSONParser
 
             removeWhitespace();
 
-            // Read values until there is an array closing tag.
-            floating = this.reader.getCurrent();
-        } while (floating != LSON_ARRAY_CLOSER);
+            // Read values until there is an array closing tag, or something that can never be followed by one.
+        } while (!isArrayEnd());
 
-        // Expect an array closing tag for termination. This line is just a syntax reminder as the loop will never
-        // terminate if an array closing tag is not present either way.
+        // Expect an array closing tag for termination, missing if an object closer or the end of input came first.
         expect(LSON_ARRAY_CLOSER, "Expected " + (char) LSON_ARRAY_CLOSER + " for array terminator.");
         this.reader.readNext();
 
         return new LSONArray<>(array);
     }
 
-    private LSONTable readTable () throws IOException, LSONParseException
+    /**
+     * @return true if reading the elements of an array stops at the current character, which is the array closer, or
+     *         an object closer or the end of input, neither of which starts an element nor is ever followed by the
+     *         array closer.
+     */
+    boolean isArrayEnd ()
+    {
+        return LSONTokenUtils.isLSONClosingReservedToken(this.reader.getCurrent()) || this.reader.isFinished();
+    }
+
+    /**
+     * @return true if reading the rows of a table stops at the current character, which starts the table closer, or
+     *         is a closer or the end of input, none of which ever starts a row.
+     */
+    boolean isTableEnd () throws IOException, LSONParseException
+    {
+        return (this.reader.getCurrent() == LSON_TABLE_STARTER && this.reader.peekNext() == LSON_ARRAY_CLOSER)
+                || isArrayEnd();
+    }
+
+    /**
+     * Reads the closer of a table, starting on its hash tag and ending on the first character after it.
+     */
+    void readTableCloser () throws IOException, LSONParseException
+    {
+        expect(LSON_TABLE_STARTER, "Expected table to end with " + (char) LSON_TABLE_STARTER + (char) LSON_ARRAY_CLOSER
+                + ", got " + this.reader.getCurrent());
+        this.reader.readNext();
+        this.reader.readNext();
+    }
+
+    LSONTable readTable () throws IOException, LSONParseException
+    {
+        final ArrayList<LSONWord> header = new ArrayList<>();
+        final boolean headerHasArrayOpener = readTableHeader(header);
+
+        final ArrayList<ArrayList<LSONValue>> rowData = new ArrayList<>();
+
+        do {
+            if (this.reader.getCurrent() == LSON_TABLE_STARTER && this.reader.peekNext() == LSON_ARRAY_CLOSER) {
+                this.reader.readNext();
+                this.reader.readNext();
+                return new LSONTable(header, new ArrayList[0]);
+            }
+
+            rowData.add(readTableRow(header.size(), headerHasArrayOpener));
+        } while (!isTableEnd());
+
+        readTableCloser();
+
+        final LSONTable table = new LSONTable(header, rowData.toArray(new ArrayList[rowData.size()]));
+        return table;
+    }
+
+    /**
+     * Reads a single row of a table, starting on its first character and ending on the first character after it.
+     *
+     * @param columns   number of values in the row.
+     * @param bracketed true if the row is enclosed in array brackets.
+     * @return the values of the row.
+     */
+    ArrayList<LSONValue> readTableRow (final int columns, final boolean bracketed)
+            throws IOException, LSONParseException
+    {
+        if (bracketed) {
+            expect(LSON_ARRAY_OPENER, "Expected " + LSON_ARRAY_OPENER + ", got " + this.reader.getCurrent());
+            this.reader.readNext();
+            removeWhitespace();
+        }
+
+        final ArrayList<LSONValue> row = new ArrayList<>();
+        for (int i = 0; i < columns; ++i) {
+            expectValue();
+            row.add(readValue());
+            removeWhitespace();
+        }
+
+        if (bracketed) {
+            expect(LSON_ARRAY_CLOSER, "Expected " + LSON_ARRAY_CLOSER + ", got " + this.reader.getCurrent());
+            this.reader.readNext();
+            removeWhitespace();
+        }
+
+        return row;
+    }
+
+    /**
+     * Reads the header row of a table into the given list, starting at the hash tag table opener and ending on the
+     * first character of the first row.
+     *
+     * @param header list that the header words are added to.
+     * @return true if the header (and therefore every row) is enclosed in array brackets.
+     */
+    boolean readTableHeader (final ArrayList<LSONWord> header) throws IOException, LSONParseException
     {
         // Remove the hash tag table opener.
         this.reader.readNext();
         removeWhitespace();
 
-        final ArrayList<LSONWord> header = new ArrayList<>();
         boolean headerHasArrayOpener = false;
 
         if (this.reader.getCurrent() == LSON_ARRAY_OPENER) {
@@ -259,6 +451,12 @@ public class LSONParser
 
         char floating;
         do {
+            // Closers, the end of input and the characters that end header words would never be read past.
+            final char current = this.reader.getCurrent();
+            if (isArrayEnd() || current == KEY_VALUE_SEPARATOR || LSONTokenUtils.getEdgeDirectionality(current) != -1) {
+                throw new LSONParseException("Expected a table column name, got " + current, getLocation());
+            }
+
             header.add(readWord(true, true));
             removeWhitespace();
 
@@ -275,47 +473,10 @@ public class LSONParser
         this.reader.readNext();
         removeWhitespace();
 
-        final ArrayList<ArrayList<LSONValue>> rowData = new ArrayList<>();
-
-        do {
-            if (this.reader.getCurrent() == LSON_TABLE_STARTER && this.reader.peekNext() == LSON_ARRAY_CLOSER) {
-                this.reader.readNext();
-                this.reader.readNext();
-                return new LSONTable(header, new ArrayList[0]);
-            }
-
-            if (headerHasArrayOpener) {
-                expect(LSON_ARRAY_OPENER, "Expected " + LSON_ARRAY_OPENER + ", got " + this.reader.getCurrent());
-                this.reader.readNext();
-                removeWhitespace();
-            }
-
-            final ArrayList<LSONValue> row = new ArrayList<>();
-            for (int i = 0; i < header.size(); ++i) {
-                row.add(readValue());
-                removeWhitespace();
-            }
-            rowData.add(row);
-
-            if (headerHasArrayOpener) {
-                expect(LSON_ARRAY_CLOSER, "Expected " + LSON_ARRAY_CLOSER + ", got " + this.reader.getCurrent());
-                this.reader.readNext();
-                removeWhitespace();
-            }
-
-            floating = this.reader.getCurrent();
-        } while (floating != LSON_TABLE_STARTER && this.reader.peekNext() != LSON_ARRAY_CLOSER);
-
-        this.reader.readNext();
-        expect(LSON_ARRAY_CLOSER, "Expected table to end with " + LSON_TABLE_STARTER + LSON_ARRAY_CLOSER
-                + ", got " + this.reader.getCurrent());
-        this.reader.readNext();
-
-        final LSONTable table = new LSONTable(header, rowData.toArray(new ArrayList[rowData.size()]));
-        return table;
+        return headerHasArrayOpener;
     }
 
-    private LSONGraph readGraph () throws IOException, LSONParseException
+    LSONGraph readGraph () throws IOException, LSONParseException
     {
         // Remove percentage from graph opening statement
         this.reader.readNext();
@@ -337,7 +498,8 @@ public class LSONParser
                 nodesByIndex[i] = array.get(i);
             }
         } else if (this.reader.getCurrent() == LSON_OBJECT_OPENER) {
-            final LSONObject<LSONValue> map = readObject();
+            // Named vertices are indexed in the order they are declared.
+            final LSONObject<LSONValue> map = readObject(new LinkedHashMap<>());
             nodesByName = new LinkedHashMap<>();
 
             for (final LSONString key : map.keySet()) {
@@ -348,24 +510,32 @@ public class LSONParser
             nodesByIndex = new LSONValue[nodes];
         }
 
-        final ArrayList<LSONVertex> vertices = new ArrayList<>();
-        final Map<String, Integer> nameToVertexIdMap = new HashMap<>();
+        final int vertexCount;
+        final String[] names;
+        final LSONValue[] vertexValues;
+        final Map<String, Integer> nameToVertexIdMap;
 
         if (nodesByIndex != null) {
-            for (int i = 0; i < nodesByIndex.length; ++i) {
-                vertices.add(new LSONVertex(i, null, nodesByIndex[i]));
-            }
+            vertexCount = nodesByIndex.length;
+            names = null;
+            vertexValues = nodesByIndex;
+            nameToVertexIdMap = null;
         } else {
+            vertexCount = nodesByName.size();
+            names = new String[vertexCount];
+            vertexValues = new LSONValue[vertexCount];
+            nameToVertexIdMap = new HashMap<>();
+
             int index = 0;
             for (final Map.Entry<String, LSONValue> entry : nodesByName.entrySet()) {
-                vertices.add(new LSONVertex(index, entry.getKey(), entry.getValue()));
+                names[index] = entry.getKey();
+                vertexValues[index] = entry.getValue();
                 nameToVertexIdMap.put(entry.getKey(), index);
                 ++index;
             }
         }
 
         removeWhitespace();
-        final ArrayList<LSONEdge> edges = new ArrayList<>();
 
         expectAny("Expected either { or [ to open edge data, got " + this.reader.getCurrent(),
                 LSON_ARRAY_OPENER, LSON_OBJECT_OPENER);
@@ -374,59 +544,46 @@ public class LSONParser
         this.reader.readNext();
         removeWhitespace();
 
-        do {
-            final LSONVertex v1, v2;
-            final int direction;
-
-            if (nodesByIndex != null) {
-                v1 = vertices.get(readInteger());
-                removeWhitespace();
+        // Edges are stored straight into arrays, grown as needed, rather than as an edge object each.
+        int[] sources = new int[16];
+        int[] targets = new int[16];
+        final BitSet directed = new BitSet();
+        final ArrayList<LSONValue> edgeData = nodesWithData ? new ArrayList<>() : null;
+        int edgeCount = 0;
 
-                direction = LSONTokenUtils.getEdgeDirectionality(this.reader.getCurrent());
-                this.reader.readNext();
-                removeWhitespace();
-
-                v2 = vertices.get(readInteger());
-                removeWhitespace();
-            } else {
-                v1 = vertices.get(nameToVertexIdMap.get(readWord(true, true).getWord()));
-                removeWhitespace();
+        do {
+            final int v1 = readEdgeVertex(nameToVertexIdMap, vertexCount);
+            removeWhitespace();
 
-                direction = LSONTokenUtils.getEdgeDirectionality(this.reader.getCurrent());
-                this.reader.readNext();
-                removeWhitespace();
+            final int direction = LSONTokenUtils.getEdgeDirectionality(this.reader.getCurrent());
+            this.reader.readNext();
+            removeWhitespace();
 
-                v2 = vertices.get(nameToVertexIdMap.get(readWord(true, true).getWord()));
-                removeWhitespace();
-            }
+            final int v2 = readEdgeVertex(nameToVertexIdMap, vertexCount);
+            removeWhitespace();
 
-            final LSONValue data;
             if (nodesWithData) {
                 expect(KEY_VALUE_SEPARATOR, "Expected a key value separator :, got " + this.reader.getCurrent());
 
                 this.reader.readNext();
                 removeWhitespace();
 
-                data = readValue();
+                edgeData.add(readValue());
                 removeWhitespace();
-            } else {
-                data = null;
             }
 
-            final LSONEdge edge;
-            switch (direction) {
-                case GRAPH_UNDIRECTED:
-                    edge = new LSONEdge(v1, v2, false, data);
-                    break;
-                case GRAPH_RIGHT_DIRECTED:
-                    edge = new LSONEdge(v1, v2, true, data);
-                    break;
-                default:
-                    edge = new LSONEdge(v2, v1, true, data);
-                    break;
+            if (edgeCount == sources.length) {
+                sources = Arrays.copyOf(sources, 2 * edgeCount);
+                targets = Arrays.copyOf(targets, 2 * edgeCount);
             }
 
-            edges.add(edge);
+            // Left directed edges are stored the other way around, so every directed edge leads from its source.
+            final boolean reversed = direction != GRAPH_UNDIRECTED && direction != GRAPH_RIGHT_DIRECTED;
+            sources[edgeCount] = reversed ? v2 : v1;
+            targets[edgeCount] = reversed ? v1 : v2;
+            directed.set(edgeCount, direction != GRAPH_UNDIRECTED);
+            ++edgeCount;
+
             removeWhitespace();
         } while (nodesWithData ?
                 this.reader.getCurrent() != LSON_OBJECT_CLOSER
@@ -440,15 +597,60 @@ public class LSONParser
         this.reader.readNext();
         this.reader.readNext();
 
-        return new LSONGraph(vertices, edges);
+        return new LSONCompactGraph(vertexCount, names, hasValues(vertexValues) ? vertexValues : null,
+                Arrays.copyOf(sources, edgeCount), Arrays.copyOf(targets, edgeCount), directed,
+                edgeData == null ? null : edgeData.toArray(new LSONValue[edgeCount]));
+    }
+
+    private static boolean hasValues (final LSONValue[] values)
+    {
+        for (final LSONValue value : values) {
+            if (value != null) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Reads one end of a graph edge, either as a vertex index or as a vertex name.
+     *
+     * @param vertexNames map of vertex names to vertex indices, or null if vertices are referenced by index.
+     * @param vertexCount number of vertices in the graph.
+     * @return index of the referenced vertex.
+     */
+    int readEdgeVertex (final Map<String, Integer> vertexNames, final int vertexCount)
+            throws IOException, LSONParseException
+    {
+        if (vertexNames == null) {
+            final int index = readInteger();
+
+            if (index < 0 || index >= vertexCount) {
+                throw new LSONParseException("Edge references vertex " + index + " of a graph with " + vertexCount
+                        + " vertices", getLocation());
+            }
+
+            return index;
+        }
+
+        final LSONWord name = readWord(true, true);
+        final Integer index = name == null ? null : vertexNames.get(name.getWord());
+
+        if (index == null) {
+            throw new LSONParseException("Edge references unknown vertex " + name, getLocation());
+        }
+
+        return index;
     }
 
-    private LSONWord readWord (final boolean isObjectKey, final boolean forceString)
+    LSONWord readWord (final boolean isObjectKey, final boolean forceString)
             throws IOException, LSONParseException
     {
-        // Load current character and create word capture.
+        // Load current character and reset the word capture.
         char current = this.reader.getCurrent();
-        final StringBuilder capture = new StringBuilder();
+        final StringBuilder capture = this.capture;
+        capture.setLength(0);
 
         boolean promotedToString = false;
 
@@ -466,14 +668,20 @@ public class LSONParser
                 current = this.reader.readNext();
             }
 
+            // Empty delimited strings close right away, without reading through to the next delimiter.
+            final boolean empty = stringOpener != NULL_BYTE && LSONTokenUtils.isClosingString(stringOpener, current);
+
             // Read through string until we reach an end
             do {
+                if (empty) {
+                    break;
+                }
+
                 // Handle parsing a single word.
                 if (this.reader.isFinished()) {
                     // Substring, as isFinished returns true after end of file has been read in.
                     // We capture the entire string minus the end of file character at the end.
-                    return buildWord(capture.toString(), promotedToString
-                            || forceString || isObjectKey);
+                    return buildWord(capture, promotedToString || forceString || isObjectKey, isObjectKey);
                 }
 
                 // Capture the escaped character.
@@ -498,9 +706,8 @@ public class LSONParser
                     }
                 }
 
-                // Append current to buffer and continue.
-                capture.append(current);
-                current = this.reader.readNext();
+                // Append current to buffer and continue, along with any ordinary characters following it.
+                current = this.reader.readRun(capture, current, stringOpener != NULL_BYTE);
             }
 
             // Keep looping until either...
@@ -535,37 +742,46 @@ public class LSONParser
         }
 
         // Build the word and return.
-        return buildWord(capture.toString(), promotedToString || forceString || isObjectKey);
+        return buildWord(capture, promotedToString || forceString || isObjectKey, isObjectKey);
     }
 
-    private int readInteger () throws IOException, LSONParseException
+    int readInteger () throws IOException, LSONParseException
     {
+        char current = this.reader.getCurrent();
+
+        // Checked up front rather than through expectAny, which would build its message for every digit.
+        if (!isNumber(current)) {
+            throw new LSONParseException("Expected a digit but got " + current, getLocation());
+        }
+
         int number = 0;
 
         do {
-            expectAny("Expected a digit but got " + this.reader.getCurrent(), NUMBERS);
-            number = (10 * number) + (this.reader.getCurrent() - '0');
-            this.reader.readNext();
-        } while (isNumber(this.reader.getCurrent()));
+            number = (10 * number) + (current - '0');
+            current = this.reader.readNext();
+        } while (isNumber(current));
 
         return number;
     }
 
-    @SuppressWarnings("unchecked")
-    private LSONWord buildWord (final String string, final boolean promotedToString)
+    private LSONWord buildWord (
+            final StringBuilder capture,
+            final boolean promotedToString,
+            final boolean isObjectKey)
     {
-        // Can't build a word from a forced string.
-        if (promotedToString) {
-            return new LSONString(string);
+        // Keys are looked up straight from the captured characters, and only copied the first time they are seen.
+        if (isObjectKey) {
+            return this.symbols.intern(capture);
         }
 
-        for (final LSONTypeAdapter<?> typeAdapter : this.typeAdapters) {
-            if (typeAdapter.willAdaptFor(string)) {
-                return new LSONWord(string, typeAdapter.buildFromWord(string));
-            }
+        // Can't build a word from a forced string.
+        if (promotedToString) {
+            return new LSONString(capture.toString());
         }
 
-        return new LSONString(string);
+        // Adapters read the captured characters in place, so adapted words are never copied into a string first.
+        final LSONWord<?> word = this.typeAdapters.buildWord(capture, 0, capture.length());
+        return word != null ? word : new LSONString(capture.toString());
     }
 
     private char captureEscapeCharacter () throws IOException, LSONParseException
@@ -600,17 +816,17 @@ public class LSONParser
         }
     }
 
-    private LSONFileLocation getLocation ()
+    LSONFileLocation getLocation ()
     {
         return new LSONFileLocation(this.reader.getLine(), this.reader.getColumn());
     }
 
-    private void expect (final int character, final String onError) throws LSONParseException
+    void expect (final int character, final String onError) throws LSONParseException
     {
         expect((char) character, onError);
     }
 
-    private void expect (final char character, final String onError) throws LSONParseException
+    void expect (final char character, final String onError) throws LSONParseException
     {
         if (this.reader.getCurrent() == character) {
             return;
@@ -619,7 +835,20 @@ public class LSONParser
         throw new LSONParseException(onError, getLocation());
     }
 
-    private void expectAny (final String onError, final int... characters) throws LSONParseException
+    /**
+     * Expects the current character to start a value, as every cell of a table row must have one, unlike arrays whose
+     * elements end at any closer.
+     */
+    void expectValue () throws LSONParseException
+    {
+        if (this.reader.isFinished()) {
+            throw new LSONParseException("Unexpected end of input", getLocation());
+        } else if (LSONTokenUtils.isLSONClosingReservedToken(this.reader.getCurrent())) {
+            throw new LSONParseException("Expected a value, got " + this.reader.getCurrent(), getLocation());
+        }
+    }
+
+    void expectAny (final String onError, final int... characters) throws LSONParseException
     {
         final int current = this.reader.getCurrent();
 
@@ -632,12 +861,12 @@ public class LSONParser
         throw new LSONParseException(onError, getLocation());
     }
 
-    private void removeWhitespace () throws IOException, LSONParseException
+    void removeWhitespace () throws IOException, LSONParseException
     {
         removeWhitespace(false);
     }
 
-    private void removeWhitespace (final boolean removeEndOfFile) throws IOException, LSONParseException
+    void removeWhitespace (final boolean removeEndOfFile) throws IOException, LSONParseException
     {
         char current = this.reader.getCurrent();
 
@@ -657,8 +886,8 @@ public class LSONParser
                 return;
             }
 
-            // Strip whitespace character.
-            current = this.reader.readNext();
+            // Strip whitespace, a whole run at a time.
+            current = LSONTokenUtils.isWhitespace(current) ? this.reader.skipWhitespace() : this.reader.readNext();
         }
     }
 
@@ -705,9 +934,12 @@ public class LSONParser
         }
     }
 
+    /**
+     * @return the scalar type adapters being used to parse words, in the order they are tried in.
+     */
     public Collection<LSONTypeAdapter<?>> getTypeAdapters ()
     {
-        return this.typeAdapters;
+        return this.typeAdapters.getAdapters();
     }
 
     public LSONReader getReader ()
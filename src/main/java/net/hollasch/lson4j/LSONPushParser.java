@@ -0,0 +1,305 @@
+/*
+ * Copyright (c) 2017 Connor Hollasch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.hollasch.lson4j;
+
+import net.hollasch.lson4j.type.LSONTypeAdapter;
+import net.hollasch.lson4j.type.LSONTypeAdapterTable;
+import net.hollasch.lson4j.type.LSONValue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * Non-blocking parser that is fed UTF-8 input in arbitrary chunks and hands every completed top-level value to a
+ * consumer. Chunks may split the input anywhere, including inside strings, escape sequences, comments, multi-byte
+ * characters and graph edges; nothing is parsed until a value is known to be complete, so {@link #feed(ByteBuffer)}
+ * never waits on more input.
+ *
+ * @author Connor Hollasch
+ * @since Oct 17, 5:40 PM
+ */
+public class LSONPushParser
+{
+    private static final int DEFAULT_BUFFER_LENGTH = 1024;
+
+    private static final char REPLACEMENT_CHARACTER = 0xFFFD;
+
+    private final Consumer<LSONValue> consumer;
+    // Compiled once, as every value is parsed with a parser of its own.
+    private final LSONTypeAdapterTable typeAdapters;
+
+    // Follows the structure of the input to find where each top-level value begins and ends.
+    private final LSONStructureScanner scanner;
+
+    // Bytes received but not yet parsed. Only the value currently being received is retained.
+    private byte[] buffer;
+    private int length;
+
+    // Offset into the buffer where the value being received begins, or -1 when between values.
+    private int valueStart;
+    private int valueStartLine;
+    private int valueStartColumn;
+
+    // Multi-byte character currently being decoded, its lead byte, and the buffer offset of its lead byte.
+    private int lead;
+    private int codePoint;
+    private int continuations;
+    private int characterStart;
+
+    private int line;
+    private int column;
+
+    private boolean ended;
+
+    /**
+     * Creates an LSON push parser given the following parameters.
+     *
+     * @param consumer     {@link Consumer} that every completed top-level value is handed to, in input order.
+     * @param typeAdapters {@link Collection} of scalar type adapters being used to parse words.
+     */
+    public LSONPushParser (final Consumer<LSONValue> consumer, final Collection<LSONTypeAdapter<?>> typeAdapters)
+    {
+        this(consumer, new LSONTypeAdapterTable(typeAdapters));
+    }
+
+    /**
+     * Creates an LSON push parser dispatching words to the adapters of an already compiled table.
+     *
+     * @param consumer     {@link Consumer} that every completed top-level value is handed to, in input order.
+     * @param typeAdapters {@link LSONTypeAdapterTable} of scalar type adapters being used to parse words.
+     */
+    public LSONPushParser (final Consumer<LSONValue> consumer, final LSONTypeAdapterTable typeAdapters)
+    {
+        this.consumer = consumer;
+        this.typeAdapters = typeAdapters;
+
+        this.scanner = new LSONStructureScanner();
+
+        this.buffer = new byte[DEFAULT_BUFFER_LENGTH];
+        this.length = 0;
+
+        this.valueStart = -1;
+
+        this.line = 1;
+        this.column = -1;
+
+        this.ended = false;
+    }
+
+    /**
+     * Feeds the next chunk of input, consuming all remaining bytes of the given buffer. Any top-level values completed
+     * by this chunk are parsed and handed to the consumer before returning.
+     *
+     * @param chunk next bytes of UTF-8 input.
+     * @throws IOException        if the parser has a problem with IO.
+     * @throws LSONParseException if a completed value contains a syntax error.
+     */
+    public void feed (final ByteBuffer chunk) throws IOException, LSONParseException
+    {
+        if (this.ended) {
+            throw new IllegalStateException("Cannot feed a push parser after the end of input");
+        }
+
+        final int offset = this.length;
+        final int remaining = chunk.remaining();
+
+        if (this.length + remaining > this.buffer.length) {
+            this.buffer = Arrays.copyOf(this.buffer, Math.max(this.buffer.length * 2, this.length + remaining));
+        }
+
+        chunk.get(this.buffer, offset, remaining);
+        this.length += remaining;
+
+        for (int i = offset; i < this.length; ++i) {
+            scan(i);
+        }
+
+        compact();
+    }
+
+    /**
+     * Signals that no more input will be fed, parsing the final value if one is pending.
+     *
+     * @throws IOException        if the parser has a problem with IO.
+     * @throws LSONParseException if the final value is incomplete or contains a syntax error.
+     */
+    public void endOfInput () throws IOException, LSONParseException
+    {
+        if (this.ended) {
+            return;
+        }
+
+        this.ended = true;
+
+        // A truncated multi-byte character at the very end still counts as a character.
+        if (this.continuations > 0) {
+            this.continuations = 0;
+            accept(REPLACEMENT_CHARACTER, this.characterStart);
+        }
+
+        if (this.valueStart >= 0) {
+            emit(this.length);
+        } else if (!this.scanner.isAtBoundary()) {
+            throw new LSONParseException("Unexpected end of input", new LSONFileLocation(this.line, this.column));
+        }
+
+        this.length = 0;
+    }
+
+    private void scan (final int offset) throws IOException, LSONParseException
+    {
+        final int b = this.buffer[offset] & 0xFF;
+
+        if (this.continuations > 0) {
+            final int index = LSONByteReader.getContinuationCount(this.lead) - this.continuations;
+
+            if (LSONByteReader.isContinuation(this.lead, index, b)) {
+                this.codePoint = (this.codePoint << 6) | (b & 0x3F);
+
+                if (--this.continuations == 0) {
+                    acceptCodePoint(this.codePoint, this.characterStart);
+                }
+
+                return;
+            }
+
+            // Malformed or truncated sequence, the current byte starts the next character.
+            this.continuations = 0;
+            accept(REPLACEMENT_CHARACTER, this.characterStart);
+        }
+
+        // All LSON structural characters are ASCII, and overlong encodings of them are rejected by the same rules
+        // LSONByteReader decodes with, so they never take the decoding path.
+        if (b < 0x80) {
+            accept((char) b, offset);
+            return;
+        }
+
+        final int continuations = LSONByteReader.getContinuationCount(b);
+        if (continuations == 0) {
+            accept(REPLACEMENT_CHARACTER, offset);
+            return;
+        }
+
+        this.lead = b;
+        this.codePoint = LSONByteReader.getLeadBits(b, continuations);
+        this.continuations = continuations;
+        this.characterStart = offset;
+    }
+
+    private void acceptCodePoint (final int codePoint, final int offset) throws IOException, LSONParseException
+    {
+        if (LSONByteReader.isSurrogate(codePoint)) {
+            accept(REPLACEMENT_CHARACTER, offset);
+        } else if (codePoint >= Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+            accept(Character.highSurrogate(codePoint), offset);
+            accept(Character.lowSurrogate(codePoint), offset);
+        } else {
+            accept((char) codePoint, offset);
+        }
+    }
+
+    private void accept (final char character, final int offset) throws IOException, LSONParseException
+    {
+        // Track locations the same way the reader does, so errors can be reported relative to the whole input.
+        ++this.column;
+        if (character == '\n') {
+            ++this.line;
+            this.column = 0;
+        }
+
+        switch (this.scanner.accept(character)) {
+            case LSONStructureScanner.VALUE_START:
+                // A new value means the previous one, a scalar, can no longer be extended by concatenation.
+                if (this.valueStart >= 0) {
+                    emit(offset);
+                }
+
+                this.valueStart = offset;
+                this.valueStartLine = this.line;
+                this.valueStartColumn = this.column;
+                break;
+            case LSONStructureScanner.VALUE_END:
+                // Containers are complete as soon as they are closed. Closers are always a single byte.
+                emit(offset + 1);
+                break;
+            case LSONStructureScanner.UNDERFLOW:
+                throw new LSONParseException("Unexpected " + character + " outside of any container",
+                        new LSONFileLocation(this.line, this.column));
+            default:
+                break;
+        }
+    }
+
+    private void emit (final int end) throws IOException, LSONParseException
+    {
+        final int start = this.valueStart;
+        this.valueStart = -1;
+
+        final LSONValue value;
+        try {
+            final LSONReader reader = new LSONByteReader(this.buffer, start, end - start);
+            value = new LSONParser(reader, this.typeAdapters).parse();
+        } catch (final LSONParseException e) {
+            // Move the location of the error from the start of the value to the start of the input.
+            final LSONFileLocation location = e.getLocation();
+            final int line = this.valueStartLine + location.getLine() - 1;
+            final int column = location.getLine() == 1
+                    ? this.valueStartColumn + location.getColumn()
+                    : location.getColumn();
+
+            throw new LSONParseException(e.getReason(), new LSONFileLocation(line, column));
+        }
+
+        if (value != null) {
+            this.consumer.accept(value);
+        }
+    }
+
+    private void compact ()
+    {
+        // Keep the value being received, and the lead byte of a character that is still being decoded.
+        int keep = this.valueStart >= 0 ? this.valueStart : this.length;
+
+        if (this.continuations > 0) {
+            keep = Math.min(keep, this.characterStart);
+        }
+
+        if (keep == 0) {
+            return;
+        }
+
+        System.arraycopy(this.buffer, keep, this.buffer, 0, this.length - keep);
+        this.length -= keep;
+
+        if (this.valueStart >= 0) {
+            this.valueStart -= keep;
+        }
+
+        this.characterStart -= keep;
+    }
+}
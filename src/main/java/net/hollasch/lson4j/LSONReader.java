@@ -26,134 +26,258 @@ package net.hollasch.lson4j;
 import net.hollasch.lson4j.util.LSONTokenUtils;
 
 import java.io.IOException;
-import java.io.Reader;
+
+import static net.hollasch.lson4j.util.LSONTokenUtils.*;
 
 /**
  * @author Connor Hollasch
  * @since Dec 09, 1:10 AM
  */
-public class LSONReader
+public abstract class LSONReader
 {
-    private static final int DEFAULT_BUFFER_LENGTH = 1024;
+    static final int DEFAULT_BUFFER_LENGTH = 8192;
 
-    private Reader reader;
+    // Value handed out by read() once the underlying source has been exhausted.
+    static final int END_OF_SOURCE = -1;
 
-    private int bufferLength;
-    private int[] buffer;
+    // Lookup tables for isOrdinary, indexed by ASCII character.
+    private static final boolean[] ORDINARY = createOrdinaryTable(false);
+    private static final boolean[] QUOTED_ORDINARY = createOrdinaryTable(true);
 
     private boolean prepared;
-    private Character peeked;
+
+    // Peeked characters are stored unboxed, hasPeeked marks whether peeked currently holds a value.
+    private boolean hasPeeked;
+    private int peeked;
 
     private char current;
 
-    private int bufferOffset;
     private int line;
     private int column;
 
     private boolean finished;
 
-    LSONReader (final Reader reader)
-    {
-        this(reader, DEFAULT_BUFFER_LENGTH);
-    }
-
-    LSONReader (final Reader reader, final int bufferLength)
+    LSONReader ()
     {
-        this.reader = reader;
-        this.buffer = new int[this.bufferLength = bufferLength];
-
         this.prepared = false;
-        this.peeked = null;
+        this.hasPeeked = false;
 
         this.current = (char) 0;
 
-        this.bufferOffset = -1;
         this.line = 1;
         this.column = -1;
 
         this.finished = false;
     }
 
+    /**
+     * Reads the next UTF-16 character from the underlying source.
+     *
+     * @return the next character, or {@link #END_OF_SOURCE} once the source has been exhausted.
+     * @throws IOException if the underlying source has a problem with IO.
+     */
+    abstract int read () throws IOException;
+
+    /**
+     * Closes the underlying source.
+     *
+     * @throws IOException if the underlying source has a problem with IO.
+     */
+    abstract void close () throws IOException;
+
     synchronized void prepare () throws IOException
     {
-        for (int i = 0; i < this.bufferLength; ++i) {
-            this.buffer[i] = this.reader.read();
-        }
-
         this.prepared = true;
     }
 
     char readNext () throws LSONParseException, IOException
     {
-        readNext(false);
-        return this.current;
+        if (!this.prepared) {
+            throw new LSONParseException("Unprepared read from LSON reader.", new LSONFileLocation(0, 0));
+        }
+
+        if (this.finished) {
+            throw new LSONParseException(
+                    "Attempted to read through input reader",
+                    new LSONFileLocation(this.line, this.column)
+            );
+        }
+
+        final int value;
+        if (this.hasPeeked) {
+            value = this.peeked;
+            this.hasPeeked = false;
+        } else {
+            value = read();
+        }
+
+        ++this.column;
+        if (value == '\n') {
+            ++this.line;
+            this.column = 0;
+        }
+
+        if (value == END_OF_SOURCE) {
+            this.finished = true;
+        }
+
+        return this.current = (char) value;
     }
 
     char peekNext () throws LSONParseException, IOException
     {
-        if (this.peeked != null) {
-            return this.peeked;
+        if (this.hasPeeked) {
+            return (char) this.peeked;
         }
 
-        readNext(true);
+        if (!this.prepared) {
+            throw new LSONParseException("Unprepared read from LSON reader.", new LSONFileLocation(0, 0));
+        }
 
-        if (this.peeked == null) {
+        if (this.finished) {
             return (char) 0x0;
         }
 
-        return this.peeked;
+        this.peeked = read();
+        this.hasPeeked = true;
+
+        return (char) this.peeked;
     }
 
-    private void readNext (final boolean peek) throws LSONParseException, IOException
+    /**
+     * Reads past the run of whitespace following the current character, which must be whitespace itself.
+     *
+     * @return the first character after the run.
+     */
+    char skipWhitespace () throws LSONParseException, IOException
     {
-        if (!this.prepared) {
-            throw new LSONParseException("Unprepared read from LSON reader.", new LSONFileLocation(0, 0));
+        char next;
+        do {
+            next = readNext();
+        } while (LSONTokenUtils.isWhitespace(next));
+
+        return next;
+    }
+
+    /**
+     * Appends the current character to the capture, followed by the run of ordinary characters after it.
+     *
+     * @param capture word being captured.
+     * @param current current character, which may differ from {@link #getCurrent()} after an escape sequence.
+     * @param quoted  true if the word is a delimited string.
+     * @return the first character after the run.
+     * @see #isOrdinary(int, boolean)
+     */
+    char readRun (final StringBuilder capture, final char current, final boolean quoted)
+            throws LSONParseException, IOException
+    {
+        capture.append(current);
+
+        char next = readNext();
+        while (isOrdinary(next, quoted)) {
+            capture.append(next);
+            next = readNext();
         }
 
-        if (this.finished) {
-            if (peek) {
-                return;
-            }
+        return next;
+    }
 
-            throw new LSONParseException(
-                    "Attempted to read through input reader",
-                    new LSONFileLocation(this.line, this.column)
-            );
+    /**
+     * Reads past the value starting on the current character without building it, following only the token structure
+     * of LSON. Whitespace and comments after the value are read past as well, so this stands in for reading the value
+     * and removing the whitespace after it. Nothing is read if the current character cannot start a value.
+     *
+     * @return the first character after the value, which is the start of the next token, a closer or the end of the
+     *         source.
+     * @throws LSONParseException if the source ends within a container.
+     */
+    char skipValue () throws LSONParseException, IOException
+    {
+        final LSONStructureScanner scanner = new LSONStructureScanner();
+
+        char next = getCurrent();
+        if (this.finished || scanner.accept(next) == LSONStructureScanner.UNDERFLOW) {
+            return next;
         }
 
-        char value;
-        if (this.peeked == null) {
-            ++this.bufferOffset;
+        while (true) {
+            next = readNext();
 
-            if (this.bufferOffset >= this.buffer.length) {
-                this.bufferOffset = 0;
+            if (this.finished) {
+                return skippedToEnd(scanner, next);
+            }
 
-                for (int i = 0; i < this.bufferLength; ++i) {
-                    this.buffer[i] = this.reader.read();
-                }
+            final int result = scanner.accept(next);
+            if (result == LSONStructureScanner.VALUE_START || result == LSONStructureScanner.UNDERFLOW) {
+                return next;
             }
+        }
+    }
 
-            value = (char) this.buffer[this.bufferOffset];
-        } else {
-            value = this.peeked;
-            this.peeked = null;
+    char skippedToEnd (final LSONStructureScanner scanner, final char end) throws LSONParseException
+    {
+        if (scanner.getDepth() > 0) {
+            throw new LSONParseException("Unexpected end of input", new LSONFileLocation(this.line, this.column));
         }
 
-        if (!peek) {
-            ++this.column;
-            if (value == '\n') {
-                ++this.line;
-                this.column = 0;
-            }
+        return end;
+    }
 
-            if (this.buffer[this.bufferOffset] == -1) {
-                this.finished = true;
-            }
+    /**
+     * Ordinary characters are ASCII characters that can never end or alter a word or string, so runs of them may be
+     * captured without inspecting each one. Within delimited strings only escapes and closing delimiters matter, while
+     * plain words also end at whitespace, closers, key separators and graph edges. Readers skipping over runs in bulk
+     * must agree with this definition.
+     *
+     * @param character character to check.
+     * @param quoted    true if the character is within a delimited string.
+     * @return true if the character is ordinary.
+     */
+    static boolean isOrdinary (final int character, final boolean quoted)
+    {
+        return character < 0x80 && (quoted ? QUOTED_ORDINARY : ORDINARY)[character];
+    }
 
-            this.current = value;
-        } else {
-            this.peeked = value;
+    private static boolean[] createOrdinaryTable (final boolean quoted)
+    {
+        final boolean[] ordinary = new boolean[0x80];
+
+        for (int character = 0; character < ordinary.length; ++character) {
+            ordinary[character] = quoted || !LSONTokenUtils.isWhitespace(character);
+        }
+
+        final int[] special = quoted
+                ? new int[] {ESCAPE_CHARACTER, QUOTATION_MARK, APOSTROPHE}
+                : new int[] {
+                        ESCAPE_CHARACTER, KEY_VALUE_SEPARATOR, GRAPH_UNDIRECTED_HYPHEN, GRAPH_LEFT_DIRECTED_LESS_THAN,
+                        GRAPH_RIGHT_DIRECTED_GREATER_THAN, LSON_ARRAY_CLOSER, LSON_OBJECT_CLOSER, QUOTATION_MARK,
+                        APOSTROPHE
+                };
+
+        for (final int character : special) {
+            ordinary[character] = false;
         }
+
+        return ordinary;
+    }
+
+    /**
+     * Moves the reader past characters that were consumed in bulk by a subclass, without reading them one by one.
+     *
+     * @param current last character consumed.
+     * @param line    line of the last character consumed.
+     * @param column  column of the last character consumed.
+     */
+    void skipped (final char current, final int line, final int column)
+    {
+        this.current = current;
+        this.line = line;
+        this.column = column;
+    }
+
+    boolean hasPeeked ()
+    {
+        return this.hasPeeked;
     }
 
     boolean isFinished ()
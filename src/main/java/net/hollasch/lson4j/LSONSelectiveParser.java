@@ -0,0 +1,585 @@
+/*
+ * Copyright (c) 2017 Connor Hollasch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.hollasch.lson4j;
+
+import net.hollasch.lson4j.LSONSelector.Step;
+import net.hollasch.lson4j.type.*;
+
+import java.io.IOException;
+import java.util.*;
+
+import static net.hollasch.lson4j.util.LSONTokenUtils.*;
+
+/**
+ * Parses only the values at the paths of a {@link LSONSelector}. Containers that paths lead into are read entry by
+ * entry as {@link LSONParser} would read them, following along with the steps of the paths, while every value that no
+ * path leads into is skipped over by following the token structure alone. Skipped values are never built, so no type
+ * adapters are run for them, and syntax errors within them are only reported as far as the token structure goes.
+ * <p>
+ * Values that a path ends on are read in full, along with anything nested in them. When an object has more than one
+ * entry for the same key, only values from the entry that {@link LSONParser} would keep are selected.
+ *
+ * @author Connor Hollasch
+ * @since Oct 18, 1:30 AM
+ */
+final class LSONSelectiveParser
+{
+    private final LSONParser parser;
+    private final LSONReader reader;
+    private final LSONSelector selector;
+
+    // Values selected so far in document order, along with the index of the path that selected each of them.
+    private int[] matchedPaths;
+    private LSONValue[] matchedValues;
+    private int matches;
+
+    LSONSelectiveParser (
+            final LSONReader reader,
+            final LSONTypeAdapterTable typeAdapters,
+            final LSONSelector selector)
+            throws IOException, LSONParseException
+    {
+        this.parser = new LSONParser(reader, typeAdapters);
+        this.reader = reader;
+        this.selector = selector;
+
+        this.matchedPaths = new int[16];
+        this.matchedValues = new LSONValue[16];
+    }
+
+    /**
+     * Parses the document, selecting the values at each path of the selector.
+     *
+     * @return the values selected by each path, in document order, keyed by path in the order they were compiled.
+     */
+    Map<String, List<LSONValue>> parse () throws IOException, LSONParseException
+    {
+        // Same as LSONParser#parse, only selecting from the value rather than reading it.
+        this.parser.removeWhitespace();
+
+        select(Collections.singletonList(this.selector.getRoot()), false);
+
+        this.parser.removeWhitespace(true);
+
+        if (!this.reader.isFinished()) {
+            throw new LSONParseException("Expected end of file", this.parser.getLocation());
+        }
+
+        final List<String> paths = this.selector.getPaths();
+        final List<List<LSONValue>> selected = new ArrayList<>(paths.size());
+
+        for (int i = 0; i < paths.size(); ++i) {
+            selected.add(new ArrayList<>());
+        }
+
+        for (int i = 0; i < this.matches; ++i) {
+            selected.get(this.matchedPaths[i]).add(this.matchedValues[i]);
+        }
+
+        final Map<String, List<LSONValue>> result = new LinkedHashMap<>();
+        for (int i = 0; i < paths.size(); ++i) {
+            result.put(paths.get(i), selected.get(i));
+        }
+
+        return result;
+    }
+
+    /**
+     * Selects from the value starting on the current character, ending on the first character after it as {@link
+     * LSONParser#readValue(boolean)} would.
+     *
+     * @param steps   steps reached by the paths leading up to the value.
+     * @param flatten true if the value is an element of an array.
+     */
+    private void select (final List<Step> steps, final boolean flatten) throws IOException, LSONParseException
+    {
+        boolean ends = false;
+        boolean keys = false;
+        boolean indices = false;
+
+        for (final Step step : steps) {
+            ends |= step.getPath() >= 0;
+            keys |= step.hasKeys();
+            indices |= step.hasIndices();
+        }
+
+        // Values that a path ends on are read in full, and any other paths through them are followed in the result.
+        if (ends) {
+            final LSONValue value = this.parser.readValue(flatten);
+
+            for (final Step step : steps) {
+                walk(value, step);
+            }
+
+            return;
+        }
+
+        final char current = this.reader.getCurrent();
+
+        if (current == LSON_OBJECT_OPENER && keys) {
+            selectObject(steps);
+            return;
+        }
+
+        if (current == LSON_ARRAY_OPENER && (keys || indices)) {
+            final char determinant = this.reader.peekNext();
+
+            if (determinant == LSON_TABLE_STARTER) {
+                this.reader.readNext();
+                selectTable(steps);
+                return;
+            }
+
+            if (determinant != LSON_GRAPH_STARTER && indices) {
+                // Arrays within arrays are flattened into a single element, which is simplest to select from once read.
+                if (flatten) {
+                    final LSONValue value = this.parser.readValue(true);
+
+                    for (final Step step : steps) {
+                        walk(value, step);
+                    }
+                } else {
+                    this.reader.readNext();
+                    selectArray(steps);
+                }
+
+                return;
+            }
+        }
+
+        this.reader.skipValue();
+    }
+
+    /**
+     * Selects from the entries of an object, starting on its opener and ending on the first character after its closer.
+     *
+     * @see LSONParser#readObject()
+     */
+    private void selectObject (final List<Step> steps) throws IOException, LSONParseException
+    {
+        this.reader.readNext();
+        this.parser.removeWhitespace();
+
+        if (this.reader.getCurrent() == LSON_OBJECT_CLOSER) {
+            this.reader.readNext();
+            return;
+        }
+
+        final int mark = this.matches;
+
+        // Entry that each key leading to a step was last seen in, along with the keys and first match of every entry,
+        // so that matches from entries overridden by a later entry can be dropped.
+        Map<String, Integer> latest = null;
+        boolean overridden = false;
+
+        final ArrayList<Collection<LSONString>> entryKeys = new ArrayList<>();
+        int[] entryMatches = new int[8];
+
+        final ArrayList<Step> next = new ArrayList<>();
+        int entry = 0;
+
+        char floating;
+        do {
+            final Collection<LSONString> keys = this.parser.readObjectKeys();
+            next.clear();
+
+            for (final LSONString key : keys) {
+                final String word = key.getWord();
+                boolean routed = false;
+
+                for (final Step step : steps) {
+                    final Step following = step.getKey(word);
+
+                    if (following != null) {
+                        next.add(following);
+                        routed = true;
+                    }
+                }
+
+                if (routed || (latest != null && latest.containsKey(word))) {
+                    if (latest == null) {
+                        latest = new HashMap<>();
+                    }
+
+                    overridden |= latest.put(word, entry) != null;
+                }
+            }
+
+            if (entry == entryMatches.length) {
+                entryMatches = Arrays.copyOf(entryMatches, entry * 2);
+            }
+
+            entryKeys.add(keys);
+            entryMatches[entry++] = this.matches;
+
+            final boolean present = !isNullValue(this.reader.getCurrent());
+            select(next, false);
+            this.parser.removeWhitespace();
+
+            floating = this.reader.getCurrent();
+
+            if (!present) {
+                throw new LSONParseException("Cannot create LSON object where a value is null",
+                        this.parser.getLocation());
+            }
+        } while (floating != LSON_OBJECT_CLOSER);
+
+        this.parser.expect(LSON_OBJECT_CLOSER, "Expected " + LSON_OBJECT_CLOSER + " for object terminator");
+        this.reader.readNext();
+
+        if (overridden) {
+            dropOverridden(steps, mark, latest, entryKeys, entryMatches);
+        }
+    }
+
+    private void dropOverridden (
+            final List<Step> steps,
+            final int mark,
+            final Map<String, Integer> latest,
+            final ArrayList<Collection<LSONString>> entryKeys,
+            final int[] entryMatches)
+    {
+        int kept = mark;
+
+        for (int entry = 0; entry < entryKeys.size(); ++entry) {
+            final int end = entry + 1 < entryKeys.size() ? entryMatches[entry + 1] : this.matches;
+
+            for (int match = entryMatches[entry]; match < end; ++match) {
+                final int path = this.matchedPaths[match];
+
+                if (isLatest(steps, latest, entryKeys.get(entry), entry, path)) {
+                    this.matchedPaths[kept] = path;
+                    this.matchedValues[kept++] = this.matchedValues[match];
+                }
+            }
+        }
+
+        Arrays.fill(this.matchedValues, kept, this.matches, null);
+        this.matches = kept;
+    }
+
+    private static boolean isLatest (
+            final List<Step> steps,
+            final Map<String, Integer> latest,
+            final Collection<LSONString> keys,
+            final int entry,
+            final int path)
+    {
+        for (final LSONString key : keys) {
+            final String word = key.getWord();
+
+            final Integer last = latest.get(word);
+            if (last == null || last != entry) {
+                continue;
+            }
+
+            for (final Step step : steps) {
+                final Step following = step.getKey(word);
+
+                if (following != null && following.isOnPath(path)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Selects from the elements of an array, starting on the first character after its opener and ending on the first
+     * character after its closer.
+     *
+     * @see LSONParser#readArray(boolean)
+     */
+    private void selectArray (final List<Step> steps) throws IOException, LSONParseException
+    {
+        this.parser.removeWhitespace();
+
+        if (this.reader.getCurrent() == LSON_ARRAY_CLOSER) {
+            this.reader.readNext();
+            return;
+        }
+
+        final ArrayList<Step> next = new ArrayList<>();
+        int index = 0;
+
+        do {
+            next.clear();
+            addIndexed(steps, index++, null, next);
+
+            select(next, true);
+            this.parser.removeWhitespace();
+        } while (!this.parser.isArrayEnd());
+
+        this.parser.expect(LSON_ARRAY_CLOSER, "Expected " + (char) LSON_ARRAY_CLOSER + " for array terminator.");
+        this.reader.readNext();
+    }
+
+    /**
+     * Selects from the rows of a table, starting on the hash tag table opener and ending on the first character after
+     * the table.
+     *
+     * @see LSONParser#readTable()
+     */
+    private void selectTable (final List<Step> steps) throws IOException, LSONParseException
+    {
+        final ArrayList<LSONWord> header = new ArrayList<>();
+        final boolean bracketed = this.parser.readTableHeader(header);
+        final String[] names = getNames(header);
+
+        // Columns selected by header name, for every row.
+        final List<List<Step>> columns = new ArrayList<>(names.length);
+        for (final String name : names) {
+            final ArrayList<Step> column = new ArrayList<>();
+
+            if (name != null) {
+                for (final Step step : steps) {
+                    final Step following = step.getKey(name);
+
+                    if (following != null) {
+                        column.add(following);
+                    }
+                }
+            }
+
+            columns.add(column);
+        }
+
+        final ArrayList<Step> rows = new ArrayList<>();
+        int row = 0;
+
+        do {
+            if (this.reader.getCurrent() == LSON_TABLE_STARTER && this.reader.peekNext() == LSON_ARRAY_CLOSER) {
+                this.reader.readNext();
+                this.reader.readNext();
+                return;
+            }
+
+            rows.clear();
+            addIndexed(steps, row++, null, rows);
+            selectTableRow(rows, columns, names, bracketed);
+        } while (!this.parser.isTableEnd());
+
+        this.parser.readTableCloser();
+    }
+
+    /**
+     * Selects from a single row of a table, starting on its first character and ending on the first character after it.
+     *
+     * @param steps   steps selecting the row.
+     * @param columns steps selecting each column, for every row.
+     * @param names   header names of the columns.
+     * @see LSONParser#readTableRow(int, boolean)
+     */
+    private void selectTableRow (
+            final List<Step> steps,
+            final List<List<Step>> columns,
+            final String[] names,
+            final boolean bracketed)
+            throws IOException, LSONParseException
+    {
+        for (final Step step : steps) {
+            // Rows that a path ends on are read in full.
+            if (step.getPath() >= 0) {
+                final ArrayList<LSONValue> row = this.parser.readTableRow(names.length, bracketed);
+
+                for (final Step rowStep : steps) {
+                    walkRow(row, names, rowStep);
+                }
+
+                for (int column = 0; column < row.size(); ++column) {
+                    for (final Step columnStep : columns.get(column)) {
+                        walk(row.get(column), columnStep);
+                    }
+                }
+
+                return;
+            }
+        }
+
+        if (bracketed) {
+            this.parser.expect(LSON_ARRAY_OPENER, "Expected " + LSON_ARRAY_OPENER + ", got "
+                    + this.reader.getCurrent());
+            this.reader.readNext();
+            this.parser.removeWhitespace();
+        }
+
+        final ArrayList<Step> next = new ArrayList<>();
+        for (int column = 0; column < names.length; ++column) {
+            next.clear();
+            next.addAll(columns.get(column));
+            addIndexed(steps, column, names[column], next);
+
+            this.parser.expectValue();
+            select(next, false);
+            this.parser.removeWhitespace();
+        }
+
+        if (bracketed) {
+            this.parser.expect(LSON_ARRAY_CLOSER, "Expected " + LSON_ARRAY_CLOSER + ", got "
+                    + this.reader.getCurrent());
+            this.reader.readNext();
+            this.parser.removeWhitespace();
+        }
+    }
+
+    /**
+     * Follows the paths through a value that has already been read, selecting the values they end on.
+     */
+    private void walk (final LSONValue value, final Step step)
+    {
+        if (value == null) {
+            return;
+        }
+
+        if (step.getPath() >= 0) {
+            match(step.getPath(), value);
+        }
+
+        if (value.isLSONObject() && step.hasKeys()) {
+            for (final Map.Entry<LSONString, LSONValue> entry : ((LSONObject<LSONValue>) value).entrySet()) {
+                final Step following = step.getKey(entry.getKey().getWord());
+
+                if (following != null) {
+                    walk(entry.getValue(), following);
+                }
+            }
+        } else if (value.isLSONArray() && step.hasIndices()) {
+            final LSONArray<LSONValue> array = value.toArray();
+
+            for (int index = 0; index < array.size(); ++index) {
+                walkIndexed(array.get(index), step, index, null);
+            }
+        } else if (value.isTable() && (step.hasKeys() || step.hasIndices())) {
+            final LSONTable table = value.toTable();
+            final String[] names = getNames(table.getHeader());
+            final ArrayList<LSONValue>[] rows = table.getRowData();
+
+            for (int index = 0; index < rows.length; ++index) {
+                final ArrayList<LSONValue> row = rows[index];
+
+                for (final Step rowStep : getIndexed(step, index, null)) {
+                    walkRow(row, names, rowStep);
+                }
+
+                for (int column = 0; column < row.size(); ++column) {
+                    final Step following = names[column] == null ? null : step.getKey(names[column]);
+
+                    if (following != null) {
+                        walk(row.get(column), following);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Follows the paths through a row of a table that has already been read, selecting cells by index or header name.
+     */
+    private void walkRow (final ArrayList<LSONValue> row, final String[] names, final Step step)
+    {
+        if (step.getPath() >= 0) {
+            match(step.getPath(), new LSONArray<>(row));
+        }
+
+        for (int column = 0; column < row.size(); ++column) {
+            walkIndexed(row.get(column), step, column, column < names.length ? names[column] : null);
+        }
+    }
+
+    private void walkIndexed (final LSONValue value, final Step step, final int index, final String name)
+    {
+        for (final Step following : getIndexed(step, index, name)) {
+            walk(value, following);
+        }
+    }
+
+    private static List<Step> getIndexed (final Step step, final int index, final String name)
+    {
+        if (!step.hasIndices() && (name == null || !step.hasKeys())) {
+            return Collections.emptyList();
+        }
+
+        final ArrayList<Step> following = new ArrayList<>(2);
+        addIndexed(Collections.singletonList(step), index, name, following);
+        return following;
+    }
+
+    /**
+     * Adds the steps following the given ones for an index, and for a key if the index is a table column.
+     */
+    private static void addIndexed (
+            final List<Step> steps,
+            final int index,
+            final String name,
+            final List<Step> following)
+    {
+        for (final Step step : steps) {
+            if (step.getAny() != null) {
+                following.add(step.getAny());
+            }
+
+            final Step indexed = step.getIndex(index);
+            if (indexed != null) {
+                following.add(indexed);
+            }
+
+            final Step keyed = name == null ? null : step.getKey(name);
+            if (keyed != null) {
+                following.add(keyed);
+            }
+        }
+    }
+
+    private static String[] getNames (final List<LSONWord> header)
+    {
+        final String[] names = new String[header.size()];
+
+        for (int i = 0; i < names.length; ++i) {
+            names[i] = header.get(i) == null ? null : header.get(i).getWord();
+        }
+
+        return names;
+    }
+
+    private void match (final int path, final LSONValue value)
+    {
+        if (this.matches == this.matchedPaths.length) {
+            this.matchedPaths = Arrays.copyOf(this.matchedPaths, this.matches * 2);
+            this.matchedValues = Arrays.copyOf(this.matchedValues, this.matches * 2);
+        }
+
+        this.matchedPaths[this.matches] = path;
+        this.matchedValues[this.matches++] = value;
+    }
+
+    /**
+     * @return true if {@link LSONParser#readValue(boolean)} reads a null value starting on the given character.
+     */
+    private static boolean isNullValue (final char current)
+    {
+        return isEndOfRead(current) || isLSONClosingReservedToken(current);
+    }
+}
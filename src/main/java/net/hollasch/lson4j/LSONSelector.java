@@ -0,0 +1,295 @@
+/*
+ * Copyright (c) 2017 Connor Hollasch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.hollasch.lson4j;
+
+import java.util.*;
+
+/**
+ * A compiled set of paths into LSON documents, used to parse only the values at those paths with {@link
+ * LSON#select(CharSequence, LSONSelector, net.hollasch.lson4j.type.provided.LSONTypeAdapters...)}. Paths are made of
+ * steps, each one either a key or an index:
+ * <ul>
+ * <li>{@code key} or {@code ."key"} selects the entry of an object by key, or the column of a table by header.</li>
+ * <li>{@code [n]} selects the element of an array, the row of a table or the cell of a table row by index.</li>
+ * <li>{@code [*]} selects every element of an array, every row of a table or every cell of a table row.</li>
+ * </ul>
+ * Steps are separated by periods, such as {@code servers[*].host} or {@code limits.maxConn}, and the empty path selects
+ * the whole document. Keys that contain periods or brackets can be quoted, with backslashes escaping quotation marks.
+ * Graphs cannot be selected into.
+ * <p>
+ * The paths are compiled into a tree of steps, shared by paths with a common prefix, so that each value in a document
+ * is only checked against the steps that may follow the path leading up to it.
+ *
+ * @author Connor Hollasch
+ * @since Oct 18, 1:30 AM
+ */
+public final class LSONSelector
+{
+    private final List<String> paths;
+    private final Step root;
+
+    private LSONSelector (final List<String> paths, final Step root)
+    {
+        this.paths = paths;
+        this.root = root;
+    }
+
+    /**
+     * Compiles the given paths into a selector. Duplicate paths are only selected once.
+     *
+     * @param paths paths to select.
+     * @return the compiled selector.
+     * @throws IllegalArgumentException if a path is malformed.
+     */
+    public static LSONSelector compile (final String... paths)
+    {
+        return compile(Arrays.asList(paths));
+    }
+
+    /**
+     * Compiles the given paths into a selector. Duplicate paths are only selected once.
+     *
+     * @param paths paths to select.
+     * @return the compiled selector.
+     * @throws IllegalArgumentException if a path is malformed.
+     */
+    public static LSONSelector compile (final Collection<String> paths)
+    {
+        final List<String> distinct = new ArrayList<>(new LinkedHashSet<>(paths));
+        final Step root = new Step();
+
+        for (int path = 0; path < distinct.size(); ++path) {
+            compile(root, distinct.get(path), path);
+        }
+
+        return new LSONSelector(Collections.unmodifiableList(distinct), root);
+    }
+
+    private static void compile (final Step root, final String path, final int id)
+    {
+        Step step = root;
+        step.paths.set(id);
+
+        int index = 0;
+        while (index < path.length()) {
+            final char current = path.charAt(index);
+
+            if (current == '[') {
+                final int closer = path.indexOf(']', index);
+
+                if (closer < 0) {
+                    throw new IllegalArgumentException("Unclosed index in path " + path);
+                }
+
+                step = step.index(parseIndex(path, path.substring(index + 1, closer)));
+                index = closer + 1;
+            } else {
+                // Keys directly follow the start of the path, and are separated from any previous step by a period.
+                if (index > 0) {
+                    if (current != '.') {
+                        throw new IllegalArgumentException("Expected . or [ at " + index + " in path " + path);
+                    }
+
+                    ++index;
+                }
+
+                final StringBuilder key = new StringBuilder();
+                index = parseKey(path, index, key);
+                step = step.key(key.toString());
+            }
+
+            step.paths.set(id);
+        }
+
+        step.path = id;
+    }
+
+    private static int parseIndex (final String path, final String index)
+    {
+        if (index.equals("*")) {
+            return Step.ANY;
+        }
+
+        try {
+            final int parsed = Integer.parseInt(index);
+
+            if (parsed >= 0) {
+                return parsed;
+            }
+        } catch (NumberFormatException ignored) {
+            // Reported below.
+        }
+
+        throw new IllegalArgumentException("Expected an index or * within brackets, got " + index + " in path " + path);
+    }
+
+    private static int parseKey (final String path, int index, final StringBuilder key)
+    {
+        if (index < path.length() && path.charAt(index) == '"') {
+            for (++index; index < path.length(); ++index) {
+                char current = path.charAt(index);
+
+                if (current == '"') {
+                    return index + 1;
+                }
+
+                if (current == '\\' && index + 1 < path.length()) {
+                    current = path.charAt(++index);
+                }
+
+                key.append(current);
+            }
+
+            throw new IllegalArgumentException("Unclosed quoted key in path " + path);
+        }
+
+        for (; index < path.length(); ++index) {
+            final char current = path.charAt(index);
+
+            if (current == '.' || current == '[') {
+                break;
+            }
+
+            if (current == ']' || current == '"') {
+                throw new IllegalArgumentException("Unexpected " + current + " at " + index + " in path " + path);
+            }
+
+            key.append(current);
+        }
+
+        if (key.length() == 0) {
+            throw new IllegalArgumentException("Expected a key at " + index + " in path " + path);
+        }
+
+        return index;
+    }
+
+    /**
+     * @return the number of distinct paths selected.
+     */
+    public int size ()
+    {
+        return this.paths.size();
+    }
+
+    /**
+     * @return the distinct paths selected, in the order they were compiled.
+     */
+    public List<String> getPaths ()
+    {
+        return this.paths;
+    }
+
+    Step getRoot ()
+    {
+        return this.root;
+    }
+
+    @Override
+    public String toString ()
+    {
+        return this.paths.toString();
+    }
+
+    /**
+     * A step of one or more paths, reached by the steps leading up to it.
+     */
+    static final class Step
+    {
+        static final int ANY = -1;
+
+        private final Map<String, Step> keys = new HashMap<>(2);
+        private final Map<Integer, Step> indices = new HashMap<>(2);
+        private Step any;
+
+        // Path ending on this step, or -1 if every path through it continues past it.
+        private int path = -1;
+
+        // Every path through this step.
+        private final BitSet paths = new BitSet();
+
+        private Step key (final String key)
+        {
+            return this.keys.computeIfAbsent(key, k -> new Step());
+        }
+
+        private Step index (final int index)
+        {
+            if (index == ANY) {
+                if (this.any == null) {
+                    this.any = new Step();
+                }
+
+                return this.any;
+            }
+
+            return this.indices.computeIfAbsent(index, i -> new Step());
+        }
+
+        /**
+         * @return the step following this one for the given key, or null if no path continues with it.
+         */
+        Step getKey (final String key)
+        {
+            return this.keys.isEmpty() ? null : this.keys.get(key);
+        }
+
+        /**
+         * @return the step following this one for the given index, or null if no path continues with it.
+         */
+        Step getIndex (final int index)
+        {
+            return this.indices.isEmpty() ? null : this.indices.get(index);
+        }
+
+        /**
+         * @return the step following this one for any index, or null if no path continues with it.
+         */
+        Step getAny ()
+        {
+            return this.any;
+        }
+
+        boolean hasKeys ()
+        {
+            return !this.keys.isEmpty();
+        }
+
+        boolean hasIndices ()
+        {
+            return !this.indices.isEmpty() || this.any != null;
+        }
+
+        int getPath ()
+        {
+            return this.path;
+        }
+
+        boolean isOnPath (final int path)
+        {
+            return this.paths.get(path);
+        }
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) 2017 Connor Hollasch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.hollasch.lson4j;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static net.hollasch.lson4j.util.LSONTokenUtils.*;
+
+/**
+ * First stage of indexed parsing. Blocks of UTF-8 input are classified eight bytes at a time using SWAR (SIMD within a
+ * register) arithmetic on longs, producing bitmaps of whitespace, newline and ordinary character positions (separately
+ * for plain words and delimited strings). The second stage, {@link LSONIndexedReader}, uses these bitmaps to jump over
+ * whole runs of whitespace and word or string contents with a few bit operations instead of inspecting every
+ * character.
+ * <p>
+ * Only ASCII bytes are ever classified as whitespace or ordinary, so every multi-byte character (including unicode
+ * whitespace and string delimiters) is left for the regular character by character path.
+ *
+ * @author Connor Hollasch
+ * @since Oct 17, 7:10 PM
+ */
+final class LSONStructuralIndex
+{
+    // Each block covers this many 64 byte words, small enough for the bitmaps to stay in the L1 cache.
+    private static final int BLOCK_WORDS = 256;
+    private static final int BLOCK_LENGTH = BLOCK_WORDS * Long.SIZE;
+
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+    private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+
+    // Gathers the high bit of every byte into the top byte, lowest byte first.
+    private static final long GATHER = 0x0102040810204080L;
+
+    // One bit per byte of the current block.
+    private final long[] whitespace;
+    private final long[] newlines;
+    private final long[] ordinary;
+    private final long[] quotedOrdinary;
+
+    // Buffer and bounds of the current block, blockEnd == blockStart when nothing has been indexed.
+    private ByteBuffer buffer;
+    private int fills;
+    private int blockStart;
+    private int blockEnd;
+
+    // Newlines found by the last skip, and the offset of the last one.
+    private int skippedNewlines;
+    private int lastNewline;
+
+    LSONStructuralIndex ()
+    {
+        this.whitespace = new long[BLOCK_WORDS];
+        this.newlines = new long[BLOCK_WORDS];
+        this.ordinary = new long[BLOCK_WORDS];
+        this.quotedOrdinary = new long[BLOCK_WORDS];
+    }
+
+    /**
+     * Finds the end of the run of ASCII whitespace starting at the given offset, recording the newlines within it.
+     *
+     * @param buffer buffer being read.
+     * @param fills  number of times the buffer has been refilled, used to detect a stale index.
+     * @param from   offset of the first byte of the run.
+     * @return offset of the first byte after the run, or the limit of the buffer.
+     */
+    int skipWhitespace (final ByteBuffer buffer, final int fills, final int from)
+    {
+        return skip(this.whitespace, buffer, fills, from);
+    }
+
+    /**
+     * Finds the end of the run of ordinary characters starting at the given offset, recording the newlines within it.
+     *
+     * @param buffer buffer being read.
+     * @param fills  number of times the buffer has been refilled, used to detect a stale index.
+     * @param from   offset of the first byte of the run.
+     * @param quoted true if the run is within a delimited string.
+     * @return offset of the first byte after the run, or the limit of the buffer.
+     * @see LSONReader#isOrdinary(int, boolean)
+     */
+    int skipOrdinary (final ByteBuffer buffer, final int fills, final int from, final boolean quoted)
+    {
+        return skip(quoted ? this.quotedOrdinary : this.ordinary, buffer, fills, from);
+    }
+
+    int getSkippedNewlines ()
+    {
+        return this.skippedNewlines;
+    }
+
+    int getLastNewline ()
+    {
+        return this.lastNewline;
+    }
+
+    private int skip (final long[] run, final ByteBuffer buffer, final int fills, final int from)
+    {
+        this.skippedNewlines = 0;
+        this.lastNewline = -1;
+
+        final int limit = buffer.limit();
+        int position = from;
+
+        while (position < limit) {
+            if (!isIndexed(buffer, fills, position)) {
+                index(buffer, fills, position);
+            }
+
+            final int offset = position - this.blockStart;
+            final int word = offset >>> 6;
+            final long fromMask = -1L << offset;
+
+            // Bits past the end of the block are clear, so they end the run as well.
+            final long stops = ~run[word] & fromMask;
+            final int wordStart = this.blockStart + (word << 6);
+
+            if (stops == 0) {
+                countNewlines(this.newlines[word] & fromMask, wordStart);
+                position = wordStart + Long.SIZE;
+                continue;
+            }
+
+            final int stop = Long.numberOfTrailingZeros(stops);
+            countNewlines(this.newlines[word] & fromMask & ((1L << stop) - 1), wordStart);
+
+            return Math.min(wordStart + stop, limit);
+        }
+
+        return limit;
+    }
+
+    private void countNewlines (final long bits, final int wordStart)
+    {
+        if (bits != 0) {
+            this.skippedNewlines += Long.bitCount(bits);
+            this.lastNewline = wordStart + (Long.SIZE - 1) - Long.numberOfLeadingZeros(bits);
+        }
+    }
+
+    private boolean isIndexed (final ByteBuffer buffer, final int fills, final int position)
+    {
+        return buffer == this.buffer && fills == this.fills && position >= this.blockStart && position < this.blockEnd;
+    }
+
+    private void index (final ByteBuffer buffer, final int fills, final int position)
+    {
+        this.buffer = buffer;
+        this.fills = fills;
+        this.blockStart = position;
+        this.blockEnd = (int) Math.min((long) position + BLOCK_LENGTH, buffer.limit());
+
+        // Longs are assembled lowest address first, so bit 8n + 7 always belongs to byte n.
+        final boolean swap = buffer.order() != ByteOrder.LITTLE_ENDIAN;
+
+        final int words = (this.blockEnd - this.blockStart + Long.SIZE - 1) >>> 6;
+
+        for (int word = 0; word < words; ++word) {
+            long whitespace = 0;
+            long newlines = 0;
+            long ordinary = 0;
+            long quotedOrdinary = 0;
+
+            final int wordStart = this.blockStart + (word << 6);
+
+            for (int lane = 0; lane < Long.BYTES; ++lane) {
+                final int laneStart = wordStart + (lane << 3);
+
+                final long bytes;
+                if (laneStart + Long.BYTES <= this.blockEnd) {
+                    final long loaded = buffer.getLong(laneStart);
+                    bytes = swap ? Long.reverseBytes(loaded) : loaded;
+                } else if (laneStart < this.blockEnd) {
+                    bytes = loadTail(buffer, laneStart, this.blockEnd);
+                } else {
+                    break;
+                }
+
+                // Comparisons work on the low seven bits of each byte, multi-byte characters are masked out at the end.
+                final long low = bytes & LOW_BITS;
+                final long ascii = ~bytes & HIGH_BITS & validLanes(laneStart, this.blockEnd);
+
+                // Tab through carriage return, comma and hyphen, and colon through less than are each contiguous, so
+                // they are tested as ranges.
+                final long spaces = range(low, TAB, CARRIAGE_RETURN) | equal(low, SPACE_CHARACTER);
+
+                final long quotedSpecial = equal(low, ESCAPE_CHARACTER)
+                        | equal(low, QUOTATION_MARK)
+                        | equal(low, APOSTROPHE);
+
+                final long special = spaces | quotedSpecial
+                        | range(low, COMMA, GRAPH_UNDIRECTED_HYPHEN)
+                        | range(low, KEY_VALUE_SEPARATOR, GRAPH_LEFT_DIRECTED_LESS_THAN)
+                        | equal(low, LSON_ARRAY_CLOSER)
+                        | equal(low, GRAPH_RIGHT_DIRECTED_GREATER_THAN)
+                        | equal(low, LSON_OBJECT_CLOSER);
+
+                final int shift = lane << 3;
+
+                whitespace |= gather((spaces | equal(low, COMMA) | equal(low, SEMICOLON)) & ascii) << shift;
+                newlines |= gather(equal(low, NEWLINE) & ascii) << shift;
+                ordinary |= gather(~special & ascii) << shift;
+                quotedOrdinary |= gather(~quotedSpecial & ascii) << shift;
+            }
+
+            this.whitespace[word] = whitespace;
+            this.newlines[word] = newlines;
+            this.ordinary[word] = ordinary;
+            this.quotedOrdinary[word] = quotedOrdinary;
+        }
+    }
+
+    private static long loadTail (final ByteBuffer buffer, final int start, final int end)
+    {
+        long bytes = 0;
+
+        for (int i = start; i < end; ++i) {
+            bytes |= (buffer.get(i) & 0xFFL) << ((i - start) << 3);
+        }
+
+        return bytes;
+    }
+
+    private static long validLanes (final int start, final int end)
+    {
+        final int valid = end - start;
+        return valid >= Long.BYTES ? HIGH_BITS : HIGH_BITS & ((1L << (valid << 3)) - 1);
+    }
+
+    /**
+     * @param low bytes with their high bits cleared.
+     * @return high bit set in every byte equal to the given ASCII character.
+     */
+    private static long equal (final long low, final int character)
+    {
+        return ~((low ^ (ONES * character)) + LOW_BITS) & HIGH_BITS;
+    }
+
+    /**
+     * @param low bytes with their high bits cleared.
+     * @return high bit set in every byte within the given inclusive range of ASCII characters.
+     */
+    private static long range (final long low, final int first, final int last)
+    {
+        return (low + ONES * (0x80 - first)) & ~(low + ONES * (0x7F - last)) & HIGH_BITS;
+    }
+
+    private static long gather (final long highBits)
+    {
+        return ((highBits >>> 7) * GATHER) >>> 56;
+    }
+}
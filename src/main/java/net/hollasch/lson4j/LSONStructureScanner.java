@@ -0,0 +1,463 @@
+/*
+ * Copyright (c) 2017 Connor Hollasch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.hollasch.lson4j;
+
+import net.hollasch.lson4j.util.LSONTokenUtils;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static net.hollasch.lson4j.util.LSONTokenUtils.*;
+
+/**
+ * Resumable scanner that follows the token structure of LSON one character at a time, without building any values.
+ * It reports where values begin and end at the depth it was started at, which is all that is needed to find value
+ * boundaries in input that arrives in pieces. All state lives in fields, so scanning can stop and resume at any
+ * character, including in the middle of strings, escape sequences and comments.
+ *
+ * @author Connor Hollasch
+ * @since Oct 17, 5:02 PM
+ */
+final class LSONStructureScanner
+{
+    //==================================================================================================================
+    // Scan results
+    //==================================================================================================================
+
+    static final int NONE = 0;
+
+    // The character begins a new value at the base depth.
+    static final int VALUE_START = 1;
+
+    // The character closes a container value at the base depth.
+    static final int VALUE_END = 2;
+
+    // The character closes the container enclosing the base depth.
+    static final int UNDERFLOW = 3;
+
+    //==================================================================================================================
+    // Token states
+    //==================================================================================================================
+
+    private static final int BOUNDARY = 0;
+    private static final int WORD = 1;
+    private static final int STRING = 2;
+    private static final int ESCAPE = 3;
+    private static final int ARRAY_OPENED = 4;
+    private static final int COMMENT_OPENED = 5;
+    private static final int LINE_COMMENT = 6;
+    private static final int BLOCK_COMMENT = 7;
+    private static final int BLOCK_COMMENT_CLOSING = 8;
+    private static final int GRAPH_CLOSING = 9;
+
+    //==================================================================================================================
+    // Object entry states
+    //==================================================================================================================
+
+    private static final int EXPECTING_KEY = 0;
+    private static final int EXPECTING_VALUE = 1;
+    private static final int VALUE_READ = 2;
+
+    //==================================================================================================================
+
+    private int state;
+
+    // Delimiter that opened the string being scanned.
+    private char stringOpener;
+
+    // Escapes resume the token they interrupted once all of their characters have been skipped.
+    private int escapeReturnState;
+    private int escapeRemaining;
+    private boolean escapeDeterminant;
+
+    // Whether the last token was a scalar that a concatenation operator could extend, and whether one just did.
+    private boolean concatenable;
+    private boolean concatenating;
+
+    // Per nesting level: whether the level is an object, and if so which part of an entry it is expecting next,
+    // whether the level is a graph, and whether the level is a table still reading its header.
+    private boolean[] objects;
+    private int[] entries;
+    private boolean[] graphs;
+    private boolean[] tableHeaders;
+    private int depth;
+
+    // Whether the table header being scanned has had a token yet, as only its first may be the bracket enclosing it.
+    // Headers never nest, so one flag does for all levels.
+    private boolean headerStarted;
+
+    LSONStructureScanner ()
+    {
+        this.objects = new boolean[16];
+        this.entries = new int[16];
+        this.graphs = new boolean[16];
+        this.tableHeaders = new boolean[16];
+    }
+
+    /**
+     * Scans the next character.
+     *
+     * @param character the next UTF-16 character of the input.
+     * @return one of {@link #NONE}, {@link #VALUE_START}, {@link #VALUE_END} or {@link #UNDERFLOW}.
+     */
+    int accept (final char character)
+    {
+        switch (this.state) {
+            case ESCAPE:
+                // Unicode escapes carry their hex digits along, everything else is a single character.
+                if (this.escapeDeterminant) {
+                    this.escapeDeterminant = false;
+
+                    // The parser checks escaped characters of plain words like any other, so escaped closers still
+                    // close and escaped key value separators still end keys.
+                    if (this.escapeReturnState == WORD) {
+                        if (LSONTokenUtils.isLSONClosingReservedToken(character)) {
+                            this.state = BOUNDARY;
+                            return close();
+                        }
+
+                        if (isKeySeparator(character)) {
+                            this.state = BOUNDARY;
+                            separateKey();
+                            return NONE;
+                        }
+                    }
+
+                    this.escapeRemaining = character == 'u' ? 4 : character == 'U' ? 6 : 0;
+                } else {
+                    --this.escapeRemaining;
+                }
+
+                if (this.escapeRemaining == 0) {
+                    this.state = this.escapeReturnState;
+                }
+
+                return NONE;
+
+            case STRING:
+                if (character == ESCAPE_CHARACTER) {
+                    beginEscape(STRING);
+                } else if (LSONTokenUtils.isClosingString(this.stringOpener, character)) {
+                    this.state = BOUNDARY;
+                    this.concatenable = true;
+                }
+
+                return NONE;
+
+            case WORD:
+                if (character == ESCAPE_CHARACTER) {
+                    beginEscape(WORD);
+                    return NONE;
+                }
+
+                // The vertex count of a graph is read as an integer, which ends right at the opener of the edges.
+                if (this.graphs[this.depth] && (character == LSON_ARRAY_OPENER || character == LSON_OBJECT_OPENER)) {
+                    this.state = BOUNDARY;
+                    return acceptAtBoundary(character);
+                }
+
+                if (LSONTokenUtils.isLSONClosingReservedToken(character)) {
+                    this.state = BOUNDARY;
+                    return close();
+                }
+
+                if (LSONTokenUtils.isWhitespace(character)) {
+                    this.state = BOUNDARY;
+                    this.concatenable = true;
+                } else if (isKeySeparator(character)) {
+                    // Unquoted keys and table header words end at the key value separator, values do not.
+                    this.state = BOUNDARY;
+                    separateKey();
+                }
+
+                return NONE;
+
+            case ARRAY_OPENED:
+                // Table and graph determinants belong to the array opener rather than starting a word.
+                this.state = BOUNDARY;
+
+                if (character == LSON_TABLE_STARTER || character == LSON_GRAPH_STARTER) {
+                    this.graphs[this.depth] = character == LSON_GRAPH_STARTER;
+                    this.tableHeaders[this.depth] = character == LSON_TABLE_STARTER;
+                    this.headerStarted = false;
+                    return NONE;
+                }
+
+                return acceptAtBoundary(character);
+
+            case GRAPH_CLOSING:
+                // The parser takes whatever follows the percentage sign of a graph closer as its closing bracket.
+                this.state = BOUNDARY;
+                return close();
+
+            case COMMENT_OPENED:
+                if (character == COMMENT_START) {
+                    this.state = LINE_COMMENT;
+                    return NONE;
+                } else if (character == COMMENT_BLOCK_DETERMINANT) {
+                    this.state = BLOCK_COMMENT;
+                    return NONE;
+                }
+
+                // Dangling comment start, which the parser rejects. Carry on as if it was not there.
+                this.state = BOUNDARY;
+                return acceptAtBoundary(character);
+
+            case LINE_COMMENT:
+                if (LSONTokenUtils.isNewline(character)) {
+                    this.state = BOUNDARY;
+                }
+
+                return NONE;
+
+            case BLOCK_COMMENT:
+                if (character == COMMENT_BLOCK_DETERMINANT) {
+                    this.state = BLOCK_COMMENT_CLOSING;
+                }
+
+                return NONE;
+
+            case BLOCK_COMMENT_CLOSING:
+                if (character == COMMENT_START) {
+                    this.state = BOUNDARY;
+                } else if (character != COMMENT_BLOCK_DETERMINANT) {
+                    this.state = BLOCK_COMMENT;
+                }
+
+                return NONE;
+
+            default:
+                return acceptAtBoundary(character);
+        }
+    }
+
+    /**
+     * Skips over the ASCII bytes that cannot change the state of the scan from the current one, such as the body of a
+     * word, string or comment, or a run of whitespace. Equivalent to accepting each of those bytes.
+     *
+     * @param buffer buffer holding UTF-8 input.
+     * @param index  index of the next byte to scan.
+     * @param limit  index to stop skipping at.
+     * @return index of the first byte that has to be accepted.
+     */
+    int skip (final ByteBuffer buffer, int index, final int limit)
+    {
+        switch (this.state) {
+            case WORD:
+                // Openers end graph vertex counts, so those are accepted one character at a time.
+                if (this.graphs[this.depth]) {
+                    break;
+                }
+
+                while (index < limit && LSONReader.isOrdinary(buffer.get(index) & 0xFF, false)) {
+                    ++index;
+                }
+                break;
+            case STRING:
+                while (index < limit && LSONReader.isOrdinary(buffer.get(index) & 0xFF, true)) {
+                    ++index;
+                }
+                break;
+            case BOUNDARY:
+                while (index < limit && buffer.get(index) >= 0 && LSONTokenUtils.isWhitespace(buffer.get(index))) {
+                    ++index;
+                }
+                break;
+            case LINE_COMMENT:
+                while (index < limit && buffer.get(index) >= 0 && !LSONTokenUtils.isNewline(buffer.get(index))) {
+                    ++index;
+                }
+                break;
+            case BLOCK_COMMENT:
+                while (index < limit && buffer.get(index) >= 0 && buffer.get(index) != COMMENT_BLOCK_DETERMINANT) {
+                    ++index;
+                }
+                break;
+            default:
+                break;
+        }
+
+        return index;
+    }
+
+    /**
+     * @return true if the input may end here, meaning no string, escape or block comment is left unfinished.
+     */
+    boolean isAtBoundary ()
+    {
+        return this.state == BOUNDARY || this.state == WORD || this.state == ARRAY_OPENED
+                || this.state == LINE_COMMENT;
+    }
+
+    int getDepth ()
+    {
+        return this.depth;
+    }
+
+    private int acceptAtBoundary (final char character)
+    {
+        if (LSONTokenUtils.isWhitespace(character)) {
+            return NONE;
+        }
+
+        if (character == COMMENT_START) {
+            this.state = COMMENT_OPENED;
+            return NONE;
+        }
+
+        if (character == LSON_GRAPH_STARTER && this.graphs[this.depth]) {
+            this.state = GRAPH_CLOSING;
+            return NONE;
+        }
+
+        if (character == STRING_CONCATENATION_OPERATOR && this.concatenable) {
+            this.concatenable = false;
+            this.concatenating = true;
+            return NONE;
+        }
+
+        if (isKeySeparator(character)) {
+            this.concatenable = false;
+            separateKey();
+            return NONE;
+        }
+
+        if (LSONTokenUtils.isLSONClosingReservedToken(character)) {
+            return close();
+        }
+
+        // Anything else begins a token. Concatenated tokens continue the value they are appended to.
+        final boolean continuing = this.concatenating;
+        this.concatenable = false;
+        this.concatenating = false;
+
+        if (!continuing && this.objects[this.depth]) {
+            // Objects alternate between keys and values, a token following a read value is the next key.
+            if (this.entries[this.depth] == VALUE_READ) {
+                this.entries[this.depth] = EXPECTING_KEY;
+            } else if (this.entries[this.depth] == EXPECTING_VALUE) {
+                this.entries[this.depth] = VALUE_READ;
+            }
+        }
+
+        final int result = continuing || this.depth != 0 ? NONE : VALUE_START;
+
+        // Table header words are read like keys, and may start with openers too, except for the bracket that can
+        // enclose the whole header. No table or graph determinant follows that bracket.
+        final boolean header = isInHeader();
+        final boolean headerBracket = header && !this.headerStarted && character == LSON_ARRAY_OPENER;
+        this.headerStarted |= header;
+
+        // Keys and concatenated tokens are read as words, where an object opener is just another character.
+        if (character == LSON_OBJECT_OPENER && !continuing && !isExpectingKey() && !header) {
+            open(true);
+        } else if (character == LSON_ARRAY_OPENER && !continuing && (!header || headerBracket)) {
+            open(false);
+            this.state = headerBracket ? BOUNDARY : ARRAY_OPENED;
+        } else if (LSONTokenUtils.isOpeningString(character)) {
+            this.state = STRING;
+            this.stringOpener = character;
+        } else if (character == ESCAPE_CHARACTER) {
+            beginEscape(WORD);
+        } else {
+            this.state = WORD;
+        }
+
+        return result;
+    }
+
+    private void open (final boolean object)
+    {
+        if (++this.depth == this.objects.length) {
+            this.objects = Arrays.copyOf(this.objects, this.depth * 2);
+            this.entries = Arrays.copyOf(this.entries, this.depth * 2);
+            this.graphs = Arrays.copyOf(this.graphs, this.depth * 2);
+            this.tableHeaders = Arrays.copyOf(this.tableHeaders, this.depth * 2);
+        }
+
+        this.objects[this.depth] = object;
+        this.entries[this.depth] = EXPECTING_KEY;
+        this.graphs[this.depth] = false;
+        this.tableHeaders[this.depth] = false;
+    }
+
+    private int close ()
+    {
+        this.concatenable = false;
+        this.concatenating = false;
+
+        if (this.depth == 0) {
+            return UNDERFLOW;
+        }
+
+        --this.depth;
+
+        // A container closed while an object was expecting a value was that value. Closing while expecting a key
+        // ends a multi-key array, which still needs its key value separator.
+        if (this.objects[this.depth] && this.entries[this.depth] == EXPECTING_VALUE) {
+            this.entries[this.depth] = VALUE_READ;
+        }
+
+        return this.depth == 0 ? VALUE_END : NONE;
+    }
+
+    /**
+     * @return true if the level is a table header, or the bracket enclosing one.
+     */
+    private boolean isInHeader ()
+    {
+        return this.tableHeaders[this.depth] || (this.depth > 0 && this.tableHeaders[this.depth - 1]);
+    }
+
+    private boolean isExpectingKey ()
+    {
+        return this.objects[this.depth] && this.entries[this.depth] == EXPECTING_KEY;
+    }
+
+    /**
+     * @return true if the character separates an object key from its value, or ends the header of a table. The parser
+     *         reads both keys and table header words as keys, so either ends at the separator.
+     */
+    private boolean isKeySeparator (final char character)
+    {
+        return character == KEY_VALUE_SEPARATOR && (isExpectingKey() || this.tableHeaders[this.depth]);
+    }
+
+    private void separateKey ()
+    {
+        if (this.tableHeaders[this.depth]) {
+            // The rows of the table follow, which are values like any other.
+            this.tableHeaders[this.depth] = false;
+        } else {
+            this.entries[this.depth] = EXPECTING_VALUE;
+        }
+    }
+
+    private void beginEscape (final int returnState)
+    {
+        this.state = ESCAPE;
+        this.escapeReturnState = returnState;
+        this.escapeDeterminant = true;
+    }
+}
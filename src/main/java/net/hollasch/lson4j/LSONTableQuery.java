@@ -0,0 +1,1211 @@
+/*
+ * Copyright (c) 2017 Connor Hollasch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.hollasch.lson4j;
+
+import net.hollasch.lson4j.type.*;
+import net.hollasch.lson4j.util.LSONLongIntMap;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.DoublePredicate;
+import java.util.function.Predicate;
+
+/**
+ * Query over the columns of a table, run as scans over the primitive storage of each {@link LSONColumn} rather than
+ * over the values of each row. A query keeps a selection of row indices, which filters narrow down one column at a
+ * time, and is then either read as a table of the selected rows or aggregated, optionally per group of rows sharing
+ * the values of some key columns.
+ * <p>
+ * The steps of a query are applied in a fixed order regardless of the order they were given in: filters, sorting,
+ * the limit, and then grouping or projection. Filtering and aggregation can be split across the threads of a
+ * {@link ForkJoinPool}, in which case predicates must be safe to call from several threads at once. Sums of parallel
+ * queries are added up per chunk of rows, so they may differ from sequential ones in the last bits.
+ * <p>
+ * Queries are built up in place and must not be used by more than one thread at a time.
+ * <p>
+ * Columns without any cells, as those of empty tables, have no type of their own to contradict any operator, so they
+ * are accepted by the operators of every type.
+ *
+ * <pre>
+ * LSONTable top = LSONTableQuery.from(sales)
+ *         .filterString("region", region -&gt; region.startsWith("EU"))
+ *         .groupBy("product")
+ *         .aggregate(Aggregate.count(), Aggregate.sum("price").as("revenue"));
+ * </pre>
+ *
+ * @author Connor Hollasch
+ * @since Oct 18, 3:35 AM
+ */
+public final class LSONTableQuery
+{
+    // Selections are only split across the pool in chunks of at least this many rows, as smaller scans would not make
+    // up for the cost of forking.
+    static final int PARALLEL_CHUNK_LENGTH = 1 << 16;
+
+    // Chunks of a parallel scan per thread of the pool, to even out chunks that take longer than others.
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final LSONColumnTable table;
+
+    private final ArrayList<Filter> filters;
+    private final ArrayList<SortKey> sortKeys;
+
+    private int limit;
+    private int[] projection;
+    private int[] groupKeys;
+
+    // Pool to split scans across, null for sequential queries.
+    private ForkJoinPool pool;
+
+    private LSONTableQuery (final LSONColumnTable table)
+    {
+        this.table = table;
+
+        this.filters = new ArrayList<>();
+        this.sortKeys = new ArrayList<>();
+
+        this.limit = -1;
+    }
+
+    /**
+     * @param table table to query, converted to a column table first unless it is one already.
+     * @return a query selecting every row of the table.
+     * @throws IllegalArgumentException if a row of the table does not have a value for every column.
+     */
+    public static LSONTableQuery from (final LSONTable table)
+    {
+        return new LSONTableQuery(LSONColumnTable.of(table));
+    }
+
+    //==================================================================================================================
+    // Filters
+    //==================================================================================================================
+
+    /**
+     * Keeps the rows whose number in the given column matches the predicate.
+     *
+     * @throws IllegalArgumentException if there is no such column, or it is not a column of numbers.
+     */
+    public LSONTableQuery filterNumber (final String column, final DoublePredicate predicate)
+    {
+        final LSONColumn numbers = getNumberColumn(column);
+
+        if (numbers.getType() == LSONColumn.Type.LONG) {
+            final long[] longs = numbers.getLongs();
+
+            return addFilter((rows, from, to) -> {
+                int kept = from;
+                for (int i = from; i < to; ++i) {
+                    if (predicate.test(longs[rows[i]])) {
+                        rows[kept++] = rows[i];
+                    }
+                }
+
+                return kept;
+            });
+        }
+
+        final double[] doubles = numbers.getDoubles();
+
+        return addFilter((rows, from, to) -> {
+            int kept = from;
+            for (int i = from; i < to; ++i) {
+                if (predicate.test(doubles[rows[i]])) {
+                    rows[kept++] = rows[i];
+                }
+            }
+
+            return kept;
+        });
+    }
+
+    /**
+     * Keeps the rows whose string in the given column matches the predicate. The predicate is only tested once for
+     * each distinct string of the column.
+     *
+     * @throws IllegalArgumentException if there is no such column, or it is not a column of strings.
+     */
+    public LSONTableQuery filterString (final String column, final Predicate<String> predicate)
+    {
+        final LSONColumn strings = getColumn(column, LSONColumn.Type.STRING);
+        final LSONString[] dictionary = strings.getDictionary();
+        final int[] codes = strings.getCodes();
+
+        final boolean[] matches = new boolean[dictionary.length];
+        for (int code = 0; code < dictionary.length; ++code) {
+            matches[code] = predicate.test(dictionary[code].getWord());
+        }
+
+        return addFilter((rows, from, to) -> {
+            int kept = from;
+            for (int i = from; i < to; ++i) {
+                if (matches[codes[rows[i]]]) {
+                    rows[kept++] = rows[i];
+                }
+            }
+
+            return kept;
+        });
+    }
+
+    /**
+     * Keeps the rows whose boolean in the given column is the given value.
+     *
+     * @throws IllegalArgumentException if there is no such column, or it is not a column of booleans.
+     */
+    public LSONTableQuery filterBoolean (final String column, final boolean value)
+    {
+        final BitSet booleans = getColumn(column, LSONColumn.Type.BOOLEAN).getBooleans();
+
+        return addFilter((rows, from, to) -> {
+            int kept = from;
+            for (int i = from; i < to; ++i) {
+                if (booleans.get(rows[i]) == value) {
+                    rows[kept++] = rows[i];
+                }
+            }
+
+            return kept;
+        });
+    }
+
+    /**
+     * Keeps the rows whose value in the given column matches the predicate. This works on columns of any type, but
+     * creates the value of every row tested for boolean and number columns.
+     *
+     * @throws IllegalArgumentException if there is no such column.
+     */
+    public LSONTableQuery filter (final String column, final Predicate<? super LSONValue> predicate)
+    {
+        final LSONColumn cells = this.table.getLSONColumn(getColumnIndex(column));
+
+        return addFilter((rows, from, to) -> {
+            int kept = from;
+            for (int i = from; i < to; ++i) {
+                if (predicate.test(cells.get(rows[i]))) {
+                    rows[kept++] = rows[i];
+                }
+            }
+
+            return kept;
+        });
+    }
+
+    private LSONTableQuery addFilter (final Filter filter)
+    {
+        this.filters.add(filter);
+        return this;
+    }
+
+    //==================================================================================================================
+    // Shaping
+    //==================================================================================================================
+
+    /**
+     * Sorts the selected rows by the given column, in ascending order. Sorting by several columns sorts by the first
+     * column given, then by the next one among equal rows and so on. Rows that remain equal keep the order they have
+     * in the table.
+     * <p>
+     * Strings sort by {@link String#compareTo}, numbers by {@link Double#compare} and false before true.
+     *
+     * @throws IllegalArgumentException if there is no such column, or it holds values of mixed or complex types.
+     */
+    public LSONTableQuery sortBy (final String column)
+    {
+        return addSortKey(column, false);
+    }
+
+    /**
+     * Sorts the selected rows by the given column, in descending order.
+     *
+     * @see #sortBy(String)
+     */
+    public LSONTableQuery sortByDescending (final String column)
+    {
+        return addSortKey(column, true);
+    }
+
+    private LSONTableQuery addSortKey (final String column, final boolean descending)
+    {
+        final int index = getColumnIndex(column);
+
+        final LSONColumn cells = this.table.getLSONColumn(index);
+
+        if (cells.getType() == LSONColumn.Type.VALUE && cells.size() > 0) {
+            throw new IllegalArgumentException("Cannot sort by column " + column + " of mixed or complex values");
+        }
+
+        this.sortKeys.add(new SortKey(index, descending));
+        return this;
+    }
+
+    /**
+     * Keeps only the first rows of the selection, after sorting. Sorted queries with a limit only keep track of the
+     * rows that could end up in the result, rather than sorting the whole selection.
+     *
+     * @param limit maximum number of rows to select.
+     * @throws IllegalArgumentException if the limit is negative.
+     */
+    public LSONTableQuery limit (final int limit)
+    {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Negative limit " + limit);
+        }
+
+        this.limit = limit;
+        return this;
+    }
+
+    /**
+     * Sets the columns {@link #toTable()} is made of, in order. All columns are kept by default.
+     *
+     * @throws IllegalArgumentException if there is no column of any of the given names.
+     */
+    public LSONTableQuery select (final String... columns)
+    {
+        this.projection = getColumnIndices(columns);
+        return this;
+    }
+
+    /**
+     * Groups the selected rows by the values of the given columns, to be read by {@link #aggregate(Aggregate...)}.
+     * Groups are ordered by their first row in the selection, so grouping a sorted query keeps the groups in sorted
+     * order.
+     *
+     * @throws IllegalArgumentException if there is no column of any of the given names.
+     */
+    public LSONTableQuery groupBy (final String... columns)
+    {
+        this.groupKeys = getColumnIndices(columns);
+        return this;
+    }
+
+    /**
+     * Splits filtering and aggregation across the threads of the common pool.
+     */
+    public LSONTableQuery parallel ()
+    {
+        return parallel(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Splits filtering and aggregation across the threads of the given pool.
+     */
+    public LSONTableQuery parallel (final ForkJoinPool pool)
+    {
+        this.pool = pool;
+        return this;
+    }
+
+    //==================================================================================================================
+    // Results
+    //==================================================================================================================
+
+    /**
+     * @return the indices of the selected rows in the table, in order.
+     */
+    public int[] getRows ()
+    {
+        return selectRows(true);
+    }
+
+    /**
+     * @return a table of the selected rows in order, made of the selected columns.
+     * @throws IllegalStateException if the query is grouped.
+     */
+    public LSONColumnTable toTable ()
+    {
+        if (this.groupKeys != null) {
+            throw new IllegalStateException("Grouped queries can only be aggregated");
+        }
+
+        final int[] rows = selectRows(true);
+        final int[] columns = this.projection != null ? this.projection : getColumnIndices(null);
+
+        final ArrayList<String> names = new ArrayList<>(columns.length);
+        final ArrayList<LSONColumn> gathered = new ArrayList<>(columns.length);
+
+        for (final int column : columns) {
+            names.add(getColumnName(column));
+            gathered.add(this.table.getLSONColumn(column).gather(rows));
+        }
+
+        return new LSONColumnTable(names, gathered);
+    }
+
+    /**
+     * @return the number of selected rows.
+     */
+    public int count ()
+    {
+        return selectRows(false).length;
+    }
+
+    /**
+     * @return the sum of the numbers of the given column over all selected rows, ignoring any grouping.
+     * @throws IllegalArgumentException if there is no such column, or it is not a column of numbers.
+     */
+    public double sum (final String column)
+    {
+        return aggregateSelection(Aggregate.sum(column));
+    }
+
+    /**
+     * @return the least number of the given column over all selected rows, or NaN if none are selected.
+     * @throws IllegalArgumentException if there is no such column, or it is not a column of numbers.
+     */
+    public double min (final String column)
+    {
+        return aggregateSelection(Aggregate.min(column));
+    }
+
+    /**
+     * @return the greatest number of the given column over all selected rows, or NaN if none are selected.
+     * @throws IllegalArgumentException if there is no such column, or it is not a column of numbers.
+     */
+    public double max (final String column)
+    {
+        return aggregateSelection(Aggregate.max(column));
+    }
+
+    /**
+     * @return the mean of the numbers of the given column over all selected rows, or NaN if none are selected.
+     * @throws IllegalArgumentException if there is no such column, or it is not a column of numbers.
+     */
+    public double avg (final String column)
+    {
+        return aggregateSelection(Aggregate.avg(column));
+    }
+
+    /**
+     * Aggregates the selected rows per group, or all of them at once if the query is not grouped.
+     *
+     * @param aggregates aggregates to compute.
+     * @return a table of the key columns followed by a number column for each aggregate, with a row for each group.
+     *         Ungrouped queries result in a single row, even if no rows are selected.
+     * @throws IllegalArgumentException if there is no column of the name an aggregate refers to, or it is not a
+     *                                  column of numbers.
+     */
+    public LSONColumnTable aggregate (final Aggregate... aggregates)
+    {
+        final LSONColumn[] inputs = getAggregateInputs(aggregates);
+        final int[] rows = selectRows(this.groupKeys != null);
+        final int[] keys = this.groupKeys != null ? this.groupKeys : new int[0];
+
+        final Groups groups = createGroups(rows, keys);
+        final double[][] results = accumulate(rows, groups, aggregates, inputs);
+
+        final ArrayList<String> names = new ArrayList<>(keys.length + aggregates.length);
+        final ArrayList<LSONColumn> columns = new ArrayList<>(keys.length + aggregates.length);
+
+        for (final int key : keys) {
+            names.add(getColumnName(key));
+            columns.add(this.table.getLSONColumn(key).gather(groups.firstRows));
+        }
+
+        for (int a = 0; a < aggregates.length; ++a) {
+            names.add(aggregates[a].getName());
+            columns.add(LSONColumn.ofDoubles(results[a], false));
+        }
+
+        return new LSONColumnTable(names, columns);
+    }
+
+    private double aggregateSelection (final Aggregate aggregate)
+    {
+        final Aggregate[] aggregates = {aggregate};
+        final LSONColumn[] inputs = getAggregateInputs(aggregates);
+        final int[] rows = selectRows(false);
+
+        return accumulate(rows, createGroups(rows, new int[0]), aggregates, inputs)[0][0];
+    }
+
+    //==================================================================================================================
+    // Selection
+    //==================================================================================================================
+
+    /**
+     * @param ordered true if the rows are needed in sorted order, rather than only the set of them.
+     * @return the selected rows.
+     */
+    private int[] selectRows (final boolean ordered)
+    {
+        final int rowCount = this.table.getRowCount();
+        final int[] rows = new int[rowCount];
+        for (int i = 0; i < rowCount; ++i) {
+            rows[i] = i;
+        }
+
+        int count = rowCount;
+
+        if (!this.filters.isEmpty()) {
+            // Each chunk narrows down its own range of the rows in place, running every filter over the rows the
+            // previous one kept, after which the ranges are moved together.
+            final List<int[]> ranges = forEachChunk(rowCount, (from, to) -> {
+                int end = to;
+                for (final Filter filter : this.filters) {
+                    end = filter.apply(rows, from, end);
+                }
+
+                return new int[] {from, end};
+            });
+
+            count = 0;
+            for (final int[] range : ranges) {
+                System.arraycopy(rows, range[0], rows, count, range[1] - range[0]);
+                count += range[1] - range[0];
+            }
+        }
+
+        final boolean limited = this.limit >= 0 && this.limit < count;
+
+        if (!this.sortKeys.isEmpty() && (ordered || limited)) {
+            final RowOrder order = createOrder();
+
+            if (limited) {
+                return selectFirst(rows, count, this.limit, order);
+            }
+
+            sort(rows, count, order);
+        }
+
+        return Arrays.copyOf(rows, limited ? this.limit : count);
+    }
+
+    private RowOrder createOrder ()
+    {
+        final RowOrder[] orders = new RowOrder[this.sortKeys.size()];
+
+        for (int k = 0; k < orders.length; ++k) {
+            final SortKey key = this.sortKeys.get(k);
+            final RowOrder order = createOrder(this.table.getLSONColumn(key.column));
+
+            orders[k] = key.descending ? (a, b) -> order.compare(b, a) : order;
+        }
+
+        // Ties are broken by the position in the table, so the order of the selection never depends on the sort.
+        return (a, b) -> {
+            for (final RowOrder order : orders) {
+                final int result = order.compare(a, b);
+                if (result != 0) {
+                    return result;
+                }
+            }
+
+            return Integer.compare(a, b);
+        };
+    }
+
+    private static RowOrder createOrder (final LSONColumn column)
+    {
+        if (column.size() == 0) {
+            // There are no rows to compare.
+            return (a, b) -> 0;
+        }
+
+        switch (column.getType()) {
+            case BOOLEAN: {
+                final BitSet booleans = column.getBooleans();
+                return (a, b) -> Boolean.compare(booleans.get(a), booleans.get(b));
+            }
+            case LONG: {
+                final long[] longs = column.getLongs();
+                return (a, b) -> Long.compare(longs[a], longs[b]);
+            }
+            case DOUBLE: {
+                final double[] doubles = column.getDoubles();
+                return (a, b) -> Double.compare(doubles[a], doubles[b]);
+            }
+            case STRING: {
+                // Strings are compared once per pair of distinct strings to rank the dictionary, after which rows
+                // compare by rank.
+                final int[] ranks = rankDictionary(column.getDictionary());
+                final int[] codes = column.getCodes();
+                return (a, b) -> Integer.compare(ranks[codes[a]], ranks[codes[b]]);
+            }
+            default:
+                throw new IllegalArgumentException("Cannot sort a column of type " + column.getType());
+        }
+    }
+
+    private static int[] rankDictionary (final LSONString[] dictionary)
+    {
+        final Integer[] sorted = new Integer[dictionary.length];
+        for (int i = 0; i < sorted.length; ++i) {
+            sorted[i] = i;
+        }
+
+        Arrays.sort(sorted, (a, b) -> dictionary[a].getWord().compareTo(dictionary[b].getWord()));
+
+        final int[] ranks = new int[dictionary.length];
+        for (int i = 1; i < sorted.length; ++i) {
+            final boolean equal = dictionary[sorted[i]].getWord().equals(dictionary[sorted[i - 1]].getWord());
+            ranks[sorted[i]] = equal ? ranks[sorted[i - 1]] : i;
+        }
+
+        return ranks;
+    }
+
+    /**
+     * Sorts the first rows of the given array with a merge sort, as there is no sort of int arrays by comparator.
+     */
+    private static void sort (final int[] rows, final int count, final RowOrder order)
+    {
+        final int[] scratch = Arrays.copyOf(rows, count);
+        mergeSort(scratch, rows, 0, count, order);
+    }
+
+    /**
+     * Sorts the range of the source into the same range of the target, where both hold the same rows to begin with.
+     */
+    private static void mergeSort (
+            final int[] source,
+            final int[] target,
+            final int from,
+            final int to,
+            final RowOrder order)
+    {
+        if (to - from < 16) {
+            for (int i = from + 1; i < to; ++i) {
+                final int row = target[i];
+
+                int j = i;
+                for (; j > from && order.compare(target[j - 1], row) > 0; --j) {
+                    target[j] = target[j - 1];
+                }
+
+                target[j] = row;
+            }
+
+            return;
+        }
+
+        // Halves are sorted into the source and merged back into the target.
+        final int middle = (from + to) >>> 1;
+        mergeSort(target, source, from, middle, order);
+        mergeSort(target, source, middle, to, order);
+
+        if (order.compare(source[middle - 1], source[middle]) <= 0) {
+            System.arraycopy(source, from, target, from, to - from);
+            return;
+        }
+
+        for (int i = from, left = from, right = middle; i < to; ++i) {
+            if (right >= to || (left < middle && order.compare(source[left], source[right]) <= 0)) {
+                target[i] = source[left++];
+            } else {
+                target[i] = source[right++];
+            }
+        }
+    }
+
+    /**
+     * Selects the first rows in sorted order, keeping the rows selected so far in a heap with the last of them on top.
+     *
+     * @return the first limit rows of the given ones, in sorted order.
+     */
+    private static int[] selectFirst (final int[] rows, final int count, final int limit, final RowOrder order)
+    {
+        final int[] heap = new int[limit];
+
+        int size = 0;
+        for (int i = 0; i < count; ++i) {
+            final int row = rows[i];
+
+            if (size < limit) {
+                // Sift up.
+                int child = size++;
+                while (child > 0) {
+                    final int parent = (child - 1) >>> 1;
+                    if (order.compare(heap[parent], row) >= 0) {
+                        break;
+                    }
+
+                    heap[child] = heap[parent];
+                    child = parent;
+                }
+
+                heap[child] = row;
+            } else if (limit > 0 && order.compare(row, heap[0]) < 0) {
+                siftDown(heap, row, limit, order);
+            }
+        }
+
+        sort(heap, limit, order);
+        return heap;
+    }
+
+    private static void siftDown (final int[] heap, final int row, final int size, final RowOrder order)
+    {
+        int parent = 0;
+        while (true) {
+            int child = 2 * parent + 1;
+            if (child >= size) {
+                break;
+            }
+
+            if (child + 1 < size && order.compare(heap[child + 1], heap[child]) > 0) {
+                ++child;
+            }
+
+            if (order.compare(heap[child], row) <= 0) {
+                break;
+            }
+
+            heap[parent] = heap[child];
+            parent = child;
+        }
+
+        heap[parent] = row;
+    }
+
+    //==================================================================================================================
+    // Grouping
+    //==================================================================================================================
+
+    /**
+     * Numbers the group of each selected row, with groups numbered in the order of their first row. Groups are formed
+     * one key column at a time, combining the group of each row so far with its value in the next key column.
+     */
+    private Groups createGroups (final int[] rows, final int[] keys)
+    {
+        if (keys.length == 0) {
+            // A single group of all rows, which exists even when no rows are selected.
+            return new Groups(null, 1, new int[0]);
+        }
+
+        int[] groupOf = null;
+        int groupCount = 0;
+
+        for (final int key : keys) {
+            final LSONColumn column = this.table.getLSONColumn(key);
+            final LSONColumn.Type type = column.getType();
+
+            // Strings and booleans already map to small numbers, anything else is numbered in order of appearance
+            // before it is combined with the group so far.
+            final boolean small = type == LSONColumn.Type.STRING || type == LSONColumn.Type.BOOLEAN;
+            final LSONLongIntMap values = new LSONLongIntMap();
+            final Map<LSONValue, Integer> cells = type == LSONColumn.Type.VALUE ? new HashMap<>() : null;
+
+            final LSONLongIntMap groups = new LSONLongIntMap();
+            final int[] next = new int[rows.length];
+
+            final BitSet booleans = type == LSONColumn.Type.BOOLEAN ? column.getBooleans() : null;
+            final long[] longs = type == LSONColumn.Type.LONG ? column.getLongs() : null;
+            final double[] doubles = type == LSONColumn.Type.DOUBLE ? column.getDoubles() : null;
+            final int[] codes = type == LSONColumn.Type.STRING ? column.getCodes() : null;
+            final LSONValue[] objects = cells != null ? column.getValues() : null;
+
+            for (int i = 0; i < rows.length; ++i) {
+                final int row = rows[i];
+
+                long value;
+                if (booleans != null) {
+                    value = booleans.get(row) ? 1 : 0;
+                } else if (longs != null) {
+                    value = longs[row];
+                } else if (doubles != null) {
+                    value = Double.doubleToLongBits(doubles[row]);
+                } else if (codes != null) {
+                    value = codes[row];
+                } else {
+                    value = cells.computeIfAbsent(objects[row], cell -> cells.size());
+                }
+
+                if (groupOf != null) {
+                    final long ordinal = small || cells != null ? value : intern(values, value);
+                    value = ((long) groupOf[i] << 32) | ordinal;
+                }
+
+                next[i] = intern(groups, value);
+            }
+
+            groupOf = next;
+            groupCount = groups.size();
+        }
+
+        final int[] firstRows = new int[groupCount];
+        for (int i = rows.length - 1; i >= 0; --i) {
+            firstRows[groupOf[i]] = rows[i];
+        }
+
+        return new Groups(groupOf, groupCount, firstRows);
+    }
+
+    /**
+     * @return the number of keys added to the map before the given key was first added.
+     */
+    private static int intern (final LSONLongIntMap map, final long key)
+    {
+        final int order = map.putIfAbsent(key, map.size());
+        return order >= 0 ? order : map.size() - 1;
+    }
+
+    private LSONColumn[] getAggregateInputs (final Aggregate[] aggregates)
+    {
+        final LSONColumn[] inputs = new LSONColumn[aggregates.length];
+
+        for (int a = 0; a < aggregates.length; ++a) {
+            if (aggregates[a].function != Aggregate.Function.COUNT) {
+                inputs[a] = getNumberColumn(aggregates[a].column);
+            }
+        }
+
+        return inputs;
+    }
+
+    /**
+     * @return the result of each aggregate for each group.
+     */
+    private double[][] accumulate (
+            final int[] rows,
+            final Groups groups,
+            final Aggregate[] aggregates,
+            final LSONColumn[] inputs)
+    {
+        final double[][] results = new double[aggregates.length][];
+
+        for (int a = 0; a < aggregates.length; ++a) {
+            final Aggregate.Function function = aggregates[a].function;
+            final LSONColumn input = inputs[a];
+
+            final Chunk<Accumulator> chunk = (from, to) -> {
+                final Accumulator accumulator = new Accumulator(function, groups.count);
+                accumulator.add(input, rows, groups.groupOf, from, to);
+                return accumulator;
+            };
+
+            // Many groups would need as many partial results in each chunk, so those are accumulated sequentially.
+            final List<Accumulator> partials = groups.count <= PARALLEL_CHUNK_LENGTH
+                    ? forEachChunk(rows.length, chunk)
+                    : Collections.singletonList(chunk.apply(0, rows.length));
+
+            final Accumulator total = partials.get(0);
+            for (int p = 1; p < partials.size(); ++p) {
+                total.merge(partials.get(p));
+            }
+
+            results[a] = total.getResults();
+        }
+
+        return results;
+    }
+
+    //==================================================================================================================
+    // Chunks
+    //==================================================================================================================
+
+    /**
+     * Runs the given chunk function over consecutive chunks of the range [0, length), split across the pool if the
+     * query is parallel and the range is long enough.
+     *
+     * @return the result of each chunk, in order.
+     */
+    private <T> List<T> forEachChunk (final int length, final Chunk<T> chunk)
+    {
+        final int chunks = this.pool == null || length < 2 * PARALLEL_CHUNK_LENGTH
+                ? 1
+                : Math.min(length / PARALLEL_CHUNK_LENGTH, this.pool.getParallelism() * CHUNKS_PER_THREAD);
+
+        if (chunks <= 1) {
+            return Collections.singletonList(chunk.apply(0, length));
+        }
+
+        final ArrayList<ChunkTask<T>> tasks = new ArrayList<>(chunks);
+        for (int c = 0; c < chunks; ++c) {
+            tasks.add(new ChunkTask<>(chunk, (int) ((long) length * c / chunks),
+                    (int) ((long) length * (c + 1) / chunks)));
+        }
+
+        this.pool.invoke(new RecursiveAction()
+        {
+            @Override
+            protected void compute ()
+            {
+                ForkJoinTask.invokeAll(tasks);
+            }
+        });
+
+        final ArrayList<T> results = new ArrayList<>(chunks);
+        for (final ChunkTask<T> task : tasks) {
+            results.add(task.join());
+        }
+
+        return results;
+    }
+
+    //==================================================================================================================
+
+    private int getColumnIndex (final String name)
+    {
+        final int index = this.table.getColumnIndex(name);
+
+        if (index < 0) {
+            throw new IllegalArgumentException("No column named " + name);
+        }
+
+        return index;
+    }
+
+    /**
+     * @param names names of the columns, or null for all columns.
+     */
+    private int[] getColumnIndices (final String[] names)
+    {
+        final int[] indices = new int[names != null ? names.length : this.table.getColumnCount()];
+
+        for (int i = 0; i < indices.length; ++i) {
+            indices[i] = names != null ? getColumnIndex(names[i]) : i;
+        }
+
+        return indices;
+    }
+
+    private String getColumnName (final int column)
+    {
+        return this.table.getHeader().get(column).getWord();
+    }
+
+    private LSONColumn getColumn (final String name, final LSONColumn.Type type)
+    {
+        final LSONColumn column = this.table.getLSONColumn(getColumnIndex(name));
+
+        if (column.size() == 0) {
+            return createEmptyColumn(type);
+        }
+
+        if (column.getType() != type) {
+            throw new IllegalArgumentException("Column " + name + " of type " + column.getType() + " is not of type "
+                    + type);
+        }
+
+        return column;
+    }
+
+    private LSONColumn getNumberColumn (final String name)
+    {
+        final LSONColumn column = this.table.getLSONColumn(getColumnIndex(name));
+
+        if (column.size() == 0) {
+            return createEmptyColumn(LSONColumn.Type.LONG);
+        }
+
+        if (column.getType() != LSONColumn.Type.LONG && column.getType() != LSONColumn.Type.DOUBLE) {
+            throw new IllegalArgumentException("Column " + name + " of type " + column.getType()
+                    + " is not a column of numbers");
+        }
+
+        return column;
+    }
+
+    /**
+     * @return a column of the given type without any cells, standing in for an empty column of another type.
+     */
+    private static LSONColumn createEmptyColumn (final LSONColumn.Type type)
+    {
+        switch (type) {
+            case BOOLEAN:
+                return LSONColumn.ofBooleans(new BitSet(), 0);
+            case LONG:
+                return LSONColumn.ofLongs(new long[0]);
+            case DOUBLE:
+                return LSONColumn.ofDoubles(new double[0], false);
+            case STRING:
+                return LSONColumn.ofStrings(new LSONString[0], new int[0]);
+            default:
+                return LSONColumn.ofValues(new LSONValue[0]);
+        }
+    }
+
+    //==================================================================================================================
+
+    /**
+     * Aggregate function over the numbers of a column, computed by {@link #aggregate(Aggregate...)}.
+     */
+    public static final class Aggregate
+    {
+        enum Function
+        {
+            COUNT,
+            SUM,
+            MIN,
+            MAX,
+            AVG
+        }
+
+        private final Function function;
+        private final String column;
+        private final String name;
+
+        private Aggregate (final Function function, final String column, final String name)
+        {
+            this.function = function;
+            this.column = column;
+            this.name = name;
+        }
+
+        /**
+         * @return an aggregate of the number of rows, named count.
+         */
+        public static Aggregate count ()
+        {
+            return new Aggregate(Function.COUNT, null, "count");
+        }
+
+        /**
+         * @return an aggregate of the sum of the given column, named sum(column).
+         */
+        public static Aggregate sum (final String column)
+        {
+            return of(Function.SUM, column);
+        }
+
+        /**
+         * @return an aggregate of the least number of the given column, named min(column).
+         */
+        public static Aggregate min (final String column)
+        {
+            return of(Function.MIN, column);
+        }
+
+        /**
+         * @return an aggregate of the greatest number of the given column, named max(column).
+         */
+        public static Aggregate max (final String column)
+        {
+            return of(Function.MAX, column);
+        }
+
+        /**
+         * @return an aggregate of the mean of the given column, named avg(column).
+         */
+        public static Aggregate avg (final String column)
+        {
+            return of(Function.AVG, column);
+        }
+
+        private static Aggregate of (final Function function, final String column)
+        {
+            return new Aggregate(function, column, function.name().toLowerCase(Locale.ROOT) + "(" + column + ")");
+        }
+
+        /**
+         * @param name name of the result column.
+         * @return this aggregate under the given name.
+         */
+        public Aggregate as (final String name)
+        {
+            return new Aggregate(this.function, this.column, name);
+        }
+
+        public String getName ()
+        {
+            return this.name;
+        }
+    }
+
+    /**
+     * Partial results of an aggregate for each group.
+     */
+    private static final class Accumulator
+    {
+        private final Aggregate.Function function;
+        private final double[] values;
+        private final long[] counts;
+
+        Accumulator (final Aggregate.Function function, final int groups)
+        {
+            this.function = function;
+            this.values = new double[groups];
+            this.counts = new long[groups];
+
+            if (function == Aggregate.Function.MIN || function == Aggregate.Function.MAX) {
+                Arrays.fill(this.values, function == Aggregate.Function.MIN
+                        ? Double.POSITIVE_INFINITY
+                        : Double.NEGATIVE_INFINITY);
+            }
+        }
+
+        /**
+         * Adds the given range of the selected rows.
+         *
+         * @param input   numbers to aggregate, null when counting.
+         * @param groupOf group of each selected row, null when all rows are of the first group.
+         */
+        void add (final LSONColumn input, final int[] rows, final int[] groupOf, final int from, final int to)
+        {
+            final double[] values = this.values;
+            final long[] counts = this.counts;
+
+            if (input == null) {
+                for (int i = from; i < to; ++i) {
+                    ++counts[groupOf == null ? 0 : groupOf[i]];
+                }
+
+                return;
+            }
+
+            final long[] longs = input.getType() == LSONColumn.Type.LONG ? input.getLongs() : null;
+            final double[] doubles = longs == null ? input.getDoubles() : null;
+
+            for (int i = from; i < to; ++i) {
+                final int group = groupOf == null ? 0 : groupOf[i];
+                final double number = longs != null ? longs[rows[i]] : doubles[rows[i]];
+
+                ++counts[group];
+
+                switch (this.function) {
+                    case MIN:
+                        values[group] = Math.min(values[group], number);
+                        break;
+                    case MAX:
+                        values[group] = Math.max(values[group], number);
+                        break;
+                    default:
+                        values[group] += number;
+                        break;
+                }
+            }
+        }
+
+        void merge (final Accumulator other)
+        {
+            for (int group = 0; group < this.values.length; ++group) {
+                this.counts[group] += other.counts[group];
+
+                switch (this.function) {
+                    case MIN:
+                        this.values[group] = Math.min(this.values[group], other.values[group]);
+                        break;
+                    case MAX:
+                        this.values[group] = Math.max(this.values[group], other.values[group]);
+                        break;
+                    default:
+                        this.values[group] += other.values[group];
+                        break;
+                }
+            }
+        }
+
+        double[] getResults ()
+        {
+            final double[] results = new double[this.values.length];
+
+            for (int group = 0; group < results.length; ++group) {
+                final long count = this.counts[group];
+
+                switch (this.function) {
+                    case COUNT:
+                        results[group] = count;
+                        break;
+                    case SUM:
+                        results[group] = this.values[group];
+                        break;
+                    case AVG:
+                        results[group] = count == 0 ? Double.NaN : this.values[group] / count;
+                        break;
+                    default:
+                        results[group] = count == 0 ? Double.NaN : this.values[group];
+                        break;
+                }
+            }
+
+            return results;
+        }
+    }
+
+    private static final class Groups
+    {
+        // Group of each selected row, null if all rows are of the only group.
+        private final int[] groupOf;
+        private final int count;
+
+        // First selected row of each group, which stands in for its key values.
+        private final int[] firstRows;
+
+        Groups (final int[] groupOf, final int count, final int[] firstRows)
+        {
+            this.groupOf = groupOf;
+            this.count = count;
+            this.firstRows = firstRows;
+        }
+    }
+
+    private static final class SortKey
+    {
+        private final int column;
+        private final boolean descending;
+
+        SortKey (final int column, final boolean descending)
+        {
+            this.column = column;
+            this.descending = descending;
+        }
+    }
+
+    /**
+     * Narrows down the range [from, to) of the selected rows in place, moving the rows it keeps to the front of the
+     * range.
+     */
+    private interface Filter
+    {
+        /**
+         * @return the end of the rows kept, which start at from.
+         */
+        int apply (int[] rows, int from, int to);
+    }
+
+    private interface RowOrder
+    {
+        int compare (int a, int b);
+    }
+
+    private interface Chunk<T>
+    {
+        T apply (int from, int to);
+    }
+
+    private static final class ChunkTask<T> extends RecursiveTask<T>
+    {
+        private final Chunk<T> chunk;
+        private final int from;
+        private final int to;
+
+        ChunkTask (final Chunk<T> chunk, final int from, final int to)
+        {
+            this.chunk = chunk;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected T compute ()
+        {
+            return this.chunk.apply(this.from, this.to);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2017 Connor Hollasch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.hollasch.lson4j;
+
+import net.hollasch.lson4j.type.LSONValue;
+import net.hollasch.lson4j.type.LSONWord;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads the rows of a table one at a time, so that tables far larger than memory can be aggregated or exported. The
+ * header is available as soon as the reader is created, and each row is only read from the input when asked for.
+ *
+ * @author Connor Hollasch
+ * @since Oct 17, 6:05 PM
+ */
+public class LSONTableRowReader implements Iterator<ArrayList<LSONValue>>, Closeable
+{
+    private final LSONEventReader eventReader;
+    private final ArrayList<LSONWord> header;
+
+    // Row read ahead by hasNext(), and whether the end of the table has been reached.
+    private ArrayList<LSONValue> nextRow;
+    private boolean ended;
+
+    /**
+     * Creates a table row reader given the following parameters.
+     *
+     * @param eventReader {@link LSONEventReader} currently on the {@link LSONEvent#START_TABLE} or {@link
+     *                    LSONEvent#TABLE_HEADER} event of the table to read.
+     * @throws IOException        if the reader has a problem with IO.
+     * @throws LSONParseException if there is a syntax error while parsing the table header.
+     */
+    LSONTableRowReader (final LSONEventReader eventReader) throws IOException, LSONParseException
+    {
+        this.eventReader = eventReader;
+
+        if (eventReader.getEvent() == LSONEvent.START_TABLE) {
+            eventReader.next();
+        }
+
+        if (eventReader.getEvent() != LSONEvent.TABLE_HEADER) {
+            throw new IllegalStateException("No table starts at " + eventReader.getEvent());
+        }
+
+        this.header = eventReader.getTableHeader();
+        this.ended = false;
+    }
+
+    public ArrayList<LSONWord> getHeader ()
+    {
+        return this.header;
+    }
+
+    /**
+     * Reads the next row of the table, leaving the underlying event reader on the {@link LSONEvent#END_TABLE} event
+     * once every row has been read.
+     *
+     * @return the next row, or null if the table has no more rows.
+     * @throws IOException        if the reader has a problem with IO.
+     * @throws LSONParseException if there is a syntax error while parsing the row.
+     */
+    public ArrayList<LSONValue> readRow () throws IOException, LSONParseException
+    {
+        if (this.nextRow != null) {
+            final ArrayList<LSONValue> row = this.nextRow;
+            this.nextRow = null;
+            return row;
+        }
+
+        if (this.ended) {
+            return null;
+        }
+
+        if (this.eventReader.next() == LSONEvent.END_TABLE) {
+            this.ended = true;
+            return null;
+        }
+
+        final ArrayList<LSONValue> row = new ArrayList<>(this.header.size());
+
+        // Every row holds exactly one value per column, the event reader has already checked the row brackets.
+        for (int i = 0; i < this.header.size(); ++i) {
+            this.eventReader.next();
+            row.add(this.eventReader.readValue());
+        }
+
+        this.eventReader.next();
+        return row;
+    }
+
+    /**
+     * @throws UncheckedIOException        if the reader has a problem with IO.
+     * @throws UncheckedLSONParseException if there is a syntax error while parsing the next row.
+     */
+    @Override
+    public boolean hasNext ()
+    {
+        if (this.nextRow == null && !this.ended) {
+            try {
+                this.nextRow = readRow();
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (final LSONParseException e) {
+                throw new UncheckedLSONParseException(e);
+            }
+        }
+
+        return this.nextRow != null;
+    }
+
+    /**
+     * @throws UncheckedIOException        if the reader has a problem with IO.
+     * @throws UncheckedLSONParseException if there is a syntax error while parsing the next row.
+     */
+    @Override
+    public ArrayList<LSONValue> next ()
+    {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        final ArrayList<LSONValue> row = this.nextRow;
+        this.nextRow = null;
+        return row;
+    }
+
+    /**
+     * @return a sequential stream over the remaining rows, which closes this reader when closed itself.
+     */
+    public Stream<ArrayList<LSONValue>> stream ()
+    {
+        final Spliterator<ArrayList<LSONValue>> spliterator = Spliterators.spliteratorUnknownSize(this,
+                Spliterator.ORDERED | Spliterator.NONNULL);
+
+        return StreamSupport.stream(spliterator, false).onClose(() -> {
+            try {
+                close();
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    public LSONFileLocation getLocation ()
+    {
+        return this.eventReader.getLocation();
+    }
+
+    @Override
+    public void close () throws IOException
+    {
+        this.eventReader.close();
+    }
+}
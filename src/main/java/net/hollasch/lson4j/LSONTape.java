@@ -0,0 +1,544 @@
+/*
+ * Copyright (c) 2017 Connor Hollasch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.hollasch.lson4j;
+
+import net.hollasch.lson4j.type.*;
+import net.hollasch.lson4j.type.graph.LSONGraph;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Compact, read-only form of a parsed LSON document. Instead of one object per value, the whole document is stored in
+ * a tape of tagged longs, a single character store holding the text of every word, and a dictionary of object keys
+ * and table headers shared by the whole document. Documents are navigated with {@link LSONCursor}s, which can be
+ * reused to walk any number of values without allocating.
+ * <p>
+ * Each value takes a single slot on the tape, or a short header followed by its contents for containers. The slot
+ * tag lives in the top byte and the payload in the rest:
+ * <ul>
+ * <li>Words and strings point at their text in the character store, words are adapted when asked for their object.</li>
+ * <li>Objects and arrays point past their contents, followed by a slot holding their size. Object entries are made
+ * of one key slot per key, followed by the value all of those keys map to.</li>
+ * <li>Tables additionally hold the start of their row index and one key slot per column, followed by every cell in
+ * row major order and finally the row index itself.</li>
+ * <li>Graphs are rare enough to be kept as regular {@link LSONGraph} values, which their slot points at.</li>
+ * </ul>
+ *
+ * @author Connor Hollasch
+ * @since Oct 17, 11:10 PM
+ */
+public final class LSONTape
+{
+    //==================================================================================================================
+    // Slot tags
+    //==================================================================================================================
+
+    static final int WORD = 1;
+    static final int STRING = 2;
+    static final int KEY = 3;
+    static final int OBJECT = 4;
+    static final int ARRAY = 5;
+    static final int TABLE = 6;
+    static final int GRAPH = 7;
+
+    private static final int TAG_SHIFT = 56;
+    private static final long PAYLOAD_MASK = (1L << TAG_SHIFT) - 1;
+
+    //==================================================================================================================
+    // Container header slots, relative to the container slot itself
+    //==================================================================================================================
+
+    static final int SIZE_SLOT = 1;
+
+    // Tables only.
+    static final int ROW_INDEX_SLOT = 2;
+    static final int COLUMNS_SLOT = 3;
+
+    static final int CONTAINER_HEADER_LENGTH = 2;
+    static final int TABLE_HEADER_LENGTH = 4;
+
+    //==================================================================================================================
+
+    private final long[] tape;
+    private final char[] characters;
+
+    // Every distinct object key and table header of the document, by id.
+    private final String[] keys;
+    private final HashMap<String, Integer> keyIds;
+
+    private final LSONGraph[] graphs;
+
+    // Root of the key shapes shared by the materialized objects.
+    private final LSONShape shapes = new LSONShape();
+
+    // Used to adapt words back into their objects, the same way the parser adapted them.
+    private final LSONTypeAdapterTable typeAdapters;
+
+    private LSONTape (final Builder builder, final LSONTypeAdapterTable typeAdapters)
+    {
+        // Trimmed to size, as the tape is kept around for as long as the document is.
+        this.tape = Arrays.copyOf(builder.tape, builder.length);
+        this.characters = Arrays.copyOf(builder.characters, builder.characterCount);
+
+        this.keys = builder.keys.toArray(new String[builder.keys.size()]);
+        this.keyIds = builder.keyIds;
+
+        this.graphs = builder.graphs.toArray(new LSONGraph[builder.graphs.size()]);
+        this.typeAdapters = typeAdapters;
+    }
+
+    /**
+     * Reads the document of the given event reader onto a tape, leaving the reader on the
+     * {@link LSONEvent#END_DOCUMENT} event.
+     *
+     * @param eventReader  {@link LSONEventReader} positioned at the start of a document.
+     * @param typeAdapters {@link LSONTypeAdapterTable} of scalar type adapters the event reader was created with.
+     * @return the document stored as a tape.
+     * @throws IOException        if the reader has a problem with IO.
+     * @throws LSONParseException if there is a syntax error while parsing the document.
+     */
+    static LSONTape read (final LSONEventReader eventReader, final LSONTypeAdapterTable typeAdapters)
+            throws IOException, LSONParseException
+    {
+        final Builder builder = new Builder(eventReader);
+        final LSONEvent event = eventReader.next();
+
+        if (event != LSONEvent.END_DOCUMENT) {
+            builder.writeValue(event);
+            eventReader.next();
+        }
+
+        return new LSONTape(builder, typeAdapters);
+    }
+
+    /**
+     * @return a cursor on the root value of the document, or null if the document is empty.
+     */
+    public LSONCursor getRoot ()
+    {
+        return this.tape.length == 0 ? null : new LSONCursor(this, 0);
+    }
+
+    /**
+     * @return number of slots making up the tape.
+     */
+    public int getTapeLength ()
+    {
+        return this.tape.length;
+    }
+
+    /**
+     * @return number of characters held by the character store.
+     */
+    public int getCharacterCount ()
+    {
+        return this.characters.length;
+    }
+
+    //==================================================================================================================
+    // Tape access, used by cursors
+    //==================================================================================================================
+
+    int tag (final int index)
+    {
+        return (int) (this.tape[index] >>> TAG_SHIFT);
+    }
+
+    long payload (final int index)
+    {
+        return this.tape[index] & PAYLOAD_MASK;
+    }
+
+    /**
+     * @return index of the first slot following the value at the given index.
+     */
+    int skip (final int index)
+    {
+        final int tag = tag(index);
+        return tag == OBJECT || tag == ARRAY || tag == TABLE ? (int) payload(index) : index + 1;
+    }
+
+    /**
+     * @return index of the value of the object entry whose first key slot is at the given index.
+     */
+    int skipKeys (int index)
+    {
+        while (tag(index) == KEY) {
+            ++index;
+        }
+
+        return index;
+    }
+
+    String text (final int index)
+    {
+        final int offset = (int) payload(index);
+        final int length = (this.characters[offset] << 16) | this.characters[offset + 1];
+
+        return new String(this.characters, offset + 2, length);
+    }
+
+    /**
+     * @return true if the text of the word at the given index equals the given string, without copying it out.
+     */
+    boolean textEquals (final int index, final String string)
+    {
+        final int offset = (int) payload(index);
+        final int length = (this.characters[offset] << 16) | this.characters[offset + 1];
+
+        if (length != string.length()) {
+            return false;
+        }
+
+        for (int i = 0; i < length; ++i) {
+            if (this.characters[offset + 2 + i] != string.charAt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    String key (final int id)
+    {
+        return this.keys[id];
+    }
+
+    /**
+     * @return id of the given key, or -1 if no object or table of the document uses it.
+     */
+    int keyId (final String key)
+    {
+        final Integer id = this.keyIds.get(key);
+        return id == null ? -1 : id;
+    }
+
+    LSONGraph graph (final int index)
+    {
+        return this.graphs[(int) payload(index)];
+    }
+
+    /**
+     * Adapts the text of a word into its object, picking the adapter the parser would have picked.
+     */
+    Object adapt (final String word)
+    {
+        final LSONTypeAdapter<?> typeAdapter = this.typeAdapters.getAdapter(word);
+        return typeAdapter != null ? typeAdapter.buildFromWord(word) : word;
+    }
+
+    /**
+     * Builds the word of the given text, picking the adapter the parser would have picked.
+     */
+    LSONWord<?> buildWord (final String word)
+    {
+        final LSONWord<?> adapted = this.typeAdapters.buildWord(word);
+        return adapted != null ? adapted : new LSONWord<>(word, word);
+    }
+
+    /**
+     * Builds the regular, object based form of the value at the given index, equal to what the parser produces.
+     */
+    @SuppressWarnings("unchecked")
+    LSONValue materialize (final int index)
+    {
+        switch (tag(index)) {
+            case WORD:
+                return buildWord(text(index));
+            case STRING:
+                return new LSONString(text(index));
+            case OBJECT: {
+                final LSONShapedMap<LSONValue> map = new LSONShapedMap<>(this.shapes);
+                final int end = skip(index);
+
+                int entry = index + CONTAINER_HEADER_LENGTH;
+                while (entry < end) {
+                    final int value = skipKeys(entry);
+                    final LSONValue materialized = materialize(value);
+
+                    for (int key = entry; key < value; ++key) {
+                        map.put(new LSONString(key((int) payload(key))), materialized);
+                    }
+
+                    entry = skip(value);
+                }
+
+                map.trimToSize();
+                return new LSONObject<>(map);
+            }
+            case ARRAY: {
+                final ArrayList<LSONValue> array = new ArrayList<>((int) payload(index + SIZE_SLOT));
+                final int end = skip(index);
+
+                for (int element = index + CONTAINER_HEADER_LENGTH; element < end; element = skip(element)) {
+                    array.add(materialize(element));
+                }
+
+                return new LSONArray<>(array);
+            }
+            case TABLE: {
+                final int rows = (int) payload(index + SIZE_SLOT);
+                final int columns = (int) payload(index + COLUMNS_SLOT);
+
+                final ArrayList<LSONWord> header = new ArrayList<>(columns);
+                for (int column = 0; column < columns; ++column) {
+                    header.add(new LSONString(key((int) payload(index + TABLE_HEADER_LENGTH + column))));
+                }
+
+                final ArrayList<LSONValue>[] rowData = new ArrayList[rows];
+                int cell = index + TABLE_HEADER_LENGTH + columns;
+
+                for (int row = 0; row < rows; ++row) {
+                    rowData[row] = new ArrayList<>(columns);
+
+                    for (int column = 0; column < columns; ++column) {
+                        rowData[row].add(materialize(cell));
+                        cell = skip(cell);
+                    }
+                }
+
+                return new LSONTable(header, rowData);
+            }
+            default:
+                return graph(index);
+        }
+    }
+
+    /**
+     * Writes the events of an event reader onto a growing tape.
+     */
+    private static final class Builder
+    {
+        private final LSONEventReader eventReader;
+
+        private long[] tape;
+        private int length;
+
+        private char[] characters;
+        private int characterCount;
+
+        private final ArrayList<String> keys;
+        private final HashMap<String, Integer> keyIds;
+
+        private final ArrayList<LSONGraph> graphs;
+
+        // Key ids of the objects currently being written, innermost last, used to count their distinct keys.
+        private int[] objectKeys;
+        private int objectKeyCount;
+
+        Builder (final LSONEventReader eventReader)
+        {
+            this.eventReader = eventReader;
+
+            this.tape = new long[64];
+            this.characters = new char[256];
+
+            this.keys = new ArrayList<>();
+            this.keyIds = new HashMap<>();
+
+            this.graphs = new ArrayList<>();
+            this.objectKeys = new int[16];
+        }
+
+        /**
+         * Writes the value starting at the given event, leaving the event reader on its last event.
+         */
+        void writeValue (final LSONEvent event) throws IOException, LSONParseException
+        {
+            switch (event) {
+                case WORD:
+                case STRING: {
+                    final LSONWord word = this.eventReader.getWord();
+                    write(word.isLSONString() ? STRING : WORD, writeText(word.getWord()));
+                    break;
+                }
+                case START_OBJECT:
+                    writeObject();
+                    break;
+                case START_ARRAY:
+                    writeArray();
+                    break;
+                case START_TABLE:
+                    writeTable();
+                    break;
+                case START_GRAPH:
+                    write(GRAPH, this.graphs.size());
+                    this.graphs.add(this.eventReader.readValue().toGraph());
+                    break;
+                default:
+                    throw new IllegalStateException("No value starts at " + event);
+            }
+        }
+
+        private void writeObject () throws IOException, LSONParseException
+        {
+            final int start = writeContainerHeader(OBJECT, CONTAINER_HEADER_LENGTH);
+            final int firstKey = this.objectKeyCount;
+
+            LSONEvent event;
+            while ((event = this.eventReader.next()) == LSONEvent.KEY) {
+                for (final LSONString key : this.eventReader.getKeys()) {
+                    final int id = keyId(key.getWord());
+                    write(KEY, id);
+
+                    if (this.objectKeyCount == this.objectKeys.length) {
+                        this.objectKeys = Arrays.copyOf(this.objectKeys, this.objectKeyCount * 2);
+                    }
+
+                    this.objectKeys[this.objectKeyCount++] = id;
+                }
+
+                writeValue(this.eventReader.next());
+            }
+
+            // Later entries replace earlier ones with the same key, so only distinct keys count towards the size.
+            Arrays.sort(this.objectKeys, firstKey, this.objectKeyCount);
+
+            int size = 0;
+            for (int i = firstKey; i < this.objectKeyCount; ++i) {
+                if (i == firstKey || this.objectKeys[i] != this.objectKeys[i - 1]) {
+                    ++size;
+                }
+            }
+
+            this.objectKeyCount = firstKey;
+            endContainer(start, size);
+        }
+
+        private void writeArray () throws IOException, LSONParseException
+        {
+            final int start = writeContainerHeader(ARRAY, CONTAINER_HEADER_LENGTH);
+            int size = 0;
+
+            LSONEvent event;
+            while ((event = this.eventReader.next()) != LSONEvent.END_ARRAY) {
+                writeValue(event);
+                ++size;
+            }
+
+            endContainer(start, size);
+        }
+
+        private void writeTable () throws IOException, LSONParseException
+        {
+            final int start = writeContainerHeader(TABLE, TABLE_HEADER_LENGTH);
+
+            this.eventReader.next();
+            final ArrayList<LSONWord> header = this.eventReader.getTableHeader();
+
+            this.tape[start + COLUMNS_SLOT] = header.size();
+            for (final LSONWord column : header) {
+                write(KEY, keyId(column.getWord()));
+            }
+
+            // Tape index of the first cell of every row.
+            int[] rowStarts = new int[16];
+            int rows = 0;
+
+            while (this.eventReader.next() == LSONEvent.START_ROW) {
+                if (rows == rowStarts.length) {
+                    rowStarts = Arrays.copyOf(rowStarts, rows * 2);
+                }
+
+                rowStarts[rows++] = this.length;
+
+                LSONEvent event;
+                while ((event = this.eventReader.next()) != LSONEvent.END_ROW) {
+                    writeValue(event);
+                }
+            }
+
+            this.tape[start + ROW_INDEX_SLOT] = this.length;
+            for (int row = 0; row < rows; ++row) {
+                write(0, rowStarts[row]);
+            }
+
+            endContainer(start, rows);
+        }
+
+        private int writeContainerHeader (final int tag, final int headerLength)
+        {
+            final int start = this.length;
+
+            for (int i = 0; i < headerLength; ++i) {
+                write(i == 0 ? tag : 0, 0);
+            }
+
+            return start;
+        }
+
+        private void endContainer (final int start, final int size)
+        {
+            this.tape[start] |= this.length;
+            this.tape[start + SIZE_SLOT] = size;
+        }
+
+        private void write (final int tag, final long payload)
+        {
+            if (this.length == this.tape.length) {
+                this.tape = Arrays.copyOf(this.tape, this.length * 2);
+            }
+
+            this.tape[this.length++] = ((long) tag << TAG_SHIFT) | payload;
+        }
+
+        /**
+         * @return offset of the text in the character store, which is preceded by its length.
+         */
+        private int writeText (final String text)
+        {
+            final int length = text.length();
+            final int offset = this.characterCount;
+
+            if (offset + length + 2 > this.characters.length) {
+                this.characters = Arrays.copyOf(this.characters, Math.max(this.characters.length * 2,
+                        offset + length + 2));
+            }
+
+            this.characters[offset] = (char) (length >>> 16);
+            this.characters[offset + 1] = (char) length;
+            text.getChars(0, length, this.characters, offset + 2);
+
+            this.characterCount += length + 2;
+            return offset;
+        }
+
+        private int keyId (final String key)
+        {
+            Integer id = this.keyIds.get(key);
+
+            if (id == null) {
+                id = this.keys.size();
+                this.keys.add(key);
+                this.keyIds.put(key, id);
+            }
+
+            return id;
+        }
+    }
+}
@@ -0,0 +1,809 @@
+/*
+ * Copyright (c) 2017 Connor Hollasch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.hollasch.lson4j;
+
+import net.hollasch.lson4j.type.*;
+import net.hollasch.lson4j.type.graph.LSONGraph;
+import net.hollasch.lson4j.util.LSONTokenUtils;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+import static net.hollasch.lson4j.util.LSONTokenUtils.*;
+
+/**
+ * Writes LSON values as text that {@link LSONParser} reads back into equal values, either compactly on a single line
+ * or pretty printed with one entry per line. Output is gathered in a buffer that is reused for every value written,
+ * and is encoded as UTF-8 when writing bytes.
+ * <p>
+ * Strings are always delimited, while other words are written as is when they can be read back as a single word, and
+ * delimited otherwise. Keys of an object that share the same value instance are written together as a multi-key entry.
+ * Tables are written with bracketed rows, and graphs with vertex values by index or by name, and edge data when there
+ * is any.
+ * <p>
+ * Some values cannot be written as LSON, such as null values within containers, tables without columns and graphs
+ * without edges, and are rejected with an {@link IllegalArgumentException}. Arrays nested two or more levels deep
+ * within arrays are written as is, but flattened when read back, as with any other LSON.
+ *
+ * @author Connor Hollasch
+ * @since Oct 18, 1:55 AM
+ */
+public class LSONWriter implements Closeable, Flushable
+{
+    private static final int BUFFER_LENGTH = 8192;
+
+    private static final String INDENT = "    ";
+
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    // ASCII characters that need to be escaped within strings.
+    private static final boolean[] ESCAPED = createEscapedTable();
+
+    // ASCII characters that may appear within plain words and keys, past their first character.
+    private static final boolean[] PLAIN_WORD = createPlainTable(false);
+    private static final boolean[] PLAIN_KEY = createPlainTable(true);
+
+    // Objects with up to this many entries are checked for shared values pairwise rather than through a map.
+    private static final int SHARED_SCAN_LIMIT = 16;
+
+    // Character destination. Null when writing bytes.
+    private Writer writer;
+
+    // Byte destination, either a stream or a buffer. Both are null when writing characters.
+    private OutputStream stream;
+    private ByteBuffer target;
+
+    private final boolean pretty;
+
+    // Output not yet handed over to the destination, and the bytes it is encoded to when writing bytes.
+    private final char[] buffer;
+    private int length;
+    private byte[] encoded;
+
+    public LSONWriter (final Writer writer)
+    {
+        this(writer, false);
+    }
+
+    /**
+     * Creates an LSON writer to the given character destination.
+     *
+     * @param writer destination of the written values.
+     * @param pretty true to pretty print values, false to write them compactly.
+     */
+    public LSONWriter (final Writer writer, final boolean pretty)
+    {
+        this.writer = writer;
+        this.pretty = pretty;
+        this.buffer = new char[BUFFER_LENGTH];
+    }
+
+    public LSONWriter (final OutputStream stream)
+    {
+        this(stream, false);
+    }
+
+    /**
+     * Creates an LSON writer to the given byte stream, encoding values as UTF-8.
+     *
+     * @param stream destination of the written values.
+     * @param pretty true to pretty print values, false to write them compactly.
+     */
+    public LSONWriter (final OutputStream stream, final boolean pretty)
+    {
+        this.stream = stream;
+        this.pretty = pretty;
+        this.buffer = new char[BUFFER_LENGTH];
+        this.encoded = new byte[BUFFER_LENGTH * 3];
+    }
+
+    public LSONWriter (final ByteBuffer target)
+    {
+        this(target, false);
+    }
+
+    /**
+     * Creates an LSON writer to the given byte buffer, encoding values as UTF-8 from the position of the buffer on.
+     *
+     * @param target destination of the written values.
+     * @param pretty true to pretty print values, false to write them compactly.
+     * @see ByteBuffer#put(byte[], int, int)
+     */
+    public LSONWriter (final ByteBuffer target, final boolean pretty)
+    {
+        this.target = target;
+        this.pretty = pretty;
+        this.buffer = new char[BUFFER_LENGTH];
+        this.encoded = new byte[BUFFER_LENGTH * 3];
+    }
+
+    /**
+     * Writes the given value as a document. Writing null writes nothing, as an empty document is read as null.
+     *
+     * @param value value to write.
+     * @throws IOException              if the destination has a problem with IO.
+     * @throws IllegalArgumentException if the value cannot be written as LSON.
+     */
+    public void write (final LSONValue value) throws IOException
+    {
+        if (value != null) {
+            writeValue(value, 0);
+        }
+    }
+
+    /**
+     * Hands everything written so far over to the destination, and flushes the destination.
+     *
+     * @throws IOException if the destination has a problem with IO.
+     */
+    @Override
+    public void flush () throws IOException
+    {
+        drain(true);
+
+        if (this.writer != null) {
+            this.writer.flush();
+        } else if (this.stream != null) {
+            this.stream.flush();
+        }
+    }
+
+    @Override
+    public void close () throws IOException
+    {
+        flush();
+
+        if (this.writer != null) {
+            this.writer.close();
+        } else if (this.stream != null) {
+            this.stream.close();
+        }
+    }
+
+    //==================================================================================================================
+    // Values
+    //==================================================================================================================
+
+    private void writeValue (final LSONValue value, final int depth) throws IOException
+    {
+        if (value == null) {
+            throw new IllegalArgumentException("Cannot write a null value within a container");
+        }
+
+        if (value.isLSONObject()) {
+            writeObject(value.toObject(), depth);
+        } else if (value.isLSONArray()) {
+            writeArray(value.toArray(), depth);
+        } else if (value.isTable()) {
+            writeTable(value.toTable(), depth);
+        } else if (value.isGraph()) {
+            writeGraph(value.toGraph(), depth);
+        } else if (value.isLSONString()) {
+            writeString(value.toLsonString().getWord());
+        } else if (value.isLSONWord()) {
+            writeWord(value.toWord());
+        } else {
+            throw new IllegalArgumentException("Cannot write " + value.getClass().getName() + " as LSON");
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void writeObject (final LSONObject<?> object, final int depth) throws IOException
+    {
+        if (object.isEmpty()) {
+            append(LSON_OBJECT_OPENER);
+            append(LSON_OBJECT_CLOSER);
+            return;
+        }
+
+        append(LSON_OBJECT_OPENER);
+
+        if (hasSharedValues(object)) {
+            writeMultiKeyEntries(object, depth);
+        } else {
+            int index = 0;
+
+            for (final Map.Entry<LSONString, ? extends LSONValue> entry : object.entrySet()) {
+                separate(index++, depth + 1);
+                writeKey(entry.getKey().getWord());
+                writeKeyValueSeparator();
+                writeValue(entry.getValue(), depth + 1);
+            }
+        }
+
+        close(depth);
+        append(LSON_OBJECT_CLOSER);
+    }
+
+    /**
+     * Writes the entries of an object with keys sharing a value instance gathered into a single entry, in the order
+     * they are first seen.
+     */
+    private void writeMultiKeyEntries (final LSONObject<?> object, final int depth) throws IOException
+    {
+        final ArrayList<LSONValue> values = new ArrayList<>();
+        final ArrayList<List<LSONString>> keys = new ArrayList<>();
+        groupSharedValues(object, values, keys);
+
+        for (int i = 0; i < values.size(); ++i) {
+            separate(i, depth + 1);
+            writeKeys(keys.get(i));
+            writeKeyValueSeparator();
+            writeValue(values.get(i), depth + 1);
+        }
+    }
+
+    /**
+     * Gathers the keys of an object by the value instance they share, in the order the values are first seen.
+     *
+     * @param object object to gather the keys of.
+     * @param values list that each distinct value instance is added to.
+     * @param keys   list that the keys of each value are added to, at the same index as the value.
+     */
+    static void groupSharedValues (
+            final LSONObject<?> object,
+            final List<LSONValue> values,
+            final List<List<LSONString>> keys)
+    {
+        final Map<LSONValue, Integer> entries = new IdentityHashMap<>();
+
+        for (final Map.Entry<LSONString, ? extends LSONValue> entry : object.entrySet()) {
+            final Integer index = entries.get(entry.getValue());
+
+            if (index != null) {
+                keys.get(index).add(entry.getKey());
+                continue;
+            }
+
+            entries.put(entry.getValue(), values.size());
+            values.add(entry.getValue());
+            keys.add(new ArrayList<>(Collections.singletonList(entry.getKey())));
+        }
+    }
+
+    /**
+     * @return true if any two keys of the object share the same value instance.
+     */
+    static boolean hasSharedValues (final LSONObject<?> object)
+    {
+        if (object.size() > SHARED_SCAN_LIMIT) {
+            final Set<LSONValue> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+
+            for (final LSONValue value : object.values()) {
+                if (!seen.add(value)) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        final LSONValue[] values = new LSONValue[object.size()];
+        int count = 0;
+
+        for (final LSONValue value : object.values()) {
+            for (int i = 0; i < count; ++i) {
+                if (values[i] == value) {
+                    return true;
+                }
+            }
+
+            values[count++] = value;
+        }
+
+        return false;
+    }
+
+    private void writeKeys (final List<LSONString> keys) throws IOException
+    {
+        if (keys.size() == 1) {
+            writeKey(keys.get(0).getWord());
+            return;
+        }
+
+        // Multi-key entries are read as an array of words, so the keys are delimited to keep them from being adapted.
+        append(LSON_ARRAY_OPENER);
+
+        for (int i = 0; i < keys.size(); ++i) {
+            if (i > 0) {
+                append(SPACE_CHARACTER);
+            }
+
+            writeString(keys.get(i).getWord());
+        }
+
+        append(LSON_ARRAY_CLOSER);
+    }
+
+    private void writeArray (final LSONArray<?> array, final int depth) throws IOException
+    {
+        append(LSON_ARRAY_OPENER);
+
+        for (int i = 0; i < array.size(); ++i) {
+            separate(i, depth + 1);
+            writeValue(array.get(i), depth + 1);
+        }
+
+        if (!array.isEmpty()) {
+            close(depth);
+        }
+
+        append(LSON_ARRAY_CLOSER);
+    }
+
+    private void writeTable (final LSONTable table, final int depth) throws IOException
+    {
+        final ArrayList<LSONWord> header = table.getHeader();
+
+        if (header.isEmpty()) {
+            throw new IllegalArgumentException("Cannot write a table without columns");
+        }
+
+        append(LSON_ARRAY_OPENER);
+        append(LSON_TABLE_STARTER);
+        separate(0, depth + 1);
+
+        append(LSON_ARRAY_OPENER);
+        for (int i = 0; i < header.size(); ++i) {
+            if (i > 0) {
+                append(SPACE_CHARACTER);
+            }
+
+            writeKey(header.get(i).getWord());
+        }
+        append(LSON_ARRAY_CLOSER);
+        append(LSON_TABLE_HEADER_END);
+
+        for (final ArrayList<LSONValue> row : table.getRowData()) {
+            if (row.size() != header.size()) {
+                throw new IllegalArgumentException("Cannot write a table row of " + row.size()
+                        + " values under a header of " + header.size() + " columns");
+            }
+
+            separate(this.pretty ? 1 : 0, depth + 1);
+            append(LSON_ARRAY_OPENER);
+
+            for (int i = 0; i < row.size(); ++i) {
+                if (i > 0) {
+                    append(SPACE_CHARACTER);
+                }
+
+                writeValue(row.get(i), depth + 1);
+            }
+
+            append(LSON_ARRAY_CLOSER);
+        }
+
+        close(depth);
+        append(LSON_TABLE_STARTER);
+        append(LSON_ARRAY_CLOSER);
+    }
+
+    private void writeGraph (final LSONGraph graph, final int depth) throws IOException
+    {
+        final int vertexCount = graph.getVertexCount();
+        final int edgeCount = graph.getEdgeCount();
+
+        if (edgeCount == 0) {
+            throw new IllegalArgumentException("Cannot write a graph without edges");
+        }
+
+        boolean named = false;
+        boolean valued = false;
+        for (int v = 0; v < vertexCount; ++v) {
+            named |= graph.getVertexName(v) != null;
+            valued |= graph.getVertexValue(v) != null;
+        }
+
+        boolean data = false;
+        for (int e = 0; e < edgeCount; ++e) {
+            data |= graph.getEdgeData(e) != null;
+        }
+
+        append(LSON_ARRAY_OPENER);
+        append(LSON_GRAPH_STARTER);
+        separate(0, depth + 1);
+
+        // Vertices are either named along with their values, listed by value, or just counted.
+        if (named) {
+            append(LSON_OBJECT_OPENER);
+
+            for (int i = 0; i < vertexCount; ++i) {
+                separate(i, depth + 2);
+                writeKey(graph.getVertexName(i));
+                writeKeyValueSeparator();
+                writeValue(graph.getVertexValue(i), depth + 2);
+            }
+
+            close(depth + 1);
+            append(LSON_OBJECT_CLOSER);
+        } else if (valued) {
+            append(LSON_ARRAY_OPENER);
+
+            for (int i = 0; i < vertexCount; ++i) {
+                separate(i, depth + 2);
+                writeValue(graph.getVertexValue(i), depth + 2);
+            }
+
+            close(depth + 1);
+            append(LSON_ARRAY_CLOSER);
+        } else {
+            append(Integer.toString(vertexCount));
+        }
+
+        separate(1, depth + 1);
+        append(data ? LSON_OBJECT_OPENER : LSON_ARRAY_OPENER);
+
+        for (int i = 0; i < edgeCount; ++i) {
+            separate(i, depth + 2);
+            writeEdgeVertex(graph, graph.getEdgeSource(i), named);
+            append(graph.isEdgeDirected(i) ? GRAPH_RIGHT_DIRECTED_GREATER_THAN : GRAPH_UNDIRECTED_HYPHEN);
+            writeEdgeVertex(graph, graph.getEdgeTarget(i), named);
+
+            if (data) {
+                if (graph.getEdgeData(i) == null) {
+                    throw new IllegalArgumentException("Cannot write a graph where only some edges have data");
+                }
+
+                writeKeyValueSeparator();
+                writeValue(graph.getEdgeData(i), depth + 2);
+            }
+        }
+
+        close(depth + 1);
+        append(data ? LSON_OBJECT_CLOSER : LSON_ARRAY_CLOSER);
+
+        close(depth);
+        append(LSON_GRAPH_STARTER);
+        append(LSON_ARRAY_CLOSER);
+    }
+
+    private void writeEdgeVertex (final LSONGraph graph, final int vertex, final boolean named) throws IOException
+    {
+        if (named) {
+            writeKey(graph.getVertexName(vertex));
+        } else {
+            append(Integer.toString(vertex));
+        }
+    }
+
+    //==================================================================================================================
+    // Words
+    //==================================================================================================================
+
+    private void writeWord (final LSONWord<?> word) throws IOException
+    {
+        final String text = word.getWord() != null ? word.getWord() : String.valueOf(word.getObject());
+
+        if (isPlain(text, false)) {
+            append(text, 0, text.length());
+        } else {
+            writeString(text);
+        }
+    }
+
+    private void writeKey (final String key) throws IOException
+    {
+        if (key == null) {
+            throw new IllegalArgumentException("Cannot write a null key");
+        }
+
+        if (isPlain(key, true)) {
+            append(key, 0, key.length());
+        } else {
+            writeString(key);
+        }
+    }
+
+    /**
+     * Writes a delimited string, scanning for characters that need to be escaped and copying the runs between them
+     * as a whole.
+     */
+    private void writeString (final String string) throws IOException
+    {
+        append(QUOTATION_MARK);
+
+        int run = 0;
+        for (int i = 0; i < string.length(); ++i) {
+            final char character = string.charAt(i);
+
+            if (character < 0x80 ? !ESCAPED[character] : character != END_OF_STRING) {
+                continue;
+            }
+
+            append(string, run, i);
+            writeEscape(character);
+            run = i + 1;
+        }
+
+        append(string, run, string.length());
+        append(QUOTATION_MARK);
+    }
+
+    private void writeEscape (final char character) throws IOException
+    {
+        append(ESCAPE_CHARACTER);
+
+        switch (character) {
+            case QUOTATION_MARK:
+            case ESCAPE_CHARACTER:
+                append(character);
+                break;
+            case NULL_BYTE:
+                append('0');
+                break;
+            case NEWLINE:
+                append('n');
+                break;
+            case CARRIAGE_RETURN:
+                append('r');
+                break;
+            case TAB:
+                append('t');
+                break;
+            default:
+                append('u');
+                append(HEX_DIGITS[(character >> 12) & 0xF]);
+                append(HEX_DIGITS[(character >> 8) & 0xF]);
+                append(HEX_DIGITS[(character >> 4) & 0xF]);
+                append(HEX_DIGITS[character & 0xF]);
+                break;
+        }
+    }
+
+    /**
+     * Words are plain if they are read back as the same single word without delimiters. They may not start like a
+     * comment, string, container, concatenation or table and graph determinant, nor contain anything that ends or
+     * alters a word. Keys additionally end at key value separators and graph edges.
+     */
+    private static boolean isPlain (final String word, final boolean key)
+    {
+        if (word.isEmpty()) {
+            return false;
+        }
+
+        switch (word.charAt(0)) {
+            case COMMENT_START:
+            case STRING_CONCATENATION_OPERATOR:
+            case LSON_OBJECT_OPENER:
+            case LSON_ARRAY_OPENER:
+            case LSON_TABLE_STARTER:
+            case LSON_GRAPH_STARTER:
+                return false;
+            default:
+                break;
+        }
+
+        final boolean[] plain = key ? PLAIN_KEY : PLAIN_WORD;
+
+        for (int i = 0; i < word.length(); ++i) {
+            final char character = word.charAt(i);
+
+            if (character < 0x80 ? !plain[character] : isPlainBreak(character, key)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean[] createPlainTable (final boolean key)
+    {
+        final boolean[] plain = new boolean[0x80];
+
+        for (char character = 0; character < plain.length; ++character) {
+            plain[character] = !isPlainBreak(character, key);
+        }
+
+        return plain;
+    }
+
+    private static boolean isPlainBreak (final char character, final boolean key)
+    {
+        if (character == ESCAPE_CHARACTER || LSONTokenUtils.isWhitespace(character)
+                || LSONTokenUtils.isEndOfRead(character) || LSONTokenUtils.isLSONClosingReservedToken(character)
+                || LSONTokenUtils.isOpeningString(character) || isClosingDelimiter(character)) {
+            return true;
+        }
+
+        return key && (character == KEY_VALUE_SEPARATOR || character == LSON_OBJECT_OPENER
+                || character == LSON_ARRAY_OPENER || LSONTokenUtils.getEdgeDirectionality(character) != -1);
+    }
+
+    private static boolean isClosingDelimiter (final char character)
+    {
+        return character == POINTED_DOUBLE_ANGLE_QUOTATION_MARK_RIGHT || character == SINGLE_QUOTATION_MARK_RIGHT
+                || character == DOUBLE_QUOTATION_MARK_RIGHT;
+    }
+
+    private static boolean[] createEscapedTable ()
+    {
+        final boolean[] escaped = new boolean[0x80];
+
+        for (int character = 0; character < 0x20; ++character) {
+            escaped[character] = true;
+        }
+
+        escaped[QUOTATION_MARK] = true;
+        escaped[ESCAPE_CHARACTER] = true;
+        escaped[0x7F] = true;
+
+        return escaped;
+    }
+
+    //==================================================================================================================
+    // Layout
+    //==================================================================================================================
+
+    /**
+     * Separates an entry from whatever precedes it, either by a line break and indentation or by a space.
+     *
+     * @param index index of the entry within its container, where the first entry directly follows the opener.
+     * @param depth depth of the entry.
+     */
+    private void separate (final int index, final int depth) throws IOException
+    {
+        if (this.pretty) {
+            newline(depth);
+        } else if (index > 0) {
+            append(SPACE_CHARACTER);
+        }
+    }
+
+    /**
+     * Puts the closer of a container on a line of its own when pretty printing.
+     */
+    private void close (final int depth) throws IOException
+    {
+        if (this.pretty) {
+            newline(depth);
+        }
+    }
+
+    private void newline (final int depth) throws IOException
+    {
+        append(NEWLINE);
+
+        for (int i = 0; i < depth; ++i) {
+            append(INDENT, 0, INDENT.length());
+        }
+    }
+
+    private void writeKeyValueSeparator () throws IOException
+    {
+        append(KEY_VALUE_SEPARATOR);
+
+        if (this.pretty) {
+            append(SPACE_CHARACTER);
+        }
+    }
+
+    //==================================================================================================================
+    // Buffering
+    //==================================================================================================================
+
+    private void append (final int character) throws IOException
+    {
+        if (this.length == this.buffer.length) {
+            drain(false);
+        }
+
+        this.buffer[this.length++] = (char) character;
+    }
+
+    private void append (final String string) throws IOException
+    {
+        append(string, 0, string.length());
+    }
+
+    private void append (final String string, int start, final int end) throws IOException
+    {
+        while (start < end) {
+            if (this.length == this.buffer.length) {
+                drain(false);
+            }
+
+            final int count = Math.min(end - start, this.buffer.length - this.length);
+            string.getChars(start, start + count, this.buffer, this.length);
+
+            this.length += count;
+            start += count;
+        }
+    }
+
+    /**
+     * Hands the buffered output over to the destination.
+     *
+     * @param all false to hold back a trailing high surrogate, so that it is encoded along with the low surrogate that
+     *            follows it.
+     */
+    private void drain (final boolean all) throws IOException
+    {
+        if (this.writer != null) {
+            this.writer.write(this.buffer, 0, this.length);
+            this.length = 0;
+            return;
+        }
+
+        int end = this.length;
+        if (!all && end > 0 && Character.isHighSurrogate(this.buffer[end - 1])) {
+            --end;
+        }
+
+        final int bytes = encode(end);
+
+        if (this.stream != null) {
+            this.stream.write(this.encoded, 0, bytes);
+        } else {
+            this.target.put(this.encoded, 0, bytes);
+        }
+
+        // Keep any held back surrogate at the start of the buffer.
+        System.arraycopy(this.buffer, end, this.buffer, 0, this.length - end);
+        this.length -= end;
+    }
+
+    private int encode (final int end)
+    {
+        final char[] chars = this.buffer;
+        final byte[] bytes = this.encoded;
+        int count = 0;
+
+        for (int i = 0; i < end; ++i) {
+            final char character = chars[i];
+
+            if (character < 0x80) {
+                bytes[count++] = (byte) character;
+            } else if (character < 0x800) {
+                bytes[count++] = (byte) (0xC0 | (character >> 6));
+                bytes[count++] = (byte) (0x80 | (character & 0x3F));
+            } else if (Character.isSurrogate(character)) {
+                // Lone surrogates cannot be encoded, and are replaced.
+                final int codePoint = Character.isHighSurrogate(character) && i + 1 < end
+                        && Character.isLowSurrogate(chars[i + 1])
+                        ? Character.toCodePoint(character, chars[++i])
+                        : 0xFFFD;
+
+                if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                    bytes[count++] = (byte) 0xEF;
+                    bytes[count++] = (byte) 0xBF;
+                    bytes[count++] = (byte) 0xBD;
+                } else {
+                    bytes[count++] = (byte) (0xF0 | (codePoint >> 18));
+                    bytes[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    bytes[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    bytes[count++] = (byte) (0x80 | (codePoint & 0x3F));
+                }
+            } else {
+                bytes[count++] = (byte) (0xE0 | (character >> 12));
+                bytes[count++] = (byte) (0x80 | ((character >> 6) & 0x3F));
+                bytes[count++] = (byte) (0x80 | (character & 0x3F));
+            }
+        }
+
+        return count;
+    }
+}
@@ -89,16 +89,16 @@ public class LSONArray<T extends LSONValue> extends LSONValue implements Iterabl
                 return false;
             }
 
-            return obj.equals(this.array);
+            return obj.equals(toArrayList());
         }
 
-        return ((LSONArray) obj).array.equals(this.array);
+        return ((LSONArray) obj).toArrayList().equals(toArrayList());
     }
 
     @Override
     public int hashCode ()
     {
-        return this.array.hashCode();
+        return toArrayList().hashCode();
     }
 
     @Override
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2017 Connor Hollasch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.hollasch.lson4j.type;
+
+/**
+ * Scalar type adapter reading words straight from the characters holding them, so that words can be adapted without
+ * first being copied into a string. The characters are usually a view into a buffer the parser reuses for every word,
+ * so adapters must not keep the sequence itself, only what they build from it.
+ * <p>
+ * The string based methods of {@link LSONTypeAdapter} are bridged onto the character based ones, so these adapters
+ * are registered just like any other adapter. Adapters only implementing {@link LSONTypeAdapter} keep working too,
+ * with the parser copying the word into a string before offering it to them.
+ *
+ * @author Connor Hollasch
+ * @since Oct 18, 7:20 AM
+ */
+public interface LSONCharTypeAdapter<T> extends LSONTypeAdapter<T>
+{
+    /**
+     * @param chars characters holding the word.
+     * @param start index of the first character of the word.
+     * @param end   index after the last character of the word.
+     * @return true if this adapter adapts the word.
+     */
+    boolean willAdaptFor (final CharSequence chars, final int start, final int end);
+
+    /**
+     * Builds the word held by the given characters, which this adapter will adapt for.
+     *
+     * @param chars characters holding the word.
+     * @param start index of the first character of the word.
+     * @param end   index after the last character of the word.
+     * @return the word.
+     */
+    LSONWord<T> buildWord (final CharSequence chars, final int start, final int end);
+
+    @Override
+    default boolean willAdaptFor (final String word)
+    {
+        return willAdaptFor(word, 0, word.length());
+    }
+
+    @Override
+    default LSONWord<T> buildWord (final String word)
+    {
+        return buildWord(word, 0, word.length());
+    }
+
+    @Override
+    default T buildFromWord (final String value)
+    {
+        return buildWord(value, 0, value.length()).getObject();
+    }
+}
@@ -0,0 +1,573 @@
+/*
+ * Copyright (c) 2017 Connor Hollasch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.hollasch.lson4j.type;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * Column of an {@link LSONColumnTable}, storing its cells by type rather than as one value object per cell:
+ * <ul>
+ * <li>Booleans are stored as a bit set.</li>
+ * <li>Numbers are stored as an array of longs or doubles, depending on the type of the number objects. Columns
+ * mixing integral longs with fractional doubles, as the number adapter reads them, are stored as doubles.</li>
+ * <li>Strings are stored as a dictionary of distinct strings, and an index into it for each row.</li>
+ * <li>Anything else, including columns mixing types, is stored as an array of values.</li>
+ * </ul>
+ * Booleans and numbers are only stored in primitive form if their text is implied by their value. The text of double
+ * columns may either leave out the fraction of integral numbers or always include it, as {@link Double#toString}
+ * does, as long as every cell of the column agrees.
+ * <p>
+ * Values handed out for cells of primitive columns are created on every access. The backing storage of a column is
+ * handed out as is for fast scans, and must not be modified.
+ *
+ * @author Connor Hollasch
+ * @since Oct 18, 3:10 AM
+ */
+public final class LSONColumn implements Serializable
+{
+    public enum Type
+    {
+        BOOLEAN,
+        LONG,
+        DOUBLE,
+        STRING,
+        VALUE
+    }
+
+    // Largest magnitude up to which doubles hold every long.
+    private static final long MAX_EXACT_LONG = 1L << 53;
+
+    private final Type type;
+    private final int size;
+
+    // Storage of the column, only the fields belonging to the type of the column are set.
+    private final BitSet booleans;
+    private final long[] longs;
+    private final double[] doubles;
+    private final boolean decimalText;
+    private final boolean integralLongs;
+    private final LSONString[] dictionary;
+    private final int[] codes;
+    private final LSONValue[] values;
+
+    private LSONColumn (
+            final Type type,
+            final int size,
+            final BitSet booleans,
+            final long[] longs,
+            final double[] doubles,
+            final boolean decimalText,
+            final boolean integralLongs,
+            final LSONString[] dictionary,
+            final int[] codes,
+            final LSONValue[] values)
+    {
+        this.type = type;
+        this.size = size;
+        this.booleans = booleans;
+        this.longs = longs;
+        this.doubles = doubles;
+        this.decimalText = decimalText;
+        this.integralLongs = integralLongs;
+        this.dictionary = dictionary;
+        this.codes = codes;
+        this.values = values;
+    }
+
+    //==================================================================================================================
+    // Creation
+    //==================================================================================================================
+
+    /**
+     * @param booleans bit set holding the value of each row.
+     * @param size     number of rows.
+     * @return a column of booleans.
+     */
+    public static LSONColumn ofBooleans (final BitSet booleans, final int size)
+    {
+        return new LSONColumn(Type.BOOLEAN, size, booleans, null, null, false, false, null, null, null);
+    }
+
+    /**
+     * @param longs value of each row, written in decimal.
+     * @return a column of long numbers.
+     */
+    public static LSONColumn ofLongs (final long[] longs)
+    {
+        return new LSONColumn(Type.LONG, longs.length, null, longs, null, false, false, null, null, null);
+    }
+
+    /**
+     * @param doubles     value of each row.
+     * @param decimalText true if the text of integral numbers includes a fraction, as {@link Double#toString} writes
+     *                    them.
+     * @return a column of double numbers.
+     */
+    public static LSONColumn ofDoubles (final double[] doubles, final boolean decimalText)
+    {
+        return new LSONColumn(Type.DOUBLE, doubles.length, null, null, doubles, decimalText, false, null, null, null);
+    }
+
+    /**
+     * Creates a column of numbers where integral numbers are longs and all others doubles, as numbers are parsed by
+     * default. Every number is written in canonical text.
+     *
+     * @param numbers value of each row, integral values only within the range where doubles hold every long.
+     * @return a column of double numbers with integral numbers handed out as longs.
+     */
+    public static LSONColumn ofNumbers (final double[] numbers)
+    {
+        return new LSONColumn(Type.DOUBLE, numbers.length, null, null, numbers, false, true, null, null, null);
+    }
+
+    /**
+     * @param dictionary distinct strings of the column.
+     * @param codes      index into the dictionary of each row.
+     * @return a column of strings.
+     * @throws IllegalArgumentException if any of the indices is outside of the dictionary.
+     */
+    public static LSONColumn ofStrings (final LSONString[] dictionary, final int[] codes)
+    {
+        for (final int code : codes) {
+            if (code < 0 || code >= dictionary.length) {
+                throw new IllegalArgumentException("Index " + code + " outside of a dictionary of "
+                        + dictionary.length);
+            }
+        }
+
+        return new LSONColumn(Type.STRING, codes.length, null, null, null, false, false, dictionary, codes, null);
+    }
+
+    /**
+     * @param values value of each row.
+     * @return a column of arbitrary values.
+     */
+    public static LSONColumn ofValues (final LSONValue[] values)
+    {
+        return new LSONColumn(Type.VALUE, values.length, null, null, null, false, false, null, null, values);
+    }
+
+    /**
+     * Creates a column from the given cells, stored in the most compact form that keeps every cell as it is.
+     *
+     * @param cells value of each row.
+     * @return a column of the cells.
+     */
+    public static LSONColumn of (final List<? extends LSONValue> cells)
+    {
+        boolean booleans = !cells.isEmpty();
+        boolean longs = booleans;
+        boolean strings = booleans;
+        boolean canonicalText = booleans;
+        boolean decimalText = booleans;
+        boolean integralLongs = booleans;
+
+        for (final LSONValue cell : cells) {
+            if (cell != null && cell.isLSONNumber() && !cell.toLsonNumber().hasExplicitWord()) {
+                // Numbers without text of their own are in canonical text, checked without boxing them.
+                final LSONNumber number = cell.toLsonNumber();
+
+                booleans = false;
+                strings = false;
+
+                if (number.isLong()) {
+                    canonicalText = false;
+                    decimalText = false;
+                    integralLongs = integralLongs && Math.abs(number.getAsLong()) <= MAX_EXACT_LONG;
+                } else if (number.isDouble()) {
+                    longs = false;
+                    decimalText = decimalText && !isIntegral(number.getAsDouble());
+                    integralLongs = integralLongs && !isIntegral(number.getAsDouble());
+                } else {
+                    longs = false;
+                    canonicalText = false;
+                    decimalText = false;
+                    integralLongs = false;
+                }
+
+                if (!longs && !canonicalText && !decimalText && !integralLongs) {
+                    break;
+                }
+
+                continue;
+            }
+
+            final Object object = cell != null && cell.isLSONWord() && !cell.isLSONString()
+                    ? cell.toWord().getObject()
+                    : null;
+
+            final String text = object != null ? cell.toWord().getWord() : null;
+
+            booleans &= object instanceof Boolean && object.toString().equals(text);
+            longs &= object instanceof Long && object.toString().equals(text);
+            strings &= cell != null && cell.isLSONString();
+
+            if (object instanceof Double && (canonicalText || decimalText || integralLongs)) {
+                final double number = (Double) object;
+
+                canonicalText = canonicalText && getCanonicalText(number).equals(text);
+                decimalText = decimalText && Double.toString(number).equals(text);
+                integralLongs = integralLongs && !isIntegral(number) && Double.toString(number).equals(text);
+            } else {
+                canonicalText = false;
+                decimalText = false;
+
+                // Longs share a column with doubles as long as doubles hold them exactly.
+                integralLongs = integralLongs && object instanceof Long && object.toString().equals(text)
+                        && Math.abs((Long) object) <= MAX_EXACT_LONG;
+            }
+
+            if (!booleans && !longs && !strings && !canonicalText && !decimalText && !integralLongs) {
+                break;
+            }
+        }
+
+        final int size = cells.size();
+
+        if (booleans) {
+            final BitSet bits = new BitSet(size);
+            for (int i = 0; i < size; ++i) {
+                bits.set(i, (Boolean) cells.get(i).toWord().getObject());
+            }
+
+            return ofBooleans(bits, size);
+        } else if (longs) {
+            final long[] numbers = new long[size];
+            for (int i = 0; i < size; ++i) {
+                numbers[i] = getLong(cells.get(i));
+            }
+
+            return ofLongs(numbers);
+        } else if (canonicalText || decimalText) {
+            final double[] numbers = new double[size];
+            for (int i = 0; i < size; ++i) {
+                numbers[i] = getDouble(cells.get(i));
+            }
+
+            return ofDoubles(numbers, !canonicalText);
+        } else if (integralLongs) {
+            final double[] numbers = new double[size];
+            for (int i = 0; i < size; ++i) {
+                numbers[i] = getDouble(cells.get(i));
+            }
+
+            return ofNumbers(numbers);
+        } else if (strings) {
+            return ofStrings(cells);
+        }
+
+        return ofValues(cells.toArray(new LSONValue[size]));
+    }
+
+    private static long getLong (final LSONValue cell)
+    {
+        return cell.isLSONNumber() ? cell.toLsonNumber().getAsLong() : (Long) cell.toWord().getObject();
+    }
+
+    private static double getDouble (final LSONValue cell)
+    {
+        return cell.isLSONNumber()
+                ? cell.toLsonNumber().getAsDouble()
+                : ((Number) cell.toWord().getObject()).doubleValue();
+    }
+
+    private static LSONColumn ofStrings (final List<? extends LSONValue> cells)
+    {
+        final Map<String, Integer> indices = new HashMap<>();
+        final ArrayList<LSONString> dictionary = new ArrayList<>();
+        final int[] codes = new int[cells.size()];
+
+        for (int i = 0; i < codes.length; ++i) {
+            final LSONString string = cells.get(i).toLsonString();
+            final Integer index = indices.get(string.getWord());
+
+            if (index != null) {
+                codes[i] = index;
+            } else {
+                // The first instance of each string stands in for all of the equal strings after it.
+                codes[i] = dictionary.size();
+                indices.put(string.getWord(), dictionary.size());
+                dictionary.add(string);
+            }
+        }
+
+        return ofStrings(dictionary.toArray(new LSONString[dictionary.size()]), codes);
+    }
+
+    //==================================================================================================================
+    // Access
+    //==================================================================================================================
+
+    public Type getType ()
+    {
+        return this.type;
+    }
+
+    public int size ()
+    {
+        return this.size;
+    }
+
+    /**
+     * @param row index of the row.
+     * @return the value of the row, created anew for boolean and number columns.
+     */
+    public LSONValue get (final int row)
+    {
+        checkRow(row);
+
+        switch (this.type) {
+            case BOOLEAN:
+                return LSONBoolean.valueOf(this.booleans.get(row));
+            case LONG:
+                return new LSONNumber(this.longs[row]);
+            case DOUBLE: {
+                final double number = this.doubles[row];
+
+                if (this.integralLongs && isIntegral(number)) {
+                    return new LSONNumber((long) number);
+                }
+
+                // Only decimal text differs from the text numbers imply, for integral numbers.
+                return new LSONNumber(number, this.decimalText && isIntegral(number) ? Double.toString(number) : null);
+            }
+            case STRING:
+                return this.dictionary[this.codes[row]];
+            default:
+                return this.values[row];
+        }
+    }
+
+    public boolean getBoolean (final int row)
+    {
+        checkType(Type.BOOLEAN);
+        checkRow(row);
+
+        return this.booleans.get(row);
+    }
+
+    public long getLong (final int row)
+    {
+        checkType(Type.LONG);
+        return this.longs[row];
+    }
+
+    /**
+     * @param row index of the row.
+     * @return the number of the row, of either a long or a double column.
+     */
+    public double getDouble (final int row)
+    {
+        if (this.type == Type.LONG) {
+            return this.longs[row];
+        }
+
+        checkType(Type.DOUBLE);
+        return this.doubles[row];
+    }
+
+    public String getString (final int row)
+    {
+        checkType(Type.STRING);
+        return this.dictionary[this.codes[row]].getWord();
+    }
+
+    /**
+     * @return a view of the values of the column, created on access like {@link #get(int)}.
+     */
+    public List<LSONValue> asList ()
+    {
+        return new AbstractList<LSONValue>()
+        {
+            @Override
+            public LSONValue get (final int index)
+            {
+                return LSONColumn.this.get(index);
+            }
+
+            @Override
+            public int size ()
+            {
+                return LSONColumn.this.size;
+            }
+        };
+    }
+
+    /**
+     * Creates a column of the given rows of this column, keeping its type and storage form.
+     *
+     * @param rows indices of the rows to take, in order. Rows may be taken more than once.
+     * @return a column of the given rows. Strings keep sharing the dictionary of this column.
+     * @throws IndexOutOfBoundsException if any of the indices is outside of the column.
+     */
+    public LSONColumn gather (final int[] rows)
+    {
+        for (final int row : rows) {
+            checkRow(row);
+        }
+
+        switch (this.type) {
+            case BOOLEAN: {
+                final BitSet bits = new BitSet(rows.length);
+                for (int i = 0; i < rows.length; ++i) {
+                    if (this.booleans.get(rows[i])) {
+                        bits.set(i);
+                    }
+                }
+
+                return ofBooleans(bits, rows.length);
+            }
+            case LONG: {
+                final long[] numbers = new long[rows.length];
+                for (int i = 0; i < rows.length; ++i) {
+                    numbers[i] = this.longs[rows[i]];
+                }
+
+                return ofLongs(numbers);
+            }
+            case DOUBLE: {
+                final double[] numbers = new double[rows.length];
+                for (int i = 0; i < rows.length; ++i) {
+                    numbers[i] = this.doubles[rows[i]];
+                }
+
+                return this.integralLongs ? ofNumbers(numbers) : ofDoubles(numbers, this.decimalText);
+            }
+            case STRING: {
+                final int[] indices = new int[rows.length];
+                for (int i = 0; i < rows.length; ++i) {
+                    indices[i] = this.codes[rows[i]];
+                }
+
+                return new LSONColumn(Type.STRING, rows.length, null, null, null, false, false, this.dictionary,
+                        indices, null);
+            }
+            default: {
+                final LSONValue[] cells = new LSONValue[rows.length];
+                for (int i = 0; i < rows.length; ++i) {
+                    cells[i] = this.values[rows[i]];
+                }
+
+                return ofValues(cells);
+            }
+        }
+    }
+
+    //==================================================================================================================
+    // Storage
+    //==================================================================================================================
+
+    public BitSet getBooleans ()
+    {
+        checkType(Type.BOOLEAN);
+        return this.booleans;
+    }
+
+    public long[] getLongs ()
+    {
+        checkType(Type.LONG);
+        return this.longs;
+    }
+
+    public double[] getDoubles ()
+    {
+        checkType(Type.DOUBLE);
+        return this.doubles;
+    }
+
+    /**
+     * @return true if the text of integral numbers of this double column includes a fraction.
+     */
+    public boolean isDecimalText ()
+    {
+        checkType(Type.DOUBLE);
+        return this.decimalText;
+    }
+
+    /**
+     * @return true if the integral numbers of this double column are handed out as longs.
+     */
+    public boolean isIntegralLongs ()
+    {
+        checkType(Type.DOUBLE);
+        return this.integralLongs;
+    }
+
+    public LSONString[] getDictionary ()
+    {
+        checkType(Type.STRING);
+        return this.dictionary;
+    }
+
+    public int[] getCodes ()
+    {
+        checkType(Type.STRING);
+        return this.codes;
+    }
+
+    public LSONValue[] getValues ()
+    {
+        checkType(Type.VALUE);
+        return this.values;
+    }
+
+    @Override
+    public String toString ()
+    {
+        return asList().toString();
+    }
+
+    /**
+     * @return the text of a number without a fraction if it is integral, and as written by {@link Double#toString}
+     *         otherwise.
+     */
+    private static String getCanonicalText (final double number)
+    {
+        return isIntegral(number) ? Long.toString((long) number) : Double.toString(number);
+    }
+
+    /**
+     * @return true if the number is exactly a long, which excludes negative zero.
+     */
+    private static boolean isIntegral (final double number)
+    {
+        return Double.doubleToRawLongBits((long) number) == Double.doubleToRawLongBits(number);
+    }
+
+    private void checkType (final Type type)
+    {
+        if (this.type != type) {
+            throw new IllegalStateException("Column of type " + this.type + " is not of type " + type);
+        }
+    }
+
+    private void checkRow (final int row)
+    {
+        if (row < 0 || row >= this.size) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + this.size);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2017 Connor Hollasch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.hollasch.lson4j.type;
+
+import java.util.*;
+
+/**
+ * Table stored column by column, with each column stored by the type of its cells as described by
+ * {@link LSONColumn}. Columns are looked up by name through an index of the header, and rows are available either as
+ * views over the columns or as lists built on access, like the rows of any other table.
+ *
+ * @author Connor Hollasch
+ * @since Oct 18, 3:10 AM
+ */
+public class LSONColumnTable extends LSONTable
+{
+    private final LSONColumn[] columns;
+    private final int rowCount;
+
+    // Index of the first column of each name.
+    private final Map<String, Integer> indices;
+
+    /**
+     * @param header  name of each column.
+     * @param columns contents of each column, all of the same size.
+     * @throws IllegalArgumentException if the number of names and columns differ, or the columns differ in size.
+     */
+    public LSONColumnTable (final List<String> header, final List<LSONColumn> columns)
+    {
+        super(createHeader(header), null);
+
+        if (header.size() != columns.size()) {
+            throw new IllegalArgumentException(header.size() + " column names for " + columns.size() + " columns");
+        }
+
+        this.columns = columns.toArray(new LSONColumn[columns.size()]);
+        this.rowCount = this.columns.length == 0 ? 0 : this.columns[0].size();
+        this.indices = new HashMap<>();
+
+        for (int i = 0; i < this.columns.length; ++i) {
+            if (this.columns[i].size() != this.rowCount) {
+                throw new IllegalArgumentException("Column " + i + " has " + this.columns[i].size()
+                        + " rows instead of " + this.rowCount);
+            }
+
+            this.indices.putIfAbsent(header.get(i), i);
+        }
+    }
+
+    /**
+     * Creates a column table holding the contents of the given table.
+     *
+     * @param table table to store by column.
+     * @return the given table if it already is a column table, or a column table with the same contents otherwise.
+     * @throws IllegalArgumentException if a row of the table does not have a value for every column.
+     */
+    public static LSONColumnTable of (final LSONTable table)
+    {
+        if (table instanceof LSONColumnTable) {
+            return (LSONColumnTable) table;
+        }
+
+        final ArrayList<LSONWord> header = table.getHeader();
+        final ArrayList<LSONValue>[] rows = table.getRowData();
+
+        final ArrayList<String> names = new ArrayList<>(header.size());
+        final ArrayList<LSONColumn> columns = new ArrayList<>(header.size());
+
+        for (final ArrayList<LSONValue> row : rows) {
+            if (row.size() != header.size()) {
+                throw new IllegalArgumentException("Row of " + row.size() + " values under a header of "
+                        + header.size() + " columns");
+            }
+        }
+
+        for (int c = 0; c < header.size(); ++c) {
+            final LSONValue[] cells = new LSONValue[rows.length];
+            for (int r = 0; r < rows.length; ++r) {
+                cells[r] = rows[r].get(c);
+            }
+
+            names.add(header.get(c).getWord());
+            columns.add(LSONColumn.of(Arrays.asList(cells)));
+        }
+
+        return new LSONColumnTable(names, columns);
+    }
+
+    public int getRowCount ()
+    {
+        return this.rowCount;
+    }
+
+    public int getColumnCount ()
+    {
+        return this.columns.length;
+    }
+
+    /**
+     * @param name name of the column.
+     * @return the index of the first column of the given name, or -1 if there is no such column.
+     */
+    public int getColumnIndex (final String name)
+    {
+        final Integer index = this.indices.get(name);
+        return index == null ? -1 : index;
+    }
+
+    public LSONColumn getLSONColumn (final int column)
+    {
+        return this.columns[column];
+    }
+
+    /**
+     * @param name name of the column.
+     * @return the first column of the given name, or null if there is no such column.
+     */
+    public LSONColumn getLSONColumn (final String name)
+    {
+        final int index = getColumnIndex(name);
+        return index < 0 ? null : this.columns[index];
+    }
+
+    /**
+     * @param row    index of the row.
+     * @param column index of the column.
+     * @return the value of the cell, created anew for boolean and number columns.
+     */
+    public LSONValue get (final int row, final int column)
+    {
+        return this.columns[column].get(row);
+    }
+
+    /**
+     * @param row index of the row.
+     * @return a view of the values of the row, reading through to the columns on access.
+     */
+    public List<LSONValue> getRowView (final int row)
+    {
+        if (row < 0 || row >= this.rowCount) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + this.rowCount);
+        }
+
+        return new AbstractList<LSONValue>()
+        {
+            @Override
+            public LSONValue get (final int index)
+            {
+                return LSONColumnTable.this.columns[index].get(row);
+            }
+
+            @Override
+            public int size ()
+            {
+                return LSONColumnTable.this.columns.length;
+            }
+        };
+    }
+
+    /**
+     * Builds every row of the table. Prefer {@link #getRowView(int)} or the columns themselves where possible.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public ArrayList<LSONValue>[] getRowData ()
+    {
+        final ArrayList<LSONValue>[] rows = new ArrayList[this.rowCount];
+
+        for (int r = 0; r < rows.length; ++r) {
+            rows[r] = getRow(r);
+        }
+
+        return rows;
+    }
+
+    @Override
+    public ArrayList<LSONValue> getRow (final int rowNumber)
+    {
+        return new ArrayList<>(getRowView(rowNumber));
+    }
+
+    @Override
+    public ArrayList<LSONValue> getColumn (final String headerKey)
+    {
+        final int index = getColumnIndex(headerKey);
+        return index < 0 ? null : getColumn(index);
+    }
+
+    @Override
+    public ArrayList<LSONValue> getColumn (final int colNumber)
+    {
+        if (colNumber < 0 || colNumber >= this.columns.length) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        return new ArrayList<>(this.columns[colNumber].asList());
+    }
+
+    @Override
+    public String toString ()
+    {
+        return "[#" + getHeader().toString() + ": " + Arrays.toString(getRowData()) + "#]";
+    }
+
+    private static ArrayList<LSONWord> createHeader (final List<String> names)
+    {
+        final ArrayList<LSONWord> header = new ArrayList<>(names.size());
+
+        for (final String name : names) {
+            header.add(new LSONString(name));
+        }
+
+        return header;
+    }
+}
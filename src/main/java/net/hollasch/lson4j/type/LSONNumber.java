@@ -0,0 +1,278 @@
+/*
+ * Copyright (c) 2017 Connor Hollasch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.hollasch.lson4j.type;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * A number word holding its value as a primitive, so reading it with {@link #getAsLong()} or {@link #getAsDouble()}
+ * never boxes. Numbers too large for a long keep their {@link BigInteger} or {@link BigDecimal} instead.
+ * <p>
+ * The text of the word is only kept when it was given and differs from the text implied by the value, which is
+ * {@link Long#toString} for longs and integral doubles and {@link Double#toString} for any other double.
+ * {@link #getWord()} writes out the implied text whenever none was kept.
+ *
+ * @author Connor Hollasch
+ * @since Oct 18, 6:30 AM
+ */
+public final class LSONNumber extends LSONWord<Number>
+{
+    private static final byte LONG = 0;
+    private static final byte DOUBLE = 1;
+    private static final byte BIG = 2;
+
+    private final byte kind;
+
+    // The long, or the raw bits of the double, when the number is not big.
+    private final long bits;
+    private final Number big;
+
+    public LSONNumber (final long value)
+    {
+        this(value, null);
+    }
+
+    /**
+     * @param value the number.
+     * @param word  text the number was read from, or null to imply it from the number.
+     */
+    public LSONNumber (final long value, final String word)
+    {
+        this(word, LONG, value, null);
+    }
+
+    public LSONNumber (final double value)
+    {
+        this(value, null);
+    }
+
+    /**
+     * @param value the number.
+     * @param word  text the number was read from, or null to imply it from the number.
+     */
+    public LSONNumber (final double value, final String word)
+    {
+        this(word, DOUBLE, Double.doubleToRawLongBits(value), null);
+    }
+
+    /**
+     * @param value the number.
+     * @param word  text the number was read from, or null to imply it from the number.
+     */
+    public LSONNumber (final BigInteger value, final String word)
+    {
+        this(word, BIG, 0, value);
+    }
+
+    /**
+     * @param value the number.
+     * @param word  text the number was read from, or null to imply it from the number.
+     */
+    public LSONNumber (final BigDecimal value, final String word)
+    {
+        this(word, BIG, 0, value);
+    }
+
+    private LSONNumber (final String word, final byte kind, final long bits, final Number big)
+    {
+        super(word, null);
+
+        this.kind = kind;
+        this.bits = bits;
+        this.big = big;
+    }
+
+    //==================================================================================================================
+    // Access
+    //==================================================================================================================
+
+    /**
+     * @return true if the number is held as a long.
+     */
+    public boolean isLong ()
+    {
+        return this.kind == LONG;
+    }
+
+    /**
+     * @return true if the number is held as a double.
+     */
+    public boolean isDouble ()
+    {
+        return this.kind == DOUBLE;
+    }
+
+    /**
+     * @return the number as a long, truncated as {@link Number#longValue()} does.
+     */
+    public long getAsLong ()
+    {
+        switch (this.kind) {
+            case LONG:
+                return this.bits;
+            case DOUBLE:
+                return (long) Double.longBitsToDouble(this.bits);
+            default:
+                return this.big.longValue();
+        }
+    }
+
+    /**
+     * @return the number as a double, rounded as {@link Number#doubleValue()} does.
+     */
+    public double getAsDouble ()
+    {
+        switch (this.kind) {
+            case LONG:
+                return this.bits;
+            case DOUBLE:
+                return Double.longBitsToDouble(this.bits);
+            default:
+                return this.big.doubleValue();
+        }
+    }
+
+    /**
+     * @return true if the text the number was read from is kept, rather than implied by the number.
+     */
+    public boolean hasExplicitWord ()
+    {
+        return super.getWord() != null;
+    }
+
+    @Override
+    public String getWord ()
+    {
+        final String word = super.getWord();
+        if (word != null) {
+            return word;
+        }
+
+        switch (this.kind) {
+            case LONG:
+                return Long.toString(this.bits);
+            case DOUBLE: {
+                final double number = Double.longBitsToDouble(this.bits);
+
+                return isIntegral(number) ? Long.toString((long) number) : Double.toString(number);
+            }
+            default:
+                return this.big.toString();
+        }
+    }
+
+    /**
+     * @return the number, boxed anew for longs and doubles.
+     */
+    @Override
+    public Number getObject ()
+    {
+        switch (this.kind) {
+            case LONG:
+                return this.bits;
+            case DOUBLE:
+                return Double.longBitsToDouble(this.bits);
+            default:
+                return this.big;
+        }
+    }
+
+    @Override
+    public boolean isLSONNumber ()
+    {
+        return true;
+    }
+
+    //==================================================================================================================
+    // Object
+    //==================================================================================================================
+
+    @Override
+    public String toString ()
+    {
+        switch (this.kind) {
+            case LONG:
+                return Long.toString(this.bits);
+            case DOUBLE:
+                return Double.toString(Double.longBitsToDouble(this.bits));
+            default:
+                return this.big.toString();
+        }
+    }
+
+    @Override
+    public boolean equals (final Object obj)
+    {
+        if (obj == null) {
+            return false;
+        }
+
+        if (obj instanceof LSONNumber) {
+            final LSONNumber o = (LSONNumber) obj;
+
+            if (o.kind != this.kind) {
+                return false;
+            }
+
+            // Doubles compare as Double#equals does, so NaN equals itself and zero differs from negative zero.
+            switch (this.kind) {
+                case LONG:
+                    return o.bits == this.bits;
+                case DOUBLE:
+                    return Double.doubleToLongBits(o.getAsDouble()) == Double.doubleToLongBits(getAsDouble());
+                default:
+                    return o.big.equals(this.big);
+            }
+        }
+
+        return obj.equals(getObject());
+    }
+
+    /**
+     * Hashes only the number, as {@link #equals(Object)} ignores the text it was read from.
+     */
+    @Override
+    public int hashCode ()
+    {
+        switch (this.kind) {
+            case LONG:
+                return Long.hashCode(this.bits);
+            case DOUBLE:
+                return Double.hashCode(Double.longBitsToDouble(this.bits));
+            default:
+                return this.big.hashCode();
+        }
+    }
+
+    /**
+     * @return true if the number is exactly a long, which excludes negative zero and doubles the cast would saturate.
+     */
+    private static boolean isIntegral (final double number)
+    {
+        return number >= -0x1p63 && number < 0x1p63
+                && Double.doubleToRawLongBits((long) number) == Double.doubleToRawLongBits(number);
+    }
+}
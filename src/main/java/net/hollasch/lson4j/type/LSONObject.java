@@ -47,7 +47,19 @@ public class LSONObject<V extends LSONValue> extends LSONValue
 
     public V get (final String key)
     {
-        return get(new LSONString(key));
+        return get((CharSequence) key);
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get (final CharSequence key)
+    {
+        // Shaped maps are searched by the characters of the key, without wrapping them in a string first.
+        if (this.map instanceof LSONShapedMap) {
+            return ((LSONShapedMap<V>) this.map).getByWord(key);
+        }
+
+        // Any other map was handed in by the caller, who may still change it, so it can only be searched by key.
+        return get(new LSONString(key.toString()));
     }
 
     public V get (final LSONString key)
@@ -70,8 +82,13 @@ public class LSONObject<V extends LSONValue> extends LSONValue
         return this.map.entrySet();
     }
 
+    @SuppressWarnings("unchecked")
     public V put (final String key, final V value)
     {
+        if (this.map instanceof LSONShapedMap) {
+            return ((LSONShapedMap<V>) this.map).putByWord(key, value);
+        }
+
         return this.map.put(new LSONString(key), value);
     }
 
@@ -108,16 +125,16 @@ public class LSONObject<V extends LSONValue> extends LSONValue
                 return false;
             }
 
-            return obj.equals(this.map);
+            return obj.equals(toHashMap());
         }
 
-        return ((LSONObject) obj).map.equals(this.map);
+        return ((LSONObject) obj).toHashMap().equals(toHashMap());
     }
 
     @Override
     public int hashCode ()
     {
-        return this.map.hashCode();
+        return toHashMap().hashCode();
     }
 
     @Override
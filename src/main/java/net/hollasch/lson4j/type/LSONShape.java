@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2017 Connor Hollasch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.hollasch.lson4j.type;
+
+import net.hollasch.lson4j.util.LSONSymbolTable;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ordered set of object keys shared by every {@link LSONShapedMap} holding those keys, mapping each key to the slot
+ * of its value. Shapes are immutable; adding a key to a shape leads to a child shape, which is created once and then
+ * looked up by every later object adding the same key in the same position. Objects parsed from the same document
+ * with the same keys in the same order therefore share one shape, and only store their values.
+ * <p>
+ * The tree of shapes is bounded, so that documents without recurring key sets cannot grow it without limit: shapes
+ * hold at most {@link #MAX_KEYS} keys and have at most {@link #MAX_TRANSITIONS} children. Adding a key past either
+ * limit fails, and the object falls back to a hash map.
+ *
+ * @author Connor Hollasch
+ * @since Oct 18, 5:15 AM
+ */
+public final class LSONShape
+{
+    /**
+     * Most keys a shape holds, larger objects are stored in a hash map.
+     */
+    public static final int MAX_KEYS = 32;
+
+    /**
+     * Most child shapes a shape has, objects diverging from every child are stored in a hash map.
+     */
+    public static final int MAX_TRANSITIONS = 64;
+
+    // Shapes with up to this many keys are searched linearly, larger ones through an index.
+    private static final int LINEAR_SCAN_KEYS = 8;
+
+    private final LSONString[] keys;
+    private final int[] hashes;
+
+    // Open addressing index from key hashes to slots plus one, zero for empty entries. Only built for large shapes.
+    private final int[] index;
+
+    // Child shapes, by the key they add.
+    private final ConcurrentHashMap<String, LSONShape> transitions;
+
+    /**
+     * Creates a root shape without keys. Shapes are not bounded across roots, so every root should be shared by the
+     * objects of one document or stream.
+     */
+    public LSONShape ()
+    {
+        this(new LSONString[0]);
+    }
+
+    private LSONShape (final LSONString[] keys)
+    {
+        this.keys = keys;
+        this.hashes = new int[keys.length];
+        this.transitions = new ConcurrentHashMap<>(4);
+
+        for (int i = 0; i < keys.length; ++i) {
+            this.hashes[i] = keys[i].getWord().hashCode();
+        }
+
+        if (keys.length <= LINEAR_SCAN_KEYS) {
+            this.index = null;
+            return;
+        }
+
+        this.index = new int[Integer.highestOneBit(keys.length) << 2];
+        final int mask = this.index.length - 1;
+
+        for (int i = 0; i < keys.length; ++i) {
+            int entry = this.hashes[i] & mask;
+
+            while (this.index[entry] != 0) {
+                entry = (entry + 1) & mask;
+            }
+
+            this.index[entry] = i + 1;
+        }
+    }
+
+    /**
+     * @return the number of keys of this shape.
+     */
+    public int size ()
+    {
+        return this.keys.length;
+    }
+
+    /**
+     * @param slot slot of the key, from {@code 0} to {@link #size()} exclusive.
+     * @return the key stored in the given slot.
+     */
+    public LSONString getKey (final int slot)
+    {
+        return this.keys[slot];
+    }
+
+    /**
+     * Looks up the slot of a key without allocating.
+     *
+     * @param key characters of the key to look up.
+     * @return the slot of the given key, or {@code -1} if this shape does not hold it.
+     */
+    public int getSlot (final CharSequence key)
+    {
+        final int hash = LSONSymbolTable.hash(key);
+
+        if (this.index == null) {
+            for (int i = 0; i < this.hashes.length; ++i) {
+                if (this.hashes[i] == hash && matches(this.keys[i], key)) {
+                    return i;
+                }
+            }
+
+            return -1;
+        }
+
+        final int mask = this.index.length - 1;
+
+        for (int entry = hash & mask; this.index[entry] != 0; entry = (entry + 1) & mask) {
+            final int slot = this.index[entry] - 1;
+
+            if (this.hashes[slot] == hash && matches(this.keys[slot], key)) {
+                return slot;
+            }
+        }
+
+        return -1;
+    }
+
+    private static boolean matches (final LSONString symbol, final CharSequence key)
+    {
+        // Keys interned by the same symbol table share their string.
+        final String word = symbol.getWord();
+        return word == key || word.contentEquals(key);
+    }
+
+    /**
+     * Looks up or creates the shape holding the keys of this shape followed by the given key, which must not be held
+     * by this shape already.
+     *
+     * @param key key to add.
+     * @return the child shape, or {@code null} if it would exceed the limits of the shape tree.
+     */
+    public LSONShape withKey (final LSONString key)
+    {
+        final String word = key.getWord();
+        final LSONShape existing = this.transitions.get(word);
+
+        if (existing != null) {
+            return existing;
+        }
+
+        if (this.keys.length >= MAX_KEYS || this.transitions.size() >= MAX_TRANSITIONS) {
+            return null;
+        }
+
+        final LSONString[] childKeys = Arrays.copyOf(this.keys, this.keys.length + 1);
+        childKeys[this.keys.length] = key;
+
+        final LSONShape child = new LSONShape(childKeys);
+        final LSONShape raced = this.transitions.putIfAbsent(word, child);
+
+        return raced == null ? child : raced;
+    }
+}
@@ -0,0 +1,427 @@
+/*
+ * Copyright (c) 2017 Connor Hollasch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.hollasch.lson4j.type;
+
+import net.hollasch.lson4j.util.LSONSymbolTable;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * Map of object keys to values storing the keys as a shared {@link LSONShape}, and the values as an array indexed by
+ * the slots of the shape. Objects repeating the key set of earlier objects only pay for their values, and looking a
+ * key up scans a handful of cached hashes instead of hashing into a table of entries.
+ * <p>
+ * Entries are iterated in the order their keys were first added. The map falls back to a {@link HashMap} as soon as
+ * it no longer fits a shape: when growing past {@link LSONShape#MAX_KEYS}, when adding keys in an order the shape
+ * tree has no more room for, or when removing a key. The map behaves the same either way, and is serialized as a
+ * plain hash map. Looking keys up by their characters does not allocate in either form.
+ *
+ * @param <V> type of the values of the map.
+ * @author Connor Hollasch
+ * @since Oct 18, 5:15 AM
+ */
+public final class LSONShapedMap<V> extends AbstractMap<LSONString, V> implements Serializable
+{
+    private static final Object[] EMPTY_VALUES = new Object[0];
+
+    private LSONShape shape;
+    private Object[] values;
+
+    // Set once the map no longer fits a shape, holding every entry from then on.
+    private HashMap<LSONString, V> fallback;
+
+    // Keys of the fallback map by their characters, set along with it.
+    private KeyIndex fallbackKeys;
+
+    /**
+     * Creates an empty map, growing from the given root shape.
+     *
+     * @param root shape without keys, shared by every map the new map may share its keys with.
+     */
+    public LSONShapedMap (final LSONShape root)
+    {
+        if (root.size() != 0) {
+            throw new IllegalArgumentException("Shaped maps must start from a root shape without keys");
+        }
+
+        this.shape = root;
+        this.values = EMPTY_VALUES;
+    }
+
+    /**
+     * @return whether the map is still stored as a shape and an array of values.
+     */
+    public boolean isShaped ()
+    {
+        return this.fallback == null;
+    }
+
+    /**
+     * Shrinks the array of values to the number of keys, to be called once an object is done growing.
+     */
+    public void trimToSize ()
+    {
+        if (this.fallback == null && this.values.length > this.shape.size()) {
+            this.values = Arrays.copyOf(this.values, this.shape.size());
+        }
+    }
+
+    /**
+     * Looks up the value of a key by its characters, without allocating.
+     *
+     * @param key characters of the key.
+     * @return the value of the key, or {@code null} if the map does not hold it.
+     */
+    @SuppressWarnings("unchecked")
+    public V getByWord (final CharSequence key)
+    {
+        if (this.fallback != null) {
+            final LSONString found = this.fallbackKeys.find(key);
+            return found != null ? this.fallback.get(found) : null;
+        }
+
+        final int slot = this.shape.getSlot(key);
+        return slot < 0 ? null : (V) this.values[slot];
+    }
+
+    /**
+     * Sets the value of a key given by its text, only allocating the key if the map does not hold it yet.
+     *
+     * @param key   text of the key.
+     * @param value value to store.
+     * @return the previous value of the key, or {@code null} if the map did not hold it.
+     */
+    @SuppressWarnings("unchecked")
+    public V putByWord (final String key, final V value)
+    {
+        if (this.fallback == null) {
+            final int slot = this.shape.getSlot(key);
+
+            if (slot >= 0) {
+                final V previous = (V) this.values[slot];
+                this.values[slot] = value;
+                return previous;
+            }
+        } else {
+            final LSONString found = this.fallbackKeys.find(key);
+
+            if (found != null) {
+                return this.fallback.put(found, value);
+            }
+        }
+
+        return put(new LSONString(key), value);
+    }
+
+    @Override
+    public int size ()
+    {
+        return this.fallback != null ? this.fallback.size() : this.shape.size();
+    }
+
+    @Override
+    public boolean isEmpty ()
+    {
+        return size() == 0;
+    }
+
+    @Override
+    public boolean containsKey (final Object key)
+    {
+        if (this.fallback != null) {
+            return this.fallback.containsKey(key);
+        }
+
+        return key instanceof LSONString && this.shape.getSlot(((LSONString) key).getWord()) >= 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get (final Object key)
+    {
+        if (this.fallback != null) {
+            return this.fallback.get(key);
+        }
+
+        if (!(key instanceof LSONString)) {
+            return null;
+        }
+
+        final int slot = this.shape.getSlot(((LSONString) key).getWord());
+        return slot < 0 ? null : (V) this.values[slot];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put (final LSONString key, final V value)
+    {
+        if (this.fallback != null) {
+            return putFallback(key, value);
+        }
+
+        final int slot = this.shape.getSlot(key.getWord());
+
+        if (slot >= 0) {
+            final V previous = (V) this.values[slot];
+            this.values[slot] = value;
+            return previous;
+        }
+
+        final LSONShape next = this.shape.withKey(key);
+
+        if (next == null) {
+            fallBack();
+            return putFallback(key, value);
+        }
+
+        final int size = this.shape.size();
+
+        if (size == this.values.length) {
+            this.values = Arrays.copyOf(this.values, Math.min(Math.max(4, size * 2), LSONShape.MAX_KEYS));
+        }
+
+        this.shape = next;
+        this.values[size] = value;
+        return null;
+    }
+
+    @Override
+    public V remove (final Object key)
+    {
+        if (this.fallback == null) {
+            if (!containsKey(key)) {
+                return null;
+            }
+
+            fallBack();
+        }
+
+        return this.fallback.remove(key);
+    }
+
+    @Override
+    public void clear ()
+    {
+        if (this.fallback == null) {
+            fallBack();
+        }
+
+        this.fallback.clear();
+        this.fallbackKeys = new KeyIndex();
+    }
+
+    @Override
+    public Set<Entry<LSONString, V>> entrySet ()
+    {
+        return this.fallback != null ? this.fallback.entrySet() : new ShapedEntrySet();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void fallBack ()
+    {
+        final int size = this.shape.size();
+        final HashMap<LSONString, V> map = new HashMap<>(Math.max(16, (int) (size / 0.75f) + 1));
+        final KeyIndex keys = new KeyIndex();
+
+        for (int i = 0; i < size; ++i) {
+            map.put(this.shape.getKey(i), (V) this.values[i]);
+            keys.add(this.shape.getKey(i));
+        }
+
+        this.fallback = map;
+        this.fallbackKeys = keys;
+        this.values = EMPTY_VALUES;
+    }
+
+    private V putFallback (final LSONString key, final V value)
+    {
+        final V previous = this.fallback.put(key, value);
+
+        if (previous == null) {
+            // Keys removed from the fallback map, also through its views, stay in the index until it is rebuilt.
+            if (this.fallbackKeys.size() >= 2 * this.fallback.size() + 16) {
+                this.fallbackKeys = new KeyIndex();
+
+                for (final LSONString held : this.fallback.keySet()) {
+                    this.fallbackKeys.add(held);
+                }
+            } else {
+                this.fallbackKeys.add(key);
+            }
+        }
+
+        return previous;
+    }
+
+    private Object writeReplace ()
+    {
+        return new HashMap<>(this);
+    }
+
+    //==================================================================================================================
+
+    private final class ShapedEntrySet extends AbstractSet<Entry<LSONString, V>>
+    {
+        @Override
+        public int size ()
+        {
+            return LSONShapedMap.this.size();
+        }
+
+        @Override
+        public Iterator<Entry<LSONString, V>> iterator ()
+        {
+            final LSONShape shape = LSONShapedMap.this.shape;
+            final Object[] values = LSONShapedMap.this.values;
+
+            // Iterates the entries present when the iterator was created. Removing an entry makes the map fall back,
+            // and the remaining entries are still read from the captured values.
+            return new Iterator<Entry<LSONString, V>>()
+            {
+                private int next;
+                private LSONString removable;
+
+                @Override
+                public boolean hasNext ()
+                {
+                    return this.next < shape.size();
+                }
+
+                @Override
+                @SuppressWarnings("unchecked")
+                public Entry<LSONString, V> next ()
+                {
+                    if (this.next >= shape.size()) {
+                        throw new NoSuchElementException();
+                    }
+
+                    final int slot = this.next++;
+                    this.removable = shape.getKey(slot);
+                    return new ShapedEntry(this.removable, (V) values[slot]);
+                }
+
+                @Override
+                public void remove ()
+                {
+                    if (this.removable == null) {
+                        throw new IllegalStateException();
+                    }
+
+                    LSONShapedMap.this.remove(this.removable);
+                    this.removable = null;
+                }
+            };
+        }
+    }
+
+    /**
+     * Open addressing index of the keys of the fallback map by the hash of their characters, so that keys given by
+     * their characters are found without wrapping them in a string first. The index may still hold keys since removed
+     * from the map, which the map then does not find.
+     */
+    private static final class KeyIndex
+    {
+        private LSONString[] keys = new LSONString[64];
+        private int[] hashes = new int[64];
+        private int size;
+
+        private int size ()
+        {
+            return this.size;
+        }
+
+        /**
+         * @return the key holding the given characters, or {@code null} if the index does not hold it.
+         */
+        private LSONString find (final CharSequence chars)
+        {
+            final int hash = LSONSymbolTable.hash(chars);
+            final int mask = this.keys.length - 1;
+
+            for (int entry = hash & mask; this.keys[entry] != null; entry = (entry + 1) & mask) {
+                final String word = this.keys[entry].getWord();
+
+                if (this.hashes[entry] == hash && (word == chars || word.contentEquals(chars))) {
+                    return this.keys[entry];
+                }
+            }
+
+            return null;
+        }
+
+        private void add (final LSONString key)
+        {
+            if (find(key.getWord()) != null) {
+                return;
+            }
+
+            if (this.size >= this.keys.length >> 1) {
+                final LSONString[] keys = this.keys;
+
+                this.keys = new LSONString[keys.length << 1];
+                this.hashes = new int[keys.length << 1];
+
+                for (final LSONString held : keys) {
+                    if (held != null) {
+                        insert(held);
+                    }
+                }
+            }
+
+            insert(key);
+            ++this.size;
+        }
+
+        private void insert (final LSONString key)
+        {
+            final int hash = key.getWord().hashCode();
+            final int mask = this.keys.length - 1;
+
+            int entry = hash & mask;
+            while (this.keys[entry] != null) {
+                entry = (entry + 1) & mask;
+            }
+
+            this.keys[entry] = key;
+            this.hashes[entry] = hash;
+        }
+    }
+
+    private final class ShapedEntry extends SimpleEntry<LSONString, V>
+    {
+        private ShapedEntry (final LSONString key, final V value)
+        {
+            super(key, value);
+        }
+
+        @Override
+        public V setValue (final V value)
+        {
+            LSONShapedMap.this.put(getKey(), value);
+            return super.setValue(value);
+        }
+    }
+}
@@ -56,7 +56,7 @@ public class LSONTable extends LSONValue
 
     public ArrayList<LSONValue> getColumn (final int colNumber)
     {
-        if (colNumber < 0 || colNumber > this.rowData.length) {
+        if (colNumber < 0 || colNumber >= this.header.size()) {
             throw new IndexOutOfBoundsException();
         }
 
@@ -32,4 +32,39 @@ public interface LSONTypeAdapter<T>
     T buildFromWord (final String value);
 
     boolean willAdaptFor (final String word);
+
+    /**
+     * Tells which leading characters words this adapter adapts may start with, so that words starting with any other
+     * character are never offered to it. Adapters may adapt words starting with any character unless they say
+     * otherwise.
+     *
+     * @param first first character of a word.
+     * @return false if this adapter adapts no word starting with the character.
+     */
+    default boolean willAdaptStartingWith (final char first)
+    {
+        return true;
+    }
+
+    /**
+     * Adapters of higher priority are offered words before adapters of lower priority.
+     *
+     * @return the priority of this adapter, zero unless given otherwise.
+     */
+    default int getPriority ()
+    {
+        return 0;
+    }
+
+    /**
+     * Builds the word for text this adapter will adapt for, holding the object of {@link #buildFromWord}. Adapters
+     * with a word type of their own, such as {@link LSONNumber}, override this to build it directly.
+     *
+     * @param word text of the word.
+     * @return the word.
+     */
+    default LSONWord<T> buildWord (final String word)
+    {
+        return new LSONWord<>(word, buildFromWord(word));
+    }
 }
@@ -0,0 +1,265 @@
+/*
+ * Copyright (c) 2017 Connor Hollasch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.hollasch.lson4j.type;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Scalar type adapters compiled into a dispatch table keyed by the first character of a word, so that a word is only
+ * offered to the adapters declaring, through {@link LSONTypeAdapter#willAdaptStartingWith}, that they may adapt words
+ * starting with its first character.
+ * <p>
+ * Adapters are tried in a fixed order: by descending {@link LSONTypeAdapter#getPriority() priority}, then by class
+ * name, then in the order they were given, so the adapter picked for a word does not depend on the iteration order
+ * of the collection the adapters were registered in.
+ * <p>
+ * A table may optionally reorder adapters of equal priority by how often they adapt words starting with each
+ * character, so the adapter most likely to take a word is asked first. Adapters of equal priority are then expected
+ * not to accept the same words. Such a table counts hits as it goes and is meant to be used by one parser at a time,
+ * while a table that does not reorder never changes and may be shared freely. Either kind may be handed to the
+ * {@code LSON} methods taking a table, so that it is compiled once for any number of documents.
+ *
+ * @author Connor Hollasch
+ * @since Oct 18, 6:55 AM
+ */
+public final class LSONTypeAdapterTable
+{
+    // Characters below this are dispatched through the table, any other character is checked against every adapter.
+    private static final int TABLE_SIZE = 128;
+
+    private static final LSONTypeAdapter<?>[] NO_ADAPTERS = new LSONTypeAdapter<?>[0];
+
+    private final List<LSONTypeAdapter<?>> adapters;
+    private final boolean adaptive;
+
+    private final LSONTypeAdapter<?>[][] byFirst = new LSONTypeAdapter<?>[TABLE_SIZE][];
+    private final int[][] hits;
+
+    public LSONTypeAdapterTable (final Collection<LSONTypeAdapter<?>> adapters)
+    {
+        this(adapters, false);
+    }
+
+    /**
+     * @param adapters scalar type adapters to dispatch words to.
+     * @param adaptive true to reorder adapters of equal priority by how often they adapt words.
+     */
+    public LSONTypeAdapterTable (final Collection<LSONTypeAdapter<?>> adapters, final boolean adaptive)
+    {
+        final List<LSONTypeAdapter<?>> ordered = new ArrayList<>(adapters);
+
+        // The sort is stable, so adapters of the same class keep the order they were given in.
+        ordered.sort(Comparator.<LSONTypeAdapter<?>>comparingInt(adapter -> -adapter.getPriority())
+                .thenComparing(adapter -> adapter.getClass().getName()));
+
+        this.adapters = Collections.unmodifiableList(ordered);
+        this.adaptive = adaptive;
+        this.hits = adaptive ? new int[TABLE_SIZE][] : null;
+
+        final List<LSONTypeAdapter<?>> candidates = new ArrayList<>();
+
+        for (int c = 0; c < TABLE_SIZE; ++c) {
+            candidates.clear();
+
+            for (final LSONTypeAdapter<?> adapter : ordered) {
+                if (adapter.willAdaptStartingWith((char) c)) {
+                    candidates.add(adapter);
+                }
+            }
+
+            this.byFirst[c] = candidates.isEmpty() ? NO_ADAPTERS : candidates.toArray(NO_ADAPTERS);
+
+            if (adaptive) {
+                this.hits[c] = new int[candidates.size()];
+            }
+        }
+    }
+
+    /**
+     * @return the adapters of the table, in the order they are tried in before any reordering.
+     */
+    public List<LSONTypeAdapter<?>> getAdapters ()
+    {
+        return this.adapters;
+    }
+
+    public boolean isAdaptive ()
+    {
+        return this.adaptive;
+    }
+
+    public boolean isEmpty ()
+    {
+        return this.adapters.isEmpty();
+    }
+
+    /**
+     * Finds the adapter for the given word, the first adapter of the table that will adapt it.
+     *
+     * @param word text of the word.
+     * @return the adapter for the word, or null if no adapter will adapt it.
+     */
+    public LSONTypeAdapter<?> getAdapter (final String word)
+    {
+        if (word.isEmpty()) {
+            return find(word);
+        }
+
+        final char first = word.charAt(0);
+        if (first >= TABLE_SIZE) {
+            return find(word);
+        }
+
+        final LSONTypeAdapter<?>[] candidates = this.byFirst[first];
+
+        for (int i = 0; i < candidates.length; ++i) {
+            if (candidates[i].willAdaptFor(word)) {
+                if (this.adaptive) {
+                    return hit(first, i);
+                }
+
+                return candidates[i];
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Builds the word for the given text with the adapter the table picks for it.
+     *
+     * @param word text of the word.
+     * @return the adapted word, or null if no adapter will adapt it.
+     */
+    public LSONWord<?> buildWord (final String word)
+    {
+        return buildWord(word, 0, word.length());
+    }
+
+    /**
+     * Builds the word held by the given characters with the adapter the table picks for it. The characters are only
+     * copied into a string if an adapter not implementing {@link LSONCharTypeAdapter} is offered the word, and then
+     * only once.
+     *
+     * @param chars characters holding the word.
+     * @param start index of the first character of the word.
+     * @param end   index after the last character of the word.
+     * @return the adapted word, or null if no adapter will adapt it.
+     */
+    public LSONWord<?> buildWord (final CharSequence chars, final int start, final int end)
+    {
+        if (start == end || chars.charAt(start) >= TABLE_SIZE) {
+            final String word = chars.subSequence(start, end).toString();
+            final LSONTypeAdapter<?> adapter = find(word);
+
+            return adapter != null ? adapter.buildWord(word) : null;
+        }
+
+        final char first = chars.charAt(start);
+        final LSONTypeAdapter<?>[] candidates = this.byFirst[first];
+
+        String word = null;
+
+        for (int i = 0; i < candidates.length; ++i) {
+            final LSONTypeAdapter<?> adapter = candidates[i];
+
+            if (adapter instanceof LSONCharTypeAdapter) {
+                final LSONCharTypeAdapter<?> charAdapter = (LSONCharTypeAdapter<?>) adapter;
+
+                if (charAdapter.willAdaptFor(chars, start, end)) {
+                    if (this.adaptive) {
+                        hit(first, i);
+                    }
+
+                    return charAdapter.buildWord(chars, start, end);
+                }
+            } else {
+                if (word == null) {
+                    word = chars.subSequence(start, end).toString();
+                }
+
+                if (adapter.willAdaptFor(word)) {
+                    if (this.adaptive) {
+                        hit(first, i);
+                    }
+
+                    return adapter.buildWord(word);
+                }
+            }
+        }
+
+        return null;
+    }
+
+    //==================================================================================================================
+
+    /**
+     * Checks a word outside of the table against every adapter, in order.
+     */
+    private LSONTypeAdapter<?> find (final String word)
+    {
+        for (final LSONTypeAdapter<?> adapter : this.adapters) {
+            if ((word.isEmpty() || adapter.willAdaptStartingWith(word.charAt(0))) && adapter.willAdaptFor(word)) {
+                return adapter;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Counts a hit of the adapter at the given index for the given first character, moving it ahead of the adapter
+     * before it once it has more hits and the same priority.
+     */
+    private LSONTypeAdapter<?> hit (final char first, final int index)
+    {
+        final LSONTypeAdapter<?>[] candidates = this.byFirst[first];
+        final int[] counts = this.hits[first];
+        final LSONTypeAdapter<?> adapter = candidates[index];
+
+        // Counts are halved rather than left to overflow, keeping their proportions.
+        if (++counts[index] == Integer.MAX_VALUE) {
+            for (int i = 0; i < counts.length; ++i) {
+                counts[i] >>>= 1;
+            }
+        }
+
+        if (index > 0 && counts[index] > counts[index - 1]
+                && candidates[index - 1].getPriority() == adapter.getPriority()) {
+            candidates[index] = candidates[index - 1];
+            candidates[index - 1] = adapter;
+
+            final int count = counts[index];
+            counts[index] = counts[index - 1];
+            counts[index - 1] = count;
+        }
+
+        return adapter;
+    }
+}
@@ -64,6 +64,16 @@ public abstract class LSONValue implements Serializable
         return false;
     }
 
+    public boolean isLSONNumber ()
+    {
+        return false;
+    }
+
+    public boolean isLSONBoolean ()
+    {
+        return false;
+    }
+
     public LSONObject toObject ()
     {
         return (LSONObject) this;
@@ -94,6 +104,16 @@ public abstract class LSONValue implements Serializable
         return (LSONString) this;
     }
 
+    public LSONNumber toLsonNumber ()
+    {
+        return (LSONNumber) this;
+    }
+
+    public LSONBoolean toLsonBoolean ()
+    {
+        return (LSONBoolean) this;
+    }
+
     public boolean literalEquals (final Object other)
     {
         return super.equals(other);
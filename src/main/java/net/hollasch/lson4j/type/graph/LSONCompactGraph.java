@@ -0,0 +1,364 @@
+/*
+ * Copyright (c) 2017 Connor Hollasch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.hollasch.lson4j.type.graph;
+
+import net.hollasch.lson4j.type.LSONValue;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Graph stored as parallel arrays rather than as vertex and edge objects: the vertices of each edge are stored in
+ * arrays of sources and targets, the direction of each edge as a bit, and edge data in an array that is left out
+ * altogether if no edge has data. Vertex names and values are stored the same way. Parsed and decoded graphs are
+ * stored in this form, taking a few bytes per edge rather than the objects of {@link LSONEdge} and
+ * {@link LSONVertex}.
+ * <p>
+ * Vertex and edge objects are created on access as views of the arrays, so the same vertex or edge is never the same
+ * object twice. {@link #getVertices()} and {@link #getEdges()} create every vertex and edge of the graph, and are
+ * best left to small graphs; the accessors by position read the arrays directly. The graph is immutable, and the
+ * arrays handed out are its storage, which must not be modified.
+ *
+ * @author Connor Hollasch
+ * @since Oct 18, 4:50 AM
+ */
+public class LSONCompactGraph extends LSONGraph
+{
+    private final int vertexCount;
+    private final String[] names;
+    private final LSONValue[] vertexValues;
+
+    private final int[] sources;
+    private final int[] targets;
+    private final BitSet directed;
+    private final LSONValue[] edgeData;
+
+    /**
+     * @param vertexCount  number of vertices.
+     * @param names        name of each vertex, or null if the vertices are not named.
+     * @param vertexValues value of each vertex, or null if no vertex has a value.
+     * @param sources      index of the vertex each edge leads from.
+     * @param targets      index of the vertex each edge leads to.
+     * @param directed     bit set of the edges that are directed.
+     * @param edgeData     data of each edge, or null if no edge has data.
+     * @throws IllegalArgumentException if the arrays differ in length from the vertices or edges they describe, or an
+     *                                  edge leads to a vertex outside of the graph.
+     */
+    public LSONCompactGraph (
+            final int vertexCount,
+            final String[] names,
+            final LSONValue[] vertexValues,
+            final int[] sources,
+            final int[] targets,
+            final BitSet directed,
+            final LSONValue[] edgeData)
+    {
+        super(null, null);
+
+        if (vertexCount < 0) {
+            throw new IllegalArgumentException("Negative vertex count " + vertexCount);
+        }
+
+        checkLength("vertex names", names == null ? vertexCount : names.length, vertexCount);
+        checkLength("vertex values", vertexValues == null ? vertexCount : vertexValues.length, vertexCount);
+        checkLength("edge targets", targets.length, sources.length);
+        checkLength("edge data", edgeData == null ? sources.length : edgeData.length, sources.length);
+
+        for (int e = 0; e < sources.length; ++e) {
+            if (sources[e] < 0 || sources[e] >= vertexCount || targets[e] < 0 || targets[e] >= vertexCount) {
+                throw new IllegalArgumentException("Edge " + e + " from " + sources[e] + " to " + targets[e]
+                        + " outside of a graph of " + vertexCount + " vertices");
+            }
+        }
+
+        this.vertexCount = vertexCount;
+        this.names = names;
+        this.vertexValues = vertexValues;
+        this.sources = sources;
+        this.targets = targets;
+        this.directed = directed;
+        this.edgeData = edgeData;
+    }
+
+    /**
+     * Creates a compact graph holding the contents of the given graph.
+     *
+     * @param graph graph to store as arrays.
+     * @return the given graph if it already is a compact graph, or a compact graph with the same contents otherwise.
+     * @throws IllegalArgumentException if an edge of the graph leads to a vertex outside of the graph.
+     */
+    public static LSONCompactGraph of (final LSONGraph graph)
+    {
+        if (graph instanceof LSONCompactGraph) {
+            return (LSONCompactGraph) graph;
+        }
+
+        final int vertexCount = graph.getVertexCount();
+        final int edgeCount = graph.getEdgeCount();
+
+        final String[] names = new String[vertexCount];
+        final LSONValue[] vertexValues = new LSONValue[vertexCount];
+        boolean named = false;
+        boolean valued = false;
+
+        for (int v = 0; v < vertexCount; ++v) {
+            names[v] = graph.getVertexName(v);
+            vertexValues[v] = graph.getVertexValue(v);
+
+            named |= names[v] != null;
+            valued |= vertexValues[v] != null;
+        }
+
+        final int[] sources = new int[edgeCount];
+        final int[] targets = new int[edgeCount];
+        final BitSet directed = new BitSet(edgeCount);
+        final LSONValue[] edgeData = new LSONValue[edgeCount];
+        boolean data = false;
+
+        for (int e = 0; e < edgeCount; ++e) {
+            sources[e] = graph.getEdgeSource(e);
+            targets[e] = graph.getEdgeTarget(e);
+            directed.set(e, graph.isEdgeDirected(e));
+            edgeData[e] = graph.getEdgeData(e);
+
+            data |= edgeData[e] != null;
+        }
+
+        return new LSONCompactGraph(vertexCount, named ? names : null, valued ? vertexValues : null, sources,
+                targets, directed, data ? edgeData : null);
+    }
+
+    //==================================================================================================================
+    // Views
+    //==================================================================================================================
+
+    /**
+     * @return a new vertex object for the vertex at the given index.
+     */
+    public LSONVertex getVertex (final int vertex)
+    {
+        return new LSONVertex(vertex, getVertexName(vertex), getVertexValue(vertex));
+    }
+
+    /**
+     * @return a new edge object for the edge at the given index, with new vertex objects.
+     */
+    public LSONEdge getEdge (final int edge)
+    {
+        return new LSONEdge(getVertex(getEdgeSource(edge)), getVertex(getEdgeTarget(edge)), isEdgeDirected(edge),
+                getEdgeData(edge));
+    }
+
+    /**
+     * @return a view of the vertices of the graph, created on access like {@link #getVertex(int)}.
+     */
+    public List<LSONVertex> asVertexList ()
+    {
+        return new AbstractList<LSONVertex>()
+        {
+            @Override
+            public LSONVertex get (final int index)
+            {
+                return getVertex(index);
+            }
+
+            @Override
+            public int size ()
+            {
+                return LSONCompactGraph.this.vertexCount;
+            }
+        };
+    }
+
+    /**
+     * @return a view of the edges of the graph, created on access like {@link #getEdge(int)}.
+     */
+    public List<LSONEdge> asEdgeList ()
+    {
+        return new AbstractList<LSONEdge>()
+        {
+            @Override
+            public LSONEdge get (final int index)
+            {
+                return getEdge(index);
+            }
+
+            @Override
+            public int size ()
+            {
+                return LSONCompactGraph.this.sources.length;
+            }
+        };
+    }
+
+    /**
+     * @return a new list of every vertex of the graph. Changes made to the list do not change the graph.
+     */
+    @Override
+    public ArrayList<LSONVertex> getVertices ()
+    {
+        final ArrayList<LSONVertex> vertices = new ArrayList<>(this.vertexCount);
+        for (int v = 0; v < this.vertexCount; ++v) {
+            vertices.add(getVertex(v));
+        }
+
+        return vertices;
+    }
+
+    /**
+     * @return a new list of every edge of the graph, sharing the vertex objects of {@link #getVertices()} for the
+     *         same call. Changes made to the list do not change the graph.
+     */
+    @Override
+    public ArrayList<LSONEdge> getEdges ()
+    {
+        final ArrayList<LSONVertex> vertices = getVertices();
+        final ArrayList<LSONEdge> edges = new ArrayList<>(this.sources.length);
+
+        for (int e = 0; e < this.sources.length; ++e) {
+            edges.add(new LSONEdge(vertices.get(this.sources[e]), vertices.get(this.targets[e]), isEdgeDirected(e),
+                    getEdgeData(e)));
+        }
+
+        return edges;
+    }
+
+    //==================================================================================================================
+    // Access by position
+    //==================================================================================================================
+
+    @Override
+    public int getVertexCount ()
+    {
+        return this.vertexCount;
+    }
+
+    @Override
+    public int getEdgeCount ()
+    {
+        return this.sources.length;
+    }
+
+    @Override
+    public String getVertexName (final int vertex)
+    {
+        checkIndex(vertex, this.vertexCount);
+        return this.names == null ? null : this.names[vertex];
+    }
+
+    @Override
+    public LSONValue getVertexValue (final int vertex)
+    {
+        checkIndex(vertex, this.vertexCount);
+        return this.vertexValues == null ? null : this.vertexValues[vertex];
+    }
+
+    @Override
+    public int getEdgeSource (final int edge)
+    {
+        return this.sources[edge];
+    }
+
+    @Override
+    public int getEdgeTarget (final int edge)
+    {
+        return this.targets[edge];
+    }
+
+    @Override
+    public boolean isEdgeDirected (final int edge)
+    {
+        checkIndex(edge, this.sources.length);
+        return this.directed.get(edge);
+    }
+
+    @Override
+    public LSONValue getEdgeData (final int edge)
+    {
+        checkIndex(edge, this.sources.length);
+        return this.edgeData == null ? null : this.edgeData[edge];
+    }
+
+    //==================================================================================================================
+    // Storage
+    //==================================================================================================================
+
+    /**
+     * @return the name of each vertex, or null if the vertices are not named.
+     */
+    public String[] getVertexNames ()
+    {
+        return this.names;
+    }
+
+    /**
+     * @return the value of each vertex, or null if no vertex has a value.
+     */
+    public LSONValue[] getVertexValues ()
+    {
+        return this.vertexValues;
+    }
+
+    public int[] getEdgeSources ()
+    {
+        return this.sources;
+    }
+
+    public int[] getEdgeTargets ()
+    {
+        return this.targets;
+    }
+
+    public BitSet getDirectedEdges ()
+    {
+        return this.directed;
+    }
+
+    /**
+     * @return the data of each edge, or null if no edge has data.
+     */
+    public LSONValue[] getEdgeDataArray ()
+    {
+        return this.edgeData;
+    }
+
+    //==================================================================================================================
+
+    private static void checkLength (final String name, final int length, final int expected)
+    {
+        if (length != expected) {
+            throw new IllegalArgumentException(length + " " + name + " for " + expected);
+        }
+    }
+
+    private static void checkIndex (final int index, final int size)
+    {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " of " + size);
+        }
+    }
+}
@@ -50,6 +50,11 @@ public class LSONEdge
         return this.directed;
     }
 
+    public LSONValue getData ()
+    {
+        return this.data;
+    }
+
     @Override
     public boolean equals (final Object obj)
     {
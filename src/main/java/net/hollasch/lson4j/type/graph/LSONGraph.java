@@ -23,6 +23,9 @@ public class LSONGraph extends LSONValue
     private ArrayList<LSONVertex> vertices;
     private ArrayList<LSONEdge> edges;
 
+    // Built on first use. Racing threads may each build one, which is harmless as all of its fields are final.
+    private transient LSONGraphIndex index;
+
     public LSONGraph (final ArrayList<LSONVertex> vertices, final ArrayList<LSONEdge> edges)
     {
         this.vertices = vertices;
@@ -39,6 +42,85 @@ public class LSONGraph extends LSONValue
         return this.edges;
     }
 
+    //==================================================================================================================
+    // Access by position
+    //==================================================================================================================
+
+    // Vertices and edges are referred to by their position in the lists, and edges lead to the index of their vertices,
+    // so graphs stored in other forms can be read without creating vertex or edge objects.
+
+    public int getVertexCount ()
+    {
+        return this.vertices.size();
+    }
+
+    public int getEdgeCount ()
+    {
+        return this.edges.size();
+    }
+
+    public String getVertexName (final int vertex)
+    {
+        return this.vertices.get(vertex).getName();
+    }
+
+    public LSONValue getVertexValue (final int vertex)
+    {
+        return this.vertices.get(vertex).getVertexValue();
+    }
+
+    /**
+     * @return the index of the vertex the edge leads from.
+     */
+    public int getEdgeSource (final int edge)
+    {
+        return this.edges.get(edge).getV1().getIndex();
+    }
+
+    /**
+     * @return the index of the vertex the edge leads to.
+     */
+    public int getEdgeTarget (final int edge)
+    {
+        return this.edges.get(edge).getV2().getIndex();
+    }
+
+    public boolean isEdgeDirected (final int edge)
+    {
+        return this.edges.get(edge).isDirected();
+    }
+
+    public LSONValue getEdgeData (final int edge)
+    {
+        return this.edges.get(edge).getData();
+    }
+
+    //==================================================================================================================
+
+    /**
+     * @return the adjacency index of the graph, built on the first call. The index does not follow changes made to
+     *         the vertices or edges after it is built, use {@link #rebuildIndex()} after changing them.
+     * @throws IllegalArgumentException if an edge of the graph leads to a vertex that is not in the graph.
+     */
+    public LSONGraphIndex getIndex ()
+    {
+        LSONGraphIndex index = this.index;
+        if (index == null) {
+            this.index = index = new LSONGraphIndex(this);
+        }
+
+        return index;
+    }
+
+    /**
+     * @return a new adjacency index of the graph as it is now, replacing the one handed out by {@link #getIndex()}.
+     * @throws IllegalArgumentException if an edge of the graph leads to a vertex that is not in the graph.
+     */
+    public LSONGraphIndex rebuildIndex ()
+    {
+        return this.index = new LSONGraphIndex(this);
+    }
+
     @Override
     public boolean isGraph ()
     {
@@ -54,18 +136,18 @@ public class LSONGraph extends LSONValue
 
         final LSONGraph o = (LSONGraph) obj;
 
-        return o.vertices.equals(this.vertices) && o.edges.equals(this.edges);
+        return o.getVertices().equals(getVertices()) && o.getEdges().equals(getEdges());
     }
 
     @Override
     public int hashCode ()
     {
-        return (31 * this.vertices.hashCode()) + (31 * this.edges.hashCode());
+        return (31 * getVertices().hashCode()) + (31 * getEdges().hashCode());
     }
 
     @Override
     public String toString ()
     {
-        return "[%" + this.vertices.toString() + ", " + this.edges.toString() + "%]";
+        return "[%" + getVertices().toString() + ", " + getEdges().toString() + "%]";
     }
 }
@@ -0,0 +1,843 @@
+/*
+ * Copyright (c) 2017 Connor Hollasch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.hollasch.lson4j.type.graph;
+
+import net.hollasch.lson4j.type.LSONValue;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Graph algorithms over the adjacency arrays of an {@link LSONGraphIndex}, with vertices and edges referred to by their
+ * number in the index. Edges are followed the way the index stores them, so undirected edges are followed both ways.
+ * <p>
+ * Breadth first search and connected components can be split across the threads of a {@link ForkJoinPool}, giving
+ * the same results as their sequential versions. The other algorithms run on the calling thread, and the
+ * {@link Reachability} cache can be queried from several threads at once.
+ *
+ * @author Connor Hollasch
+ * @since Oct 18, 4:25 AM
+ */
+public final class LSONGraphAlgorithms
+{
+    // Frontiers and vertex ranges are only split across the pool in chunks of at least this many vertices.
+    static final int PARALLEL_CHUNK_LENGTH = 1 << 12;
+
+    // Chunks of a parallel pass per thread of the pool, to even out chunks of vertices with more edges than others.
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private LSONGraphAlgorithms ()
+    {
+    }
+
+    //==================================================================================================================
+    // Traversal
+    //==================================================================================================================
+
+    /**
+     * @param graph  graph to search.
+     * @param source vertex to start from.
+     * @return the number of edges on the shortest path from the source to each vertex, or -1 for vertices that
+     *         cannot be reached.
+     */
+    public static int[] breadthFirst (final LSONGraphIndex graph, final int source)
+    {
+        checkVertex(graph, source);
+
+        final int[] offsets = graph.getOutOffsets();
+        final int[] targets = graph.getOutTargets();
+
+        final int[] distances = new int[graph.getVertexCount()];
+        Arrays.fill(distances, -1);
+        distances[source] = 0;
+
+        // The distances double as the visited set, and the queue is a single array as every vertex enters it once.
+        final int[] queue = new int[distances.length];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = source;
+
+        while (head < tail) {
+            final int vertex = queue[head++];
+
+            for (int i = offsets[vertex]; i < offsets[vertex + 1]; ++i) {
+                final int target = targets[i];
+                if (distances[target] < 0) {
+                    distances[target] = distances[vertex] + 1;
+                    queue[tail++] = target;
+                }
+            }
+        }
+
+        return distances;
+    }
+
+    /**
+     * Breadth first search one level at a time, with each level split across the threads of the given pool. Vertices
+     * are claimed by the first thread to reach them, which is safe as every thread reaching a vertex within a level
+     * would give it the same distance.
+     *
+     * @see #breadthFirst(LSONGraphIndex, int)
+     */
+    public static int[] breadthFirst (final LSONGraphIndex graph, final int source, final ForkJoinPool pool)
+    {
+        checkVertex(graph, source);
+
+        final int[] offsets = graph.getOutOffsets();
+        final int[] targets = graph.getOutTargets();
+
+        final AtomicIntegerArray distances = new AtomicIntegerArray(graph.getVertexCount());
+        for (int v = 0; v < distances.length(); ++v) {
+            distances.set(v, -1);
+        }
+
+        distances.set(source, 0);
+
+        int[] frontier = {source};
+        for (int level = 1; frontier.length > 0; ++level) {
+            final int[] current = frontier;
+            final int distance = level;
+
+            final List<int[]> parts = forEachChunk(pool, current.length, (from, to) -> {
+                int[] next = new int[Math.max(16, to - from)];
+                int size = 0;
+
+                for (int i = from; i < to; ++i) {
+                    final int vertex = current[i];
+
+                    for (int e = offsets[vertex]; e < offsets[vertex + 1]; ++e) {
+                        final int target = targets[e];
+                        if (distances.get(target) < 0 && distances.compareAndSet(target, -1, distance)) {
+                            if (size == next.length) {
+                                next = Arrays.copyOf(next, 2 * size);
+                            }
+
+                            next[size++] = target;
+                        }
+                    }
+                }
+
+                return Arrays.copyOf(next, size);
+            });
+
+            frontier = concat(parts);
+        }
+
+        final int[] result = new int[distances.length()];
+        for (int v = 0; v < result.length; ++v) {
+            result[v] = distances.get(v);
+        }
+
+        return result;
+    }
+
+    /**
+     * @param graph  graph to search.
+     * @param source vertex to start from.
+     * @return the vertices reachable from the source, in the order a depth first search visits them, following the
+     *         edges of each vertex in order.
+     */
+    public static int[] depthFirst (final LSONGraphIndex graph, final int source)
+    {
+        checkVertex(graph, source);
+
+        final int[] offsets = graph.getOutOffsets();
+        final int[] targets = graph.getOutTargets();
+
+        final boolean[] visited = new boolean[graph.getVertexCount()];
+        final int[] order = new int[visited.length];
+        int size = 0;
+
+        // Explicit stack of vertices and the next edge to follow from each, as deep graphs would overflow the call
+        // stack.
+        final int[] stack = new int[visited.length];
+        final int[] nextEdge = new int[visited.length];
+        int depth = 0;
+
+        visited[source] = true;
+        order[size++] = source;
+        stack[depth] = source;
+        nextEdge[depth++] = offsets[source];
+
+        while (depth > 0) {
+            final int vertex = stack[depth - 1];
+            final int edge = nextEdge[depth - 1];
+
+            if (edge == offsets[vertex + 1]) {
+                --depth;
+                continue;
+            }
+
+            nextEdge[depth - 1] = edge + 1;
+
+            final int target = targets[edge];
+            if (!visited[target]) {
+                visited[target] = true;
+                order[size++] = target;
+                stack[depth] = target;
+                nextEdge[depth++] = offsets[target];
+            }
+        }
+
+        return Arrays.copyOf(order, size);
+    }
+
+    //==================================================================================================================
+    // Components
+    //==================================================================================================================
+
+    /**
+     * Finds the connected components of the graph, ignoring the direction of edges.
+     *
+     * @param graph graph to split up.
+     * @return the component of each vertex, with components numbered in the order of their first vertex.
+     */
+    public static int[] connectedComponents (final LSONGraphIndex graph)
+    {
+        return connectedComponents(graph, null);
+    }
+
+    /**
+     * Finds the connected components of the graph with the edges of each range of vertices joined on a thread of the
+     * given pool, through a lock free union find.
+     *
+     * @see #connectedComponents(LSONGraphIndex)
+     */
+    public static int[] connectedComponents (final LSONGraphIndex graph, final ForkJoinPool pool)
+    {
+        final int[] offsets = graph.getOutOffsets();
+        final int[] targets = graph.getOutTargets();
+        final int vertexCount = graph.getVertexCount();
+
+        final AtomicIntegerArray parents = new AtomicIntegerArray(vertexCount);
+        for (int v = 0; v < vertexCount; ++v) {
+            parents.set(v, v);
+        }
+
+        // Outgoing edges cover every edge, as directed edges are outgoing edges of their first vertex.
+        forEachChunk(pool, vertexCount, (from, to) -> {
+            for (int vertex = from; vertex < to; ++vertex) {
+                for (int e = offsets[vertex]; e < offsets[vertex + 1]; ++e) {
+                    union(parents, vertex, targets[e]);
+                }
+            }
+
+            return null;
+        });
+
+        // Roots are always the least vertex of their component, so components are numbered in order of their roots.
+        final int[] components = new int[vertexCount];
+        int count = 0;
+
+        for (int v = 0; v < vertexCount; ++v) {
+            final int root = find(parents, v);
+            components[v] = root == v ? count++ : components[root];
+        }
+
+        return components;
+    }
+
+    /**
+     * Joins the sets of the two vertices by pointing the greater root at the lesser one. Roots only ever change by a
+     * compare and set from pointing at themselves, so concurrent joins either succeed or retry on the new roots.
+     */
+    private static void union (final AtomicIntegerArray parents, final int a, final int b)
+    {
+        int x = a;
+        int y = b;
+
+        while (true) {
+            x = find(parents, x);
+            y = find(parents, y);
+
+            if (x == y) {
+                return;
+            }
+
+            if (x < y) {
+                final int swap = x;
+                x = y;
+                y = swap;
+            }
+
+            if (parents.compareAndSet(x, x, y)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Finds the root of the set of the vertex, halving the path to it along the way.
+     */
+    private static int find (final AtomicIntegerArray parents, final int vertex)
+    {
+        int x = vertex;
+
+        while (true) {
+            final int parent = parents.get(x);
+            if (parent == x) {
+                return x;
+            }
+
+            final int grandparent = parents.get(parent);
+            if (grandparent != parent) {
+                parents.compareAndSet(x, parent, grandparent);
+            }
+
+            x = grandparent;
+        }
+    }
+
+    /**
+     * Finds the strongly connected components of the graph with Tarjan's algorithm.
+     *
+     * @param graph graph to split up.
+     * @return the component of each vertex. Components are numbered in reverse topological order, so no edge leads
+     *         from a component to one numbered higher.
+     */
+    public static int[] stronglyConnectedComponents (final LSONGraphIndex graph)
+    {
+        final int[] offsets = graph.getOutOffsets();
+        final int[] targets = graph.getOutTargets();
+        final int vertexCount = graph.getVertexCount();
+
+        final int[] components = new int[vertexCount];
+        final int[] order = new int[vertexCount];
+        final int[] lowLinks = new int[vertexCount];
+        Arrays.fill(order, -1);
+
+        // Vertices waiting to be assigned a component, and whether each is on that stack.
+        final int[] pending = new int[vertexCount];
+        final boolean[] isPending = new boolean[vertexCount];
+        int pendingSize = 0;
+
+        // Explicit call stack of vertices and the next edge to follow from each.
+        final int[] stack = new int[vertexCount];
+        final int[] nextEdge = new int[vertexCount];
+
+        int visits = 0;
+        int count = 0;
+
+        for (int root = 0; root < vertexCount; ++root) {
+            if (order[root] >= 0) {
+                continue;
+            }
+
+            int depth = 0;
+            stack[depth] = root;
+            nextEdge[depth++] = offsets[root];
+            order[root] = lowLinks[root] = visits++;
+            pending[pendingSize++] = root;
+            isPending[root] = true;
+
+            while (depth > 0) {
+                final int vertex = stack[depth - 1];
+                final int edge = nextEdge[depth - 1];
+
+                if (edge < offsets[vertex + 1]) {
+                    nextEdge[depth - 1] = edge + 1;
+
+                    final int target = targets[edge];
+                    if (order[target] < 0) {
+                        stack[depth] = target;
+                        nextEdge[depth++] = offsets[target];
+                        order[target] = lowLinks[target] = visits++;
+                        pending[pendingSize++] = target;
+                        isPending[target] = true;
+                    } else if (isPending[target]) {
+                        lowLinks[vertex] = Math.min(lowLinks[vertex], order[target]);
+                    }
+
+                    continue;
+                }
+
+                --depth;
+
+                if (depth > 0) {
+                    final int caller = stack[depth - 1];
+                    lowLinks[caller] = Math.min(lowLinks[caller], lowLinks[vertex]);
+                }
+
+                if (lowLinks[vertex] == order[vertex]) {
+                    int member;
+                    do {
+                        member = pending[--pendingSize];
+                        isPending[member] = false;
+                        components[member] = count;
+                    } while (member != vertex);
+
+                    ++count;
+                }
+            }
+        }
+
+        return components;
+    }
+
+    /**
+     * Sorts the vertices so that every edge leads from a vertex to one after it, with Kahn's algorithm. Among vertices
+     * that could come next, the one added to the queue first comes first, starting with the lowest numbered ones.
+     *
+     * @param graph graph to sort.
+     * @return the vertices in topological order.
+     * @throws IllegalArgumentException if the graph has a cycle, which includes any undirected edge.
+     */
+    public static int[] topologicalSort (final LSONGraphIndex graph)
+    {
+        final int[] offsets = graph.getOutOffsets();
+        final int[] targets = graph.getOutTargets();
+        final int vertexCount = graph.getVertexCount();
+
+        final int[] inDegrees = new int[vertexCount];
+        final int[] order = new int[vertexCount];
+        int head = 0;
+        int tail = 0;
+
+        for (int v = 0; v < vertexCount; ++v) {
+            inDegrees[v] = graph.getInDegree(v);
+            if (inDegrees[v] == 0) {
+                order[tail++] = v;
+            }
+        }
+
+        while (head < tail) {
+            final int vertex = order[head++];
+
+            for (int e = offsets[vertex]; e < offsets[vertex + 1]; ++e) {
+                if (--inDegrees[targets[e]] == 0) {
+                    order[tail++] = targets[e];
+                }
+            }
+        }
+
+        if (tail < vertexCount) {
+            throw new IllegalArgumentException("Graph has a cycle through " + (vertexCount - tail) + " vertices");
+        }
+
+        return order;
+    }
+
+    //==================================================================================================================
+    // Paths
+    //==================================================================================================================
+
+    /**
+     * Finds the shortest paths from the source, weighing each edge by the number it holds as data.
+     *
+     * @throws IllegalArgumentException if an edge reached does not hold a number, or holds a negative number.
+     * @see #shortestPaths(LSONGraphIndex, int, ToDoubleFunction)
+     */
+    public static ShortestPaths shortestPaths (final LSONGraphIndex graph, final int source)
+    {
+        return shortestPaths(graph, source, LSONGraphAlgorithms::getNumericData);
+    }
+
+    /**
+     * Finds the shortest paths from the source with Dijkstra's algorithm. Weights are only computed for edges leading
+     * out of vertices that can be reached.
+     *
+     * @param graph   graph to search.
+     * @param source  vertex to start from.
+     * @param weights weight of each edge, which must not be negative.
+     * @return the shortest paths from the source to each vertex.
+     * @throws IllegalArgumentException if a weight is negative or NaN.
+     */
+    public static ShortestPaths shortestPaths (
+            final LSONGraphIndex graph,
+            final int source,
+            final ToDoubleFunction<LSONEdge> weights)
+    {
+        checkVertex(graph, source);
+
+        final int[] offsets = graph.getOutOffsets();
+        final int[] targets = graph.getOutTargets();
+        final int[] edges = graph.getOutEdges();
+        final int vertexCount = graph.getVertexCount();
+
+        final double[] distances = new double[vertexCount];
+        final int[] previousEdges = new int[vertexCount];
+        final int[] previousVertices = new int[vertexCount];
+        Arrays.fill(distances, Double.POSITIVE_INFINITY);
+        Arrays.fill(previousEdges, -1);
+        Arrays.fill(previousVertices, -1);
+
+        // Binary heap of vertices by distance, with the position of each vertex in it so it can be moved up.
+        final int[] heap = new int[vertexCount];
+        final int[] positions = new int[vertexCount];
+        final boolean[] settled = new boolean[vertexCount];
+        Arrays.fill(positions, -1);
+
+        distances[source] = 0;
+        heap[0] = source;
+        positions[source] = 0;
+        int size = 1;
+
+        while (size > 0) {
+            final int vertex = heap[0];
+            positions[vertex] = -1;
+            settled[vertex] = true;
+
+            if (--size > 0) {
+                heap[0] = heap[size];
+                positions[heap[0]] = 0;
+                siftDown(heap, positions, distances, size);
+            }
+
+            for (int e = offsets[vertex]; e < offsets[vertex + 1]; ++e) {
+                final int target = targets[e];
+                if (settled[target]) {
+                    continue;
+                }
+
+                final LSONEdge edge = graph.getEdge(edges[e]);
+                final double weight = weights.applyAsDouble(edge);
+                if (!(weight >= 0)) {
+                    throw new IllegalArgumentException("Edge " + edge + " has weight " + weight);
+                }
+
+                final double distance = distances[vertex] + weight;
+                if (distance < distances[target]) {
+                    distances[target] = distance;
+                    previousEdges[target] = edges[e];
+                    previousVertices[target] = vertex;
+
+                    if (positions[target] < 0) {
+                        heap[size] = target;
+                        positions[target] = size++;
+                    }
+
+                    siftUp(heap, positions, distances, positions[target]);
+                }
+            }
+        }
+
+        return new ShortestPaths(source, distances, previousVertices, previousEdges);
+    }
+
+    private static double getNumericData (final LSONEdge edge)
+    {
+        final LSONValue data = edge.getData();
+        final Object object = data != null && data.isLSONWord() ? data.toWord().getObject() : null;
+
+        if (!(object instanceof Number)) {
+            throw new IllegalArgumentException("Edge " + edge + " does not hold a number");
+        }
+
+        return ((Number) object).doubleValue();
+    }
+
+    private static void siftUp (final int[] heap, final int[] positions, final double[] keys, final int index)
+    {
+        final int vertex = heap[index];
+
+        int child = index;
+        while (child > 0) {
+            final int parent = (child - 1) >>> 1;
+            if (keys[heap[parent]] <= keys[vertex]) {
+                break;
+            }
+
+            heap[child] = heap[parent];
+            positions[heap[child]] = child;
+            child = parent;
+        }
+
+        heap[child] = vertex;
+        positions[vertex] = child;
+    }
+
+    private static void siftDown (final int[] heap, final int[] positions, final double[] keys, final int size)
+    {
+        final int vertex = heap[0];
+
+        int parent = 0;
+        while (true) {
+            int child = 2 * parent + 1;
+            if (child >= size) {
+                break;
+            }
+
+            if (child + 1 < size && keys[heap[child + 1]] < keys[heap[child]]) {
+                ++child;
+            }
+
+            if (keys[heap[child]] >= keys[vertex]) {
+                break;
+            }
+
+            heap[parent] = heap[child];
+            positions[heap[parent]] = parent;
+            parent = child;
+        }
+
+        heap[parent] = vertex;
+        positions[vertex] = parent;
+    }
+
+    /**
+     * Shortest paths from a single source, as found by {@link #shortestPaths(LSONGraphIndex, int, ToDoubleFunction)}.
+     */
+    public static final class ShortestPaths
+    {
+        private final int source;
+        private final double[] distances;
+        private final int[] previousVertices;
+        private final int[] previousEdges;
+
+        ShortestPaths (
+                final int source,
+                final double[] distances,
+                final int[] previousVertices,
+                final int[] previousEdges)
+        {
+            this.source = source;
+            this.distances = distances;
+            this.previousVertices = previousVertices;
+            this.previousEdges = previousEdges;
+        }
+
+        public int getSource ()
+        {
+            return this.source;
+        }
+
+        /**
+         * @return the length of the shortest path to the vertex, or positive infinity if it cannot be reached.
+         */
+        public double getDistance (final int vertex)
+        {
+            return this.distances[vertex];
+        }
+
+        public boolean isReachable (final int vertex)
+        {
+            return this.distances[vertex] != Double.POSITIVE_INFINITY;
+        }
+
+        /**
+         * @return the vertices of the shortest path from the source to the vertex, including both, or an empty path
+         *         if the vertex cannot be reached.
+         */
+        public int[] getPath (final int vertex)
+        {
+            if (!isReachable(vertex)) {
+                return new int[0];
+            }
+
+            int length = 1;
+            for (int v = vertex; v != this.source; v = this.previousVertices[v]) {
+                ++length;
+            }
+
+            final int[] path = new int[length];
+            for (int v = vertex, i = length - 1; i >= 0; v = this.previousVertices[v], --i) {
+                path[i] = v;
+            }
+
+            return path;
+        }
+
+        /**
+         * @return the number of the last edge on the shortest path to the vertex, or -1 for the source and vertices
+         *         that cannot be reached.
+         */
+        public int getPreviousEdge (final int vertex)
+        {
+            return this.previousEdges[vertex];
+        }
+    }
+
+    //==================================================================================================================
+    // Reachability
+    //==================================================================================================================
+
+    /**
+     * @param graph graph to answer reachability queries on.
+     * @return a cache of reachability queries on the graph.
+     */
+    public static Reachability reachability (final LSONGraphIndex graph)
+    {
+        return new Reachability(graph);
+    }
+
+    /**
+     * Reachability queries with the vertices reachable from each source cached. Vertices of a strongly connected
+     * component reach the same vertices, so results are cached once per component rather than per vertex. Every
+     * vertex reaches itself.
+     * <p>
+     * Queries may be made from several threads at once. Each cached result takes a bit per vertex, so caching results
+     * for many sources of a large graph takes a lot of memory.
+     */
+    public static final class Reachability
+    {
+        private final LSONGraphIndex graph;
+        private final int[] components;
+        private final ConcurrentHashMap<Integer, BitSet> reachable;
+
+        Reachability (final LSONGraphIndex graph)
+        {
+            this.graph = graph;
+            this.components = stronglyConnectedComponents(graph);
+            this.reachable = new ConcurrentHashMap<>();
+        }
+
+        /**
+         * @return true if a path leads from the first vertex to the second.
+         */
+        public boolean isReachable (final int from, final int to)
+        {
+            checkVertex(this.graph, from);
+            checkVertex(this.graph, to);
+
+            return this.components[from] == this.components[to] || getReachableSet(from).get(to);
+        }
+
+        /**
+         * @return the vertices reachable from the given vertex, as a new set.
+         */
+        public BitSet getReachable (final int from)
+        {
+            return (BitSet) getReachableSet(from).clone();
+        }
+
+        private BitSet getReachableSet (final int from)
+        {
+            checkVertex(this.graph, from);
+
+            return this.reachable.computeIfAbsent(this.components[from], component -> {
+                final int[] distances = breadthFirst(this.graph, from);
+
+                final BitSet set = new BitSet(distances.length);
+                for (int v = 0; v < distances.length; ++v) {
+                    if (distances[v] >= 0) {
+                        set.set(v);
+                    }
+                }
+
+                return set;
+            });
+        }
+    }
+
+    //==================================================================================================================
+
+    /**
+     * Runs the given chunk function over consecutive chunks of the range [0, length), split across the pool if there
+     * is one and the range is long enough.
+     *
+     * @return the result of each chunk, in order.
+     */
+    private static <T> List<T> forEachChunk (final ForkJoinPool pool, final int length, final Chunk<T> chunk)
+    {
+        final int chunks = pool == null || length < 2 * PARALLEL_CHUNK_LENGTH
+                ? 1
+                : Math.min(length / PARALLEL_CHUNK_LENGTH, pool.getParallelism() * CHUNKS_PER_THREAD);
+
+        if (chunks <= 1) {
+            return Collections.singletonList(chunk.apply(0, length));
+        }
+
+        final ArrayList<ChunkTask<T>> tasks = new ArrayList<>(chunks);
+        for (int c = 0; c < chunks; ++c) {
+            tasks.add(new ChunkTask<>(chunk, (int) ((long) length * c / chunks),
+                    (int) ((long) length * (c + 1) / chunks)));
+        }
+
+        pool.invoke(new RecursiveAction()
+        {
+            @Override
+            protected void compute ()
+            {
+                ForkJoinTask.invokeAll(tasks);
+            }
+        });
+
+        final ArrayList<T> results = new ArrayList<>(chunks);
+        for (final ChunkTask<T> task : tasks) {
+            results.add(task.join());
+        }
+
+        return results;
+    }
+
+    private static int[] concat (final List<int[]> parts)
+    {
+        if (parts.size() == 1) {
+            return parts.get(0);
+        }
+
+        int length = 0;
+        for (final int[] part : parts) {
+            length += part.length;
+        }
+
+        final int[] result = new int[length];
+        int offset = 0;
+        for (final int[] part : parts) {
+            System.arraycopy(part, 0, result, offset, part.length);
+            offset += part.length;
+        }
+
+        return result;
+    }
+
+    private static void checkVertex (final LSONGraphIndex graph, final int vertex)
+    {
+        if (vertex < 0 || vertex >= graph.getVertexCount()) {
+            throw new IndexOutOfBoundsException("Vertex " + vertex + " of " + graph.getVertexCount());
+        }
+    }
+
+    private interface Chunk<T>
+    {
+        T apply (int from, int to);
+    }
+
+    private static final class ChunkTask<T> extends RecursiveTask<T>
+    {
+        private final Chunk<T> chunk;
+        private final int from;
+        private final int to;
+
+        ChunkTask (final Chunk<T> chunk, final int from, final int to)
+        {
+            this.chunk = chunk;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected T compute ()
+        {
+            return this.chunk.apply(this.from, this.to);
+        }
+    }
+}
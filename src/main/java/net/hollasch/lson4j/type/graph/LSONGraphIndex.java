@@ -0,0 +1,324 @@
+/*
+ * Copyright (c) 2017 Connor Hollasch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.hollasch.lson4j.type.graph;
+
+import net.hollasch.lson4j.util.LSONLongIntMap;
+
+import java.util.*;
+
+/**
+ * Adjacency index of an {@link LSONGraph}, with vertices numbered by their position in the vertex list and edges by
+ * their position in the edge list. Outgoing and incoming edges are stored in compressed sparse row form: the
+ * neighbours of vertex v are found at [offsets[v], offsets[v + 1]) of the neighbour array, next to the number of the
+ * edge leading to each of them. Undirected edges lead both ways, and are stored as both outgoing and incoming edges of
+ * both of their vertices, once for loops.
+ * <p>
+ * Building the index takes time linear in the size of the graph, after which degrees, neighbours, edge lookups and
+ * name lookups take constant time. The index is a snapshot, and is not updated if the vertices or edges of the graph
+ * are modified afterwards. The arrays handed out are the storage of the index, and must not be modified.
+ *
+ * @author Connor Hollasch
+ * @since Oct 18, 4:00 AM
+ */
+public final class LSONGraphIndex
+{
+    // Snapshots of the vertices and edges of the graph, or views of them for compact graphs.
+    private final List<LSONVertex> vertices;
+    private final List<LSONEdge> edges;
+
+    private final int[] outOffsets;
+    private final int[] outTargets;
+    private final int[] outEdges;
+
+    private final int[] inOffsets;
+    private final int[] inSources;
+    private final int[] inEdges;
+
+    // First edge leading from one vertex to another, keyed by the pair of vertex numbers.
+    private final LSONLongIntMap edgeLookup;
+
+    // Number of each named vertex, the first of each name if names are shared.
+    private final Map<String, Integer> names;
+
+    /**
+     * @param graph graph to index.
+     * @throws IllegalArgumentException if an edge of the graph leads to a vertex that is not in the graph.
+     */
+    public LSONGraphIndex (final LSONGraph graph)
+    {
+        final int[] from;
+        final int[] to;
+        final BitSet directed;
+
+        if (graph instanceof LSONCompactGraph) {
+            // Compact graphs are immutable and already hold their edges by vertex index.
+            final LSONCompactGraph compact = (LSONCompactGraph) graph;
+
+            this.vertices = compact.asVertexList();
+            this.edges = compact.asEdgeList();
+
+            from = compact.getEdgeSources();
+            to = compact.getEdgeTargets();
+            directed = compact.getDirectedEdges();
+        } else {
+            this.vertices = new ArrayList<>(graph.getVertices());
+            this.edges = new ArrayList<>(graph.getEdges());
+
+            from = new int[this.edges.size()];
+            to = new int[this.edges.size()];
+            directed = new BitSet(this.edges.size());
+
+            // Edges refer to vertex objects, which are found through their index if it matches their position, as it
+            // does for graphs built by hand from parsed ones, and by identity otherwise.
+            final Map<LSONVertex, Integer> positions = new IdentityHashMap<>();
+
+            for (int e = 0; e < from.length; ++e) {
+                final LSONEdge edge = this.edges.get(e);
+
+                from[e] = getPosition(edge.getV1(), positions);
+                to[e] = getPosition(edge.getV2(), positions);
+                directed.set(e, edge.isDirected());
+            }
+        }
+
+        final int vertexCount = graph.getVertexCount();
+        final int edgeCount = from.length;
+
+        this.names = new HashMap<>();
+        for (int v = 0; v < vertexCount; ++v) {
+            final String name = graph.getVertexName(v);
+            if (name != null) {
+                this.names.putIfAbsent(name, v);
+            }
+        }
+
+        this.outOffsets = new int[vertexCount + 1];
+        this.inOffsets = new int[vertexCount + 1];
+
+        for (int e = 0; e < edgeCount; ++e) {
+            // Counted one slot ahead, so the prefix sum below turns the counts into offsets.
+            ++this.outOffsets[from[e] + 1];
+            ++this.inOffsets[to[e] + 1];
+
+            if (!directed.get(e) && from[e] != to[e]) {
+                ++this.outOffsets[to[e] + 1];
+                ++this.inOffsets[from[e] + 1];
+            }
+        }
+
+        for (int v = 0; v < vertexCount; ++v) {
+            this.outOffsets[v + 1] += this.outOffsets[v];
+            this.inOffsets[v + 1] += this.inOffsets[v];
+        }
+
+        this.outTargets = new int[this.outOffsets[vertexCount]];
+        this.outEdges = new int[this.outTargets.length];
+        this.inSources = new int[this.inOffsets[vertexCount]];
+        this.inEdges = new int[this.inSources.length];
+        this.edgeLookup = new LSONLongIntMap(this.outTargets.length);
+
+        // Next free slot of each vertex, filled in edge order so neighbours are listed in the order of their edges.
+        final int[] outNext = Arrays.copyOf(this.outOffsets, vertexCount);
+        final int[] inNext = Arrays.copyOf(this.inOffsets, vertexCount);
+
+        for (int e = 0; e < edgeCount; ++e) {
+            addEdge(e, from[e], to[e], outNext, inNext);
+
+            if (!directed.get(e) && from[e] != to[e]) {
+                addEdge(e, to[e], from[e], outNext, inNext);
+            }
+        }
+    }
+
+    private void addEdge (final int edge, final int from, final int to, final int[] outNext, final int[] inNext)
+    {
+        this.outTargets[outNext[from]] = to;
+        this.outEdges[outNext[from]++] = edge;
+
+        this.inSources[inNext[to]] = from;
+        this.inEdges[inNext[to]++] = edge;
+
+        this.edgeLookup.putIfAbsent(getPairKey(from, to), edge);
+    }
+
+    private int getPosition (final LSONVertex vertex, final Map<LSONVertex, Integer> positions)
+    {
+        final int index = vertex.getIndex();
+        if (index >= 0 && index < this.vertices.size() && this.vertices.get(index) == vertex) {
+            return index;
+        }
+
+        if (positions.isEmpty()) {
+            for (int v = 0; v < this.vertices.size(); ++v) {
+                positions.putIfAbsent(this.vertices.get(v), v);
+            }
+        }
+
+        final Integer position = positions.get(vertex);
+        if (position == null) {
+            throw new IllegalArgumentException("Edge to vertex " + vertex + " outside of the graph");
+        }
+
+        return position;
+    }
+
+    private static long getPairKey (final int from, final int to)
+    {
+        return ((long) from << 32) | (to & 0xFFFFFFFFL);
+    }
+
+    //==================================================================================================================
+    // Vertices
+    //==================================================================================================================
+
+    public int getVertexCount ()
+    {
+        return this.vertices.size();
+    }
+
+    public LSONVertex getVertex (final int vertex)
+    {
+        return this.vertices.get(vertex);
+    }
+
+    /**
+     * @param name name of the vertex.
+     * @return the number of the first vertex of the given name, or -1 if there is no such vertex.
+     */
+    public int getVertexIndex (final String name)
+    {
+        final Integer index = this.names.get(name);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * @return the number of edges leading out of the vertex, counting undirected edges.
+     */
+    public int getOutDegree (final int vertex)
+    {
+        return this.outOffsets[vertex + 1] - this.outOffsets[vertex];
+    }
+
+    /**
+     * @return the number of edges leading into the vertex, counting undirected edges.
+     */
+    public int getInDegree (final int vertex)
+    {
+        return this.inOffsets[vertex + 1] - this.inOffsets[vertex];
+    }
+
+    /**
+     * @return the numbers of the vertices the edges leading out of the vertex lead to, in the order of the edges.
+     */
+    public int[] getSuccessors (final int vertex)
+    {
+        return Arrays.copyOfRange(this.outTargets, this.outOffsets[vertex], this.outOffsets[vertex + 1]);
+    }
+
+    /**
+     * @return the numbers of the vertices the edges leading into the vertex come from, in the order of the edges.
+     */
+    public int[] getPredecessors (final int vertex)
+    {
+        return Arrays.copyOfRange(this.inSources, this.inOffsets[vertex], this.inOffsets[vertex + 1]);
+    }
+
+    //==================================================================================================================
+    // Edges
+    //==================================================================================================================
+
+    public int getEdgeCount ()
+    {
+        return this.edges.size();
+    }
+
+    public LSONEdge getEdge (final int edge)
+    {
+        return this.edges.get(edge);
+    }
+
+    /**
+     * @return true if an edge leads from the first vertex to the second, either directed that way or undirected.
+     */
+    public boolean hasEdge (final int from, final int to)
+    {
+        return this.edgeLookup.get(getPairKey(from, to)) >= 0;
+    }
+
+    /**
+     * @return the first edge leading from the first vertex to the second, or null if there is no such edge.
+     */
+    public LSONEdge getEdge (final int from, final int to)
+    {
+        final int edge = this.edgeLookup.get(getPairKey(from, to));
+        return edge < 0 ? null : this.edges.get(edge);
+    }
+
+    //==================================================================================================================
+    // Storage
+    //==================================================================================================================
+
+    /**
+     * @return the start of the outgoing edges of each vertex in {@link #getOutTargets()}, followed by their end.
+     */
+    public int[] getOutOffsets ()
+    {
+        return this.outOffsets;
+    }
+
+    public int[] getOutTargets ()
+    {
+        return this.outTargets;
+    }
+
+    /**
+     * @return the number of the edge of each entry of {@link #getOutTargets()}.
+     */
+    public int[] getOutEdges ()
+    {
+        return this.outEdges;
+    }
+
+    /**
+     * @return the start of the incoming edges of each vertex in {@link #getInSources()}, followed by their end.
+     */
+    public int[] getInOffsets ()
+    {
+        return this.inOffsets;
+    }
+
+    public int[] getInSources ()
+    {
+        return this.inSources;
+    }
+
+    /**
+     * @return the number of the edge of each entry of {@link #getInSources()}.
+     */
+    public int[] getInEdges ()
+    {
+        return this.inEdges;
+    }
+}
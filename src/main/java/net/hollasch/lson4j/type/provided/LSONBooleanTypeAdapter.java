@@ -23,13 +23,15 @@
 
 package net.hollasch.lson4j.type.provided;
 
-import net.hollasch.lson4j.type.LSONTypeAdapter;
+import net.hollasch.lson4j.type.LSONBoolean;
+import net.hollasch.lson4j.type.LSONCharTypeAdapter;
+import net.hollasch.lson4j.type.LSONWord;
 
 /**
  * @author Connor Hollasch
  * @since Dec 09, 1:11 AM
  */
-public class LSONBooleanTypeAdapter implements LSONTypeAdapter<Boolean>
+public class LSONBooleanTypeAdapter implements LSONCharTypeAdapter<Boolean>
 {
     @Override
     public Boolean buildFromWord (final String value)
@@ -42,17 +44,46 @@ public class LSONBooleanTypeAdapter implements LSONTypeAdapter<Boolean>
     }
 
     @Override
-    public boolean willAdaptFor (final String word)
+    public LSONWord<Boolean> buildWord (final CharSequence chars, final int start, final int end)
     {
-        if (word.length() == 0) {
+        return chars.charAt(start) == 't' ? LSONBoolean.TRUE : LSONBoolean.FALSE;
+    }
+
+    @Override
+    public boolean willAdaptFor (final CharSequence chars, final int start, final int end)
+    {
+        if (start == end) {
             return false;
         }
 
-        final char first = word.charAt(0);
-        if (first == 't' || first == 'f') {
-            return word.equals("true") || word.equals("false");
+        final char first = chars.charAt(start);
+        if (first == 't') {
+            return matches(chars, start, end, "true");
+        } else if (first == 'f') {
+            return matches(chars, start, end, "false");
         }
 
         return false;
     }
+
+    @Override
+    public boolean willAdaptStartingWith (final char first)
+    {
+        return first == 't' || first == 'f';
+    }
+
+    private static boolean matches (final CharSequence chars, final int start, final int end, final String word)
+    {
+        if (end - start != word.length()) {
+            return false;
+        }
+
+        for (int i = 0; i < word.length(); ++i) {
+            if (chars.charAt(start + i) != word.charAt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
 }
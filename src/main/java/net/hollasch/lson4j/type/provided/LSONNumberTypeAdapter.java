@@ -23,34 +23,103 @@
 
 package net.hollasch.lson4j.type.provided;
 
-import net.hollasch.lson4j.type.LSONTypeAdapter;
+import net.hollasch.lson4j.type.LSONCharTypeAdapter;
+import net.hollasch.lson4j.type.LSONNumber;
+import net.hollasch.lson4j.type.LSONWord;
+import net.hollasch.lson4j.util.LSONNumberDecoder;
 
 /**
+ * Adapts words starting like a number into numbers, decoded by {@link LSONNumberDecoder}. Hexadecimal words are
+ * always read as longs, while decimal words are read into the types of the {@link Precision} of the adapter. Words
+ * are built as {@link LSONNumber}, holding longs and doubles unboxed.
+ *
  * @author Connor Hollasch
  * @since Dec 11, 9:14 PM
  */
-public class LSONNumberTypeAdapter implements LSONTypeAdapter<Number>
+public class LSONNumberTypeAdapter implements LSONCharTypeAdapter<Number>
 {
+    /**
+     * Types decimal numbers are read into.
+     */
+    public enum Precision
+    {
+        /**
+         * Every number is read as a double.
+         */
+        DOUBLE,
+
+        /**
+         * Integers are read as longs, unless they overflow, and every other number as a double. Negative zero
+         * integers are read as doubles too, as no long keeps their sign, here and under the big precisions.
+         */
+        LONG,
+
+        /**
+         * Integers are read as longs, or as big integers if they overflow, and every other number as a double.
+         */
+        BIG_INTEGER,
+
+        /**
+         * Integers are read as longs, or as big integers if they overflow, and every other number as a big decimal.
+         */
+        BIG_DECIMAL
+    }
+
+    private final Precision precision;
+    private final boolean retainText;
+
+    public LSONNumberTypeAdapter ()
+    {
+        this(Precision.LONG);
+    }
+
+    public LSONNumberTypeAdapter (final Precision precision)
+    {
+        this(precision, true);
+    }
+
+    /**
+     * @param precision  types to read decimal numbers into.
+     * @param retainText false to drop the text numbers are written with, writing them back in the text implied by
+     *                   their values instead.
+     */
+    public LSONNumberTypeAdapter (final Precision precision, final boolean retainText)
+    {
+        this.precision = precision;
+        this.retainText = retainText;
+    }
+
+    public Precision getPrecision ()
+    {
+        return this.precision;
+    }
+
+    public boolean isRetainingText ()
+    {
+        return this.retainText;
+    }
+
     @Override
-    public Number buildFromWord (String value)
+    public Number buildFromWord (final String value)
     {
-        if (value.contains("x")
-                && value.length() > 2
-                && (value.charAt(1) == 'x' || value.charAt(1) == 'X')) {
-            return Long.parseLong(value.substring(2), 16);
-        } else {
-            return Double.parseDouble(value);
-        }
+        return LSONNumberDecoder.decode(value, 0, value.length(), this.precision);
     }
 
     @Override
-    public boolean willAdaptFor (final String word)
+    public LSONWord<Number> buildWord (final CharSequence chars, final int start, final int end)
     {
-        if (word.length() == 0) {
-            return false;
-        }
+        return LSONNumberDecoder.decodeNumber(chars, start, end, this.precision, this.retainText);
+    }
+
+    @Override
+    public boolean willAdaptFor (final CharSequence chars, final int start, final int end)
+    {
+        return start < end && willAdaptStartingWith(chars.charAt(start));
+    }
 
-        final char first = word.charAt(0);
+    @Override
+    public boolean willAdaptStartingWith (final char first)
+    {
         switch (first) {
             case '.':
             case '-':
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2017 Connor Hollasch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.hollasch.lson4j.util;
+
+/**
+ * Open addressing hash map from longs to non-negative ints, keeping both unboxed so that building and probing it once
+ * per row, edge or cell does not allocate.
+ *
+ * @author Connor Hollasch
+ * @since Oct 18, 4:00 AM
+ */
+public final class LSONLongIntMap
+{
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private long[] keys;
+
+    // Value of the key in each slot plus one, zero for empty slots.
+    private int[] values;
+    private int size;
+
+    public LSONLongIntMap ()
+    {
+        this(0);
+    }
+
+    /**
+     * @param expectedSize number of keys the map is sized for up front.
+     */
+    public LSONLongIntMap (final int expectedSize)
+    {
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity < 2L * expectedSize) {
+            capacity <<= 1;
+        }
+
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+    }
+
+    /**
+     * @return the value of the given key, or -1 if the key is not in the map.
+     */
+    public int get (final long key)
+    {
+        final int mask = this.keys.length - 1;
+
+        for (int slot = hash(key) & mask; this.values[slot] != 0; slot = (slot + 1) & mask) {
+            if (this.keys[slot] == key) {
+                return this.values[slot] - 1;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * @param key   key to add.
+     * @param value value of the key, which must not be negative.
+     * @return the value the key already had, or -1 if the key was added with the given value.
+     * @throws IllegalArgumentException if the value is negative.
+     */
+    public int putIfAbsent (final long key, final int value)
+    {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative value " + value);
+        }
+
+        final int mask = this.keys.length - 1;
+
+        int slot = hash(key) & mask;
+        while (this.values[slot] != 0) {
+            if (this.keys[slot] == key) {
+                return this.values[slot] - 1;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        this.keys[slot] = key;
+        this.values[slot] = value + 1;
+
+        if (2 * ++this.size > this.keys.length) {
+            grow();
+        }
+
+        return -1;
+    }
+
+    public int size ()
+    {
+        return this.size;
+    }
+
+    private void grow ()
+    {
+        final long[] keys = this.keys;
+        final int[] values = this.values;
+
+        this.keys = new long[2 * keys.length];
+        this.values = new int[2 * values.length];
+
+        final int mask = this.keys.length - 1;
+        for (int i = 0; i < keys.length; ++i) {
+            if (values[i] != 0) {
+                int slot = hash(keys[i]) & mask;
+                while (this.values[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+
+                this.keys[slot] = keys[i];
+                this.values[slot] = values[i];
+            }
+        }
+    }
+
+    private static int hash (final long key)
+    {
+        // Keys are often small or sequential, so they are spread over all bits before being masked.
+        final long mixed = key * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32));
+    }
+}
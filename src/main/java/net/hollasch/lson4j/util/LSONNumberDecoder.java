@@ -0,0 +1,467 @@
+/*
+ * Copyright (c) 2017 Connor Hollasch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.hollasch.lson4j.util;
+
+import net.hollasch.lson4j.type.LSONNumber;
+import net.hollasch.lson4j.type.provided.LSONNumberTypeAdapter.Precision;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Decodes numbers straight from their characters, without copying them into a string first.
+ * <p>
+ * Decimal integers that fit in a long are decoded exactly, and other decimal numbers are rounded to the nearest
+ * double in one of two fast paths: exact double arithmetic for small significands and powers of ten, and otherwise the
+ * Eisel-Lemire algorithm, multiplying the significand by a 128 bit approximation of the power of ten. Numbers neither
+ * path rounds correctly, numbers with more than 19 significant digits and anything else {@link Double#parseDouble}
+ * accepts, such as {@code Infinity} or a type suffix, are handed to {@link Double#parseDouble}.
+ *
+ * @author Connor Hollasch
+ * @since Oct 18, 6:05 AM
+ */
+public final class LSONNumberDecoder
+{
+    // Most decimal digits an unsigned long holds without overflowing.
+    private static final int MAX_SIGNIFICAND_DIGITS = 19;
+
+    // Largest significand and power of ten exactly representable as doubles.
+    private static final long MAX_EXACT_SIGNIFICAND = 1L << 53;
+    private static final int MAX_EXACT_POWER = 22;
+
+    // Decimal exponents beyond which every significand rounds to zero or infinity.
+    private static final int SMALLEST_POWER = -342;
+    private static final int LARGEST_POWER = 308;
+
+    private static final double[] EXACT_POWERS = new double[MAX_EXACT_POWER + 1];
+
+    // Normalized 128 bit approximations of every power of five from the smallest to the largest power, high and low
+    // halves. Powers of ten share them, as the power of two is accounted for separately.
+    private static final long[] POWERS_HIGH = new long[LARGEST_POWER - SMALLEST_POWER + 1];
+    private static final long[] POWERS_LOW = new long[LARGEST_POWER - SMALLEST_POWER + 1];
+
+    static {
+        EXACT_POWERS[0] = 1;
+        for (int i = 1; i <= MAX_EXACT_POWER; ++i) {
+            EXACT_POWERS[i] = EXACT_POWERS[i - 1] * 10;
+        }
+
+        final BigInteger five = BigInteger.valueOf(5);
+
+        for (int q = SMALLEST_POWER; q <= LARGEST_POWER; ++q) {
+            BigInteger power;
+
+            if (q < 0) {
+                // Reciprocals are rounded up, so that the product never falls below the exact value.
+                final BigInteger divisor = five.pow(-q);
+                final int bits = divisor.bitLength();
+                final int shift = q >= -27 ? bits + 127 : (2 * bits) + 128;
+
+                power = BigInteger.ONE.shiftLeft(shift).divide(divisor).add(BigInteger.ONE);
+            } else {
+                power = five.pow(q);
+            }
+
+            power = power.bitLength() > 128 ? power.shiftRight(power.bitLength() - 128)
+                    : power.shiftLeft(128 - power.bitLength());
+
+            POWERS_HIGH[q - SMALLEST_POWER] = power.shiftRight(64).longValue();
+            POWERS_LOW[q - SMALLEST_POWER] = power.longValue();
+        }
+    }
+
+    private LSONNumberDecoder ()
+    {
+        // Cannot create a number decoder.
+    }
+
+    /**
+     * Decodes the number written by the given characters.
+     * <p>
+     * Words starting with any character followed by an {@code x} are read as hexadecimal longs. Decimal integers,
+     * without a fraction or exponent, are read as longs unless the precision is {@link Precision#DOUBLE}, and as big
+     * integers if they overflow and the precision allows it. Everything else is read as a double, or as a big decimal
+     * under {@link Precision#BIG_DECIMAL}. Negative zero integers such as {@code -0} are read as doubles, keeping their
+     * sign.
+     *
+     * @param chars     characters holding the number.
+     * @param start     index of the first character of the number.
+     * @param end       index after the last character of the number.
+     * @param precision types to decode numbers into.
+     * @return the decoded number.
+     * @throws NumberFormatException if the characters are not a number.
+     */
+    public static Number decode (
+            final CharSequence chars,
+            final int start,
+            final int end,
+            final Precision precision)
+    {
+        return decodeNumber(chars, start, end, precision, false).getObject();
+    }
+
+    /**
+     * Decodes the number written by the given characters into a number word, following the rules of
+     * {@link #decode}, without boxing longs and doubles.
+     *
+     * @param chars      characters holding the number.
+     * @param start      index of the first character of the number.
+     * @param end        index after the last character of the number.
+     * @param precision  types to decode numbers into.
+     * @param retainText true to keep the characters as the text of the word, where the number does not imply them.
+     * @return the decoded number.
+     * @throws NumberFormatException if the characters are not a number.
+     */
+    public static LSONNumber decodeNumber (
+            final CharSequence chars,
+            final int start,
+            final int end,
+            final Precision precision,
+            final boolean retainText)
+    {
+        if (end - start > 2 && (chars.charAt(start + 1) == 'x' || chars.charAt(start + 1) == 'X')) {
+            return new LSONNumber(decodeHex(chars, start + 2, end), getText(chars, start, end, retainText));
+        }
+
+        int i = start;
+        boolean negative = false;
+
+        if (i < end && (chars.charAt(i) == '-' || chars.charAt(i) == '+')) {
+            negative = chars.charAt(i) == '-';
+            ++i;
+        }
+
+        // Significant digits are read into an unsigned long, and those that do not fit only move the exponent.
+        long significand = 0;
+        int significantDigits = 0;
+        int exponent = 0;
+        int digits = 0;
+        boolean truncated = false;
+        boolean integer = true;
+
+        for (; i < end; ++i) {
+            final int digit = chars.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                break;
+            }
+
+            ++digits;
+
+            if (significantDigits < MAX_SIGNIFICAND_DIGITS) {
+                significand = (10 * significand) + digit;
+                significantDigits += significand != 0 ? 1 : 0;
+            } else {
+                ++exponent;
+                truncated |= digit != 0;
+            }
+        }
+
+        if (i < end && chars.charAt(i) == '.') {
+            integer = false;
+
+            for (++i; i < end; ++i) {
+                final int digit = chars.charAt(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    break;
+                }
+
+                ++digits;
+
+                if (significantDigits < MAX_SIGNIFICAND_DIGITS) {
+                    significand = (10 * significand) + digit;
+                    significantDigits += significand != 0 ? 1 : 0;
+                    --exponent;
+                } else {
+                    truncated |= digit != 0;
+                }
+            }
+        }
+
+        if (digits == 0) {
+            return fallBack(chars, start, end, retainText);
+        }
+
+        if (i < end && (chars.charAt(i) == 'e' || chars.charAt(i) == 'E')) {
+            integer = false;
+
+            boolean negativeExponent = false;
+            if (++i < end && (chars.charAt(i) == '-' || chars.charAt(i) == '+')) {
+                negativeExponent = chars.charAt(i) == '-';
+                ++i;
+            }
+
+            final int exponentStart = i;
+            int written = 0;
+
+            for (; i < end; ++i) {
+                final int digit = chars.charAt(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    break;
+                }
+
+                // Exponents this large round to zero or infinity either way.
+                if (written < 100000) {
+                    written = (10 * written) + digit;
+                }
+            }
+
+            if (i == exponentStart) {
+                return fallBack(chars, start, end, retainText);
+            }
+
+            exponent += negativeExponent ? -written : written;
+        }
+
+        // Suffixes and anything else unusual is left to the platform.
+        if (i != end) {
+            return fallBack(chars, start, end, retainText);
+        }
+
+        if (integer && precision != Precision.DOUBLE && negative && significand == 0) {
+            // Neither longs nor big integers keep the sign of negative zero, so it is read as a double.
+            return new LSONNumber(-0.0, getText(chars, start, end, retainText));
+        } else if (integer && precision != Precision.DOUBLE) {
+            // Integers of up to 19 digits fit in a long unless they exceed its range.
+            if (exponent == 0 && (significand >= 0 || (negative && significand == Long.MIN_VALUE))) {
+                final String text = isCanonical(chars, start, end) ? null : getText(chars, start, end, retainText);
+                return new LSONNumber(negative ? -significand : significand, text);
+            }
+
+            if (precision != Precision.LONG) {
+                final String text = chars.subSequence(start, end).toString();
+                return new LSONNumber(new BigInteger(text), retainText ? text : null);
+            }
+        } else if (precision == Precision.BIG_DECIMAL) {
+            final String text = chars.subSequence(start, end).toString();
+            return new LSONNumber(new BigDecimal(text), retainText ? text : null);
+        }
+
+        if (significand == 0) {
+            return new LSONNumber(negative ? -0.0 : 0.0, getText(chars, start, end, retainText));
+        }
+
+        final double value = truncated ? Double.NaN : toDouble(significand, exponent);
+
+        if (Double.isNaN(value)) {
+            return fallBack(chars, start, end, retainText);
+        }
+
+        return new LSONNumber(negative ? -value : value, getText(chars, start, end, retainText));
+    }
+
+    /**
+     * Decodes the double written by the given characters, as {@link Double#parseDouble} does.
+     *
+     * @param chars characters holding the number.
+     * @param start index of the first character of the number.
+     * @param end   index after the last character of the number.
+     * @return the double closest to the decoded number.
+     * @throws NumberFormatException if the characters are not a number.
+     */
+    public static double decodeDouble (final CharSequence chars, final int start, final int end)
+    {
+        // Hexadecimal words are not doubles, so they are left to the platform to reject.
+        if (end - start > 2 && (chars.charAt(start + 1) == 'x' || chars.charAt(start + 1) == 'X')) {
+            return Double.parseDouble(chars.subSequence(start, end).toString());
+        }
+
+        return decodeNumber(chars, start, end, Precision.DOUBLE, false).getAsDouble();
+    }
+
+    //==================================================================================================================
+
+    private static LSONNumber fallBack (
+            final CharSequence chars,
+            final int start,
+            final int end,
+            final boolean retainText)
+    {
+        final String text = chars.subSequence(start, end).toString();
+        return new LSONNumber(Double.parseDouble(text), retainText ? text : null);
+    }
+
+    private static String getText (
+            final CharSequence chars,
+            final int start,
+            final int end,
+            final boolean retainText)
+    {
+        return retainText ? chars.subSequence(start, end).toString() : null;
+    }
+
+    /**
+     * @return true if the decimal integer between the given indices is written as {@link Long#toString} would write
+     *         it, without a plus sign or leading zeros.
+     */
+    private static boolean isCanonical (final CharSequence chars, final int start, final int end)
+    {
+        final char sign = chars.charAt(start);
+        if (sign == '+') {
+            return false;
+        }
+
+        final int first = sign == '-' ? start + 1 : start;
+
+        // Zero is only canonical on its own, without a sign.
+        return chars.charAt(first) != '0' || (first == start && end - start == 1);
+    }
+
+    /**
+     * Rounds a positive significand times a power of ten to the nearest double.
+     *
+     * @return the rounded double, or NaN if the fast paths cannot tell the correct rounding apart.
+     */
+    private static double toDouble (final long significand, final int exponent)
+    {
+        if (significand >= 0 && significand <= MAX_EXACT_SIGNIFICAND
+                && exponent >= -MAX_EXACT_POWER && exponent <= MAX_EXACT_POWER) {
+            // Both operands are exact, so the single rounding of the operation is the correct one.
+            return exponent < 0
+                    ? significand / EXACT_POWERS[-exponent]
+                    : significand * EXACT_POWERS[exponent];
+        }
+
+        if (exponent < SMALLEST_POWER) {
+            return 0.0;
+        }
+
+        if (exponent > LARGEST_POWER) {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        // Eisel-Lemire: multiply the normalized significand by the approximated power, keeping 55 bits of the product.
+        final int leadingZeros = Long.numberOfLeadingZeros(significand);
+        final long normalized = significand << leadingZeros;
+        final int index = exponent - SMALLEST_POWER;
+
+        long high = multiplyHigh(normalized, POWERS_HIGH[index]);
+        long low = normalized * POWERS_HIGH[index];
+
+        // Only refine the product with the low half of the power if the truncated bits could carry into the kept ones.
+        final long precisionMask = -1L >>> 55;
+        if ((high & precisionMask) == precisionMask) {
+            final long carry = multiplyHigh(normalized, POWERS_LOW[index]);
+            low += carry;
+
+            if (Long.compareUnsigned(carry, low) > 0) {
+                ++high;
+            }
+        }
+
+        // The approximation error could still reach the kept bits, outside of the exponents where it is exact.
+        if (low == -1L && (exponent < -27 || exponent > 55)) {
+            return Double.NaN;
+        }
+
+        final int upperBit = (int) (high >>> 63);
+        long mantissa = high >>> (upperBit + 9);
+        int power = ((217706 * exponent) >> 16) + 63 + upperBit - leadingZeros + 1023;
+
+        if (power <= 0) {
+            // Subnormal, possibly rounding up to the smallest normal number.
+            if (-power + 1 >= 64) {
+                return 0.0;
+            }
+
+            mantissa >>>= -power + 1;
+            mantissa += mantissa & 1;
+            mantissa >>>= 1;
+            power = mantissa < (1L << 52) ? 0 : 1;
+
+            return Double.longBitsToDouble(mantissa | ((long) power << 52));
+        }
+
+        // Products exactly halfway between two doubles round to even, which is only possible for small exponents.
+        if (Long.compareUnsigned(low, 1) <= 0 && exponent >= -4 && exponent <= 23 && (mantissa & 3) == 1
+                && (mantissa << (upperBit + 9)) == high) {
+            mantissa &= ~1L;
+        }
+
+        mantissa += mantissa & 1;
+        mantissa >>>= 1;
+
+        if (mantissa >= (2L << 52)) {
+            mantissa = 1L << 52;
+            ++power;
+        }
+
+        if (power >= 0x7FF) {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        return Double.longBitsToDouble((mantissa & ~(1L << 52)) | ((long) power << 52));
+    }
+
+    /**
+     * @return the high 64 bits of the unsigned 128 bit product of the given longs.
+     */
+    private static long multiplyHigh (final long x, final long y)
+    {
+        final long x0 = x & 0xFFFFFFFFL;
+        final long x1 = x >>> 32;
+        final long y0 = y & 0xFFFFFFFFL;
+        final long y1 = y >>> 32;
+
+        final long middle = (x1 * y0) + ((x0 * y0) >>> 32);
+        final long carry = (middle & 0xFFFFFFFFL) + (x0 * y1);
+
+        return (x1 * y1) + (middle >>> 32) + (carry >>> 32);
+    }
+
+    /**
+     * Decodes hexadecimal digits with an optional sign, following the rules of {@link Long#parseLong(String, int)}.
+     */
+    private static long decodeHex (final CharSequence chars, final int start, final int end)
+    {
+        int i = start;
+        boolean negative = false;
+
+        if (i < end && (chars.charAt(i) == '-' || chars.charAt(i) == '+')) {
+            negative = chars.charAt(i) == '-';
+            ++i;
+        }
+
+        if (i == end) {
+            throw new NumberFormatException("For input string: \"" + chars.subSequence(start, end) + "\"");
+        }
+
+        // Accumulated negatively, as the negative range is the larger one.
+        final long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        final long multiplyLimit = limit / 16;
+        long result = 0;
+
+        for (; i < end; ++i) {
+            final int digit = Character.digit(chars.charAt(i), 16);
+
+            if (digit < 0 || result < multiplyLimit || (result * 16) < limit + digit) {
+                throw new NumberFormatException("For input string: \"" + chars.subSequence(start, end) + "\"");
+            }
+
+            result = (result * 16) - digit;
+        }
+
+        return negative ? result : -result;
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2017 Connor Hollasch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.hollasch.lson4j.util;
+
+import net.hollasch.lson4j.type.LSONString;
+
+/**
+ * Table of canonical object keys, so that every occurrence of a key read by a parser is the same {@link LSONString}
+ * instance. Keys are looked up straight from the characters captured by the parser, and a string is only built the
+ * first time a key is seen. A table may be shared by any number of parsers, including concurrent ones, so that
+ * documents repeating the same keys over and over only ever allocate them once.
+ * <p>
+ * The table holds at most a fixed number of symbols, beyond which keys are handed out without being interned, so that
+ * a long lived table cannot be grown without limit by documents with ever changing keys.
+ *
+ * @author Connor Hollasch
+ * @since Oct 18, 5:40 AM
+ */
+public final class LSONSymbolTable
+{
+    /**
+     * Number of symbols a table holds unless given otherwise.
+     */
+    public static final int DEFAULT_MAX_SYMBOLS = 1 << 16;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final int maxSymbols;
+
+    // Chains of symbols by hash. Lookups read the table without locking, a missed symbol is looked up again under the
+    // lock before being inserted.
+    private volatile Symbol[] table;
+    private int size;
+
+    public LSONSymbolTable ()
+    {
+        this(DEFAULT_MAX_SYMBOLS);
+    }
+
+    /**
+     * @param maxSymbols most symbols the table holds.
+     */
+    public LSONSymbolTable (final int maxSymbols)
+    {
+        if (maxSymbols < 0) {
+            throw new IllegalArgumentException("Maximum symbol count cannot be negative: " + maxSymbols);
+        }
+
+        this.maxSymbols = maxSymbols;
+        this.table = new Symbol[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Computes the hash of the given characters, equal to the hash of the string holding them.
+     *
+     * @param chars characters to hash.
+     * @return the hash of the characters.
+     */
+    public static int hash (final CharSequence chars)
+    {
+        if (chars instanceof String) {
+            return chars.hashCode();
+        }
+
+        int hash = 0;
+        for (int i = 0, length = chars.length(); i < length; ++i) {
+            hash = (31 * hash) + chars.charAt(i);
+        }
+
+        return hash;
+    }
+
+    /**
+     * @return the number of symbols in the table.
+     */
+    public synchronized int size ()
+    {
+        return this.size;
+    }
+
+    /**
+     * Looks up the symbol holding the given characters without allocating.
+     *
+     * @param chars characters of the key.
+     * @return the symbol, or {@code null} if the key has not been interned.
+     */
+    public LSONString get (final CharSequence chars)
+    {
+        return find(this.table, chars, hash(chars));
+    }
+
+    /**
+     * Looks up the symbol holding the given characters, creating it if the key has not been seen yet.
+     *
+     * @param chars characters of the key, which are copied if a symbol is created.
+     * @return the symbol, or a new string outside the table if the table is full.
+     */
+    public LSONString intern (final CharSequence chars)
+    {
+        final int hash = hash(chars);
+        final LSONString symbol = find(this.table, chars, hash);
+
+        return symbol != null ? symbol : insert(chars, hash);
+    }
+
+    private synchronized LSONString insert (final CharSequence chars, final int hash)
+    {
+        Symbol[] table = this.table;
+        final LSONString raced = find(table, chars, hash);
+
+        if (raced != null) {
+            return raced;
+        }
+
+        final LSONString key = new LSONString(chars.toString());
+
+        if (this.size >= this.maxSymbols) {
+            return key;
+        }
+
+        if (this.size >= table.length - (table.length >> 2)) {
+            table = resize(table);
+        }
+
+        final int slot = hash & (table.length - 1);
+        table[slot] = new Symbol(hash, key, table[slot]);
+        ++this.size;
+
+        // Republish the table, so that lock free readers see the new symbol.
+        this.table = table;
+        return key;
+    }
+
+    private static Symbol[] resize (final Symbol[] table)
+    {
+        final Symbol[] resized = new Symbol[table.length << 1];
+
+        // Chains are immutable, so the symbols are copied rather than relinked under readers of the old table.
+        for (Symbol symbol : table) {
+            for (; symbol != null; symbol = symbol.next) {
+                final int slot = symbol.hash & (resized.length - 1);
+                resized[slot] = new Symbol(symbol.hash, symbol.key, resized[slot]);
+            }
+        }
+
+        return resized;
+    }
+
+    private static LSONString find (final Symbol[] table, final CharSequence chars, final int hash)
+    {
+        for (Symbol symbol = table[hash & (table.length - 1)]; symbol != null; symbol = symbol.next) {
+            if (symbol.hash == hash && symbol.key.getWord().contentEquals(chars)) {
+                return symbol.key;
+            }
+        }
+
+        return null;
+    }
+
+    //==================================================================================================================
+
+    private static final class Symbol
+    {
+        private final int hash;
+        private final LSONString key;
+        private final Symbol next;
+
+        private Symbol (final int hash, final LSONString key, final Symbol next)
+        {
+            this.hash = hash;
+            this.key = key;
+            this.next = next;
+        }
+    }
+}
@@ -43,6 +43,14 @@ public class LSONBenchmark
         System.out.println("Parsing a 1mb test file...");
 
         timeParser("LSON4J", () -> LSON.parseWithAdapters(new FileReader(big), LSONTypeAdapters.BOOLEAN, LSONTypeAdapters.NUMBER));
+        timeParser("LSON4J (mapped)", () -> LSON.parseWithAdapters(big.toPath(), LSONTypeAdapters.BOOLEAN, LSONTypeAdapters.NUMBER));
+        timeParser("LSON4J (indexed)", () -> LSON.parseIndexed(big.toPath(), LSONTypeAdapters.BOOLEAN, LSONTypeAdapters.NUMBER));
+        timeParser("LSON4J (parallel)", () -> LSON.parseParallel(big.toPath(), LSONTypeAdapters.BOOLEAN, LSONTypeAdapters.NUMBER));
+        timeParser("LSON4J (tape)", () -> LSON.parseTape(big.toPath(), LSONTypeAdapters.BOOLEAN, LSONTypeAdapters.NUMBER));
+        timeParser("LSON4J (lazy)", () -> LSON.parseLazy(big.toPath(), LSONTypeAdapters.BOOLEAN, LSONTypeAdapters.NUMBER));
+        timeParser("LSON4J (select)", () -> LSON.select(big.toPath(), LSONSelector.compile("[0]"), LSONTypeAdapters.BOOLEAN, LSONTypeAdapters.NUMBER));
+        final byte[] encoded = LSON.encode(LSON.parseWithAdapters(big.toPath(), LSONTypeAdapters.BOOLEAN, LSONTypeAdapters.NUMBER));
+        timeParser("LSON4J (binary)", () -> LSON.decode(encoded, LSONTypeAdapters.BOOLEAN, LSONTypeAdapters.NUMBER));
         timeParser("JSON-Simple", () -> new JSONParser().parse(new FileReader(big)));
     }
 
@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2017 Connor Hollasch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.hollasch.lson4j;
+
+import net.hollasch.lson4j.type.LSONValue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks the UTF-8 decoding of {@link LSONByteReader} against {@link String#String(byte[], java.nio.charset.Charset)},
+ * on malformed input in particular: overlong encodings and encoded surrogates must decode to replacement characters,
+ * never to the characters (structural or not) they would otherwise spell. {@link LSONPushParser} scans with the same
+ * rules and is checked alongside.
+ *
+ * @author Connor Hollasch
+ * @since Oct 18, 8:40 AM
+ */
+public class LSONByteReaderTest
+{
+    private static final int[][] FIXED = {
+            // Overlong quote, slash and NUL.
+            {0xC0, 0xA2}, {0xC0, 0xAF}, {0xC1, 0xBF}, {0xE0, 0x80, 0xA2}, {0xF0, 0x80, 0x80, 0xA2},
+            // Encoded surrogates, and the code points either side of them.
+            {0xED, 0xA0, 0x80}, {0xED, 0xBF, 0xBF}, {0xED, 0x9F, 0xBF}, {0xEE, 0x80, 0x80},
+            // Past the end of Unicode, and the end itself.
+            {0xF4, 0x90, 0x80, 0x80}, {0xF5, 0x80, 0x80, 0x80}, {0xFF}, {0xF4, 0x8F, 0xBF, 0xBF},
+            // Truncated sequences and stray continuation bytes.
+            {0xE2, 0x82}, {0xE2, 0x82, 0x41}, {0xF0, 0x9D, 0x84}, {0x80}, {0xBF, 0x80},
+            // Well formed sequences of every length.
+            {0xC2, 0xA9}, {0xE2, 0x82, 0xAC}, {0xF0, 0x9D, 0x84, 0x9E}
+    };
+
+    public static void main (final String... args) throws IOException
+    {
+        final Random random = new Random(args.length > 0 ? Long.parseLong(args[0]) : 1);
+        final int sequences = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+
+        final List<byte[]> payloads = new ArrayList<>();
+        for (final int[] fixed : FIXED) {
+            final byte[] payload = new byte[fixed.length];
+            for (int i = 0; i < fixed.length; ++i) {
+                payload[i] = (byte) fixed[i];
+            }
+            payloads.add(payload);
+        }
+
+        for (int i = 0; i < sequences; ++i) {
+            payloads.add(randomPayload(random));
+        }
+
+        final Path file = Files.createTempFile("lson-byte-reader", ".lson");
+        try {
+            for (final byte[] payload : payloads) {
+                checkCharacters(payload, file);
+                checkParse(payload, file);
+            }
+        } finally {
+            Files.delete(file);
+        }
+
+        // An overlong quote right after a string, which must not open another string swallowing the closing bracket.
+        checkPush(new byte[] {'[', '"', 'a', '"', (byte) 0xC0, (byte) 0xA2, ']'});
+
+        System.out.println("Checked " + payloads.size() + " sequences");
+    }
+
+    /**
+     * Reads the bytes character by character from every kind of byte source, with buffers and mapped windows small
+     * enough for sequences to straddle them.
+     */
+    private static void checkCharacters (final byte[] bytes, final Path file) throws IOException
+    {
+        final String expected = new String(bytes, StandardCharsets.UTF_8);
+        Files.write(file, bytes);
+
+        check(bytes, expected, readAll(new LSONByteReader(bytes)), "byte array");
+        check(bytes, expected, readAll(new LSONByteReader(new ByteArrayInputStream(bytes), 3)), "stream");
+
+        try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            check(bytes, expected, readAll(new LSONByteReader(channel, 3)), "mapped file");
+        }
+    }
+
+    /**
+     * Parses the bytes inside an array of strings from every kind of byte source, including indexed input, which must
+     * read the same as the decoded text. Runs after {@link #checkCharacters}, which catches a quote decoded from an
+     * overlong sequence before it can leave the string unterminated.
+     */
+    private static void checkParse (final byte[] payload, final Path file) throws IOException
+    {
+        final byte[] bytes = new byte[payload.length + 4];
+        bytes[0] = '[';
+        bytes[1] = '"';
+        System.arraycopy(payload, 0, bytes, 2, payload.length);
+        bytes[bytes.length - 2] = '"';
+        bytes[bytes.length - 1] = ']';
+
+        final String expected = describe(() -> LSON.parse(new String(bytes, StandardCharsets.UTF_8)));
+        Files.write(file, bytes);
+
+        check(bytes, expected, describe(() -> LSON.parse(bytes)), "byte array");
+        check(bytes, expected, describe(() -> LSON.parse(new ByteArrayInputStream(bytes))), "stream");
+        check(bytes, expected, describe(() -> LSON.parse(file)), "mapped file");
+        check(bytes, expected, describe(() -> LSON.parseIndexed(bytes)), "indexed byte array");
+        check(bytes, expected, describe(() -> LSON.parseIndexed(file)), "indexed mapped file");
+
+        checkPush(bytes);
+    }
+
+    /**
+     * Pushes the bytes followed by another value, whole and a byte at a time, which must read as the decoded text does.
+     * A structural character decoded from an overlong sequence would end the first value early or swallow the second.
+     */
+    private static void checkPush (final byte[] bytes) throws IOException
+    {
+        final String first = describe(() -> LSON.parse(new String(bytes, StandardCharsets.UTF_8)));
+        final String expected = first.equals("error") ? first : first + "\n" + describe(() -> LSON.parse("[b]"));
+
+        final byte[] document = Arrays.copyOf(bytes, bytes.length + 4);
+        System.arraycopy("\n[b]".getBytes(StandardCharsets.UTF_8), 0, document, bytes.length, 4);
+
+        check(document, expected, push(document, document.length), "push parser");
+        check(document, expected, push(document, 1), "push parser fed byte by byte");
+    }
+
+    //==================================================================================================================
+
+    private interface Parse
+    {
+        LSONValue parse () throws IOException, LSONParseException;
+    }
+
+    private static String describe (final Parse parse) throws IOException
+    {
+        try {
+            return String.valueOf(parse.parse());
+        } catch (final LSONParseException e) {
+            return "error";
+        }
+    }
+
+    private static String push (final byte[] bytes, final int chunk) throws IOException
+    {
+        final List<String> values = new ArrayList<>();
+        final LSONPushParser parser = new LSONPushParser(value -> values.add(String.valueOf(value)), new HashSet<>());
+
+        try {
+            for (int i = 0; i < bytes.length; i += chunk) {
+                parser.feed(ByteBuffer.wrap(bytes, i, Math.min(chunk, bytes.length - i)));
+            }
+            parser.endOfInput();
+        } catch (final LSONParseException e) {
+            return "error";
+        }
+
+        return String.join("\n", values);
+    }
+
+    private static String readAll (final LSONReader reader) throws IOException
+    {
+        final StringBuilder builder = new StringBuilder();
+        for (int character = reader.read(); character != LSONReader.END_OF_SOURCE; character = reader.read()) {
+            builder.append((char) character);
+        }
+        return builder.toString();
+    }
+
+    private static void check (final byte[] bytes, final String expected, final String actual, final String source)
+    {
+        if (!actual.equals(expected)) {
+            final List<String> hex = new ArrayList<>();
+            for (final byte b : bytes) {
+                hex.add(String.format("%02X", b & 0xFF));
+            }
+            throw new AssertionError("Read " + escape(actual) + " from " + source + " " + hex + ", expected "
+                    + escape(expected));
+        }
+    }
+
+    private static String escape (final String string)
+    {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < string.length(); ++i) {
+            final char character = string.charAt(i);
+            if (character < 0x20 || character > 0x7E) {
+                builder.append(String.format("\\u%04x", (int) character));
+            } else {
+                builder.append(character);
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * @return a short run of bytes mixing ASCII, well formed sequences and bytes that are only valid in some positions.
+     */
+    private static byte[] randomPayload (final Random random)
+    {
+        final int[] interesting = {
+                0x41, 0x3A, 0x5B, 0x80, 0x8F, 0x90, 0x9F, 0xA0, 0xA2, 0xBF, 0xC0, 0xC1, 0xC2, 0xDF,
+                0xE0, 0xE2, 0xED, 0xEE, 0xEF, 0xF0, 0xF4, 0xF5, 0xFF
+        };
+
+        final byte[] payload = new byte[1 + random.nextInt(8)];
+        for (int i = 0; i < payload.length; ++i) {
+            payload[i] = (byte) (random.nextBoolean()
+                    ? interesting[random.nextInt(interesting.length)]
+                    : random.nextInt(256));
+
+            // No quotes or escapes of their own, so the string they are parsed in always ends where it should.
+            if (payload[i] == '"' || payload[i] == '\\') {
+                payload[i] = 'A';
+            }
+        }
+        return payload;
+    }
+}
@@ -0,0 +1,426 @@
+/*
+ * Copyright (c) 2017 Connor Hollasch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.hollasch.lson4j;
+
+import net.hollasch.lson4j.type.LSONObject;
+import net.hollasch.lson4j.type.LSONString;
+import net.hollasch.lson4j.type.LSONTable;
+import net.hollasch.lson4j.type.LSONTypeAdapter;
+import net.hollasch.lson4j.type.LSONTypeAdapterTable;
+import net.hollasch.lson4j.type.LSONValue;
+import net.hollasch.lson4j.type.provided.LSONTypeAdapters;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Checks that every engine reading LSON text reads the same tree as {@link LSON#parse(String)}, or fails at the same
+ * location: the byte, indexed and parallel readers, tapes, lazy trees and selections. Streams and mapped windows are
+ * read a few bytes at a time, so that tokens and multi-byte characters span their edges, and large documents are
+ * included so that parallel chunks split strings. Valid trees are also round tripped through the binary codec, and
+ * tables through the columnar codec. The push parser reads streams of values rather than documents, and is checked by
+ * {@link LSONStructureScannerTest}.
+ *
+ * @author Connor Hollasch
+ * @since Oct 18, 10:20 AM
+ */
+public class LSONEngineParityTest
+{
+    private static final String[] FIXED = {
+            "", "  ", "42", "-0", "\"str\\\"ing\"", "'a\\u00e9\\n'", "[a:b]", "{[a b]:1 c:2}",
+            "{a:1 b:[1 2 \"x\"] c:{d:true} e:\"\u00e9\u20ac\ud834\udd1e\"}", "[[1 [2]] 3]",
+            "[# [a b] : [1 2] [3 4] #]", "[# a b : 1 2 3 4 #]", "[# [a] : #]", "[% 3 [0>1 1-2] %]",
+            "[% {x:1 y:2} {x>y} %]", "/* c */ [1 // d\n 2]", "[% 4[0-1] %]", "[# [[c0 {c1] : [1 2] #]",
+            // Malformed documents, each engine has to give up at the same place.
+            "[1 2 3", "{a:1 b:}", "{a 1}", "[1 2]]", "{a:[1 2} }", "[# a b : 1 #]", "[ \"a\" { x: y z } ]",
+            "{a:{b:{c:[1 ]}}", "  \n [1,\n 2 ]]", "{a:1}{b:2}", "[1] 2", "[# a : 1", "[# [a b] : [1 2",
+            "[# a b : 1 2 3 #]", "[% 3 [0>1", "[% 3", "{a:1", "{a:", "{a", "[\"a", "{\"a", "[# a : } #]",
+            "[% 2 [0>1 } %]", "{a:[# x : 1 }", "[1 } 2]", "[ [ [ }", "\"abc", "[# [a] :[1] [2] #] x",
+            "[# [a b] : [1] #]", "[# c0 : 1 2]", "[[# c0 : 1 x#]]", "[# a-b : 1 #]", "[# -1 : 2 #]", "]83.98",
+            "[# a"
+    };
+
+    private static final String ERROR = "error at ";
+
+    // Words starting like numbers are read as numbers, and fail as such if they are not.
+    private static final String NOT_A_NUMBER = "not a number";
+
+    // Parallel parsing only splits documents several times the length of its smallest chunk.
+    private static final int LARGE_LENGTH = 1 << 20;
+
+    // Characters inserted into random documents, mostly ones that change their structure.
+    private static final char[] DAMAGE = {'[', ']', '{', '}', '"', '#', '%', ':', ' '};
+
+    private interface Engine
+    {
+        LSONValue parse (byte[] bytes, Path file) throws IOException, LSONParseException;
+    }
+
+    private interface Read
+    {
+        LSONValue read () throws IOException, LSONParseException;
+    }
+
+    public static void main (final String... args) throws IOException, LSONParseException
+    {
+        final Random random = new Random(args.length > 0 ? Long.parseLong(args[0]) : 1);
+        final int documents = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+
+        final List<String> texts = new ArrayList<>(Arrays.asList(FIXED));
+        for (int i = 0; i < documents; ++i) {
+            final String text = randomValue(random, 0);
+            texts.add(text);
+            texts.add(damage(random, text));
+        }
+
+        final String large = randomLarge(random);
+        texts.add(large);
+        texts.add(large.substring(0, large.length() - 2) + "}]");
+        texts.add(large.substring(0, large.length() / 2));
+
+        final Collection<LSONTypeAdapter<?>> adapters = new ArrayList<>();
+        for (final LSONTypeAdapters adapter : LSONTypeAdapters.values()) {
+            adapters.add(adapter.createAdapter());
+        }
+
+        final LSONTypeAdapterTable table = new LSONTypeAdapterTable(adapters);
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        final Path file = Files.createTempFile("lson-parity", ".lson");
+
+        final Map<String, Engine> engines = new LinkedHashMap<>();
+        engines.put("bytes", (bytes, path) -> LSON.parseWithAdapters(bytes, table));
+        engines.put("stream", (bytes, path) -> new LSONParser(
+                new LSONByteReader(new ByteArrayInputStream(bytes), getWindow(bytes)), table).parse());
+        engines.put("mapped", (bytes, path) -> {
+            try (final FileChannel channel = FileChannel.open(path)) {
+                return new LSONParser(new LSONByteReader(channel, getWindow(bytes)), table).parse();
+            }
+        });
+        engines.put("indexed", (bytes, path) -> LSON.parseIndexed(bytes, table));
+        engines.put("indexed stream", (bytes, path) -> new LSONParser(
+                new LSONIndexedReader(new ByteArrayInputStream(bytes), getWindow(bytes)), table).parse());
+        engines.put("indexed mapped", (bytes, path) -> {
+            try (final FileChannel channel = FileChannel.open(path)) {
+                return new LSONParser(new LSONIndexedReader(channel, getWindow(bytes)), table).parse();
+            }
+        });
+        engines.put("parallel", (bytes, path) -> LSON.parseParallel(bytes, adapters, pool));
+        engines.put("tape", (bytes, path) -> {
+            final LSONTape tape = LSON.parseTape(new String(bytes, StandardCharsets.UTF_8), table);
+            return tape.getRoot() == null ? null : tape.getRoot().toValue();
+        });
+        engines.put("lazy", (bytes, path) -> LSON.parseLazy(bytes, table));
+        engines.put("select", (bytes, path) -> {
+            final String text = new String(bytes, StandardCharsets.UTF_8);
+            final List<LSONValue> selected = LSON.select(text, LSONSelector.compile(""), table).get("");
+            return selected == null || selected.isEmpty() ? null : selected.get(0);
+        });
+
+        int valid = 0;
+        try {
+            for (final String text : texts) {
+                valid += check(text, table, engines, file) ? 1 : 0;
+            }
+        } finally {
+            pool.shutdown();
+            Files.delete(file);
+        }
+
+        System.out.println("Checked " + texts.size() + " documents, " + valid + " of them valid");
+    }
+
+    /**
+     * Reads the document with every engine and codec.
+     *
+     * @return true if the document is valid.
+     */
+    private static boolean check (
+            final String text,
+            final LSONTypeAdapterTable table,
+            final Map<String, Engine> engines,
+            final Path file)
+            throws IOException, LSONParseException
+    {
+        final byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        Files.write(file, bytes);
+
+        final String expected = describe(() -> LSON.parseWithAdapters(text, table));
+        for (final Map.Entry<String, Engine> engine : engines.entrySet()) {
+            final String actual = describe(() -> engine.getValue().parse(bytes, file));
+
+            if (!actual.equals(expected)) {
+                throw new AssertionError(engine.getKey() + " read " + abbreviate(actual) + " from " + abbreviate(text)
+                        + ", expected " + abbreviate(expected));
+            }
+        }
+
+        if (expected.startsWith(ERROR) || expected.equals(NOT_A_NUMBER)) {
+            return false;
+        }
+
+        final LSONValue value = LSON.parseWithAdapters(text, table);
+        if (value == null) {
+            return true;
+        }
+
+        final String decoded = canonical(LSON.decode(LSON.encode(value), table));
+        if (!decoded.equals(expected)) {
+            throw new AssertionError("Binary codec read " + abbreviate(decoded) + " from " + abbreviate(text));
+        }
+
+        if (value.isTable()) {
+            final LSONTable columns = LSON.openColumnar(LSON.encodeColumnar(value.toTable()), table).readTable();
+            final String columnar = canonical(columns);
+
+            if (!columnar.equals(expected)) {
+                throw new AssertionError("Columnar codec read " + abbreviate(columnar) + " from " + abbreviate(text));
+            }
+        }
+
+        return true;
+    }
+
+    //==================================================================================================================
+
+    /**
+     * @return the canonical form of the value read, or the location reading failed at. Lazy values fail as they are
+     *         walked, so they are walked here too.
+     */
+    private static String describe (final Read read) throws IOException
+    {
+        try {
+            return canonical(read.read());
+        } catch (final LSONParseException e) {
+            return ERROR + e.getLocation();
+        } catch (final UncheckedLSONParseException e) {
+            return ERROR + e.getCause().getLocation();
+        } catch (final NumberFormatException e) {
+            return NOT_A_NUMBER;
+        }
+    }
+
+    /**
+     * @return a string form of the value that does not depend on the order object entries are kept in, naming the
+     *         class of each word so that numbers and strings of the same text differ.
+     */
+    private static String canonical (final LSONValue value)
+    {
+        if (value == null) {
+            return "null";
+        } else if (value.isLSONObject()) {
+            final LSONObject<?> object = value.toObject();
+            final TreeMap<String, String> entries = new TreeMap<>();
+            for (final Map.Entry<LSONString, ?> entry : object.entrySet()) {
+                entries.put(entry.getKey().getWord(), canonical((LSONValue) entry.getValue()));
+            }
+            return entries.toString();
+        } else if (value.isLSONArray()) {
+            final List<String> elements = new ArrayList<>();
+            for (final Object element : value.toArray()) {
+                elements.add(canonical((LSONValue) element));
+            }
+            return elements.toString();
+        } else if (value.isTable()) {
+            final LSONTable table = value.toTable();
+            final List<String> rows = new ArrayList<>();
+            for (final List<LSONValue> row : table.getRowData()) {
+                final List<String> cells = new ArrayList<>();
+                row.forEach(cell -> cells.add(canonical(cell)));
+                rows.add(cells.toString());
+            }
+            return "#" + table.getHeader() + rows;
+        }
+
+        return value.getClass().getSimpleName() + ":" + value;
+    }
+
+    private static String abbreviate (final String text)
+    {
+        return text.length() <= 200 ? text : text.substring(0, 200) + "... (" + text.length() + " characters)";
+    }
+
+    /**
+     * @return the length of stream buffers and mapped windows, small enough that small documents span several.
+     */
+    private static int getWindow (final byte[] bytes)
+    {
+        return bytes.length < LARGE_LENGTH ? 3 : 4093;
+    }
+
+    //==================================================================================================================
+
+    private static String damage (final Random random, final String text)
+    {
+        // Surrogate pairs are never split, as the text has to stay encodable.
+        int index = random.nextInt(text.length() + 1);
+        if (index < text.length() && Character.isLowSurrogate(text.charAt(index))) {
+            --index;
+        }
+
+        switch (random.nextInt(3)) {
+            case 0:
+                return text.substring(0, index);
+            case 1: {
+                if (index == text.length()) {
+                    return text;
+                }
+
+                final int next = index + Character.charCount(text.codePointAt(index));
+                return text.substring(0, index) + text.substring(next);
+            }
+            default:
+                return text.substring(0, index) + DAMAGE[random.nextInt(DAMAGE.length)] + text.substring(index);
+        }
+    }
+
+    /**
+     * @return an array of objects holding strings long enough to span the chunks of a parallel parse.
+     */
+    private static String randomLarge (final Random random)
+    {
+        final StringBuilder builder = new StringBuilder("[");
+
+        while (builder.length() < 2 * LARGE_LENGTH) {
+            builder.append("{id:").append(builder.length()).append(" s:\"");
+
+            final int length = random.nextInt(LARGE_LENGTH / 4);
+            for (int i = 0; i < length; ++i) {
+                builder.append(randomCharacter(random));
+            }
+
+            builder.append("\" v:").append(randomValue(random, 0)).append("}\n");
+        }
+
+        return builder.append("]").toString();
+    }
+
+    private static String randomValue (final Random random, final int depth)
+    {
+        if (depth < 4 && random.nextInt(3) == 0) {
+            return randomContainer(random, depth);
+        }
+
+        switch (random.nextInt(5)) {
+            case 0:
+                return Integer.toString(random.nextInt(2000) - 1000);
+            case 1:
+                return random.nextInt(100) + "." + random.nextInt(100);
+            case 2: {
+                final StringBuilder builder = new StringBuilder("\"");
+                final int length = random.nextInt(8);
+                for (int i = 0; i < length; ++i) {
+                    builder.append(randomCharacter(random));
+                }
+                return builder.append("\"").toString();
+            }
+            case 3:
+                return random.nextBoolean() ? "true" : "null";
+            default:
+                return "w" + random.nextInt(10);
+        }
+    }
+
+    private static String randomContainer (final Random random, final int depth)
+    {
+        final StringBuilder builder = new StringBuilder();
+
+        switch (random.nextInt(4)) {
+            case 0: {
+                builder.append("{");
+                final int entries = random.nextInt(4);
+                for (int i = 0; i < entries; ++i) {
+                    builder.append(i == 0 ? "" : " ").append("k").append(i).append(":")
+                            .append(randomValue(random, depth + 1));
+                }
+                return builder.append("}").toString();
+            }
+            case 1: {
+                builder.append("[");
+                final int elements = 1 + random.nextInt(3);
+                for (int i = 0; i < elements; ++i) {
+                    builder.append(i == 0 ? "" : " ").append(randomValue(random, depth + 1));
+                }
+                return builder.append("]").toString();
+            }
+            case 2: {
+                final boolean bracketed = random.nextBoolean();
+                final int columns = 1 + random.nextInt(3);
+
+                builder.append("[# ").append(bracketed ? "[" : "");
+                for (int c = 0; c < columns; ++c) {
+                    builder.append(c == 0 ? "" : " ").append("c").append(c);
+                }
+                builder.append(bracketed ? "]" : "").append(" :");
+
+                final int rows = random.nextInt(4);
+                for (int r = 0; r < rows; ++r) {
+                    builder.append(" ").append(bracketed ? "[" : "");
+                    for (int c = 0; c < columns; ++c) {
+                        builder.append(c == 0 ? "" : " ").append(randomValue(random, depth + 1));
+                    }
+                    builder.append(bracketed ? "]" : "");
+                }
+                return builder.append(" #]").toString();
+            }
+            default: {
+                final int vertices = 1 + random.nextInt(4);
+                builder.append("[% ").append(vertices).append(" [");
+
+                final int edges = random.nextInt(4);
+                for (int i = 0; i < edges; ++i) {
+                    builder.append(i == 0 ? "" : " ").append(random.nextInt(vertices))
+                            .append(random.nextBoolean() ? ">" : "-").append(random.nextInt(vertices));
+                }
+                return builder.append("] %]").toString();
+            }
+        }
+    }
+
+    private static String randomCharacter (final Random random)
+    {
+        switch (random.nextInt(12)) {
+            case 0:
+                return "\\\"";
+            case 1:
+                return "\\u00e9";
+            case 2:
+                return "\u00e9";
+            case 3:
+                return "\u20ac";
+            case 4:
+                return "\ud834\udd1e";
+            case 5:
+                return " ";
+            default:
+                return String.valueOf((char) ('a' + random.nextInt(26)));
+        }
+    }
+}
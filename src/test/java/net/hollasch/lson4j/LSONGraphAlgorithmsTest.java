@@ -0,0 +1,438 @@
+/*
+ * Copyright (c) 2017 Connor Hollasch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.hollasch.lson4j;
+
+import net.hollasch.lson4j.type.LSONWord;
+import net.hollasch.lson4j.type.graph.LSONEdge;
+import net.hollasch.lson4j.type.graph.LSONGraph;
+import net.hollasch.lson4j.type.graph.LSONGraphAlgorithms;
+import net.hollasch.lson4j.type.graph.LSONGraphAlgorithms.ShortestPaths;
+import net.hollasch.lson4j.type.graph.LSONGraphIndex;
+import net.hollasch.lson4j.type.graph.LSONVertex;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Checks {@link LSONGraphAlgorithms} against plain reference versions on random graphs mixing directed and undirected
+ * edges, self loops and parallel edges. Large graphs run breadth first search and connected components on a pool as
+ * well, with frontiers and vertex ranges wide enough to be split across its threads, which must give the same results
+ * as the sequential versions.
+ *
+ * @author Connor Hollasch
+ * @since Oct 18, 9:55 AM
+ */
+public class LSONGraphAlgorithmsTest
+{
+    // Least vertices of a large graph, several times the chunk length the pool splits work into.
+    private static final int LARGE_VERTICES = 20000;
+
+    // Times each pool algorithm is run on a large graph, as each run may interleave its threads differently.
+    private static final int POOL_RUNS = 3;
+
+    public static void main (final String... args)
+    {
+        final Random random = new Random(args.length > 0 ? Long.parseLong(args[0]) : 1);
+        final int graphs = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        final ForkJoinPool pool = new ForkJoinPool(4);
+
+        try {
+            for (int i = 0; i < graphs; ++i) {
+                final boolean large = i % 25 == 0;
+                final int vertexCount = large
+                        ? LARGE_VERTICES + random.nextInt(LARGE_VERTICES)
+                        : 1 + random.nextInt(24);
+                final int edgeCount = large
+                        ? (2 * vertexCount) + random.nextInt(2 * vertexCount)
+                        : random.nextInt((3 * vertexCount) + 1);
+
+                // Large graphs are searched from an end of an edge, likely in their giant component, so the frontiers
+                // grow wide enough to be split.
+                final Graph graph = Graph.createRandom(random, vertexCount, edgeCount, random.nextDouble());
+                final int source = large ? graph.edges.get(0).getV1().getIndex() : random.nextInt(vertexCount);
+
+                checkBreadthFirst(graph, source, large ? pool : null);
+                checkConnectedComponents(graph, large ? pool : null);
+
+                if (!large) {
+                    checkStronglyConnectedComponents(graph);
+                    checkTopologicalSort(graph);
+                    checkShortestPaths(graph, source);
+                    checkCycle(random, vertexCount);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        System.out.println("Checked " + graphs + " graphs");
+    }
+
+    private static void checkBreadthFirst (final Graph graph, final int source, final ForkJoinPool pool)
+    {
+        final int[] expected = new int[graph.vertexCount];
+        Arrays.fill(expected, -1);
+        expected[source] = 0;
+
+        final ArrayDeque<Integer> queue = new ArrayDeque<>();
+        queue.add(source);
+        while (!queue.isEmpty()) {
+            final int vertex = queue.poll();
+            for (final int target : graph.successors.get(vertex)) {
+                if (expected[target] < 0) {
+                    expected[target] = expected[vertex] + 1;
+                    queue.add(target);
+                }
+            }
+        }
+
+        check(expected, LSONGraphAlgorithms.breadthFirst(graph.index, source), "Breadth first search", graph);
+
+        for (int run = 0; pool != null && run < POOL_RUNS; ++run) {
+            check(expected, LSONGraphAlgorithms.breadthFirst(graph.index, source, pool), "Pool breadth first search",
+                    graph);
+        }
+    }
+
+    private static void checkConnectedComponents (final Graph graph, final ForkJoinPool pool)
+    {
+        // Edges are joined both ways regardless of their direction, and components numbered by their first vertex.
+        final List<List<Integer>> neighbours = new ArrayList<>();
+        for (int v = 0; v < graph.vertexCount; ++v) {
+            neighbours.add(new ArrayList<>());
+        }
+        for (int v = 0; v < graph.vertexCount; ++v) {
+            for (final int target : graph.successors.get(v)) {
+                neighbours.get(v).add(target);
+                neighbours.get(target).add(v);
+            }
+        }
+
+        final int[] expected = new int[graph.vertexCount];
+        Arrays.fill(expected, -1);
+        int count = 0;
+
+        for (int first = 0; first < graph.vertexCount; ++first) {
+            if (expected[first] >= 0) {
+                continue;
+            }
+
+            final ArrayDeque<Integer> stack = new ArrayDeque<>();
+            stack.push(first);
+            expected[first] = count;
+
+            while (!stack.isEmpty()) {
+                for (final int neighbour : neighbours.get(stack.pop())) {
+                    if (expected[neighbour] < 0) {
+                        expected[neighbour] = count;
+                        stack.push(neighbour);
+                    }
+                }
+            }
+
+            ++count;
+        }
+
+        check(expected, LSONGraphAlgorithms.connectedComponents(graph.index), "Connected components", graph);
+
+        for (int run = 0; pool != null && run < POOL_RUNS; ++run) {
+            check(expected, LSONGraphAlgorithms.connectedComponents(graph.index, pool), "Pool connected components",
+                    graph);
+        }
+    }
+
+    /**
+     * Checks that two vertices share a component exactly when each reaches the other, and that no edge leads to a
+     * component numbered higher.
+     */
+    private static void checkStronglyConnectedComponents (final Graph graph)
+    {
+        final int[] components = LSONGraphAlgorithms.stronglyConnectedComponents(graph.index);
+        final boolean[][] reachable = graph.getReachable();
+
+        for (int u = 0; u < graph.vertexCount; ++u) {
+            for (int v = 0; v < graph.vertexCount; ++v) {
+                if ((components[u] == components[v]) != (reachable[u][v] && reachable[v][u])) {
+                    throw new AssertionError("Strongly connected components " + Arrays.toString(components)
+                            + " join " + u + " and " + v + " wrongly in " + graph);
+                }
+            }
+
+            for (final int target : graph.successors.get(u)) {
+                if (components[u] < components[target]) {
+                    throw new AssertionError("Strongly connected components " + Arrays.toString(components)
+                            + " are out of order along " + u + " to " + target + " in " + graph);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sorts the graph, which must succeed exactly when it has no cycle, counting self loops and undirected edges.
+     */
+    private static void checkTopologicalSort (final Graph graph)
+    {
+        final boolean[][] reachable = graph.getReachable();
+
+        boolean acyclic = true;
+        for (int u = 0; u < graph.vertexCount && acyclic; ++u) {
+            for (final int target : graph.successors.get(u)) {
+                acyclic &= !reachable[target][u];
+            }
+        }
+
+        final int[] order;
+        try {
+            order = LSONGraphAlgorithms.topologicalSort(graph.index);
+        } catch (final IllegalArgumentException e) {
+            if (acyclic) {
+                throw new AssertionError("Topological sort found a cycle in " + graph, e);
+            }
+            return;
+        }
+
+        if (!acyclic) {
+            throw new AssertionError("Topological sort " + Arrays.toString(order) + " missed a cycle in " + graph);
+        }
+
+        checkOrder(graph, order);
+    }
+
+    /**
+     * Sorts a random acyclic graph holding a path through every vertex, then closes the path into a cycle through
+     * every vertex, which leaves no vertex to start the sort from.
+     */
+    private static void checkCycle (final Random random, final int vertexCount)
+    {
+        final ArrayList<LSONVertex> vertices = Graph.createVertices(vertexCount);
+        final ArrayList<LSONEdge> edges = new ArrayList<>();
+
+        for (int v = 1; v < vertexCount; ++v) {
+            edges.add(new LSONEdge(vertices.get(v - 1), vertices.get(v), true, null));
+            edges.add(new LSONEdge(vertices.get(random.nextInt(v)), vertices.get(v), true, null));
+        }
+
+        final Graph acyclic = new Graph(vertices, edges);
+        checkOrder(acyclic, LSONGraphAlgorithms.topologicalSort(acyclic.index));
+
+        edges.add(new LSONEdge(vertices.get(vertexCount - 1), vertices.get(0), true, null));
+        final Graph cyclic = new Graph(vertices, edges);
+
+        try {
+            LSONGraphAlgorithms.topologicalSort(cyclic.index);
+        } catch (final IllegalArgumentException e) {
+            return;
+        }
+
+        throw new AssertionError("Topological sort missed the cycle in " + cyclic);
+    }
+
+    /**
+     * Checks Dijkstra's algorithm against Bellman-Ford, and that the last edge of each path accounts for its length.
+     */
+    private static void checkShortestPaths (final Graph graph, final int source)
+    {
+        final double[] expected = new double[graph.vertexCount];
+        Arrays.fill(expected, Double.POSITIVE_INFINITY);
+        expected[source] = 0;
+
+        for (int round = 1; round < graph.vertexCount; ++round) {
+            for (final LSONEdge edge : graph.edges) {
+                final int u = edge.getV1().getIndex();
+                final int v = edge.getV2().getIndex();
+                final double weight = getWeight(edge);
+
+                expected[v] = Math.min(expected[v], expected[u] + weight);
+                if (!edge.isDirected()) {
+                    expected[u] = Math.min(expected[u], expected[v] + weight);
+                }
+            }
+        }
+
+        final ShortestPaths paths = LSONGraphAlgorithms.shortestPaths(graph.index, source);
+
+        for (int v = 0; v < graph.vertexCount; ++v) {
+            if (paths.getDistance(v) != expected[v]) {
+                throw new AssertionError("Shortest path to " + v + " has length " + paths.getDistance(v)
+                        + ", expected " + expected[v] + " in " + graph);
+            }
+
+            final int[] path = paths.getPath(v);
+            if (v == source || !paths.isReachable(v)) {
+                if (path.length != (v == source ? 1 : 0) || paths.getPreviousEdge(v) != -1) {
+                    throw new AssertionError("Shortest path to " + v + " is " + Arrays.toString(path) + " in " + graph);
+                }
+                continue;
+            }
+
+            final LSONEdge last = graph.index.getEdge(paths.getPreviousEdge(v));
+            final int previous = path[path.length - 2];
+            final boolean joins = (last.getV1().getIndex() == previous && last.getV2().getIndex() == v)
+                    || (!last.isDirected() && last.getV2().getIndex() == previous && last.getV1().getIndex() == v);
+
+            if (path[0] != source || !joins || paths.getDistance(previous) + getWeight(last) != expected[v]) {
+                throw new AssertionError("Shortest path to " + v + " is " + Arrays.toString(path) + " ending with "
+                        + last + " in " + graph);
+            }
+        }
+    }
+
+    //==================================================================================================================
+
+    private static void checkOrder (final Graph graph, final int[] order)
+    {
+        final int[] positions = new int[graph.vertexCount];
+        Arrays.fill(positions, -1);
+        for (int i = 0; i < order.length; ++i) {
+            positions[order[i]] = i;
+        }
+
+        for (int u = 0; u < graph.vertexCount; ++u) {
+            for (final int target : graph.successors.get(u)) {
+                if (positions[u] < 0 || positions[u] >= positions[target]) {
+                    throw new AssertionError("Topological sort " + Arrays.toString(order) + " puts " + u + " after "
+                            + target + " in " + graph);
+                }
+            }
+        }
+    }
+
+    private static double getWeight (final LSONEdge edge)
+    {
+        return ((Number) edge.getData().toWord().getObject()).doubleValue();
+    }
+
+    private static void check (final int[] expected, final int[] actual, final String algorithm, final Graph graph)
+    {
+        for (int v = 0; v < expected.length; ++v) {
+            if (actual[v] != expected[v]) {
+                throw new AssertionError(algorithm + " gave " + actual[v] + " for vertex " + v + ", expected "
+                        + expected[v] + " in " + graph);
+            }
+        }
+    }
+
+    /**
+     * Random graph with small whole weights, along with the successors of each vertex as the index should store them.
+     */
+    private static final class Graph
+    {
+        private final int vertexCount;
+        private final ArrayList<LSONEdge> edges;
+        private final LSONGraphIndex index;
+
+        // Undirected edges lead both ways, but self loops only once.
+        private final List<List<Integer>> successors;
+
+        private Graph (final ArrayList<LSONVertex> vertices, final ArrayList<LSONEdge> edges)
+        {
+            this.vertexCount = vertices.size();
+            this.edges = edges;
+            this.index = new LSONGraph(vertices, edges).getIndex();
+
+            this.successors = new ArrayList<>();
+            for (int v = 0; v < this.vertexCount; ++v) {
+                this.successors.add(new ArrayList<>());
+            }
+
+            for (final LSONEdge edge : edges) {
+                final int u = edge.getV1().getIndex();
+                final int v = edge.getV2().getIndex();
+
+                this.successors.get(u).add(v);
+                if (!edge.isDirected() && u != v) {
+                    this.successors.get(v).add(u);
+                }
+            }
+        }
+
+        private static ArrayList<LSONVertex> createVertices (final int vertexCount)
+        {
+            final ArrayList<LSONVertex> vertices = new ArrayList<>();
+            for (int v = 0; v < vertexCount; ++v) {
+                vertices.add(new LSONVertex(v, null, null));
+            }
+            return vertices;
+        }
+
+        private static Graph createRandom (
+                final Random random,
+                final int vertexCount,
+                final int edgeCount,
+                final double directed)
+        {
+            final ArrayList<LSONVertex> vertices = createVertices(vertexCount);
+            final ArrayList<LSONEdge> edges = new ArrayList<>();
+            for (int e = 0; e < edgeCount; ++e) {
+                final LSONVertex from = vertices.get(random.nextInt(vertices.size()));
+                final LSONVertex to = vertices.get(random.nextInt(vertices.size()));
+                final double weight = random.nextInt(10);
+
+                edges.add(new LSONEdge(from, to, random.nextDouble() < directed, new LSONWord<>("w", weight)));
+            }
+            return new Graph(vertices, edges);
+        }
+
+        /**
+         * @return whether each vertex reaches each other vertex, by a search from every vertex.
+         */
+        private boolean[][] getReachable ()
+        {
+            final boolean[][] reachable = new boolean[this.vertexCount][this.vertexCount];
+
+            for (int source = 0; source < this.vertexCount; ++source) {
+                final ArrayDeque<Integer> stack = new ArrayDeque<>();
+                stack.push(source);
+                reachable[source][source] = true;
+
+                while (!stack.isEmpty()) {
+                    for (final int target : this.successors.get(stack.pop())) {
+                        if (!reachable[source][target]) {
+                            reachable[source][target] = true;
+                            stack.push(target);
+                        }
+                    }
+                }
+            }
+
+            return reachable;
+        }
+
+        @Override
+        public String toString ()
+        {
+            if (this.vertexCount > 64) {
+                return "a graph of " + this.vertexCount + " vertices and " + this.edges.size() + " edges";
+            }
+
+            final List<String> edges = new ArrayList<>();
+            for (final LSONEdge edge : this.edges) {
+                edges.add(edge.getV1().getIndex() + (edge.isDirected() ? ">" : "-") + edge.getV2().getIndex()
+                        + (edge.getData() == null ? "" : ":" + edge.getData().toWord().getObject()));
+            }
+            return edges.toString();
+        }
+    }
+}
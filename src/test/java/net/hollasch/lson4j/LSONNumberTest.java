@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2017 Connor Hollasch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.hollasch.lson4j;
+
+import net.hollasch.lson4j.type.LSONNumber;
+import net.hollasch.lson4j.type.LSONTypeAdapter;
+import net.hollasch.lson4j.type.LSONValue;
+import net.hollasch.lson4j.type.provided.LSONNumberTypeAdapter;
+import net.hollasch.lson4j.type.provided.LSONNumberTypeAdapter.Precision;
+import net.hollasch.lson4j.type.provided.LSONTypeAdapters;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Checks that numbers written in different ways are equal with equal hashes, and that the text implied for numbers
+ * kept without their source text reads back as the same number, including doubles too large for a long. Negative zero
+ * must keep its sign under every precision.
+ *
+ * @author Connor Hollasch
+ * @since Oct 18, 9:30 AM
+ */
+public class LSONNumberTest
+{
+    private static final String[][] EQUAL = {
+            {"1.0", "1.00", "1e0", "10e-1"},
+            {"9223372036854775808", "9.223372036854775808e18", "92233720368547758.08e2"},
+            {"0.5", "5e-1", ".5"}
+    };
+
+    private static final double[] IMPLIED = {
+            0x1p63, -0x1p63, 0x1p64, -0x1p64, 1e19, 1e300, 0.5, -0.0, Double.MAX_VALUE, -9.007199254740993e15
+    };
+
+    public static void main (final String... args) throws IOException, LSONParseException
+    {
+        final Random random = new Random(args.length > 0 ? Long.parseLong(args[0]) : 1);
+        final int numbers = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+
+        for (final String[] words : EQUAL) {
+            checkEqual(words);
+        }
+
+        for (final Precision precision : Precision.values()) {
+            checkZero(precision, "-0", -0.0);
+            checkZero(precision, "-000", -0.0);
+            checkZero(precision, "0", precision == Precision.DOUBLE ? (Number) 0.0 : (Number) 0L);
+        }
+
+        for (final double number : IMPLIED) {
+            checkImplied(number);
+        }
+        for (int i = 0; i < numbers; ++i) {
+            checkImplied(Double.longBitsToDouble(random.nextLong()));
+        }
+
+        System.out.println("Checked " + (IMPLIED.length + numbers) + " numbers");
+    }
+
+    /**
+     * Reads each of the words, and checks they make a single number in a hash set, also when kept without their text.
+     */
+    private static void checkEqual (final String... words) throws IOException, LSONParseException
+    {
+        final Set<LSONNumber> set = new HashSet<>();
+        for (final String word : words) {
+            final LSONNumber number = read(word);
+            set.add(number);
+            set.add(number.getObject() instanceof Double
+                    ? new LSONNumber(number.getAsDouble())
+                    : new LSONNumber(number.getAsLong()));
+        }
+
+        if (set.size() != 1) {
+            throw new AssertionError("Read " + set + " from " + String.join(" ", words));
+        }
+    }
+
+    /**
+     * Reads a zero under the given precision, checking that negative zero keeps its sign whatever the precision.
+     */
+    private static void checkZero (final Precision precision, final String word, final Number expected)
+            throws IOException, LSONParseException
+    {
+        final LSONValue value = LSON.parseWithAdapters(word,
+                Collections.<LSONTypeAdapter<?>>singletonList(new LSONNumberTypeAdapter(precision)));
+        final Object read = ((LSONNumber) value).getObject();
+
+        if (!read.equals(expected)) {
+            throw new AssertionError("Read " + read + " (" + read.getClass().getSimpleName() + ") from " + word
+                    + " under " + precision + ", expected " + expected);
+        }
+    }
+
+    private static void checkImplied (final double value) throws IOException, LSONParseException
+    {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return;
+        }
+
+        final LSONNumber number = new LSONNumber(value);
+        final LSONNumber read = read(number.getWord());
+
+        // Integral text must be exact, since the nearest double to a long that is off by one is often the same.
+        final boolean integral = number.getWord().matches("-?[0-9]+");
+        if (integral && new BigDecimal(number.getWord()).compareTo(new BigDecimal(value)) != 0
+                || Double.doubleToLongBits(read.getAsDouble()) != Double.doubleToLongBits(value)) {
+            throw new AssertionError("Read " + read + " from " + number.getWord() + ", implied by " + value);
+        }
+    }
+
+    private static LSONNumber read (final String word) throws IOException, LSONParseException
+    {
+        final LSONValue value = LSON.parseWithAdapters(word, LSONTypeAdapters.NUMBER);
+        if (!(value instanceof LSONNumber)) {
+            throw new AssertionError("Did not read a number from " + word);
+        }
+        return (LSONNumber) value;
+    }
+}
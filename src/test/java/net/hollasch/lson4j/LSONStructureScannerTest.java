@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2017 Connor Hollasch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.hollasch.lson4j;
+
+import net.hollasch.lson4j.type.LSONObject;
+import net.hollasch.lson4j.type.LSONString;
+import net.hollasch.lson4j.type.LSONTable;
+import net.hollasch.lson4j.type.LSONValue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Checks the value spans found by {@link LSONStructureScanner} against the values {@link LSONParser} reads, on
+ * documents full of tables, including headers ending right before a bracketed row as in {@code :[1]}.
+ *
+ * @author Connor Hollasch
+ * @since Oct 18, 8:10 AM
+ */
+public class LSONStructureScannerTest
+{
+    private static final String[] FIXED = {
+            "[# [c0] :[1] #]",
+            "{ id : [# [c0] :[1] #] b:2 }",
+            "[# [a b]:[1 2][3 4] #]",
+            "[# a b: 1 2 #]",
+            "[# a b :[1 2] x #]",
+            "[# [a] : #]",
+            "{x:[# [a] :[[# [b] :[{k:[1]}] #]] #] y:[# a: #]}"
+    };
+
+    public static void main (final String... args) throws IOException, LSONParseException
+    {
+        final Random random = new Random(args.length > 0 ? Long.parseLong(args[0]) : 1);
+        final int documents = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+
+        final List<String> values = new ArrayList<>(Arrays.asList(FIXED));
+        for (int i = 0; i < documents; ++i) {
+            values.add(randomContainer(random, 0));
+        }
+
+        for (final String value : values) {
+            try {
+                checkSpans(Collections.singletonList(value));
+                checkLazy(value);
+                checkSelect(value);
+            } catch (final LSONParseException e) {
+                throw new AssertionError("Could not read " + value, e);
+            }
+        }
+
+        // Streams of several values, as the push parser sees them.
+        for (int i = 0; i + 3 <= values.size(); i += 3) {
+            checkSpans(values.subList(i, i + 3));
+        }
+
+        System.out.println("Checked " + values.size() + " values");
+    }
+
+    /**
+     * Scans the values written one after another, and checks that the scanner finds exactly the text of each value,
+     * that the parser reads each span as a whole, and that the push parser reads the same values.
+     */
+    private static void checkSpans (final List<String> values) throws IOException, LSONParseException
+    {
+        final String document = String.join("\n", values);
+        final LSONStructureScanner scanner = new LSONStructureScanner();
+        final List<String> spans = new ArrayList<>();
+
+        int start = -1;
+        for (int i = 0; i < document.length(); ++i) {
+            final int result = scanner.accept(document.charAt(i));
+
+            if (result == LSONStructureScanner.VALUE_START) {
+                start = i;
+            } else if (result == LSONStructureScanner.VALUE_END) {
+                spans.add(document.substring(start, i + 1));
+            } else if (result == LSONStructureScanner.UNDERFLOW) {
+                throw new AssertionError("Scanner underflowed at " + i + " in " + document);
+            }
+        }
+
+        if (!spans.equals(values)) {
+            throw new AssertionError("Scanner found " + spans + " in " + document);
+        }
+
+        final List<String> expected = new ArrayList<>();
+        for (final String value : values) {
+            expected.add(canonical(LSON.parse(value)));
+        }
+
+        final List<String> pushed = new ArrayList<>();
+        final LSONPushParser pushParser = new LSONPushParser(value -> pushed.add(canonical(value)), new HashSet<>());
+        pushParser.feed(ByteBuffer.wrap(document.getBytes(StandardCharsets.UTF_8)));
+        pushParser.endOfInput();
+
+        if (!pushed.equals(expected)) {
+            throw new AssertionError("Push parser read " + pushed + " from " + document + ", expected " + expected);
+        }
+    }
+
+    private static void checkLazy (final String value) throws IOException, LSONParseException
+    {
+        final String expected = canonical(LSON.parse(value));
+        final String lazy = canonical(LSON.parseLazy(value));
+
+        if (!lazy.equals(expected)) {
+            throw new AssertionError("Lazy parse read " + lazy + " from " + value + ", expected " + expected);
+        }
+    }
+
+    private static void checkSelect (final String value) throws IOException, LSONParseException
+    {
+        final String document = "{ id : " + value + " b:2 }";
+        final Map<String, List<LSONValue>> selected = LSON.select(document, LSONSelector.compile("id", "b"));
+
+        final String id = canonical(selected.get("id").get(0));
+        final String b = canonical(selected.get("b").get(0));
+        if (!id.equals(canonical(LSON.parse(value))) || !b.equals(canonical(LSON.parse("2")))) {
+            throw new AssertionError("Selected " + selected + " from " + document);
+        }
+    }
+
+    //==================================================================================================================
+
+    /**
+     * @return a string form of the value that does not depend on the order object entries are kept in.
+     */
+    private static String canonical (final LSONValue value)
+    {
+        if (value == null) {
+            return "null";
+        } else if (value.isLSONObject()) {
+            final LSONObject<?> object = value.toObject();
+            final TreeMap<String, String> entries = new TreeMap<>();
+            for (final Map.Entry<LSONString, ?> entry : object.entrySet()) {
+                entries.put(entry.getKey().getWord(), canonical((LSONValue) entry.getValue()));
+            }
+            return entries.toString();
+        } else if (value.isLSONArray()) {
+            final List<String> elements = new ArrayList<>();
+            for (final Object element : value.toArray()) {
+                elements.add(canonical((LSONValue) element));
+            }
+            return elements.toString();
+        } else if (value.isTable()) {
+            final LSONTable table = value.toTable();
+            final List<String> rows = new ArrayList<>();
+            for (final List<LSONValue> row : table.getRowData()) {
+                final List<String> cells = new ArrayList<>();
+                row.forEach(cell -> cells.add(canonical(cell)));
+                rows.add(cells.toString());
+            }
+            return "#" + table.getHeader() + rows;
+        }
+
+        return value.toString();
+    }
+
+    private static String randomContainer (final Random random, final int depth)
+    {
+        switch (random.nextInt(3)) {
+            case 0:
+                return randomTable(random, depth);
+            case 1: {
+                final StringBuilder builder = new StringBuilder("{");
+                final int entries = random.nextInt(4);
+                for (int i = 0; i < entries; ++i) {
+                    builder.append(i == 0 ? "" : " ").append("k").append(i).append(random.nextBoolean() ? ":" : " : ")
+                            .append(randomValue(random, depth + 1));
+                }
+                return builder.append("}").toString();
+            }
+            default: {
+                // Never empty, as the parser takes an empty array starting an unbracketed table row for the table end.
+                final StringBuilder builder = new StringBuilder("[");
+                final int elements = 1 + random.nextInt(3);
+                for (int i = 0; i < elements; ++i) {
+                    builder.append(i == 0 ? "" : " ").append(randomValue(random, depth + 1));
+                }
+                return builder.append("]").toString();
+            }
+        }
+    }
+
+    private static String randomTable (final Random random, final int depth)
+    {
+        final boolean bracketed = random.nextBoolean();
+        final int columns = 1 + random.nextInt(3);
+        final StringBuilder builder = new StringBuilder("[#").append(random.nextBoolean() ? " " : "");
+
+        builder.append(bracketed ? "[" : "");
+        for (int c = 0; c < columns; ++c) {
+            builder.append(c == 0 ? "" : " ").append("c").append(c);
+        }
+        builder.append(bracketed ? "]" : "").append(random.nextBoolean() ? " :" : ":");
+
+        final int rows = random.nextInt(4);
+        for (int r = 0; r < rows; ++r) {
+            // Bracketed rows often follow the header separator or the previous row without any whitespace.
+            builder.append(bracketed && random.nextBoolean() ? "" : " ").append(bracketed ? "[" : "");
+            for (int c = 0; c < columns; ++c) {
+                builder.append(c == 0 ? "" : " ").append(randomValue(random, depth + 1));
+            }
+            builder.append(bracketed ? "]" : "");
+        }
+
+        return builder.append(" #]").toString();
+    }
+
+    private static String randomValue (final Random random, final int depth)
+    {
+        if (depth < 4 && random.nextInt(3) == 0) {
+            return randomContainer(random, depth);
+        }
+
+        switch (random.nextInt(3)) {
+            case 0:
+                return Integer.toString(random.nextInt(1000));
+            case 1:
+                return "\"s:[" + random.nextInt(10) + "\"";
+            default:
+                return "w" + random.nextInt(10);
+        }
+    }
+}
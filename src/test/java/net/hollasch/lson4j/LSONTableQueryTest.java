@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2017 Connor Hollasch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.hollasch.lson4j;
+
+import net.hollasch.lson4j.LSONTableQuery.Aggregate;
+import net.hollasch.lson4j.type.LSONColumnTable;
+
+import java.io.IOException;
+
+/**
+ * Runs every typed operator of {@link LSONTableQuery} over the columns of empty tables, which hold no cells to give
+ * them a type, and checks that columns with cells of the wrong type are still rejected.
+ *
+ * @author Connor Hollasch
+ * @since Oct 18, 9:05 AM
+ */
+public class LSONTableQueryTest
+{
+    private static final String[] EMPTY = {
+            "[# [a] : #]",
+            "[# a b : #]",
+            "[# [a b c] : #]"
+    };
+
+    public static void main (final String... args) throws IOException, LSONParseException
+    {
+        for (final String document : EMPTY) {
+            final LSONColumnTable table = LSONColumnTable.of(LSON.parse(document).toTable());
+
+            for (int column = 0; column < table.getColumnCount(); ++column) {
+                checkEmpty(table, table.getHeader().get(column).getWord(), document);
+            }
+        }
+
+        checkRejected("[# a : x [1] #]");
+        checkRejected("[# a : x y #]");
+
+        System.out.println("Checked " + EMPTY.length + " empty tables");
+    }
+
+    private static void checkEmpty (final LSONColumnTable table, final String column, final String document)
+    {
+        final String where = column + " of " + document;
+
+        check(query(table).filterNumber(column, number -> true).getRows().length == 0, "filterNumber", where);
+        check(query(table).filterString(column, string -> true).getRows().length == 0, "filterString", where);
+        check(query(table).filterBoolean(column, true).getRows().length == 0, "filterBoolean", where);
+        check(query(table).sortBy(column).getRows().length == 0, "sortBy", where);
+        check(query(table).sortByDescending(column).limit(1).toTable().getRowCount() == 0, "sortByDescending", where);
+
+        check(query(table).count() == 0, "count", where);
+        check(query(table).sum(column) == 0, "sum", where);
+        check(Double.isNaN(query(table).min(column)), "min", where);
+        check(Double.isNaN(query(table).max(column)), "max", where);
+        check(Double.isNaN(query(table).avg(column)), "avg", where);
+
+        final Aggregate[] aggregates = {
+                Aggregate.count(), Aggregate.sum(column), Aggregate.min(column), Aggregate.max(column),
+                Aggregate.avg(column)
+        };
+
+        // Ungrouped aggregates have a single row even without rows to aggregate, grouped ones a row per group.
+        final LSONColumnTable total = query(table).aggregate(aggregates);
+        check(total.getRowCount() == 1 && total.getColumnCount() == aggregates.length, "aggregate", where);
+
+        final LSONColumnTable grouped = query(table).groupBy(column).aggregate(aggregates);
+        check(grouped.getRowCount() == 0 && grouped.getColumnCount() == aggregates.length + 1, "groupBy", where);
+    }
+
+    private static void checkRejected (final String document) throws IOException, LSONParseException
+    {
+        final LSONTableQuery query = query(LSONColumnTable.of(LSON.parse(document).toTable()));
+
+        try {
+            query.filterNumber("a", number -> true);
+        } catch (final IllegalArgumentException e) {
+            return;
+        }
+
+        throw new AssertionError("filterNumber accepted column a of " + document);
+    }
+
+    private static LSONTableQuery query (final LSONColumnTable table)
+    {
+        return LSONTableQuery.from(table);
+    }
+
+    private static void check (final boolean condition, final String operator, final String where)
+    {
+        if (!condition) {
+            throw new AssertionError(operator + " failed on empty column " + where);
+        }
+    }
+}